@@ -0,0 +1,31 @@
+package io.github.zabuzard.fastcdc4j.benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Entry point of the benchmarks, runs JMH with the given command line arguments.
+ * <p>
+ * Unless a result format is given by {@code -rf}, results are written as JSON to {@code jmh-result.json}, or to the
+ * file given by {@code -rff}, to allow tracking them over time.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public enum BenchmarkRunner {
+	;
+	/**
+	 * Runs JMH with the given command line arguments, writing results as JSON by default.
+	 *
+	 * @param args The command line arguments, as accepted by JMH, see {@code -h}
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	public static void main(final String[] args) throws IOException {
+		final List<String> arguments = Arrays.asList(args);
+		final String[] argumentsToUse = arguments.contains("-rf") ? args
+				: Stream.concat(Stream.of("-rf", "json"), arguments.stream()).toArray(String[]::new);
+		org.openjdk.jmh.Main.main(argumentsToUse);
+	}
+}
@@ -0,0 +1,237 @@
+package io.github.zabuzard.fastcdc4j.benchmarks;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerBuilder;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasherOption;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the end-to-end throughput of chunkers created by the {@link ChunkerBuilder}, including reading, scanning
+ * and hashing, for all combinations of chunker options, hash methods, input types, expected chunk sizes and
+ * normalization levels.
+ * <p>
+ * The full grid is large, single dimensions can be fixed on the command line, for example {@code -p
+ * chunkerOption=FAST_CDC -p input=PATH}. The data is generated from a fixed seed, hence results are comparable across
+ * runs and releases.
+ * <p>
+ * One operation corresponds to one byte of chunked data, hence the score is given in bytes per second.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ChunkerBenchmark.DATA_SIZE)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChunkerBenchmark {
+	/**
+	 * The amount of data to chunk per operation, in bytes.
+	 */
+	static final int DATA_SIZE = 32 * 1_024 * 1_024;
+	/**
+	 * The seed used to generate the data.
+	 */
+	private static final long DATA_SEED = 42L;
+	/**
+	 * The average size of the files the data is split into for {@link Input#DIRECTORY}, in bytes.
+	 */
+	private static final int DIRECTORY_FILE_SIZE = 512 * 1_024;
+
+	/**
+	 * Deletes the given directory, including its content.
+	 *
+	 * @param directory The directory to delete
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void deleteRecursively(final Path directory) throws IOException {
+		try (final Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+				try {
+					Files.delete(path);
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * The chunker option to benchmark.
+	 */
+	@Param({ "FAST_CDC", "FAST_CDC_2020", "NLFIEDLER_RUST", "RABIN", "ADLER", "FIXED_SIZE_CHUNKING" })
+	private ChunkerOption chunkerOption;
+	/**
+	 * The chunker to benchmark.
+	 */
+	private Chunker chunker;
+	/**
+	 * The data to chunk.
+	 */
+	private byte[] data;
+	/**
+	 * Directory containing the data, either as single file or split into multiple files, depending on {@link #input}.
+	 */
+	private Path directory;
+	/**
+	 * The expected chunk size used by the chunker, in bytes.
+	 */
+	@Param({ "2048", "8192", "65536" })
+	private int expectedChunkSize;
+	/**
+	 * File containing the data, only used for {@link Input#PATH}.
+	 */
+	private Path file;
+	/**
+	 * The hasher to use, either a {@link java.security.MessageDigest} algorithm or a predefined hasher.
+	 */
+	@Param({ "SHA-1", "SHA-256", "MURMUR3_128", "BLAKE3" })
+	private String hasher;
+	/**
+	 * The type of input the data is given as.
+	 */
+	@Param({ "BYTE_ARRAY", "INPUT_STREAM", "PATH", "DIRECTORY" })
+	private Input input;
+	/**
+	 * The normalization level used for mask generation.
+	 */
+	@Param({ "0", "1", "2", "3" })
+	private int normalizationLevel;
+
+	/**
+	 * Generates the data, writes it to disk if required by the input type and creates the chunker.
+	 *
+	 * @throws IOException If an I/O error occurred while writing the data
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		data = new byte[ChunkerBenchmark.DATA_SIZE];
+		final Random random = new Random(ChunkerBenchmark.DATA_SEED);
+		random.nextBytes(data);
+
+		if (input == Input.PATH || input == Input.DIRECTORY) {
+			directory = Files.createTempDirectory("fastcdc4j-benchmark");
+		}
+		if (input == Input.PATH) {
+			file = Files.write(directory.resolve("data.bin"), data);
+		} else if (input == Input.DIRECTORY) {
+			// Files of varying size, between half and one and a half of the average size
+			int offset = 0;
+			for (int i = 0; offset < data.length; i++) {
+				final int size = Math.min(data.length - offset,
+						ChunkerBenchmark.DIRECTORY_FILE_SIZE / 2 + random.nextInt(ChunkerBenchmark.DIRECTORY_FILE_SIZE));
+				Files.write(directory.resolve("data-" + i + ".bin"), Arrays.copyOfRange(data, offset, offset + size));
+				offset += size;
+			}
+		}
+
+		final ChunkerBuilder builder = new ChunkerBuilder().setChunkerOption(chunkerOption)
+				.setExpectedChunkSize(expectedChunkSize)
+				.setNormalizationLevel(normalizationLevel);
+		switch (hasher) {
+			case "MURMUR3_128" -> builder.setChunkHasherOption(ChunkHasherOption.MURMUR3_128);
+			case "BLAKE3" -> builder.setChunkHasherOption(ChunkHasherOption.BLAKE3);
+			default -> builder.setChunkHasherOption(ChunkHasherOption.MESSAGE_DIGEST).setHashMethod(hasher);
+		}
+		chunker = builder.build();
+	}
+
+	/**
+	 * Deletes the data written to disk.
+	 *
+	 * @throws IOException If an I/O error occurred while deleting the data
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		if (directory != null) {
+			ChunkerBenchmark.deleteRecursively(directory);
+		}
+	}
+
+	/**
+	 * Chunks the data, given as the selected type of input.
+	 *
+	 * @param blackhole Consumer of the chunks
+	 *
+	 * @throws IOException If an I/O error occurred while opening the input
+	 */
+	@Benchmark
+	public void chunk(final Blackhole blackhole) throws IOException {
+		switch (input) {
+			case BYTE_ARRAY -> consume(chunker.chunk(data), blackhole);
+			case INPUT_STREAM -> {
+				try (final InputStream stream = new BufferedInputStream(new ByteArrayInputStream(data))) {
+					consume(chunker.chunk(stream, data.length), blackhole);
+				}
+			}
+			case PATH -> consume(chunker.chunk(file), blackhole);
+			case DIRECTORY -> consume(chunker.chunk(directory), blackhole);
+		}
+	}
+
+	/**
+	 * Consumes all given chunks.
+	 *
+	 * @param chunks    The chunks to consume
+	 * @param blackhole Consumer of the chunks
+	 */
+	private void consume(final Iterable<? extends Chunk> chunks, final Blackhole blackhole) {
+		for (final Chunk chunk : chunks) {
+			blackhole.consume(chunk);
+		}
+	}
+
+	/**
+	 * The type of input the data is given to the chunker as.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	public enum Input {
+		/**
+		 * The data is given as {@code byte[]}.
+		 */
+		BYTE_ARRAY,
+		/**
+		 * The data is given as {@link InputStream}.
+		 */
+		INPUT_STREAM,
+		/**
+		 * The data is given as a single file.
+		 */
+		PATH,
+		/**
+		 * The data is split into multiple files of a directory.
+		 */
+		DIRECTORY
+	}
+}
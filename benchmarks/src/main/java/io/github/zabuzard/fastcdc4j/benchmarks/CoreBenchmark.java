@@ -0,0 +1,136 @@
+package io.github.zabuzard.fastcdc4j.benchmarks;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerBuilder;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerOption;
+import io.github.zabuzard.fastcdc4j.external.chunking.MaskOption;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.chunking.AdlerChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.FastCdc2020ChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.FastCdcChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.HashTables;
+import io.github.zabuzard.fastcdc4j.internal.chunking.MaskGenerator;
+import io.github.zabuzard.fastcdc4j.internal.chunking.NlfiedlerRustChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.RabinChunkerCore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the chunker cores alone, finding all cut-points of the data without reading or hashing
+ * it.
+ * <p>
+ * One operation corresponds to one scanned byte, hence the score is given in bytes per second.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CoreBenchmark.DATA_SIZE)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoreBenchmark {
+	/**
+	 * The amount of data to scan per operation, in bytes.
+	 */
+	static final int DATA_SIZE = 64 * 1_024 * 1_024;
+	/**
+	 * The seed used to generate the data.
+	 */
+	private static final long DATA_SEED = 42L;
+	/**
+	 * The expected chunk size used by the cores, in bytes.
+	 */
+	private static final int EXPECTED_CHUNK_SIZE = 8 * 1_024;
+	/**
+	 * The seed used for mask generation, the default of the {@link ChunkerBuilder}.
+	 */
+	private static final long MASK_GENERATION_SEED = 941_568_351L;
+	/**
+	 * The normalization level used for mask generation, the default of the {@link ChunkerBuilder}.
+	 */
+	private static final int NORMALIZATION_LEVEL = 2;
+
+	/**
+	 * The chunker option to benchmark.
+	 */
+	@Param({ "FAST_CDC", "FAST_CDC_2020", "NLFIEDLER_RUST", "RABIN", "ADLER" })
+	private ChunkerOption chunkerOption;
+	/**
+	 * The core to benchmark.
+	 */
+	private BufferChunkerCore core;
+	/**
+	 * View on the data to scan.
+	 */
+	private ByteBuffer data;
+	/**
+	 * The state used by the core while scanning.
+	 */
+	private final ScanState state = new ScanState();
+
+	/**
+	 * Generates the data and creates the core.
+	 */
+	@Setup
+	public void setUp() {
+		final byte[] content = new byte[CoreBenchmark.DATA_SIZE];
+		new Random(CoreBenchmark.DATA_SEED).nextBytes(content);
+		data = ByteBuffer.wrap(content);
+
+		final int minSize = CoreBenchmark.EXPECTED_CHUNK_SIZE / 4;
+		final int maxSize = CoreBenchmark.EXPECTED_CHUNK_SIZE * 8;
+		final MaskGenerator maskGenerator =
+				new MaskGenerator(MaskOption.FAST_CDC, CoreBenchmark.NORMALIZATION_LEVEL,
+						CoreBenchmark.EXPECTED_CHUNK_SIZE, CoreBenchmark.MASK_GENERATION_SEED);
+		final long maskSmall = maskGenerator.generateSmallMask();
+		final long maskLarge = maskGenerator.generateLargeMask();
+		// Same as the chunker builder, for the rolling window algorithms
+		final long windowMask =
+				MaskGenerator.generateRollingWindowMask(CoreBenchmark.EXPECTED_CHUNK_SIZE, minSize, maxSize);
+		core = switch (chunkerOption) {
+			case FAST_CDC -> new FastCdcChunkerCore(CoreBenchmark.EXPECTED_CHUNK_SIZE, minSize, maxSize,
+					HashTables.getRtpal(), maskSmall, maskLarge);
+			case FAST_CDC_2020 -> new FastCdc2020ChunkerCore(CoreBenchmark.EXPECTED_CHUNK_SIZE, minSize, maxSize,
+					HashTables.getRtpal(), maskSmall, maskLarge);
+			case NLFIEDLER_RUST -> new NlfiedlerRustChunkerCore(CoreBenchmark.EXPECTED_CHUNK_SIZE, minSize, maxSize,
+					HashTables.getRtpal(), maskSmall, maskLarge);
+			case RABIN -> new RabinChunkerCore(minSize, maxSize, RabinChunkerCore.DEFAULT_POLYNOMIAL,
+					RabinChunkerCore.DEFAULT_WINDOW_SIZE, windowMask);
+			case ADLER -> new AdlerChunkerCore(minSize, maxSize, AdlerChunkerCore.DEFAULT_WINDOW_SIZE, windowMask);
+			default -> throw new AssertionError("Unsupported chunker option: " + chunkerOption);
+		};
+	}
+
+	/**
+	 * Finds all cut-points of the data.
+	 *
+	 * @return The amount of chunks, to prevent dead code elimination
+	 */
+	@Benchmark
+	public int scan() {
+		int chunks = 0;
+		int offset = 0;
+		while (offset < CoreBenchmark.DATA_SIZE) {
+			state.reset(CoreBenchmark.DATA_SIZE - offset);
+			offset = core.scan(data, offset, CoreBenchmark.DATA_SIZE, state);
+			chunks++;
+		}
+		return chunks;
+	}
+}
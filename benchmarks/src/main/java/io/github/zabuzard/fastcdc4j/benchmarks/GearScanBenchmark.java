@@ -0,0 +1,234 @@
+package io.github.zabuzard.fastcdc4j.benchmarks;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.MaskOption;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.chunking.FastCdcChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.HashTables;
+import io.github.zabuzard.fastcdc4j.internal.chunking.MaskGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar gear scan of {@link FastCdcChunkerCore} against a lane-parallel scan that hashes several
+ * positions at once, to justify why the core keeps its loops scalar.
+ * <p>
+ * The lane-parallel scan splits each block into {@link #LANES} stripes that are hashed in lockstep, in independent
+ * lanes. Since the fingerprint only depends on the last 64 bytes, each lane first warms up on the 64 bytes in front of
+ * its stripe. The earliest candidate of all lanes is the cut-point, hence both scans find identical cut-points, which
+ * is verified during setup.
+ * <p>
+ * One operation corresponds to one scanned byte, hence the score is given in bytes per second.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(GearScanBenchmark.DATA_SIZE)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GearScanBenchmark {
+	/**
+	 * The amount of data to scan per operation, in bytes.
+	 */
+	static final int DATA_SIZE = 64 * 1_024 * 1_024;
+	/**
+	 * The seed used to generate the data.
+	 */
+	private static final long DATA_SEED = 42L;
+	/**
+	 * The expected chunk size used by the scans, in bytes.
+	 */
+	private static final int EXPECTED_CHUNK_SIZE = 8 * 1_024;
+	/**
+	 * The amount of lanes hashed in lockstep by the lane-parallel scan.
+	 */
+	private static final int LANES = 4;
+	/**
+	 * The seed used for mask generation, the default of the chunker builder.
+	 */
+	private static final long MASK_GENERATION_SEED = 941_568_351L;
+	/**
+	 * The normalization level used for mask generation, the default of the chunker builder.
+	 */
+	private static final int NORMALIZATION_LEVEL = 2;
+	/**
+	 * The amount of bytes hashed by a single lane per block.
+	 */
+	private static final int STRIPE_SIZE = 256;
+	/**
+	 * The amount of bytes in front of a position that determine its fingerprint.
+	 */
+	private static final int WINDOW_SIZE = Long.SIZE;
+
+	/**
+	 * The scalar core to benchmark.
+	 */
+	private FastCdcChunkerCore core;
+	/**
+	 * The first candidate of each lane in the current block, {@code -1} if the lane has none.
+	 */
+	private final int[] cuts = new int[GearScanBenchmark.LANES];
+	/**
+	 * View on the data to scan.
+	 */
+	private ByteBuffer data;
+	/**
+	 * The fingerprint of each lane in the current block.
+	 */
+	private final long[] fingerprints = new long[GearScanBenchmark.LANES];
+	/**
+	 * The hash table used by both scans.
+	 */
+	private long[] gear;
+	/**
+	 * Mask for the fingerprint that is used for bigger windows.
+	 */
+	private long maskLarge;
+	/**
+	 * Mask for the fingerprint that is used for smaller windows.
+	 */
+	private long maskSmall;
+	/**
+	 * The maximal size for a single chunk, in bytes.
+	 */
+	private int maxSize;
+	/**
+	 * The minimal size for a single chunk, in bytes.
+	 */
+	private int minSize;
+	/**
+	 * The state used by the core while scanning.
+	 */
+	private final ScanState state = new ScanState();
+
+	/**
+	 * Generates the data, creates the core and verifies that both scans find the same cut-points.
+	 */
+	@Setup
+	public void setUp() {
+		final byte[] content = new byte[GearScanBenchmark.DATA_SIZE];
+		new Random(GearScanBenchmark.DATA_SEED).nextBytes(content);
+		data = ByteBuffer.wrap(content);
+
+		minSize = GearScanBenchmark.EXPECTED_CHUNK_SIZE / 4;
+		maxSize = GearScanBenchmark.EXPECTED_CHUNK_SIZE * 8;
+		final MaskGenerator maskGenerator =
+				new MaskGenerator(MaskOption.FAST_CDC, GearScanBenchmark.NORMALIZATION_LEVEL,
+						GearScanBenchmark.EXPECTED_CHUNK_SIZE, GearScanBenchmark.MASK_GENERATION_SEED);
+		maskSmall = maskGenerator.generateSmallMask();
+		maskLarge = maskGenerator.generateLargeMask();
+		gear = HashTables.getRtpal();
+		core = new FastCdcChunkerCore(GearScanBenchmark.EXPECTED_CHUNK_SIZE, minSize, maxSize, gear, maskSmall,
+				maskLarge);
+
+		int scalarOffset = 0;
+		int lanesOffset = 0;
+		while (scalarOffset < GearScanBenchmark.DATA_SIZE) {
+			state.reset(GearScanBenchmark.DATA_SIZE - scalarOffset);
+			scalarOffset = core.scan(data, scalarOffset, GearScanBenchmark.DATA_SIZE, state);
+			lanesOffset = findCutPointInLanes(lanesOffset);
+			if (scalarOffset != lanesOffset) {
+				throw new IllegalStateException(
+						"The scans found different cut-points, scalar: " + scalarOffset + ", lanes: " + lanesOffset);
+			}
+		}
+	}
+
+	/**
+	 * Finds all cut-points of the data with the lane-parallel scan.
+	 *
+	 * @return The amount of chunks, to prevent dead code elimination
+	 */
+	@Benchmark
+	public int lanes() {
+		int chunks = 0;
+		int offset = 0;
+		while (offset < GearScanBenchmark.DATA_SIZE) {
+			offset = findCutPointInLanes(offset);
+			chunks++;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Finds all cut-points of the data with the scalar scan of the core.
+	 *
+	 * @return The amount of chunks, to prevent dead code elimination
+	 */
+	@Benchmark
+	public int scalar() {
+		int chunks = 0;
+		int offset = 0;
+		while (offset < GearScanBenchmark.DATA_SIZE) {
+			state.reset(GearScanBenchmark.DATA_SIZE - offset);
+			offset = core.scan(data, offset, GearScanBenchmark.DATA_SIZE, state);
+			chunks++;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Finds the cut-point of the chunk starting at the given offset, with the lane-parallel scan. Follows the same
+	 * rules as {@link FastCdcChunkerCore#scan(ByteBuffer, int, int, ScanState)}.
+	 *
+	 * @param start The offset the chunk starts at
+	 *
+	 * @return The offset of the first byte after the chunk
+	 */
+	private int findCutPointInLanes(final int start) {
+		final int n = Math.min(GearScanBenchmark.DATA_SIZE - start, maxSize);
+		final int normalSize = Math.min(n, GearScanBenchmark.EXPECTED_CHUNK_SIZE);
+		final int blockSize = GearScanBenchmark.LANES * GearScanBenchmark.STRIPE_SIZE;
+
+		for (int block = minSize; block < n; block += blockSize) {
+			Arrays.fill(cuts, -1);
+			// Warm up each lane on the bytes in front of its stripe, the fingerprint starts at the minimal size
+			for (int lane = 0; lane < GearScanBenchmark.LANES; lane++) {
+				final int stripe = block + lane * GearScanBenchmark.STRIPE_SIZE;
+				long fingerprint = 0;
+				for (int i = Math.max(minSize, stripe - GearScanBenchmark.WINDOW_SIZE); i < stripe; i++) {
+					fingerprint = (fingerprint << 1) + gear[data.get(start + i) & 0xFF];
+				}
+				fingerprints[lane] = fingerprint;
+			}
+
+			// Hash the stripes in lockstep, each lane remembers its first candidate
+			for (int k = 0; k < GearScanBenchmark.STRIPE_SIZE; k++) {
+				for (int lane = 0; lane < GearScanBenchmark.LANES; lane++) {
+					final int i = block + lane * GearScanBenchmark.STRIPE_SIZE + k;
+					if (i >= n || cuts[lane] != -1) {
+						continue;
+					}
+					final long fingerprint = (fingerprints[lane] << 1) + gear[data.get(start + i) & 0xFF];
+					fingerprints[lane] = fingerprint;
+					if ((fingerprint & (i < normalSize ? maskSmall : maskLarge)) == 0) {
+						cuts[lane] = i;
+					}
+				}
+			}
+
+			for (final int cut : cuts) {
+				if (cut != -1) {
+					return start + cut + 1;
+				}
+			}
+		}
+		return start + n;
+	}
+}
@@ -0,0 +1,96 @@
+package io.github.zabuzard.fastcdc4j.benchmarks;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.hashing.Blake3ChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.hashing.MessageDigestChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.hashing.Murmur3ChunkHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the available chunk hashers for different chunk sizes.
+ * <p>
+ * One operation corresponds to one hashed byte, hence the score is given in bytes per second.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(HasherBenchmark.DATA_SIZE)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HasherBenchmark {
+	/**
+	 * The amount of data to hash per operation, in bytes.
+	 */
+	static final int DATA_SIZE = 16 * 1_024 * 1_024;
+	/**
+	 * The seed used to generate the data.
+	 */
+	private static final long DATA_SEED = 42L;
+
+	/**
+	 * The size of the chunks the data is hashed in, in bytes.
+	 */
+	@Param({ "2048", "8192", "65536" })
+	private int chunkSize;
+	/**
+	 * The data to hash.
+	 */
+	private byte[] data;
+	/**
+	 * The digest to use, created by the hasher.
+	 */
+	private ChunkDigest digest;
+	/**
+	 * The hasher to benchmark, either a {@link java.security.MessageDigest} algorithm or a predefined hasher.
+	 */
+	@Param({ "SHA-1", "SHA-256", "MURMUR3_128", "BLAKE3" })
+	private String hasher;
+
+	/**
+	 * Generates the data and creates the digest.
+	 */
+	@Setup
+	public void setUp() {
+		data = new byte[HasherBenchmark.DATA_SIZE];
+		new Random(HasherBenchmark.DATA_SEED).nextBytes(data);
+
+		final ChunkHasher chunkHasher = switch (hasher) {
+			case "MURMUR3_128" -> new Murmur3ChunkHasher();
+			case "BLAKE3" -> new Blake3ChunkHasher();
+			default -> new MessageDigestChunkHasher(hasher);
+		};
+		digest = chunkHasher.newDigest();
+	}
+
+	/**
+	 * Hashes the data chunk by chunk.
+	 *
+	 * @param blackhole Consumer of the hashes
+	 */
+	@Benchmark
+	public void hashChunks(final Blackhole blackhole) {
+		for (int offset = 0; offset < data.length; offset += chunkSize) {
+			digest.update(data, offset, Math.min(chunkSize, data.length - offset));
+			blackhole.consume(digest.digest());
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package io.github.zabuzard.fastcdc4j.benchmarks;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerBuilder;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerOption;
+import io.github.zabuzard.fastcdc4j.external.chunking.IterativeStreamChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.MaskOption;
+import io.github.zabuzard.fastcdc4j.internal.chunking.AdlerChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.FastCdc2020ChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.FastCdcChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.HashTables;
+import io.github.zabuzard.fastcdc4j.internal.chunking.IterativeStreamChunker;
+import io.github.zabuzard.fastcdc4j.internal.chunking.MaskGenerator;
+import io.github.zabuzard.fastcdc4j.internal.chunking.NlfiedlerRustChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.chunking.RabinChunkerCore;
+import io.github.zabuzard.fastcdc4j.internal.hashing.MessageDigestChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the block-buffered scanning engine, with and without pipelining, with the byte by byte
+ * stream engine. Also compares the FastCDC core rolling one byte per iteration with the one rolling two bytes.
+ * <p>
+ * One operation corresponds to one byte of chunked data, hence the score is given in bytes per second.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ScanningEngineBenchmark.DATA_SIZE)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanningEngineBenchmark {
+	/**
+	 * The amount of data to chunk per operation, in bytes.
+	 */
+	static final int DATA_SIZE = 64 * 1_024 * 1_024;
+	/**
+	 * The seed used to generate the data.
+	 */
+	private static final long DATA_SEED = 42L;
+	/**
+	 * The expected chunk size used by the chunkers, in bytes.
+	 */
+	private static final int EXPECTED_CHUNK_SIZE = 8 * 1_024;
+	/**
+	 * The seed used for mask generation, the default of the {@link ChunkerBuilder}.
+	 */
+	private static final long MASK_GENERATION_SEED = 941_568_351L;
+	/**
+	 * The normalization level used for mask generation, the default of the {@link ChunkerBuilder}.
+	 */
+	private static final int NORMALIZATION_LEVEL = 2;
+	/**
+	 * The hash method used by the chunkers.
+	 */
+	private static final String HASH_METHOD = "SHA-1";
+
+	/**
+	 * The chunker option to benchmark.
+	 */
+	@Param({ "FAST_CDC", "FAST_CDC_2020", "NLFIEDLER_RUST", "RABIN", "ADLER" })
+	private ChunkerOption chunkerOption;
+	/**
+	 * The chunker using the block-buffered scanning engine.
+	 */
+	private Chunker bufferChunker;
+	/**
+	 * The data to chunk.
+	 */
+	private byte[] data;
+	/**
+	 * The chunker pipelining reading, scanning and hashing across threads.
+	 */
+	private Chunker pipelinedChunker;
+	/**
+	 * The chunker reading the stream byte by byte.
+	 */
+	private Chunker streamChunker;
+
+	/**
+	 * Generates the data and creates the chunkers.
+	 */
+	@Setup
+	public void setUp() {
+		data = new byte[ScanningEngineBenchmark.DATA_SIZE];
+		new Random(ScanningEngineBenchmark.DATA_SEED).nextBytes(data);
+
+		bufferChunker = new ChunkerBuilder().setChunkerOption(chunkerOption)
+				.setExpectedChunkSize(ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE)
+				.setHashMethod(ScanningEngineBenchmark.HASH_METHOD)
+				.build();
+		pipelinedChunker = new ChunkerBuilder().setChunkerOption(chunkerOption)
+				.setExpectedChunkSize(ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE)
+				.setHashMethod(ScanningEngineBenchmark.HASH_METHOD)
+				.setPipelining(true)
+				.build();
+
+		final int minSize = ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE / 4;
+		final int maxSize = ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE * 8;
+		final MaskGenerator maskGenerator =
+				new MaskGenerator(MaskOption.FAST_CDC, ScanningEngineBenchmark.NORMALIZATION_LEVEL,
+						ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE, ScanningEngineBenchmark.MASK_GENERATION_SEED);
+		final long maskSmall = maskGenerator.generateSmallMask();
+		final long maskLarge = maskGenerator.generateLargeMask();
+		// Same as the chunker builder, for the rolling window algorithms
+		final long windowMask = (1L << Util.log2(ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE - minSize)) - 1;
+		final IterativeStreamChunkerCore core = switch (chunkerOption) {
+			case FAST_CDC -> new FastCdcChunkerCore(ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE, minSize, maxSize,
+					HashTables.getRtpal(), maskSmall, maskLarge);
+			case FAST_CDC_2020 -> new FastCdc2020ChunkerCore(ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE, minSize,
+					maxSize, HashTables.getRtpal(), maskSmall, maskLarge);
+			case NLFIEDLER_RUST -> new NlfiedlerRustChunkerCore(ScanningEngineBenchmark.EXPECTED_CHUNK_SIZE, minSize,
+					maxSize, HashTables.getRtpal(), maskSmall, maskLarge);
+			case RABIN -> new RabinChunkerCore(minSize, maxSize, RabinChunkerCore.DEFAULT_POLYNOMIAL,
+					RabinChunkerCore.DEFAULT_WINDOW_SIZE, windowMask);
+			case ADLER -> new AdlerChunkerCore(minSize, maxSize, AdlerChunkerCore.DEFAULT_WINDOW_SIZE, windowMask);
+			default -> throw new AssertionError("Unsupported chunker option: " + chunkerOption);
+		};
+		streamChunker =
+				new IterativeStreamChunker(core, new MessageDigestChunkHasher(ScanningEngineBenchmark.HASH_METHOD));
+	}
+
+	/**
+	 * Chunks the data using the block-buffered scanning engine.
+	 *
+	 * @param blackhole Consumer of the chunks
+	 */
+	@Benchmark
+	public void bufferEngine(final Blackhole blackhole) {
+		for (final Chunk chunk : bufferChunker.chunk(data)) {
+			blackhole.consume(chunk);
+		}
+	}
+
+	/**
+	 * Chunks the data using the block-buffered scanning engine, pipelined across threads.
+	 *
+	 * @param blackhole Consumer of the chunks
+	 */
+	@Benchmark
+	public void pipelinedEngine(final Blackhole blackhole) {
+		for (final Chunk chunk : pipelinedChunker.chunk(data)) {
+			blackhole.consume(chunk);
+		}
+	}
+
+	/**
+	 * Chunks the data using the engine reading the stream byte by byte.
+	 *
+	 * @param blackhole Consumer of the chunks
+	 */
+	@Benchmark
+	public void streamEngine(final Blackhole blackhole) {
+		for (final Chunk chunk : streamChunker.chunk(data)) {
+			blackhole.consume(chunk);
+		}
+	}
+}
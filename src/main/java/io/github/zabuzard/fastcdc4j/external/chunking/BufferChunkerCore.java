@@ -0,0 +1,42 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for the core algorithm used by a chunker that scans blocks of buffered data for cut-points.
+ * <p>
+ * Unlike an {@link IterativeStreamChunkerCore}, the core does not consume any data by itself. It only searches the
+ * given data for the end of the current chunk, the chunker is responsible for reading the data in large blocks and for
+ * cutting the chunks out of it. The scan of a chunk can be split across multiple calls, the progress is kept in a
+ * {@link ScanState}.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public interface BufferChunkerCore {
+	/**
+	 * Gets the maximal size a chunk created by this core can have, in bytes. A chunker that provides at least that many
+	 * bytes, or all remaining bytes of the data stream, is guaranteed to receive a cut-point in a single scan.
+	 *
+	 * @return The maximal size of a chunk, in bytes
+	 */
+	int getMaximalChunkSize();
+
+	/**
+	 * Scans the given data for the cut-point of the current chunk. The data continues the current chunk right after
+	 * the amount of bytes given by {@link ScanState#getPosition()}.
+	 * <p>
+	 * If the cut-point is found, its index in the buffer is returned, i.e. the exclusive end of the chunk. Otherwise,
+	 * the state is updated to reflect the scanned data and {@code -1} is returned, the scan can then be continued with
+	 * the data that follows.
+	 *
+	 * @param data  The buffer containing the data to scan, accessed with absolute indices, its position and limit are
+	 *              not modified, not null
+	 * @param start The index of the first byte to scan, inclusive, must be positive
+	 * @param end   The index of the last byte to scan, exclusive, must be greater equals start
+	 * @param state The state of the scan for the current chunk, will be updated if the cut-point is not found, not
+	 *              null
+	 *
+	 * @return The index of the cut-point in the buffer, exclusive, or {@code -1} if the data does not contain it
+	 */
+	int scan(ByteBuffer data, int start, int end, ScanState state);
+}
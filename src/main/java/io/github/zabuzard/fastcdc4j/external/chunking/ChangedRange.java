@@ -0,0 +1,98 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+/**
+ * A range of bytes that changed between a previous and the current version of a file, used for re-chunking only the
+ * changed parts of a file, see {@link Chunker#rechunkMetadata(java.nio.file.Path, java.util.List, java.util.List)}.
+ * <p>
+ * The range replaced a given amount of bytes of the previous version by a given amount of bytes in the current version,
+ * both starting at the same offset. The offset is with respect to the current version, i.e. it already includes the
+ * shift caused by preceding ranges. A modification in place keeps the length, an insertion has a previous length of
+ * {@code 0} and a deletion a length of {@code 0}.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChangedRange {
+	/**
+	 * Creates the range that changed between two versions of a file that only share a prefix and a suffix.
+	 *
+	 * @param unchangedPrefix The amount of bytes at the start of the file that did not change, must be positive
+	 * @param unchangedSuffix The amount of bytes at the end of the file that did not change, must be positive
+	 * @param previousSize    The size of the previous version of the file, must be greater equals the unchanged prefix
+	 *                        and suffix together
+	 * @param size            The size of the current version of the file, must be greater equals the unchanged prefix
+	 *                        and suffix together
+	 *
+	 * @return The range between the unchanged prefix and suffix
+	 */
+	public static ChangedRange ofUnchangedEnds(final long unchangedPrefix, final long unchangedSuffix,
+			final long previousSize, final long size) {
+		Validations.requirePositive(unchangedPrefix, "Unchanged prefix");
+		Validations.requirePositive(unchangedSuffix, "Unchanged suffix");
+		Validations.require(previousSize >= unchangedPrefix + unchangedSuffix,
+				"Unchanged prefix and suffix must fit into the previous size");
+		Validations.require(size >= unchangedPrefix + unchangedSuffix,
+				"Unchanged prefix and suffix must fit into the size");
+		return new ChangedRange(unchangedPrefix, size - unchangedPrefix - unchangedSuffix,
+				previousSize - unchangedPrefix - unchangedSuffix);
+	}
+
+	/**
+	 * The amount of bytes of the range in the current version.
+	 */
+	private final long length;
+	/**
+	 * The offset of the range in the current version.
+	 */
+	private final long offset;
+	/**
+	 * The amount of bytes of the range in the previous version.
+	 */
+	private final long previousLength;
+
+	/**
+	 * Creates a new changed range.
+	 *
+	 * @param offset         The offset of the range in the current version, must be positive
+	 * @param length         The amount of bytes of the range in the current version, must be positive
+	 * @param previousLength The amount of bytes the range replaced in the previous version, must be positive
+	 */
+	public ChangedRange(final long offset, final long length, final long previousLength) {
+		this.offset = Validations.requirePositive(offset, "Offset");
+		this.length = Validations.requirePositive(length, "Length");
+		this.previousLength = Validations.requirePositive(previousLength, "Previous length");
+	}
+
+	/**
+	 * Gets the amount of bytes of the range in the current version.
+	 *
+	 * @return The length of the range
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Gets the offset of the range in the current version.
+	 *
+	 * @return The offset of the range
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Gets the amount of bytes the range replaced in the previous version.
+	 *
+	 * @return The length of the range in the previous version
+	 */
+	public long getPreviousLength() {
+		return previousLength;
+	}
+
+	@Override
+	public String toString() {
+		return "ChangedRange{offset=" + offset + ", length=" + length + ", previousLength=" + previousLength + "}";
+	}
+}
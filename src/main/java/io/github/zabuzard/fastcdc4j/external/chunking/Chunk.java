@@ -2,11 +2,13 @@ package io.github.zabuzard.fastcdc4j.external.chunking;
 
 import io.github.zabuzard.fastcdc4j.internal.chunking.SimpleChunkMetadata;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface representing chunked data as created by a {@link Chunker}.
  * <p>
  * Chunks own their data, hence it is preferable to keep their lifetime short and collect necessary information as soon
- * as possible.
+ * as possible. Chunks of memory-mapped files keep the mapping alive instead, see {@link #getDataBuffer()}.
  *
  * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
  */
@@ -18,6 +20,20 @@ public interface Chunk {
 	 */
 	byte[] getData();
 
+	/**
+	 * Gets a read-only view on the data contained in this chunk.
+	 * <p>
+	 * Unlike {@link #getData()}, the data is not copied if the chunk is backed by a buffer, for example by a
+	 * memory-mapped file. The returned buffer is positioned at the first byte of the chunk and its limit is the length
+	 * of the chunk.
+	 *
+	 * @return A read-only view on the contained data
+	 */
+	default ByteBuffer getDataBuffer() {
+		return ByteBuffer.wrap(getData())
+				.asReadOnlyBuffer();
+	}
+
 	/**
 	 * A binary hash representation of the contained data. Using the algorithm specified during construction by the
 	 * {@link Chunker}.
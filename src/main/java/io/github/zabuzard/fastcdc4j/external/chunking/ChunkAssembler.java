@@ -0,0 +1,337 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reassembles files from their chunks, the inverse of a {@link Chunker}. Given the metadata of the chunks of a file, in
+ * order, the data of every chunk is located by a {@link ChunkResolver}, for example a {@link ChunkStore}, and copied
+ * into the file.
+ * <p>
+ * The data is transferred from the pack files into the file by {@link FileChannel#transferTo(long, long,
+ * java.nio.channels.WritableByteChannel)}, which lets the operating system copy the data without passing it through the
+ * Java heap. Chunks are copied in parallel, in the order of their locations, so that every thread reads its packs
+ * sequentially. Chunks that occur multiple times in the file are read only once and then written to all their
+ * offsets.
+ * <p>
+ * Optionally, the data of every chunk is verified against its hash, it is read into a buffer and hashed then.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkAssembler {
+	/**
+	 * The amount of tasks the chunks are split into per thread, to balance the load of the threads.
+	 */
+	private static final int TASKS_PER_THREAD = 4;
+
+	/**
+	 * Reads from the given channel at the given position until the given buffer is full.
+	 *
+	 * @param channel  The channel to read from, not null
+	 * @param buffer   The buffer to fill, not null
+	 * @param position The position to read at
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+			throws IOException {
+		final int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position() - start) == -1) {
+				throw new IllegalArgumentException("The data of the chunk exceeds its pack file");
+			}
+		}
+	}
+
+	/**
+	 * Runs the given tasks on a pool of the given amount of threads and waits for them to complete. The tasks block on
+	 * I/O, hence they are not run on a work-stealing pool.
+	 *
+	 * @param tasks       The tasks to run, not null
+	 * @param parallelism The amount of threads
+	 */
+	private static void runAll(final List<Callable<Void>> tasks, final int parallelism) {
+		final ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+		try {
+			for (final Future<Void> future : pool.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the chunks to be copied", e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Transfers the data at the given location from the given pack into the given target.
+	 *
+	 * @param pack     The channel of the pack, not null
+	 * @param location The location of the data, not null
+	 * @param target   The channel of the file to transfer into, not null
+	 * @param position The position in the file to transfer to
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void transfer(final FileChannel pack, final ChunkLocation location, final FileChannel target,
+			final long position) throws IOException {
+		target.position(position);
+		long transferred = 0;
+		while (transferred < location.getLength()) {
+			final long count = pack.transferTo(location.getOffset() + transferred, location.getLength() - transferred,
+					target);
+			if (count == 0 && location.getOffset() + transferred >= pack.size()) {
+				throw new IllegalArgumentException("The data of the chunk exceeds its pack file");
+			}
+			transferred += count;
+		}
+	}
+
+	/**
+	 * Writes the remaining content of the given buffer to the given channel at the given position.
+	 *
+	 * @param channel  The channel to write to, not null
+	 * @param buffer   The buffer to write, not null
+	 * @param position The position to write at
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+			throws IOException {
+		final int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position() - start);
+		}
+	}
+
+	/**
+	 * The hasher to verify the data of chunks with, {@code null} if the data is not verified.
+	 */
+	private final ChunkHasher hasher;
+	/**
+	 * The amount of threads copying chunks in parallel.
+	 */
+	private final int parallelism;
+	/**
+	 * The resolver to locate the data of chunks with.
+	 */
+	private final ChunkResolver resolver;
+
+	/**
+	 * Creates a new assembler that does not verify the data of chunks.
+	 *
+	 * @param resolver    The resolver to locate the data of chunks with, not null
+	 * @param parallelism The amount of threads copying chunks in parallel, must be positive and not zero
+	 */
+	public ChunkAssembler(final ChunkResolver resolver, final int parallelism) {
+		this.resolver = Objects.requireNonNull(resolver);
+		this.parallelism = Validations.requirePositiveNonZero(parallelism, "Parallelism");
+		hasher = null;
+	}
+
+	/**
+	 * Creates a new assembler that verifies the data of chunks against their hashes.
+	 *
+	 * @param resolver    The resolver to locate the data of chunks with, not null
+	 * @param parallelism The amount of threads copying chunks in parallel, must be positive and not zero
+	 * @param hasher      The hasher the chunks were hashed with, see {@link ChunkerBuilder#buildChunkHasher()}, not
+	 *                    null
+	 */
+	public ChunkAssembler(final ChunkResolver resolver, final int parallelism, final ChunkHasher hasher) {
+		this.resolver = Objects.requireNonNull(resolver);
+		this.parallelism = Validations.requirePositiveNonZero(parallelism, "Parallelism");
+		this.hasher = Objects.requireNonNull(hasher);
+	}
+
+	/**
+	 * Reassembles the file consisting of the given chunks. An existing file is replaced.
+	 *
+	 * @param chunks The metadata of the chunks of the file, in order. The chunks must be contiguous, starting at offset
+	 *               {@code 0}. Not null.
+	 * @param file   The file to write, not null
+	 *
+	 * @throws IllegalArgumentException If the data of a chunk is not available or its length differs from the metadata
+	 * @throws IllegalStateException    If the data of a chunk does not match its hash, only if verifying
+	 */
+	public void assemble(final List<? extends ChunkMetadata> chunks, final Path file) {
+		Objects.requireNonNull(chunks);
+		Objects.requireNonNull(file);
+
+		// Every distinct chunk is copied once, to all of its offsets
+		final Map<ByteBuffer, Copy> copiesByHash = new HashMap<>();
+		final List<Copy> copies = new ArrayList<>();
+		long size = 0;
+		for (final ChunkMetadata chunk : chunks) {
+			Validations.require(chunk.getOffset() == size, "Chunks must be contiguous and start at offset 0");
+			size += chunk.getLength();
+
+			final byte[] hash = chunk.getHash();
+			Copy copy = copiesByHash.get(ByteBuffer.wrap(hash));
+			if (copy == null) {
+				final ChunkLocation location = resolver.getLocation(hash);
+				Validations.require(location != null, "The data of the chunk is not available: " + chunk.getHexHash());
+				Validations.require(location.getLength() == chunk.getLength(),
+						"The length of the data of the chunk differs from its metadata: " + chunk.getHexHash());
+				copy = new Copy(hash, location);
+				copiesByHash.put(ByteBuffer.wrap(hash), copy);
+				copies.add(copy);
+			}
+			copy.addTarget(chunk.getOffset());
+		}
+		copies.sort(Comparator.comparingInt((Copy copy) -> copy.location.getPack())
+				.thenComparingLong(copy -> copy.location.getOffset()));
+
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (size > 0) {
+				// Allocates the file upfront, the tasks write at arbitrary offsets
+				ChunkAssembler.writeFully(channel, ByteBuffer.allocate(1), size - 1);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		if (parallelism == 1) {
+			copyAll(copies, file);
+			return;
+		}
+		// Every task copies a range of chunks that are located next to each other
+		final int taskCount = Math.min(copies.size(), parallelism * ChunkAssembler.TASKS_PER_THREAD);
+		final List<Callable<Void>> tasks = new ArrayList<>(taskCount);
+		for (int task = 0; task < taskCount; task++) {
+			//noinspection NumericCastThatLosesPrecision
+			final List<Copy> taskCopies = copies.subList((int) ((long) copies.size() * task / taskCount),
+					(int) ((long) copies.size() * (task + 1) / taskCount));
+			tasks.add(() -> {
+				copyAll(taskCopies, file);
+				return null;
+			});
+		}
+		ChunkAssembler.runAll(tasks, parallelism);
+	}
+
+	/**
+	 * Copies the given chunks into the given file, using own channels.
+	 *
+	 * @param copies The chunks to copy, in the order of their locations, not null
+	 * @param file   The file to copy the chunks into, not null
+	 */
+	private void copyAll(final List<Copy> copies, final Path file) {
+		final Map<Integer, FileChannel> packs = new HashMap<>();
+		try (final FileChannel target = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+			for (final Copy copy : copies) {
+				FileChannel pack = packs.get(copy.location.getPack());
+				if (pack == null) {
+					pack = FileChannel.open(resolver.getPackFile(copy.location.getPack()), StandardOpenOption.READ);
+					packs.put(copy.location.getPack(), pack);
+				}
+
+				if (hasher == null && copy.targetCount == 1) {
+					ChunkAssembler.transfer(pack, copy.location, target, copy.targets[0]);
+					continue;
+				}
+
+				if (buffer.capacity() < copy.location.getLength()) {
+					buffer = ByteBuffer.allocateDirect(copy.location.getLength());
+				}
+				buffer.clear()
+						.limit(copy.location.getLength());
+				ChunkAssembler.readFully(pack, buffer, copy.location.getOffset());
+				buffer.flip();
+				if (hasher != null && !Arrays.equals(hasher.hash(buffer), copy.hash)) {
+					throw new IllegalStateException(
+							"The data of the chunk does not match its hash: " + Util.bytesToHex(copy.hash));
+				}
+				for (int i = 0; i < copy.targetCount; i++) {
+					ChunkAssembler.writeFully(target, buffer.duplicate(), copy.targets[i]);
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			for (final FileChannel pack : packs.values()) {
+				try {
+					pack.close();
+				} catch (final IOException e) {
+					// Only read from, nothing is lost
+				}
+			}
+		}
+	}
+
+	/**
+	 * A distinct chunk to copy, with all offsets in the file it is copied to.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class Copy {
+		/**
+		 * The hash of the chunk.
+		 */
+		private final byte[] hash;
+		/**
+		 * The location of the data of the chunk.
+		 */
+		private final ChunkLocation location;
+		/**
+		 * The amount of offsets in {@link #targets}.
+		 */
+		private int targetCount;
+		/**
+		 * The offsets in the file the chunk is copied to, only the first {@link #targetCount} are used.
+		 */
+		private long[] targets = new long[1];
+
+		/**
+		 * Creates a new copy.
+		 *
+		 * @param hash     The hash of the chunk, not null
+		 * @param location The location of the data of the chunk, not null
+		 */
+		private Copy(final byte[] hash, final ChunkLocation location) {
+			this.hash = Objects.requireNonNull(hash);
+			this.location = Objects.requireNonNull(location);
+		}
+
+		/**
+		 * Adds an offset in the file the chunk is copied to.
+		 *
+		 * @param offset The offset to add
+		 */
+		private void addTarget(final long offset) {
+			if (targetCount == targets.length) {
+				targets = Arrays.copyOf(targets, 2 * targets.length);
+			}
+			targets[targetCount] = offset;
+			targetCount++;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of buffers for the data of chunks, see {@link ChunkCursor#leaseData(ChunkBufferPool)}.
+ * <p>
+ * A buffer is leased by {@link #acquire()} and given back by {@link #release(ByteBuffer)} once its data has been
+ * consumed, for example after it was written to a {@link ChunkStore}. Released buffers are reused by later leases,
+ * hence a consumer that releases every buffer does not allocate in the steady state. Buffers that are not released are
+ * simply garbage collected, at most the given amount of buffers is kept by the pool.
+ * <p>
+ * All buffers of the pool have the same capacity, which must be at least the maximal size of the chunks. The pool is
+ * thread-safe, buffers can be leased and released by different threads.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkBufferPool {
+	/**
+	 * The capacity of the buffers, in bytes.
+	 */
+	private final int bufferCapacity;
+	/**
+	 * The released buffers, available for the next leases.
+	 */
+	private final BlockingQueue<ByteBuffer> buffers;
+	/**
+	 * Whether the buffers are allocated outside of the heap.
+	 */
+	private final boolean direct;
+
+	/**
+	 * Creates a new empty pool. Buffers are allocated on demand.
+	 *
+	 * @param bufferCapacity The capacity of the buffers, in bytes, must be at least the maximal size of the chunks put
+	 *                       into them. Must be positive and not zero.
+	 * @param maximalBuffers The maximal amount of released buffers kept by the pool, must be positive and not zero
+	 * @param direct         Whether the buffers are allocated outside of the heap, see {@link
+	 *                       ByteBuffer#allocateDirect(int)}, which suits writing them to channels
+	 */
+	public ChunkBufferPool(final int bufferCapacity, final int maximalBuffers, final boolean direct) {
+		this.bufferCapacity = Validations.requirePositiveNonZero(bufferCapacity, "Buffer capacity");
+		buffers = new ArrayBlockingQueue<>(Validations.requirePositiveNonZero(maximalBuffers, "Maximal buffers"));
+		this.direct = direct;
+	}
+
+	/**
+	 * Leases a buffer from the pool, allocating a new one if no released buffer is available.
+	 *
+	 * @return A cleared buffer of the capacity of the pool, to be given back by {@link #release(ByteBuffer)}
+	 */
+	public ByteBuffer acquire() {
+		final ByteBuffer buffer = buffers.poll();
+		if (buffer != null) {
+			return buffer;
+		}
+		return direct ? ByteBuffer.allocateDirect(bufferCapacity) : ByteBuffer.allocate(bufferCapacity);
+	}
+
+	/**
+	 * Gets the amount of released buffers currently available for the next leases.
+	 *
+	 * @return The amount of available buffers
+	 */
+	public int getAvailableBuffers() {
+		return buffers.size();
+	}
+
+	/**
+	 * Gets the capacity of the buffers of the pool.
+	 *
+	 * @return The capacity of the buffers, in bytes
+	 */
+	public int getBufferCapacity() {
+		return bufferCapacity;
+	}
+
+	/**
+	 * Gives a leased buffer back to the pool. The buffer must not be used anymore afterwards. If the pool already keeps
+	 * its maximal amount of buffers, the buffer is dropped.
+	 *
+	 * @param buffer The buffer to release, as leased by {@link #acquire()}, not null
+	 */
+	public void release(final ByteBuffer buffer) {
+		Objects.requireNonNull(buffer);
+		Validations.require(buffer.capacity() == bufferCapacity && buffer.isDirect() == direct && !buffer.isReadOnly(),
+				"The buffer was not leased from this pool");
+		buffers.offer(buffer.clear());
+	}
+}
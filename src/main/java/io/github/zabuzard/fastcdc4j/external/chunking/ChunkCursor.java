@@ -0,0 +1,110 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor over the chunks of a data stream, as created by {@link Chunker#cursor(java.io.InputStream, long)}.
+ * <p>
+ * Unlike the chunks of an iterator, the cursor does not create an object per chunk. {@link #next()} advances to the
+ * next chunk and its metadata and data are read from the cursor, which reuses its buffers. Hence, the data of a chunk
+ * is only valid until the cursor advances. Consumers that need the data for longer copy it into a buffer of their own,
+ * see {@link #copyData(ByteBuffer)}, or lease a buffer from a pool, see {@link #leaseData(ChunkBufferPool)}.
+ * <p>
+ * Closing the cursor closes the data stream. A cursor is not thread-safe.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public interface ChunkCursor extends Closeable {
+	/**
+	 * Closes the cursor and its data stream.
+	 */
+	@Override
+	void close();
+
+	/**
+	 * Copies the data of the current chunk into the given buffer, at its position. The position of the buffer is
+	 * advanced by the length of the chunk.
+	 *
+	 * @param target The buffer to copy the data into, must have at least the length of the chunk remaining, not null
+	 */
+	default void copyData(final ByteBuffer target) {
+		target.put(getData());
+	}
+
+	/**
+	 * Gets a read-only view on the data of the current chunk. The buffer is positioned at the first byte of the chunk
+	 * and its limit is the end of the chunk.
+	 * <p>
+	 * The view is reused by the cursor, it is only valid until the cursor advances.
+	 *
+	 * @return A read-only view on the data of the current chunk
+	 *
+	 * @throws IllegalStateException If the cursor is not positioned at a chunk
+	 */
+	ByteBuffer getData();
+
+	/**
+	 * Copies the hash of the current chunk into the given array.
+	 *
+	 * @param target The array to copy the hash into, must have at least the length of the hash, not null
+	 *
+	 * @throws IllegalStateException If the cursor is not positioned at a chunk
+	 */
+	void getHash(byte[] target);
+
+	/**
+	 * Gets the length of the hashes of the chunks. All chunks of the cursor share the length, hence it is available
+	 * regardless of the position of the cursor, for example to allocate the array for {@link #getHash(byte[])} before
+	 * advancing.
+	 *
+	 * @return The length of the hashes, in bytes
+	 */
+	int getHashLength();
+
+	/**
+	 * Gets the length of the current chunk.
+	 *
+	 * @return The length of the current chunk
+	 *
+	 * @throws IllegalStateException If the cursor is not positioned at a chunk
+	 */
+	int getLength();
+
+	/**
+	 * Gets the offset of the current chunk, with respect to the data stream.
+	 *
+	 * @return The offset of the current chunk
+	 *
+	 * @throws IllegalStateException If the cursor is not positioned at a chunk
+	 */
+	long getOffset();
+
+	/**
+	 * Copies the data of the current chunk into a buffer leased from the given pool. The buffer stays valid when the
+	 * cursor advances, it must be released to the pool once its data has been consumed.
+	 *
+	 * @param pool The pool to lease the buffer from, its buffers must be able to hold the chunk, not null
+	 *
+	 * @return The leased buffer, positioned at {@code 0} with the data of the chunk up to its limit
+	 *
+	 * @throws IllegalStateException If the cursor is not positioned at a chunk
+	 */
+	default ByteBuffer leaseData(final ChunkBufferPool pool) {
+		final ByteBuffer data = getData();
+		if (data.remaining() > pool.getBufferCapacity()) {
+			throw new IllegalArgumentException(
+					"The buffers of the pool are too small for the chunk, was: " + data.remaining());
+		}
+		return pool.acquire()
+				.put(data)
+				.flip();
+	}
+
+	/**
+	 * Advances to the next chunk. The cursor is positioned before the first chunk initially.
+	 *
+	 * @return {@code true} if the cursor advanced to the next chunk, {@code false} if there are no more chunks
+	 */
+	boolean next();
+}
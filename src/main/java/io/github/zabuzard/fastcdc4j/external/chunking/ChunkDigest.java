@@ -0,0 +1,50 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for an incremental hash computation over the data of a chunk, as created by a {@link ChunkHasher}.
+ * <p>
+ * The data of a chunk can be given in multiple parts, the hash is computed once {@link #digest()} is called. A digest
+ * is not thread-safe and is reset after computing a hash, hence it can be reused for the next chunk.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public interface ChunkDigest {
+	/**
+	 * Completes the hash computation and resets the digest.
+	 *
+	 * @return The computed hash
+	 */
+	byte[] digest();
+
+	/**
+	 * Completes the hash computation, writes the hash into the given array and resets the digest. Unlike {@link
+	 * #digest()}, the hash is not allocated, which suits consumers that reuse an array for the hashes of all chunks.
+	 *
+	 * @param target The array to write the hash into, not null
+	 * @param offset The index in the array to write the first byte of the hash at, the array must have room for the
+	 *               whole hash
+	 */
+	default void digest(final byte[] target, final int offset) {
+		final byte[] hash = digest();
+		System.arraycopy(hash, 0, target, offset, hash.length);
+	}
+
+	/**
+	 * Updates the digest with the given data.
+	 *
+	 * @param data   The data to update the digest with, not null
+	 * @param offset The index of the first byte to use, must be positive
+	 * @param length The amount of bytes to use, must be positive
+	 */
+	void update(byte[] data, int offset, int length);
+
+	/**
+	 * Updates the digest with the remaining data of the given buffer. The position of the buffer is advanced to its
+	 * limit.
+	 *
+	 * @param data The data to update the digest with, not null
+	 */
+	void update(ByteBuffer data);
+}
@@ -0,0 +1,330 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Probabilistic filter over chunk hashes, answering whether a chunk is definitely new without consulting a backing
+ * store, such as a {@link ChunkIndex}. Implemented as Bloom filter over the binary hashes of chunks, see {@link
+ * Chunk#getHash()}.
+ * <p>
+ * If the filter does not contain a hash, the chunk is definitely new. Otherwise, the chunk was probably added before,
+ * with the false-positive probability the filter was sized for, given that at most the expected amount of chunks were
+ * added. The filter is sized by {@link #ChunkFilter(long, double)} and can be saved to and loaded from a flat binary
+ * file by {@link #save(Path)} and {@link #load(Path)}.
+ * <p>
+ * The filter is thread-safe, chunks can be added and queried concurrently, for example by multiple chunking threads.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkFilter {
+	/**
+	 * The size of the header of a saved filter, in bytes.
+	 */
+	private static final int HEADER_SIZE = 24;
+	/**
+	 * The value identifying files of a filter, {@code FCDC4BLM} in ASCII.
+	 */
+	private static final long MAGIC = 0x4643_4443_3442_4C4DL;
+	/**
+	 * The maximal amount of words of a filter, limited by the size of an array.
+	 */
+	private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+	/**
+	 * The suffix of the name of the temporary file a filter is saved to before it replaces the actual file.
+	 */
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	/**
+	 * The amount of words written or read at once when saving or loading a filter.
+	 */
+	private static final int TRANSFER_WORDS = 8 * 1_024;
+	/**
+	 * The version of the file format.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Syncs the given directory to the storage device, such that changes of its entries, like a replaced file, survive
+	 * a crash of the operating system. Best-effort, as not all platforms support to sync directories.
+	 *
+	 * @param directory The directory to sync, not null
+	 */
+	private static void forceDirectory(final Path directory) {
+		try (final FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (final IOException e) {
+			// Not supported by the platform, the replacement is still atomic but may not be durable yet
+		}
+	}
+
+	/**
+	 * Loads a filter from the given file, as saved by {@link #save(Path)}.
+	 *
+	 * @param file The file to load the filter from, not null
+	 *
+	 * @return The loaded filter
+	 *
+	 * @throws IllegalArgumentException If the file does not contain a filter of a supported version
+	 */
+	public static ChunkFilter load(final Path file) {
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer header = ByteBuffer.allocate(ChunkFilter.HEADER_SIZE);
+			ChunkFilter.readFully(channel, header, file);
+			Validations.require(header.getLong(0) == ChunkFilter.MAGIC,
+					"The file does not contain a chunk filter: " + file);
+			Validations.require(header.getInt(8) == ChunkFilter.VERSION,
+					"Unsupported version of the chunk filter: " + file);
+			final int hashFunctionCount = header.getInt(12);
+			final long bitCount = header.getLong(16);
+			Validations.require(
+					hashFunctionCount > 0 && bitCount > 0 && ChunkFilter.wordCount(bitCount) <= ChunkFilter.MAX_WORDS,
+					"The file does not contain a valid chunk filter: " + file);
+
+			//noinspection NumericCastThatLosesPrecision
+			final AtomicLongArray words = new AtomicLongArray((int) ChunkFilter.wordCount(bitCount));
+			final ByteBuffer buffer = ByteBuffer.allocate(ChunkFilter.TRANSFER_WORDS * Long.BYTES);
+			for (int start = 0; start < words.length(); start += ChunkFilter.TRANSFER_WORDS) {
+				final int end = Math.min(words.length(), start + ChunkFilter.TRANSFER_WORDS);
+				buffer.clear()
+						.limit((end - start) * Long.BYTES);
+				ChunkFilter.readFully(channel, buffer, file);
+				for (int i = start; i < end; i++) {
+					words.set(i, buffer.getLong((i - start) * Long.BYTES));
+				}
+			}
+			return new ChunkFilter(hashFunctionCount, bitCount, words);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads from the given channel until the given buffer is full.
+	 *
+	 * @param channel The channel to read from, not null
+	 * @param buffer  The buffer to fill, not null
+	 * @param file    The file of the channel, not null
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final Path file)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) == -1) {
+				throw new IllegalArgumentException("The file does not contain a complete chunk filter: " + file);
+			}
+		}
+	}
+
+	/**
+	 * Computes the second hash of the given hash, used for double hashing. The second hash is derived from further
+	 * bytes of the hash, if present, and is always odd.
+	 *
+	 * @param hash  The hash of a chunk, not null
+	 * @param first The first hash of the hash, see {@link Util#mixHash(byte[], int)}
+	 *
+	 * @return The second hash
+	 */
+	private static long secondHash(final byte[] hash, final long first) {
+		final long second = hash.length > Long.BYTES ? Util.mixHash(hash, Long.BYTES) : 0;
+		return (second ^ Long.rotateLeft(first, 32)) | 1;
+	}
+
+	/**
+	 * Gets the amount of words needed for the given amount of bits.
+	 *
+	 * @param bitCount The amount of bits
+	 *
+	 * @return The amount of words
+	 */
+	private static long wordCount(final long bitCount) {
+		return (bitCount + Long.SIZE - 1) / Long.SIZE;
+	}
+
+	/**
+	 * Writes the remaining content of the given buffer to the given channel.
+	 *
+	 * @param channel The channel to write to, not null
+	 * @param buffer  The buffer to write, not null
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * The amount of bits of the filter.
+	 */
+	private final long bitCount;
+	/**
+	 * The amount of bits set per hash.
+	 */
+	private final int hashFunctionCount;
+	/**
+	 * The bits of the filter.
+	 */
+	private final AtomicLongArray words;
+
+	/**
+	 * Creates a new empty filter, sized for the given amount of chunks and false-positive probability.
+	 *
+	 * @param expectedChunks           The amount of chunks expected to be added, must be positive and not zero
+	 * @param falsePositiveProbability The probability with which the filter claims to contain a chunk that was not
+	 *                                 added, once the expected amount of chunks was added. Must be between {@code 0}
+	 *                                 and {@code 1}, exclusive.
+	 */
+	public ChunkFilter(final long expectedChunks, final double falsePositiveProbability) {
+		Validations.requirePositiveNonZero(expectedChunks, "Expected chunks");
+		Validations.require(falsePositiveProbability > 0 && falsePositiveProbability < 1,
+				"False-positive probability must be between 0 and 1, exclusive");
+
+		final double ln2 = Math.log(2);
+		//noinspection NumericCastThatLosesPrecision
+		bitCount = Math.max(Long.SIZE,
+				(long) Math.ceil(-expectedChunks * Math.log(falsePositiveProbability) / (ln2 * ln2)));
+		Validations.require(ChunkFilter.wordCount(bitCount) <= ChunkFilter.MAX_WORDS,
+				"Expected chunks and false-positive probability require a too big filter");
+		//noinspection NumericCastThatLosesPrecision
+		hashFunctionCount = (int) Math.max(1, Math.round((double) bitCount / expectedChunks * ln2));
+		//noinspection NumericCastThatLosesPrecision
+		words = new AtomicLongArray((int) ChunkFilter.wordCount(bitCount));
+	}
+
+	/**
+	 * Creates a new filter with the given bits.
+	 *
+	 * @param hashFunctionCount The amount of bits set per hash
+	 * @param bitCount          The amount of bits of the filter
+	 * @param words             The bits of the filter
+	 */
+	private ChunkFilter(final int hashFunctionCount, final long bitCount, final AtomicLongArray words) {
+		this.hashFunctionCount = hashFunctionCount;
+		this.bitCount = bitCount;
+		this.words = words;
+	}
+
+	/**
+	 * Gets the amount of bits of the filter.
+	 *
+	 * @return The amount of bits
+	 */
+	public long getBitCount() {
+		return bitCount;
+	}
+
+	/**
+	 * Gets the amount of bits set per hash.
+	 *
+	 * @return The amount of bits set per hash
+	 */
+	public int getHashFunctionCount() {
+		return hashFunctionCount;
+	}
+
+	/**
+	 * Whether the filter might contain the given hash.
+	 *
+	 * @param hash The hash of a chunk, not null
+	 *
+	 * @return {@code false} if the chunk is definitely new, {@code true} if it was probably added before
+	 */
+	public boolean mightContain(final byte[] hash) {
+		final long first = Util.mixHash(hash, 0);
+		final long second = ChunkFilter.secondHash(hash, first);
+		for (int i = 0; i < hashFunctionCount; i++) {
+			final long bit = Long.remainderUnsigned(first + i * second, bitCount);
+			//noinspection NumericCastThatLosesPrecision
+			if ((words.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the given hash to the filter.
+	 *
+	 * @param hash The hash of a chunk, not null
+	 *
+	 * @return {@code true} if the chunk was definitely new, {@code false} if it was probably added before
+	 */
+	public boolean put(final byte[] hash) {
+		final long first = Util.mixHash(hash, 0);
+		final long second = ChunkFilter.secondHash(hash, first);
+		boolean changed = false;
+		for (int i = 0; i < hashFunctionCount; i++) {
+			final long bit = Long.remainderUnsigned(first + i * second, bitCount);
+			//noinspection NumericCastThatLosesPrecision
+			final int index = (int) (bit >>> 6);
+			final long mask = 1L << bit;
+			long word = words.get(index);
+			while ((word & mask) == 0) {
+				if (words.compareAndSet(index, word, word | mask)) {
+					changed = true;
+					break;
+				}
+				word = words.get(index);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Saves the filter to the given file, replacing its content. Chunks added concurrently may or may not be contained
+	 * in the saved filter.
+	 * <p>
+	 * The filter is written to a temporary file next to the given file first, which then atomically replaces it. Hence,
+	 * the file contains either the previous or the saved filter, even if saving fails or the JVM crashes. The
+	 * replacement survives a crash of the operating system only where its directory can be synced to the storage
+	 * device, which is not supported by all platforms.
+	 *
+	 * @param file The file to save the filter to, not null
+	 */
+	public void save(final Path file) {
+		final Path temporaryFile = file.resolveSibling(file.getFileName() + ChunkFilter.TEMPORARY_SUFFIX);
+		try (final FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer header = ByteBuffer.allocate(ChunkFilter.HEADER_SIZE)
+					.putLong(ChunkFilter.MAGIC)
+					.putInt(ChunkFilter.VERSION)
+					.putInt(hashFunctionCount)
+					.putLong(bitCount)
+					.flip();
+			ChunkFilter.writeFully(channel, header);
+
+			final ByteBuffer buffer = ByteBuffer.allocate(ChunkFilter.TRANSFER_WORDS * Long.BYTES);
+			for (int start = 0; start < words.length(); start += ChunkFilter.TRANSFER_WORDS) {
+				final int end = Math.min(words.length(), start + ChunkFilter.TRANSFER_WORDS);
+				buffer.clear();
+				for (int i = start; i < end; i++) {
+					buffer.putLong(words.get(i));
+				}
+				ChunkFilter.writeFully(channel, buffer.flip());
+			}
+			channel.force(true);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		try {
+			Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		ChunkFilter.forceDirectory(file.toAbsolutePath()
+				.getParent());
+	}
+}
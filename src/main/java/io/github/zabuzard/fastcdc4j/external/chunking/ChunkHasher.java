@@ -0,0 +1,53 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for algorithms that compute the hash of the data of chunks, as used by a {@link Chunker}.
+ * <p>
+ * Hashers are thread-safe, the actual computation is done by {@link ChunkDigest}s, which are created per user.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public interface ChunkHasher {
+	/**
+	 * Gets the length of the hashes computed by this hasher, in bytes.
+	 *
+	 * @return The length of the hashes, in bytes
+	 */
+	int getHashLength();
+
+	/**
+	 * Computes the hash of the given data.
+	 *
+	 * @param data The data to hash, not null
+	 *
+	 * @return The computed hash
+	 */
+	default byte[] hash(final byte[] data) {
+		final ChunkDigest digest = newDigest();
+		digest.update(data, 0, data.length);
+		return digest.digest();
+	}
+
+	/**
+	 * Computes the hash of the remaining data of the given buffer. The position of the buffer is not modified.
+	 *
+	 * @param data The data to hash, not null
+	 *
+	 * @return The computed hash
+	 */
+	default byte[] hash(final ByteBuffer data) {
+		final ChunkDigest digest = newDigest();
+		digest.update(data.duplicate());
+		return digest.digest();
+	}
+
+	/**
+	 * Creates a new digest for an incremental hash computation. The digest must only be used by a single thread at a
+	 * time.
+	 *
+	 * @return The created digest
+	 */
+	ChunkDigest newDigest();
+}
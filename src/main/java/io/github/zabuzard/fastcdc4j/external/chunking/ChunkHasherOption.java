@@ -0,0 +1,21 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+/**
+ * Available predefined algorithms to compute the hash of the data of chunks.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public enum ChunkHasherOption {
+	/**
+	 * Uses a {@link java.security.MessageDigest} with the hash method set in the {@link ChunkerBuilder}.
+	 */
+	MESSAGE_DIGEST,
+	/**
+	 * The non-cryptographic 128-bit variant of MurmurHash3 by Austin Appleby, optimized for 64-bit platforms.
+	 */
+	MURMUR3_128,
+	/**
+	 * The cryptographic tree-hashing algorithm BLAKE3 by Jack O'Connor et al., with a 256-bit output.
+	 */
+	BLAKE3
+}
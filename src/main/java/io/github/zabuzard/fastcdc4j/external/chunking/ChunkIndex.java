@@ -0,0 +1,366 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.index.MappedTable;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Persistent index of chunk hashes, for example to find out whether a chunk has already been seen during
+ * deduplication. Maps the binary hashes of chunks, see {@link Chunk#getHash()}, to positive values, such as the location
+ * at which the data of a chunk is stored.
+ * <p>
+ * The index is a hash table with open addressing, stored off-heap in memory-mapped files in a directory. Hence, it does
+ * not occupy the Java heap and opening an existing index takes constant time, independent of its size, the operating
+ * system loads the data lazily. Entries can not be removed.
+ * <p>
+ * Once the table is filled beyond a load factor, a table of twice the capacity is created and the entries are migrated
+ * incrementally, a few slots with every insertion. Lookups consult both tables until the migration is complete, the
+ * previous table is deleted afterwards. Hence, growing the index does not pause for rehashing all entries. If the file
+ * of the previous table can not be deleted while it is still mapped, as on Windows, it is deleted by the next {@link
+ * #open(Path, int)} instead.
+ * <p>
+ * Changes are written to the mapped files directly, they survive a crash of the JVM. Use {@link #force()} to also
+ * survive a crash of the operating system. The index is not thread-safe.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkIndex implements Closeable {
+	/**
+	 * The value returned by {@link #get(byte[])} if the index does not contain a hash.
+	 */
+	public static final long ABSENT = -1;
+	/**
+	 * The prefix of the names of the files of tables, followed by the generation of the table.
+	 */
+	private static final String FILE_PREFIX = "chunk-index-";
+	/**
+	 * The suffix of the names of the files of tables.
+	 */
+	private static final String FILE_SUFFIX = ".dat";
+	/**
+	 * The capacity of the first table of an index.
+	 */
+	private static final long INITIAL_CAPACITY = 1L << 16;
+	/**
+	 * The load factor beyond which the index grows.
+	 */
+	private static final double MAXIMAL_LOAD_FACTOR = 0.7;
+	/**
+	 * The amount of slots of the previous table migrated with every insertion. Migrating at least {@code 2} slots
+	 * completes the migration before the grown table exceeds the maximal load factor.
+	 */
+	private static final int MIGRATION_STEP = 8;
+
+	/**
+	 * Opens the index stored in the given directory, or creates an empty index if the directory does not contain one.
+	 *
+	 * @param directory  The directory of the index, created if it does not exist, not null
+	 * @param hashLength The length of the hashes, in bytes, see {@link ChunkHasher#getHashLength()}. Must be positive and
+	 *                   not zero and equal the length used by an existing index.
+	 *
+	 * @return The opened index
+	 */
+	public static ChunkIndex open(final Path directory, final int hashLength) {
+		Objects.requireNonNull(directory);
+		Validations.requirePositiveNonZero(hashLength, "Hash length");
+
+		final int generation;
+		try {
+			Files.createDirectories(directory);
+			try (final Stream<Path> files = Files.list(directory)) {
+				generation = files.mapToInt(ChunkIndex::generationOf)
+						.max()
+						.orElse(-1);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		if (generation == -1) {
+			return new ChunkIndex(directory, 0,
+					MappedTable.create(ChunkIndex.file(directory, 0), hashLength, ChunkIndex.INITIAL_CAPACITY), null);
+		}
+
+		final MappedTable table = MappedTable.open(ChunkIndex.file(directory, generation));
+		Validations.require(table.getHashLength() == hashLength,
+				"Hash length must equal the length used by the index, " + table.getHashLength());
+		// The previous table has half the capacity of the current table
+		final Path previousFile = ChunkIndex.file(directory, generation - 1);
+		final boolean migrating = Files.exists(previousFile) && table.getMigratedSlots() < table.getCapacity() / 2;
+		final MappedTable previousTable = migrating ? MappedTable.open(previousFile) : null;
+		// Tables whose migration completed are left over if they could not be deleted, they are not mapped yet
+		ChunkIndex.deleteTables(directory, migrating ? generation - 1 : generation);
+		return new ChunkIndex(directory, generation, table, previousTable);
+	}
+
+	/**
+	 * Deletes the files of all tables of the given directory that are older than the given generation. Files that can
+	 * not be deleted are left over.
+	 *
+	 * @param directory  The directory of the index, not null
+	 * @param generation The oldest generation of the tables to keep
+	 */
+	private static void deleteTables(final Path directory, final int generation) {
+		try (final Stream<Path> files = Files.list(directory)) {
+			files.filter(file -> {
+				final int fileGeneration = ChunkIndex.generationOf(file);
+				return fileGeneration != -1 && fileGeneration < generation;
+			})
+					.forEach(ChunkIndex::deleteTable);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Deletes the file of a table whose migration completed. The file is left over if it can not be deleted, for
+	 * example because it is still mapped on Windows, and deleted by the next {@link #open(Path, int)} instead.
+	 *
+	 * @param file The file of the table, not null
+	 */
+	private static void deleteTable(final Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (final IOException e) {
+			// The migration is complete, the file is deleted by the next open instead
+		}
+	}
+
+	/**
+	 * Gets the file of the table of the given generation.
+	 *
+	 * @param directory  The directory of the index, not null
+	 * @param generation The generation of the table
+	 *
+	 * @return The file of the table
+	 */
+	private static Path file(final Path directory, final int generation) {
+		return directory.resolve(ChunkIndex.FILE_PREFIX + generation + ChunkIndex.FILE_SUFFIX);
+	}
+
+	/**
+	 * Gets the generation of the table stored in the given file.
+	 *
+	 * @param file The file, not null
+	 *
+	 * @return The generation of the table, or {@code -1} if the file does not store a table
+	 */
+	private static int generationOf(final Path file) {
+		final String name = file.getFileName()
+				.toString();
+		if (!name.startsWith(ChunkIndex.FILE_PREFIX) || !name.endsWith(ChunkIndex.FILE_SUFFIX)) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(
+					name.substring(ChunkIndex.FILE_PREFIX.length(), name.length() - ChunkIndex.FILE_SUFFIX.length()));
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * The directory of the index.
+	 */
+	private final Path directory;
+	/**
+	 * The generation of the current table.
+	 */
+	private int generation;
+	/**
+	 * The table that is migrated into the current table, {@code null} if no migration is in progress.
+	 */
+	private MappedTable previousTable;
+	/**
+	 * The current table, receiving all insertions. {@code null} once the index is closed.
+	 */
+	private MappedTable table;
+
+	/**
+	 * Creates a new index.
+	 *
+	 * @param directory     The directory of the index, not null
+	 * @param generation    The generation of the current table
+	 * @param table         The current table, not null
+	 * @param previousTable The table that is migrated into the current table, {@code null} if no migration is in
+	 *                      progress
+	 */
+	private ChunkIndex(final Path directory, final int generation, final MappedTable table,
+			final MappedTable previousTable) {
+		this.directory = directory;
+		this.generation = generation;
+		this.table = table;
+		this.previousTable = previousTable;
+	}
+
+	/**
+	 * Writes all changes to the storage device and closes the index. Further operations are not permitted.
+	 * <p>
+	 * The mapped files are unmapped once the index has been garbage collected.
+	 */
+	@Override
+	public void close() {
+		if (table == null) {
+			return;
+		}
+		force();
+		table = null;
+		previousTable = null;
+	}
+
+	/**
+	 * Whether the index contains the given hash.
+	 *
+	 * @param hash The hash of a chunk, must have the length of the index, not null
+	 *
+	 * @return {@code true} if the index contains the hash, {@code false} otherwise
+	 */
+	public boolean contains(final byte[] hash) {
+		return get(hash) != ChunkIndex.ABSENT;
+	}
+
+	/**
+	 * Writes all changes to the storage device.
+	 */
+	public void force() {
+		requireOpen();
+		if (previousTable != null) {
+			previousTable.force();
+		}
+		table.force();
+	}
+
+	/**
+	 * Gets the value of the given hash.
+	 *
+	 * @param hash The hash of a chunk, must have the length of the index, not null
+	 *
+	 * @return The value of the hash, or {@link #ABSENT} if the index does not contain the hash
+	 */
+	public long get(final byte[] hash) {
+		requireHash(hash);
+		final long value = table.get(hash);
+		if (value != ChunkIndex.ABSENT || previousTable == null) {
+			return value;
+		}
+		return previousTable.get(hash);
+	}
+
+	/**
+	 * Gets the length of the hashes of the index.
+	 *
+	 * @return The length of the hashes, in bytes
+	 */
+	public int getHashLength() {
+		requireOpen();
+		return table.getHashLength();
+	}
+
+	/**
+	 * Inserts the given hash with the given value, unless the index already contains the hash.
+	 *
+	 * @param hash  The hash of a chunk, must have the length of the index, not null
+	 * @param value The value of the hash, must be positive and smaller than {@link Long#MAX_VALUE}
+	 *
+	 * @return {@code true} if the hash was inserted, {@code false} if the index already contains it, its value is
+	 * 		not changed then
+	 */
+	public boolean putIfAbsent(final byte[] hash, final long value) {
+		requireHash(hash);
+		Validations.requirePositive(value, "Value");
+		Validations.require(value < Long.MAX_VALUE, "Value must be smaller than Long.MAX_VALUE");
+
+		if (previousTable != null && previousTable.get(hash) != ChunkIndex.ABSENT) {
+			return false;
+		}
+		if (!table.insert(hash, value)) {
+			return false;
+		}
+		table.setSize(table.getSize() + 1);
+
+		if (previousTable != null) {
+			migrate();
+		} else if (table.getSize() > table.getCapacity() * ChunkIndex.MAXIMAL_LOAD_FACTOR) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the amount of hashes contained in the index.
+	 *
+	 * @return The amount of hashes
+	 */
+	public long size() {
+		requireOpen();
+		return table.getSize();
+	}
+
+	/**
+	 * Completes the migration by dropping the previous table and deleting its file. The current table is forced first,
+	 * such that the completed migration is written to the storage device before the previous table is gone.
+	 */
+	private void completeMigration() {
+		final Path previousFile = previousTable.getFile();
+		previousTable.force();
+		table.force();
+		previousTable = null;
+		ChunkIndex.deleteTable(previousFile);
+	}
+
+	/**
+	 * Grows the index by creating a table of twice the capacity. The entries are migrated incrementally by subsequent
+	 * insertions.
+	 */
+	private void grow() {
+		final MappedTable grownTable = MappedTable.create(ChunkIndex.file(directory, generation + 1),
+				table.getHashLength(), 2 * table.getCapacity());
+		grownTable.setSize(table.getSize());
+		previousTable = table;
+		table = grownTable;
+		generation++;
+	}
+
+	/**
+	 * Migrates the next slots of the previous table into the current table.
+	 */
+	private void migrate() {
+		final long migratedSlots = table.getMigratedSlots();
+		final long end = Math.min(previousTable.getCapacity(), migratedSlots + ChunkIndex.MIGRATION_STEP);
+		for (long slot = migratedSlots; slot < end; slot++) {
+			previousTable.copySlot(slot, table);
+		}
+		table.setMigratedSlots(end);
+		if (end == previousTable.getCapacity()) {
+			completeMigration();
+		}
+	}
+
+	/**
+	 * Requires the given hash to be a valid hash of the index.
+	 *
+	 * @param hash The hash to check
+	 */
+	private void requireHash(final byte[] hash) {
+		Objects.requireNonNull(hash);
+		requireOpen();
+		Validations.require(hash.length == table.getHashLength(),
+				"Hash length must equal the length used by the index, " + table.getHashLength());
+	}
+
+	/**
+	 * Requires the index to be open.
+	 */
+	private void requireOpen() {
+		if (table == null) {
+			throw new IllegalStateException("The index has been closed");
+		}
+	}
+}
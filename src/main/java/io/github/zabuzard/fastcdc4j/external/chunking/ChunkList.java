@@ -0,0 +1,576 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Compact list of the metadata of chunks, for holding the chunks of many files in memory. Instead of an object per
+ * chunk, the offsets, lengths and hashes of all chunks are stored in three arrays, the hashes packed one after another.
+ * Hence, a chunk occupies {@code 12} bytes plus the length of its hash, for example {@code 32} bytes for SHA-1.
+ * <p>
+ * The elements of the list are views of the chunks, created on access, see {@link #get(int)}. Loops over many chunks
+ * should rather use the accessors by index, such as {@link #getOffset(int)} and {@link #getHash(int, byte[])}, which
+ * do not allocate.
+ * <p>
+ * The list can be sorted by hash, see {@link #sortByHash()}, to look up hashes by binary search. Based on that, it
+ * offers the set operations {@link #union(ChunkList)}, {@link #intersection(ChunkList)} and {@link
+ * #difference(ChunkList)} on the hashes of chunks. The length of the hashes is determined by the first added chunk.
+ * Chunks can only be added, not removed. The list is not thread-safe.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkList extends AbstractList<ChunkMetadata> implements RandomAccess {
+	/**
+	 * The default amount of chunks the list has room for initially.
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * The size of ranges sorted by insertion sort.
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+	/**
+	 * The maximal size of an array.
+	 */
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	/**
+	 * The packed hashes of the chunks, {@link #hashLength} bytes per chunk.
+	 */
+	private byte[] hashes;
+	/**
+	 * The length of the hashes, {@code 0} until the first chunk is added.
+	 */
+	private int hashLength;
+	/**
+	 * The lengths of the chunks.
+	 */
+	private int[] lengths;
+	/**
+	 * The offsets of the chunks.
+	 */
+	private long[] offsets;
+	/**
+	 * The amount of chunks.
+	 */
+	private int size;
+	/**
+	 * Whether the chunks are sorted by hash.
+	 */
+	private boolean sortedByHash;
+
+	/**
+	 * Creates a new empty list.
+	 */
+	public ChunkList() {
+		this(ChunkList.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new empty list with room for the given amount of chunks.
+	 *
+	 * @param initialCapacity The amount of chunks the list has room for initially, must be positive
+	 */
+	public ChunkList(final int initialCapacity) {
+		Validations.requirePositive(initialCapacity, "Initial capacity");
+		offsets = new long[initialCapacity];
+		lengths = new int[initialCapacity];
+		hashes = new byte[0];
+	}
+
+	/**
+	 * Creates a new list containing the chunks of the given list.
+	 *
+	 * @param list The list to copy, not null
+	 */
+	private ChunkList(final ChunkList list) {
+		offsets = Arrays.copyOf(list.offsets, list.size);
+		lengths = Arrays.copyOf(list.lengths, list.size);
+		hashes = Arrays.copyOf(list.hashes, list.size * list.hashLength);
+		hashLength = list.hashLength;
+		size = list.size;
+		sortedByHash = list.sortedByHash;
+	}
+
+	/**
+	 * Adds the given chunk.
+	 *
+	 * @param chunk The chunk to add, its data is not retained, not null
+	 *
+	 * @return {@code true}
+	 */
+	public boolean add(final Chunk chunk) {
+		add(chunk.getOffset(), chunk.getLength(), chunk.getHash());
+		return true;
+	}
+
+	/**
+	 * Adds the given chunk.
+	 *
+	 * @param chunk The metadata of the chunk to add, not null
+	 *
+	 * @return {@code true}
+	 */
+	@Override
+	public boolean add(final ChunkMetadata chunk) {
+		add(chunk.getOffset(), chunk.getLength(), chunk.getHash());
+		return true;
+	}
+
+	/**
+	 * Adds the chunk with the given metadata.
+	 *
+	 * @param offset The offset of the chunk, must be positive
+	 * @param length The length of the chunk, must be positive
+	 * @param hash   The hash of the chunk, must have the length of the hashes of the list, not null
+	 */
+	public void add(final long offset, final int length, final byte[] hash) {
+		Validations.requirePositive(offset, "Offset");
+		Validations.requirePositive(length, "Length");
+		requireHashLength(hash.length);
+		ensureCapacity(size + 1);
+		offsets[size] = offset;
+		lengths[size] = length;
+		System.arraycopy(hash, 0, hashes, size * hashLength, hashLength);
+		size++;
+		sortedByHash = false;
+		modCount++;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		sortedByHash = false;
+		modCount++;
+	}
+
+	/**
+	 * Whether the list contains a chunk with the given hash. Uses binary search if the list is sorted by hash.
+	 *
+	 * @param hash The hash to search, not null
+	 *
+	 * @return {@code true} if the list contains a chunk with the hash, {@code false} otherwise
+	 */
+	public boolean containsHash(final byte[] hash) {
+		return indexOfHash(hash) != -1;
+	}
+
+	/**
+	 * Creates a list of the chunks of this list whose hash is not contained in the given list, in the order of this
+	 * list.
+	 *
+	 * @param other The list whose hashes are excluded, not null
+	 *
+	 * @return The difference of the lists
+	 */
+	public ChunkList difference(final ChunkList other) {
+		return filterByHash(other, false);
+	}
+
+	/**
+	 * Gets a view of the chunk at the given index. The view reads from the list, it is only valid until the list is
+	 * sorted or cleared.
+	 *
+	 * @param index The index of the chunk
+	 *
+	 * @return A view of the chunk
+	 */
+	@Override
+	public ChunkMetadata get(final int index) {
+		Objects.checkIndex(index, size);
+		return new ChunkView(this, index);
+	}
+
+	/**
+	 * Gets a copy of the hash of the chunk at the given index.
+	 *
+	 * @param index The index of the chunk
+	 *
+	 * @return The hash of the chunk
+	 */
+	public byte[] getHash(final int index) {
+		Objects.checkIndex(index, size);
+		return Arrays.copyOfRange(hashes, index * hashLength, (index + 1) * hashLength);
+	}
+
+	/**
+	 * Copies the hash of the chunk at the given index into the given array.
+	 *
+	 * @param index  The index of the chunk
+	 * @param target The array to copy the hash into, must have at least the length of the hashes, not null
+	 */
+	public void getHash(final int index, final byte[] target) {
+		Objects.checkIndex(index, size);
+		System.arraycopy(hashes, index * hashLength, target, 0, hashLength);
+	}
+
+	/**
+	 * Gets the length of the hashes of the list.
+	 *
+	 * @return The length of the hashes, in bytes, {@code 0} if no chunk was added yet
+	 */
+	public int getHashLength() {
+		return hashLength;
+	}
+
+	/**
+	 * Gets the length of the chunk at the given index.
+	 *
+	 * @param index The index of the chunk
+	 *
+	 * @return The length of the chunk
+	 */
+	public int getLength(final int index) {
+		Objects.checkIndex(index, size);
+		return lengths[index];
+	}
+
+	/**
+	 * Gets the offset of the chunk at the given index.
+	 *
+	 * @param index The index of the chunk
+	 *
+	 * @return The offset of the chunk
+	 */
+	public long getOffset(final int index) {
+		Objects.checkIndex(index, size);
+		return offsets[index];
+	}
+
+	/**
+	 * Gets the index of a chunk with the given hash. Uses binary search if the list is sorted by hash.
+	 *
+	 * @param hash The hash to search, not null
+	 *
+	 * @return The index of a chunk with the hash, or {@code -1} if the list contains no such chunk
+	 */
+	public int indexOfHash(final byte[] hash) {
+		Objects.requireNonNull(hash);
+		if (hash.length != hashLength) {
+			return -1;
+		}
+		if (sortedByHash) {
+			return search(hash, 0);
+		}
+		for (int i = 0; i < size; i++) {
+			if (Arrays.equals(hashes, i * hashLength, (i + 1) * hashLength, hash, 0, hashLength)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Creates a list of the chunks of this list whose hash is contained in the given list, in the order of this list.
+	 *
+	 * @param other The list whose hashes are kept, not null
+	 *
+	 * @return The intersection of the lists
+	 */
+	public ChunkList intersection(final ChunkList other) {
+		return filterByHash(other, true);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sorts the chunks by their hashes, unsigned lexicographically. Chunks with equal hashes are not kept in their
+	 * order. Views created by {@link #get(int)} before are invalid afterwards.
+	 */
+	public void sortByHash() {
+		if (!sortedByHash) {
+			sort(0, size, new byte[hashLength]);
+			sortedByHash = true;
+		}
+		modCount++;
+	}
+
+	/**
+	 * Reduces the memory used by the list to the memory needed for its chunks.
+	 */
+	public void trimToSize() {
+		offsets = Arrays.copyOf(offsets, size);
+		lengths = Arrays.copyOf(lengths, size);
+		hashes = Arrays.copyOf(hashes, size * hashLength);
+	}
+
+	/**
+	 * Creates a list of the chunks of this list followed by the chunks of the given list whose hash is not contained
+	 * in this list.
+	 *
+	 * @param other The list to add the chunks of, not null
+	 *
+	 * @return The union of the lists
+	 */
+	public ChunkList union(final ChunkList other) {
+		final ChunkList union = new ChunkList(this);
+		union.sortedByHash = false;
+		union.addAll(other.filterByHash(this, false));
+		return union;
+	}
+
+	/**
+	 * Adds all chunks of the given list.
+	 *
+	 * @param list The list to add the chunks of, not null
+	 */
+	private void addAll(final ChunkList list) {
+		if (list.size == 0) {
+			return;
+		}
+		requireHashLength(list.hashLength);
+		ensureCapacity(size + list.size);
+		System.arraycopy(list.offsets, 0, offsets, size, list.size);
+		System.arraycopy(list.lengths, 0, lengths, size, list.size);
+		System.arraycopy(list.hashes, 0, hashes, size * hashLength, list.size * hashLength);
+		size += list.size;
+		modCount++;
+	}
+
+	/**
+	 * Compares the hash of the chunk at the given index to the given hash.
+	 *
+	 * @param index      The index of the chunk
+	 * @param hash       The array containing the hash to compare to, not null
+	 * @param hashOffset The offset of the hash in the array
+	 *
+	 * @return A negative value, zero or a positive value if the hash of the chunk is smaller, equal or greater
+	 */
+	private int compareHash(final int index, final byte[] hash, final int hashOffset) {
+		return Arrays.compareUnsigned(hashes, index * hashLength, (index + 1) * hashLength, hash, hashOffset,
+				hashOffset + hashLength);
+	}
+
+	/**
+	 * Ensures that the arrays have room for the given amount of chunks.
+	 *
+	 * @param capacity The amount of chunks
+	 */
+	private void ensureCapacity(final int capacity) {
+		if (capacity <= offsets.length) {
+			return;
+		}
+		final long maximalCapacity = ChunkList.MAX_ARRAY_SIZE / hashLength;
+		Validations.require(capacity <= maximalCapacity, "The list exceeded the maximal amount of chunks");
+		//noinspection NumericCastThatLosesPrecision
+		final int newCapacity = (int) Math.min(maximalCapacity,
+				Math.max(capacity, offsets.length + (offsets.length >> 1) + 1L));
+		offsets = Arrays.copyOf(offsets, newCapacity);
+		lengths = Arrays.copyOf(lengths, newCapacity);
+		hashes = Arrays.copyOf(hashes, newCapacity * hashLength);
+	}
+
+	/**
+	 * Creates a list of the chunks of this list whose hash is contained, or not contained, in the given list.
+	 *
+	 * @param other    The list to look up the hashes in, not null
+	 * @param contains Whether chunks whose hash is contained are kept, otherwise chunks whose hash is not contained
+	 *
+	 * @return The filtered list, in the order of this list
+	 */
+	private ChunkList filterByHash(final ChunkList other, final boolean contains) {
+		Objects.requireNonNull(other);
+		final ChunkList result = new ChunkList();
+		if (size == 0) {
+			return result;
+		}
+		if (other.size != 0) {
+			requireHashLength(other.hashLength);
+		}
+		final ChunkList sortedOther;
+		if (other.sortedByHash) {
+			sortedOther = other;
+		} else {
+			sortedOther = new ChunkList(other);
+			sortedOther.sortByHash();
+		}
+
+		result.requireHashLength(hashLength);
+		for (int i = 0; i < size; i++) {
+			if ((sortedOther.size != 0 && sortedOther.search(hashes, i * hashLength) != -1) == contains) {
+				result.ensureCapacity(result.size + 1);
+				result.offsets[result.size] = offsets[i];
+				result.lengths[result.size] = lengths[i];
+				System.arraycopy(hashes, i * hashLength, result.hashes, result.size * hashLength, hashLength);
+				result.size++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Requires the hashes of chunks to add to have the given length. Determines the length of the hashes of the list if
+	 * no chunk was added yet.
+	 *
+	 * @param length The length of the hashes to add
+	 */
+	private void requireHashLength(final int length) {
+		if (hashLength == 0) {
+			Validations.requirePositiveNonZero(length, "Hash length");
+			hashLength = length;
+			hashes = new byte[offsets.length * hashLength];
+			return;
+		}
+		Validations.require(length == hashLength, "Hash length must equal the length used by the list, " + hashLength);
+	}
+
+	/**
+	 * Searches the given hash by binary search, the list must be sorted by hash.
+	 *
+	 * @param hash       The array containing the hash to search, not null
+	 * @param hashOffset The offset of the hash in the array
+	 *
+	 * @return The index of a chunk with the hash, or {@code -1} if the list contains no such chunk
+	 */
+	private int search(final byte[] hash, final int hashOffset) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int comparison = compareHash(middle, hash, hashOffset);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sorts the chunks in the given range by hash. Uses quicksort with three-way partitioning, since lists often
+	 * contain many chunks with equal hashes.
+	 *
+	 * @param from  The first index of the range, inclusive
+	 * @param to    The last index of the range, exclusive
+	 * @param pivot Array to hold the hash of the pivot, must have the length of the hashes, not null
+	 */
+	private void sort(final int from, final int to, final byte[] pivot) {
+		int start = from;
+		int end = to;
+		while (end - start > ChunkList.INSERTION_SORT_THRESHOLD) {
+			// Median of three as pivot
+			final int middle = (start + end) >>> 1;
+			if (compareHash(start, hashes, middle * hashLength) > 0) {
+				swap(start, middle);
+			}
+			if (compareHash(middle, hashes, (end - 1) * hashLength) > 0) {
+				swap(middle, end - 1);
+				if (compareHash(start, hashes, middle * hashLength) > 0) {
+					swap(start, middle);
+				}
+			}
+			System.arraycopy(hashes, middle * hashLength, pivot, 0, hashLength);
+
+			int lower = start;
+			int current = start;
+			int upper = end - 1;
+			while (current <= upper) {
+				final int comparison = compareHash(current, pivot, 0);
+				if (comparison < 0) {
+					swap(lower, current);
+					lower++;
+					current++;
+				} else if (comparison > 0) {
+					swap(current, upper);
+					upper--;
+				} else {
+					current++;
+				}
+			}
+
+			// Recurses into the smaller range only, to bound the depth of the recursion
+			if (lower - start < end - upper - 1) {
+				sort(start, lower, pivot);
+				start = upper + 1;
+			} else {
+				sort(upper + 1, end, pivot);
+				end = lower;
+			}
+		}
+
+		for (int i = start + 1; i < end; i++) {
+			for (int j = i; j > start && compareHash(j - 1, hashes, j * hashLength) > 0; j--) {
+				swap(j - 1, j);
+			}
+		}
+	}
+
+	/**
+	 * Swaps the chunks at the given indices.
+	 *
+	 * @param first  The index of the first chunk
+	 * @param second The index of the second chunk
+	 */
+	private void swap(final int first, final int second) {
+		final long offset = offsets[first];
+		offsets[first] = offsets[second];
+		offsets[second] = offset;
+		final int length = lengths[first];
+		lengths[first] = lengths[second];
+		lengths[second] = length;
+		final int firstHash = first * hashLength;
+		final int secondHash = second * hashLength;
+		for (int i = 0; i < hashLength; i++) {
+			final byte value = hashes[firstHash + i];
+			hashes[firstHash + i] = hashes[secondHash + i];
+			hashes[secondHash + i] = value;
+		}
+	}
+
+	/**
+	 * View of a chunk of a list.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class ChunkView implements ChunkMetadata {
+		/**
+		 * The index of the chunk in the list.
+		 */
+		private final int index;
+		/**
+		 * The list containing the chunk.
+		 */
+		private final ChunkList list;
+
+		/**
+		 * Creates a new view.
+		 *
+		 * @param list  The list containing the chunk, not null
+		 * @param index The index of the chunk in the list
+		 */
+		private ChunkView(final ChunkList list, final int index) {
+			this.list = list;
+			this.index = index;
+		}
+
+		@Override
+		public byte[] getHash() {
+			return list.getHash(index);
+		}
+
+		@Override
+		public String getHexHash() {
+			return Util.bytesToHex(getHash());
+		}
+
+		@Override
+		public int getLength() {
+			return list.getLength(index);
+		}
+
+		@Override
+		public long getOffset() {
+			return list.getOffset(index);
+		}
+	}
+}
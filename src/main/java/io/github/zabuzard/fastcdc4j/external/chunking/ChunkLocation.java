@@ -0,0 +1,69 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+/**
+ * The location at which the data of a chunk is stored in a {@link ChunkStore}, given by the pack file, the offset of the
+ * data within the file and its length.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkLocation {
+	/**
+	 * The length of the data.
+	 */
+	private final int length;
+	/**
+	 * The offset of the data within the pack file.
+	 */
+	private final long offset;
+	/**
+	 * The number of the pack file.
+	 */
+	private final int pack;
+
+	/**
+	 * Creates a new chunk location.
+	 *
+	 * @param pack   The number of the pack file, must be positive
+	 * @param offset The offset of the data within the pack file, must be positive
+	 * @param length The length of the data, must be positive
+	 */
+	public ChunkLocation(final int pack, final long offset, final int length) {
+		this.pack = Validations.requirePositive(pack, "Pack");
+		this.offset = Validations.requirePositive(offset, "Offset");
+		this.length = Validations.requirePositive(length, "Length");
+	}
+
+	/**
+	 * Gets the length of the data.
+	 *
+	 * @return The length of the data, in bytes
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Gets the offset of the data within the pack file.
+	 *
+	 * @return The offset of the data
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Gets the number of the pack file.
+	 *
+	 * @return The number of the pack file
+	 */
+	public int getPack() {
+		return pack;
+	}
+
+	@Override
+	public String toString() {
+		return "ChunkLocation{pack=" + pack + ", offset=" + offset + ", length=" + length + "}";
+	}
+}
@@ -0,0 +1,393 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.chunking.SimpleChunkMetadata;
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a manifest written by {@link ChunkManifestWriter}, directly from a buffer, for example a memory-mapped file.
+ * <p>
+ * The reader is a cursor over the chunks of the manifest. {@link #next()} advances to the next chunk and {@link
+ * #seek(long)} moves to the chunk containing a given offset of the file, using the checkpoints of the manifest for a
+ * binary search. The metadata of the current chunk is read from the buffer on demand, moving the cursor does not
+ * allocate. The reader is not thread-safe, use {@link #copy()} to read the same manifest from multiple threads.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkManifestReader {
+	/**
+	 * Opens the manifest in the given file by mapping it into memory.
+	 *
+	 * @param file The file of the manifest, at most {@code 2 GiB}, not null
+	 *
+	 * @return A reader positioned before the first chunk
+	 *
+	 * @throws IllegalArgumentException If the file does not contain a manifest of a supported version
+	 */
+	public static ChunkManifestReader open(final Path file) {
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Validations.require(channel.size() <= Integer.MAX_VALUE, "Manifests bigger than 2 GiB are not supported");
+			return new ChunkManifestReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * The manifest, read with absolute positions only.
+	 */
+	private final ByteBuffer buffer;
+	/**
+	 * The amount of checkpoints.
+	 */
+	private final int checkpointCount;
+	/**
+	 * The amount of chunks between checkpoints.
+	 */
+	private final int checkpointInterval;
+	/**
+	 * The position of the first checkpoint.
+	 */
+	private final int checkpointsPosition;
+	/**
+	 * The amount of chunks in the manifest.
+	 */
+	private final long chunkCount;
+	/**
+	 * The length of the hashes.
+	 */
+	private final int hashLength;
+	/**
+	 * The length of the header of the file.
+	 */
+	private final int headerLength;
+	/**
+	 * The position of the header of the file.
+	 */
+	private final int headerPosition;
+	/**
+	 * The end of the last chunk, i.e. the size of the file.
+	 */
+	private final long size;
+	/**
+	 * The end of the current chunk, or of the chunk before the position.
+	 */
+	private long end;
+	/**
+	 * The position of the hash of the current chunk.
+	 */
+	private int hashPosition;
+	/**
+	 * The index of the current chunk, {@code -1} if the reader is positioned before the first chunk.
+	 */
+	private long index;
+	/**
+	 * The length of the current chunk.
+	 */
+	private int length;
+	/**
+	 * The offset of the current chunk.
+	 */
+	private long offset;
+	/**
+	 * The position of the entry of the next chunk.
+	 */
+	private int position;
+
+	/**
+	 * Creates a new reader of the manifest contained in the given buffer, positioned before the first chunk.
+	 *
+	 * @param buffer The manifest, from its position to its limit. The buffer is not modified. Not null.
+	 *
+	 * @throws IllegalArgumentException If the buffer does not contain a manifest of a supported version
+	 */
+	public ChunkManifestReader(final ByteBuffer buffer) {
+		this.buffer = buffer.slice();
+		final int capacity = this.buffer.capacity();
+		Validations.require(capacity >= Long.BYTES + 2 * Integer.BYTES + 1 + ChunkManifestWriter.TRAILER_SIZE
+				&& this.buffer.getLong(0) == ChunkManifestWriter.MAGIC
+				&& this.buffer.getLong(capacity - Long.BYTES) == ChunkManifestWriter.MAGIC,
+				"The data does not contain a complete chunk manifest");
+		Validations.require(this.buffer.getInt(Long.BYTES) == ChunkManifestWriter.VERSION,
+				"Unsupported version of the chunk manifest, " + this.buffer.getInt(Long.BYTES));
+		hashLength = this.buffer.getInt(Long.BYTES + Integer.BYTES);
+
+		position = Long.BYTES + 2 * Integer.BYTES;
+		//noinspection NumericCastThatLosesPrecision
+		headerLength = (int) readVariableLong();
+		headerPosition = position;
+		position += headerLength;
+
+		final int trailer = capacity - ChunkManifestWriter.TRAILER_SIZE;
+		chunkCount = this.buffer.getLong(trailer);
+		size = this.buffer.getLong(trailer + Long.BYTES);
+		//noinspection NumericCastThatLosesPrecision
+		checkpointsPosition = (int) this.buffer.getLong(trailer + 2 * Long.BYTES);
+		checkpointCount = this.buffer.getInt(trailer + 3 * Long.BYTES);
+		checkpointInterval = this.buffer.getInt(trailer + 3 * Long.BYTES + Integer.BYTES);
+		Validations.require(checkpointInterval > 0 && checkpointsPosition >= position
+						&& checkpointsPosition + (long) checkpointCount * ChunkManifestWriter.CHECKPOINT_SIZE == trailer,
+				"The data does not contain a valid chunk manifest");
+		index = -1;
+	}
+
+	/**
+	 * Creates a new reader of the same manifest as the given reader, positioned before the first chunk.
+	 *
+	 * @param reader The reader to copy, not null
+	 */
+	private ChunkManifestReader(final ChunkManifestReader reader) {
+		buffer = reader.buffer;
+		chunkCount = reader.chunkCount;
+		checkpointInterval = reader.checkpointInterval;
+		checkpointCount = reader.checkpointCount;
+		checkpointsPosition = reader.checkpointsPosition;
+		hashLength = reader.hashLength;
+		headerLength = reader.headerLength;
+		headerPosition = reader.headerPosition;
+		size = reader.size;
+		position = headerPosition + headerLength;
+		index = -1;
+	}
+
+	/**
+	 * Creates a new reader of the same manifest, positioned before the first chunk. The readers share the underlying
+	 * buffer but have their own positions.
+	 *
+	 * @return The created reader
+	 */
+	public ChunkManifestReader copy() {
+		return new ChunkManifestReader(this);
+	}
+
+	/**
+	 * Gets the amount of chunks in the manifest.
+	 *
+	 * @return The amount of chunks
+	 */
+	public long getChunkCount() {
+		return chunkCount;
+	}
+
+	/**
+	 * Copies the hash of the current chunk into the given array.
+	 *
+	 * @param target The array to copy the hash into, must have at least the length of the hashes, not null
+	 */
+	public void getHash(final byte[] target) {
+		requireCurrent();
+		buffer.get(hashPosition, target, 0, hashLength);
+	}
+
+	/**
+	 * Gets the length of the hashes of the manifest.
+	 *
+	 * @return The length of the hashes, in bytes
+	 */
+	public int getHashLength() {
+		return hashLength;
+	}
+
+	/**
+	 * Gets the header of the file.
+	 *
+	 * @return A read-only view of the header, empty if the manifest has no header
+	 */
+	public ByteBuffer getHeader() {
+		return buffer.slice(headerPosition, headerLength)
+				.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets the index of the current chunk.
+	 *
+	 * @return The index of the current chunk, {@code -1} if the reader is positioned before the first chunk
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the length of the current chunk.
+	 *
+	 * @return The length of the current chunk
+	 */
+	public int getLength() {
+		requireCurrent();
+		return length;
+	}
+
+	/**
+	 * Gets the offset of the current chunk.
+	 *
+	 * @return The offset of the current chunk
+	 */
+	public long getOffset() {
+		requireCurrent();
+		return offset;
+	}
+
+	/**
+	 * Gets the size of the file, i.e. the end of its last chunk.
+	 *
+	 * @return The size of the file
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Whether the hash of the current chunk equals the given hash.
+	 *
+	 * @param hash The hash to compare, not null
+	 *
+	 * @return {@code true} if the hashes are equal, {@code false} otherwise
+	 */
+	public boolean hashEquals(final byte[] hash) {
+		requireCurrent();
+		if (hash.length != hashLength) {
+			return false;
+		}
+		for (int i = 0; i < hashLength; i++) {
+			if (buffer.get(hashPosition + i) != hash[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Advances to the next chunk.
+	 *
+	 * @return {@code true} if the reader advanced to the next chunk, {@code false} if there are no more chunks
+	 */
+	public boolean next() {
+		if (index + 1 >= chunkCount) {
+			return false;
+		}
+		offset = end + readVariableLong();
+		//noinspection NumericCastThatLosesPrecision
+		length = (int) readVariableLong();
+		hashPosition = position;
+		position += hashLength;
+		end = offset + length;
+		index++;
+		return true;
+	}
+
+	/**
+	 * Reads the metadata of all chunks of the manifest, independent of the position of this reader.
+	 *
+	 * @return The metadata of the chunks, in order
+	 */
+	public List<ChunkMetadata> readChunkMetadata() {
+		final ChunkManifestReader reader = copy();
+		//noinspection NumericCastThatLosesPrecision
+		final List<ChunkMetadata> chunks = new ArrayList<>((int) Math.min(chunkCount, Integer.MAX_VALUE - 8));
+		while (reader.next()) {
+			chunks.add(reader.toChunkMetadata());
+		}
+		return chunks;
+	}
+
+	/**
+	 * Moves to the chunk that contains the given offset of the file. Subsequent calls to {@link #next()} continue with
+	 * the chunks after it.
+	 *
+	 * @param fileOffset The offset in the file
+	 *
+	 * @return {@code true} if the reader moved to the chunk containing the offset, {@code false} if no chunk contains
+	 * 		the offset, the position of the reader is undefined then
+	 */
+	public boolean seek(final long fileOffset) {
+		if (fileOffset < 0 || fileOffset >= size) {
+			return false;
+		}
+		// The last checkpoint at or before the offset
+		int low = 0;
+		int high = checkpointCount - 1;
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if (checkpointOffset(middle) <= fileOffset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		//noinspection NumericCastThatLosesPrecision
+		position = (int) buffer.getLong(checkpointsPosition + low * ChunkManifestWriter.CHECKPOINT_SIZE + Long.BYTES);
+		index = (long) low * checkpointInterval - 1;
+		// The end of the previous chunk, such that the entry of the checkpoint resolves to its offset
+		final int checkpointPosition = position;
+		end = checkpointOffset(low) - readVariableLong();
+		position = checkpointPosition;
+
+		while (next()) {
+			if (end > fileOffset) {
+				return offset <= fileOffset;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates the metadata of the current chunk.
+	 *
+	 * @return The metadata of the current chunk
+	 */
+	public ChunkMetadata toChunkMetadata() {
+		requireCurrent();
+		final byte[] hash = new byte[hashLength];
+		getHash(hash);
+		return new SimpleChunkMetadata(offset, length, hash, Util.bytesToHex(hash));
+	}
+
+	/**
+	 * Gets the offset of the chunk of the given checkpoint.
+	 *
+	 * @param checkpoint The index of the checkpoint
+	 *
+	 * @return The offset of the chunk
+	 */
+	private long checkpointOffset(final int checkpoint) {
+		return buffer.getLong(checkpointsPosition + checkpoint * ChunkManifestWriter.CHECKPOINT_SIZE);
+	}
+
+	/**
+	 * Reads a variable-length integer at the position and advances the position, see {@link ChunkManifestWriter}.
+	 *
+	 * @return The value read
+	 */
+	@SuppressWarnings("MagicNumber")
+	private long readVariableLong() {
+		long value = 0;
+		int shift = 0;
+		byte current;
+		do {
+			current = buffer.get(position);
+			position++;
+			value |= (current & 0x7FL) << shift;
+			shift += 7;
+		} while (current < 0);
+		return value;
+	}
+
+	/**
+	 * Requires the reader to be positioned at a chunk.
+	 */
+	private void requireCurrent() {
+		if (index == -1) {
+			throw new IllegalStateException("The reader is not positioned at a chunk, call next() first");
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Writes the chunks of a file as compact binary manifest, streaming. Manifests are read by {@link ChunkManifestReader}.
+ * <p>
+ * The manifest begins with a header, holding the version of the format, the length of the hashes and an optional
+ * header of the file, for example its name. Every chunk is stored as the distance of its offset to the end of the
+ * previous chunk and its length, both as variable-length integers, followed by its raw hash. Hence, contiguous chunks
+ * need only a few bytes in addition to their hash. A footer holds the amount of chunks and checkpoints, the position of
+ * every {@code 64}th chunk, which allow to search the manifest without reading it completely.
+ * <p>
+ * The manifest is complete once the writer is closed. The writer is not thread-safe.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkManifestWriter implements Closeable {
+	/**
+	 * The size of the buffer entries are written through, in bytes.
+	 */
+	private static final int BUFFER_SIZE = 8 * 1_024;
+	/**
+	 * The amount of chunks between checkpoints.
+	 */
+	static final int CHECKPOINT_INTERVAL = 64;
+	/**
+	 * The size of a checkpoint in the footer, in bytes. A checkpoint holds the offset of the chunk and the position of
+	 * its entry in the manifest.
+	 */
+	static final int CHECKPOINT_SIZE = 2 * Long.BYTES;
+	/**
+	 * The value identifying manifests, {@code FCDC4MAN} in ASCII. Written at the beginning and the end.
+	 */
+	static final long MAGIC = 0x4643_4443_344D_414EL;
+	/**
+	 * The maximal size of a variable-length long, in bytes.
+	 */
+	private static final int MAXIMAL_VARIABLE_LONG_SIZE = 10;
+	/**
+	 * The size of the trailer at the end of the manifest, in bytes.
+	 */
+	static final int TRAILER_SIZE = 4 * Long.BYTES + 2 * Integer.BYTES;
+	/**
+	 * The version of the format.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The buffer entries are written through.
+	 */
+	private final byte[] buffer;
+	/**
+	 * The length of the hashes.
+	 */
+	private final int hashLength;
+	/**
+	 * The stream to write the manifest to.
+	 */
+	private final OutputStream stream;
+	/**
+	 * The amount of bytes used in {@link #buffer}.
+	 */
+	private int bufferSize;
+	/**
+	 * The checkpoints, alternating the offset of the chunk and the position of its entry. Only the first {@code 2 *
+	 * checkpointCount} values are used.
+	 */
+	private long[] checkpoints = new long[2 * 16];
+	/**
+	 * The amount of chunks written.
+	 */
+	private long chunkCount;
+	/**
+	 * Whether the writer is closed.
+	 */
+	private boolean closed;
+	/**
+	 * The end of the last written chunk.
+	 */
+	private long end;
+	/**
+	 * The amount of bytes written to the stream, including {@link #buffer}.
+	 */
+	private long position;
+
+	/**
+	 * Creates a new writer without a header of the file.
+	 *
+	 * @param stream     The stream to write the manifest to, closed together with the writer, not null
+	 * @param hashLength The length of the hashes of the chunks, in bytes, must be positive and not zero
+	 */
+	public ChunkManifestWriter(final OutputStream stream, final int hashLength) {
+		this(stream, hashLength, new byte[0]);
+	}
+
+	/**
+	 * Creates a new writer and writes the header of the manifest.
+	 *
+	 * @param stream     The stream to write the manifest to, closed together with the writer, not null
+	 * @param hashLength The length of the hashes of the chunks, in bytes, must be positive and not zero
+	 * @param header     The header of the file, for example its name or attributes, stored as-is, not null
+	 */
+	public ChunkManifestWriter(final OutputStream stream, final int hashLength, final byte[] header) {
+		this.stream = Objects.requireNonNull(stream);
+		this.hashLength = Validations.requirePositiveNonZero(hashLength, "Hash length");
+		Objects.requireNonNull(header);
+		buffer = new byte[Math.max(ChunkManifestWriter.BUFFER_SIZE,
+				hashLength + 2 * ChunkManifestWriter.MAXIMAL_VARIABLE_LONG_SIZE)];
+
+		writeLong(ChunkManifestWriter.MAGIC);
+		writeInt(ChunkManifestWriter.VERSION);
+		writeInt(hashLength);
+		writeVariableLong(header.length);
+		writeBytes(header, 0, header.length);
+	}
+
+	/**
+	 * Writes the footer of the manifest and closes the stream.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try (stream) {
+			final long checkpointsPosition = position;
+			//noinspection NumericCastThatLosesPrecision
+			final int checkpointCount = (int) ((chunkCount + ChunkManifestWriter.CHECKPOINT_INTERVAL - 1)
+					/ ChunkManifestWriter.CHECKPOINT_INTERVAL);
+			for (int i = 0; i < 2 * checkpointCount; i++) {
+				writeLong(checkpoints[i]);
+			}
+			writeLong(chunkCount);
+			writeLong(end);
+			writeLong(checkpointsPosition);
+			writeInt(checkpointCount);
+			writeInt(ChunkManifestWriter.CHECKPOINT_INTERVAL);
+			writeLong(ChunkManifestWriter.MAGIC);
+			flush();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the given chunk.
+	 *
+	 * @param chunk The chunk to write, see {@link #write(long, int, byte[])}, not null
+	 */
+	public void write(final Chunk chunk) {
+		write(chunk.getOffset(), chunk.getLength(), chunk.getHash());
+	}
+
+	/**
+	 * Writes the given chunk.
+	 *
+	 * @param chunk The metadata of the chunk to write, see {@link #write(long, int, byte[])}, not null
+	 */
+	public void write(final ChunkMetadata chunk) {
+		write(chunk.getOffset(), chunk.getLength(), chunk.getHash());
+	}
+
+	/**
+	 * Writes the chunk with the given metadata.
+	 *
+	 * @param offset The offset of the chunk, must be greater equals the end of the previously written chunk
+	 * @param length The length of the chunk, must be positive
+	 * @param hash   The hash of the chunk, must have the length of the manifest, not null
+	 */
+	public void write(final long offset, final int length, final byte[] hash) {
+		if (closed) {
+			throw new IllegalStateException("The writer has been closed");
+		}
+		Validations.require(offset >= end, "Chunks must be written in order of their offsets, without overlapping");
+		Validations.requirePositive(length, "Length");
+		Validations.require(hash.length == hashLength,
+				"Hash length must equal the length used by the manifest, " + hashLength);
+
+		if (chunkCount % ChunkManifestWriter.CHECKPOINT_INTERVAL == 0) {
+			//noinspection NumericCastThatLosesPrecision
+			final int checkpoint = (int) (chunkCount / ChunkManifestWriter.CHECKPOINT_INTERVAL);
+			if (2 * checkpoint == checkpoints.length) {
+				checkpoints = Arrays.copyOf(checkpoints, 2 * checkpoints.length);
+			}
+			checkpoints[2 * checkpoint] = offset;
+			checkpoints[2 * checkpoint + 1] = position;
+		}
+		writeVariableLong(offset - end);
+		writeVariableLong(length);
+		writeBytes(hash, 0, hashLength);
+		end = offset + length;
+		chunkCount++;
+	}
+
+	/**
+	 * Writes all given chunks, for example the output of a {@link Chunker}.
+	 *
+	 * @param chunks The chunks to write, see {@link #write(long, int, byte[])}, not null
+	 */
+	public void writeAll(final Iterable<? extends Chunk> chunks) {
+		for (final Chunk chunk : chunks) {
+			write(chunk);
+		}
+	}
+
+	/**
+	 * Writes the content of the buffer to the stream.
+	 */
+	private void flush() {
+		try {
+			stream.write(buffer, 0, bufferSize);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		bufferSize = 0;
+	}
+
+	/**
+	 * Ensures that the buffer has room for the given amount of bytes, flushing it if needed.
+	 *
+	 * @param bytes The amount of bytes, at most the size of the buffer
+	 */
+	private void requireRoom(final int bytes) {
+		if (buffer.length - bufferSize < bytes) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the given bytes.
+	 *
+	 * @param bytes  The bytes to write, not null
+	 * @param offset The offset of the bytes to write
+	 * @param length The amount of bytes to write
+	 */
+	private void writeBytes(final byte[] bytes, final int offset, final int length) {
+		if (length > buffer.length) {
+			flush();
+			try {
+				stream.write(bytes, offset, length);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else {
+			requireRoom(length);
+			System.arraycopy(bytes, offset, buffer, bufferSize, length);
+			bufferSize += length;
+		}
+		position += length;
+	}
+
+	/**
+	 * Writes the given value as four bytes, big-endian.
+	 *
+	 * @param value The value to write
+	 */
+	@SuppressWarnings("MagicNumber")
+	private void writeInt(final int value) {
+		requireRoom(Integer.BYTES);
+		for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+			//noinspection NumericCastThatLosesPrecision
+			buffer[bufferSize] = (byte) (value >>> shift);
+			bufferSize++;
+		}
+		position += Integer.BYTES;
+	}
+
+	/**
+	 * Writes the given value as eight bytes, big-endian.
+	 *
+	 * @param value The value to write
+	 */
+	private void writeLong(final long value) {
+		requireRoom(Long.BYTES);
+		for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+			//noinspection NumericCastThatLosesPrecision
+			buffer[bufferSize] = (byte) (value >>> shift);
+			bufferSize++;
+		}
+		position += Long.BYTES;
+	}
+
+	/**
+	 * Writes the given positive value as variable-length integer. Every byte holds seven bits of the value, least
+	 * significant first, the highest bit marks whether another byte follows.
+	 *
+	 * @param value The value to write, must be positive
+	 */
+	@SuppressWarnings("MagicNumber")
+	private void writeVariableLong(final long value) {
+		requireRoom(ChunkManifestWriter.MAXIMAL_VARIABLE_LONG_SIZE);
+		final int start = bufferSize;
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			//noinspection NumericCastThatLosesPrecision
+			buffer[bufferSize] = (byte) (remaining & 0x7F | 0x80);
+			bufferSize++;
+			remaining >>>= 7;
+		}
+		//noinspection NumericCastThatLosesPrecision
+		buffer[bufferSize] = (byte) remaining;
+		bufferSize++;
+		position += bufferSize - start;
+	}
+}
@@ -0,0 +1,19 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+/**
+ * Available orders in which chunkers that process multiple files in parallel generate the chunks.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public enum ChunkOrderOption {
+	/**
+	 * The chunks of a file are generated contiguously and in order of their offset. Files are processed in parallel,
+	 * but the chunks of a file are buffered until all chunks of previous files have been consumed.
+	 */
+	FILE_ORDERED,
+	/**
+	 * The chunks of a file are generated in order of their offset, but chunks of different files are interleaved in the
+	 * order they have been created. Offers the highest throughput.
+	 */
+	UNORDERED
+}
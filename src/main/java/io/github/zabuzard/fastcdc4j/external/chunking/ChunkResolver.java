@@ -0,0 +1,32 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import java.nio.file.Path;
+
+/**
+ * Interface for sources that resolve where the data of a chunk is stored, as used by a {@link ChunkAssembler}. The data
+ * of a chunk is a region of a pack file, see {@link ChunkLocation}. Implemented by {@link ChunkStore}.
+ * <p>
+ * Resolvers are called from multiple threads.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public interface ChunkResolver {
+	/**
+	 * Gets the location of the data of the chunk with the given hash.
+	 *
+	 * @param hash The hash of the chunk, not null
+	 *
+	 * @return The location of the chunk, or {@code null} if the chunk is not available
+	 */
+	ChunkLocation getLocation(byte[] hash);
+
+	/**
+	 * Gets the file of the pack of the given number. The file must contain the data of all chunks located in the pack
+	 * when this method is called.
+	 *
+	 * @param pack The number of the pack, as given by a location
+	 *
+	 * @return The file of the pack
+	 */
+	Path getPackFile(int pack);
+}
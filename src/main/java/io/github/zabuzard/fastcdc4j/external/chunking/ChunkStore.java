@@ -0,0 +1,665 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.store.PackFile;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent store of chunk data, for example as local cache of deduplicated chunks. Instead of a file per chunk, the
+ * data is appended to large pack files, written sequentially. The location of every chunk, given by the pack, the offset
+ * within the pack and the length, is recorded in a {@link ChunkIndex} by the binary hash of the chunk, see {@link
+ * Chunk#getHash()}.
+ * <p>
+ * Stored chunks are not forced to the storage device individually. Instead, they are synced in batches, once the given
+ * amount of data has been stored since the last sync, by {@link #putAll(Iterable)} and by {@link #sync()}. Chunks are
+ * only added to the index once their data has been synced, hence a crash loses at most the chunks stored since the last
+ * sync, but never leaves the index referring to lost data.
+ * <p>
+ * Chunks can not be removed individually. Instead, {@link #compact(Predicate)} drops all chunks that are no longer
+ * referenced and rewrites packs that consist mostly of such chunks, reclaiming their space.
+ * <p>
+ * The store is thread-safe, chunks can be stored concurrently, for example by multiple chunking threads.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkStore implements ChunkResolver, Closeable {
+	/**
+	 * The default maximal size of a pack file, in bytes.
+	 */
+	public static final long DEFAULT_MAXIMAL_PACK_SIZE = 1L << 30;
+	/**
+	 * The default amount of data stored between syncs, in bytes.
+	 */
+	public static final long DEFAULT_SYNC_SIZE = 64L << 20;
+	/**
+	 * The prefix of the names of the directories of indices, followed by the generation of the index.
+	 */
+	private static final String INDEX_PREFIX = "index-";
+	/**
+	 * The maximal amount of pack files, limited by the bits of an index value available for the pack.
+	 */
+	private static final int MAXIMAL_PACKS = (1 << Long.SIZE - 1 - ChunkStore.OFFSET_BITS) - 1;
+	/**
+	 * The minimal fraction of data of a pack that must still be referenced for compaction to keep the pack instead of
+	 * rewriting it.
+	 */
+	private static final double MINIMAL_REFERENCED_FRACTION = 0.5;
+	/**
+	 * The amount of bits of an index value used for the offset of a record, the remaining bits hold the pack.
+	 */
+	private static final int OFFSET_BITS = 40;
+	/**
+	 * The prefix of the names of pack files, followed by the number of the pack.
+	 */
+	private static final String PACK_PREFIX = "pack-";
+	/**
+	 * The suffix of the names of pack files.
+	 */
+	private static final String PACK_SUFFIX = ".dat";
+	/**
+	 * The suffix of the names of directories of indices that are not complete yet.
+	 */
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * Opens the store in the given directory with default settings, or creates an empty store if the directory does not
+	 * contain one.
+	 *
+	 * @param directory  The directory of the store, created if it does not exist, not null
+	 * @param hashLength The length of the hashes, in bytes, see {@link ChunkHasher#getHashLength()}. Must be positive and
+	 *                   not zero and equal the length used by an existing store.
+	 *
+	 * @return The opened store
+	 */
+	public static ChunkStore open(final Path directory, final int hashLength) {
+		return ChunkStore.open(directory, hashLength, ChunkStore.DEFAULT_MAXIMAL_PACK_SIZE,
+				ChunkStore.DEFAULT_SYNC_SIZE);
+	}
+
+	/**
+	 * Opens the store in the given directory, or creates an empty store if the directory does not contain one.
+	 * <p>
+	 * Data that was stored but not synced before the store was closed abnormally is discarded.
+	 *
+	 * @param directory       The directory of the store, created if it does not exist, not null
+	 * @param hashLength      The length of the hashes, in bytes, see {@link ChunkHasher#getHashLength()}. Must be
+	 *                        positive and not zero and equal the length used by an existing store.
+	 * @param maximalPackSize The size in bytes at which a new pack file is started, must be positive and not zero and at
+	 *                        most {@code 1 TiB}. A single chunk bigger than that gets a pack on its own.
+	 * @param syncSize        The amount of data in bytes stored between syncs, must be positive and not zero
+	 *
+	 * @return The opened store
+	 */
+	public static ChunkStore open(final Path directory, final int hashLength, final long maximalPackSize,
+			final long syncSize) {
+		Objects.requireNonNull(directory);
+		Validations.requirePositiveNonZero(hashLength, "Hash length");
+		Validations.requirePositiveNonZero(maximalPackSize, "Maximal pack size");
+		Validations.require(maximalPackSize <= 1L << ChunkStore.OFFSET_BITS, "Maximal pack size must be at most 1 TiB");
+		Validations.requirePositiveNonZero(syncSize, "Sync size");
+
+		final NavigableMap<Integer, PackFile> packs = new TreeMap<>();
+		int generation = -1;
+		try {
+			Files.createDirectories(directory);
+			final List<Path> files;
+			try (final Stream<Path> stream = Files.list(directory)) {
+				files = stream.collect(Collectors.toList());
+			}
+			// Indices that were not completed by a compaction are discarded
+			for (final Path file : files) {
+				final String name = file.getFileName()
+						.toString();
+				if (name.startsWith(ChunkStore.INDEX_PREFIX) && name.endsWith(ChunkStore.TEMPORARY_SUFFIX)) {
+					ChunkStore.deleteIndexDirectory(file);
+				} else {
+					generation = Math.max(generation, ChunkStore.numberOf(name, ChunkStore.INDEX_PREFIX, ""));
+				}
+			}
+			// Indices replaced by a compaction that were not deleted, or could not be deleted, are discarded
+			for (int previous = generation - 1; previous >= 0; previous--) {
+				ChunkStore.deleteIndexDirectory(ChunkStore.indexDirectory(directory, previous));
+			}
+			for (final Path file : files) {
+				final int number = ChunkStore.numberOf(file.getFileName()
+						.toString(), ChunkStore.PACK_PREFIX, ChunkStore.PACK_SUFFIX);
+				if (number != -1) {
+					packs.put(number, PackFile.open(file));
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		generation = Math.max(0, generation);
+		final ChunkIndex index = ChunkIndex.open(ChunkStore.indexDirectory(directory, generation), hashLength);
+		return new ChunkStore(directory, hashLength, maximalPackSize, syncSize, index, generation, packs);
+	}
+
+	/**
+	 * Deletes the given directory and the files it contains, if it exists.
+	 *
+	 * @param directory The directory to delete, not null
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void deleteDirectory(final Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (final Stream<Path> files = Files.list(directory)) {
+			for (final Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	/**
+	 * Deletes the given directory of an index that is not used anymore and the files it contains, if it exists. The
+	 * directory is left over if it can not be deleted, for example because the tables of the index are still mapped on
+	 * Windows, and deleted by the next {@link #open(Path, int, long, long)} instead.
+	 *
+	 * @param directory The directory to delete, not null
+	 */
+	private static void deleteIndexDirectory(final Path directory) {
+		try {
+			ChunkStore.deleteDirectory(directory);
+		} catch (final IOException e) {
+			// The index is not used anymore, the directory is deleted by the next open instead
+		}
+	}
+
+	/**
+	 * Gets the directory of the index of the given generation.
+	 *
+	 * @param directory  The directory of the store, not null
+	 * @param generation The generation of the index
+	 *
+	 * @return The directory of the index
+	 */
+	private static Path indexDirectory(final Path directory, final int generation) {
+		return directory.resolve(ChunkStore.INDEX_PREFIX + generation);
+	}
+
+	/**
+	 * Gets the index value of the given location of a record.
+	 *
+	 * @param pack   The number of the pack of the record
+	 * @param offset The offset of the record in the pack
+	 *
+	 * @return The index value of the location
+	 */
+	private static long locationValue(final int pack, final long offset) {
+		return (long) pack << ChunkStore.OFFSET_BITS | offset;
+	}
+
+	/**
+	 * Gets the number contained in the given file name between the given prefix and suffix.
+	 *
+	 * @param name   The name of the file, not null
+	 * @param prefix The prefix of the name, not null
+	 * @param suffix The suffix of the name, not null
+	 *
+	 * @return The number, or {@code -1} if the name does not consist of the prefix, a number and the suffix
+	 */
+	private static int numberOf(final String name, final String prefix, final String suffix) {
+		if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length()));
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Gets the offset of the record of the given index value.
+	 *
+	 * @param value The index value of the location of a record
+	 *
+	 * @return The offset of the record in its pack
+	 */
+	private static long offsetOf(final long value) {
+		return value & (1L << ChunkStore.OFFSET_BITS) - 1;
+	}
+
+	/**
+	 * Gets the number of the pack of the given index value.
+	 *
+	 * @param value The index value of the location of a record
+	 *
+	 * @return The number of the pack of the record
+	 */
+	private static int packOf(final long value) {
+		//noinspection NumericCastThatLosesPrecision
+		return (int) (value >>> ChunkStore.OFFSET_BITS);
+	}
+
+	/**
+	 * Gets the file of the pack of the given number.
+	 *
+	 * @param directory The directory of the store, not null
+	 * @param number    The number of the pack
+	 *
+	 * @return The file of the pack
+	 */
+	private static Path packFile(final Path directory, final int number) {
+		return directory.resolve(ChunkStore.PACK_PREFIX + number + ChunkStore.PACK_SUFFIX);
+	}
+
+	/**
+	 * The directory of the store.
+	 */
+	private final Path directory;
+	/**
+	 * The length of the hashes.
+	 */
+	private final int hashLength;
+	/**
+	 * The size at which a new pack file is started, in bytes.
+	 */
+	private final long maximalPackSize;
+	/**
+	 * The pack files by their number.
+	 */
+	private final NavigableMap<Integer, PackFile> packs;
+	/**
+	 * The index values of stored chunks that are not synced yet, by their wrapped hash.
+	 */
+	private final Map<ByteBuffer, Long> pendingChunks = new HashMap<>();
+	/**
+	 * The amount of data stored between syncs, in bytes.
+	 */
+	private final long syncSize;
+	/**
+	 * The number of the pack new chunks are appended to, {@code -1} if a new pack has to be started.
+	 */
+	private int activePack;
+	/**
+	 * The index of the locations of synced chunks. {@code null} once the store is closed.
+	 */
+	private ChunkIndex index;
+	/**
+	 * The generation of the index.
+	 */
+	private int indexGeneration;
+	/**
+	 * The amount of data stored since the last sync, in bytes.
+	 */
+	private long unsyncedSize;
+
+	/**
+	 * Creates a new store.
+	 *
+	 * @param directory       The directory of the store, not null
+	 * @param hashLength      The length of the hashes
+	 * @param maximalPackSize The size at which a new pack file is started, in bytes
+	 * @param syncSize        The amount of data stored between syncs, in bytes
+	 * @param index           The index of the locations of synced chunks, not null
+	 * @param indexGeneration The generation of the index
+	 * @param packs           The pack files by their number, not null
+	 */
+	private ChunkStore(final Path directory, final int hashLength, final long maximalPackSize, final long syncSize,
+			final ChunkIndex index, final int indexGeneration, final NavigableMap<Integer, PackFile> packs) {
+		this.directory = directory;
+		this.hashLength = hashLength;
+		this.maximalPackSize = maximalPackSize;
+		this.syncSize = syncSize;
+		this.index = Objects.requireNonNull(index);
+		this.indexGeneration = indexGeneration;
+		this.packs = Objects.requireNonNull(packs);
+		activePack = packs.isEmpty() ? -1 : packs.lastKey();
+	}
+
+	/**
+	 * Syncs all stored chunks and closes the store. Further operations are not permitted.
+	 */
+	@Override
+	public synchronized void close() {
+		if (index == null) {
+			return;
+		}
+		sync();
+		for (final PackFile pack : packs.values()) {
+			pack.close();
+		}
+		index.close();
+		index = null;
+	}
+
+	/**
+	 * Drops all chunks that are no longer referenced and reclaims their space. Packs of which less than half of the
+	 * data is still referenced are rewritten into new packs and deleted, the other packs are kept as they are. The
+	 * index is rebuilt from the referenced chunks and replaces the previous index atomically, hence an interrupted
+	 * compaction does not lose chunks. If the previous index can not be deleted while its tables are still mapped, as
+	 * on Windows, it is deleted by the next {@link #open(Path, int, long, long)} instead.
+	 * <p>
+	 * All stored chunks are synced first. Chunks can not be stored while the compaction is in progress.
+	 *
+	 * @param isReferenced Predicate that decides for the hash of a stored chunk whether it is still referenced, not
+	 *                     null
+	 *
+	 * @return The amount of bytes reclaimed
+	 */
+	public synchronized long compact(final Predicate<? super byte[]> isReferenced) {
+		Objects.requireNonNull(isReferenced);
+		requireOpen();
+		sync();
+		// New packs are started for the rewritten chunks
+		activePack = -1;
+
+		final Path compactedDirectory =
+				directory.resolve(ChunkStore.INDEX_PREFIX + (indexGeneration + 1) + ChunkStore.TEMPORARY_SUFFIX);
+		try {
+			ChunkStore.deleteDirectory(compactedDirectory);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		final List<Integer> rewrittenPacks = new ArrayList<>();
+		long reclaimedSize = 0;
+		try (final ChunkIndex compactedIndex = ChunkIndex.open(compactedDirectory, hashLength)) {
+			final byte[] hash = new byte[hashLength];
+			for (final Map.Entry<Integer, PackFile> entry : new ArrayList<>(packs.entrySet())) {
+				final int number = entry.getKey();
+				final PackFile pack = entry.getValue();
+
+				long referencedSize = 0;
+				for (long offset = PackFile.HEADER_SIZE; offset < pack.getSize(); ) {
+					final int length = pack.readRecordHeader(offset, hash);
+					final long recordSize = pack.getRecordHeaderSize() + length;
+					if (isReferenced(number, offset, hash, isReferenced)) {
+						referencedSize += recordSize;
+					}
+					offset += recordSize;
+				}
+
+				final boolean rewrite = referencedSize < ChunkStore.MINIMAL_REFERENCED_FRACTION * (pack.getSize()
+						- PackFile.HEADER_SIZE);
+				for (long offset = PackFile.HEADER_SIZE; offset < pack.getSize(); ) {
+					final int length = pack.readRecordHeader(offset, hash);
+					if (isReferenced(number, offset, hash, isReferenced)) {
+						final long value = rewrite ? append(hash,
+								ByteBuffer.wrap(pack.read(offset + pack.getRecordHeaderSize(), length)))
+								: ChunkStore.locationValue(number, offset);
+						compactedIndex.putIfAbsent(hash, value);
+					}
+					offset += pack.getRecordHeaderSize() + length;
+				}
+				if (rewrite || pack.getSize() == PackFile.HEADER_SIZE) {
+					rewrittenPacks.add(number);
+					reclaimedSize += pack.getSize() - referencedSize;
+				}
+			}
+			for (final PackFile pack : packs.values()) {
+				pack.commit();
+			}
+		}
+
+		final Path previousDirectory = ChunkStore.indexDirectory(directory, indexGeneration);
+		index.close();
+		try {
+			Files.move(compactedDirectory, ChunkStore.indexDirectory(directory, indexGeneration + 1),
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException e) {
+			// The previous index stays in use
+			index = ChunkIndex.open(previousDirectory, hashLength);
+			throw new UncheckedIOException(e);
+		}
+		indexGeneration++;
+		index = ChunkIndex.open(ChunkStore.indexDirectory(directory, indexGeneration), hashLength);
+
+		ChunkStore.deleteIndexDirectory(previousDirectory);
+		try {
+			for (final int number : rewrittenPacks) {
+				final PackFile pack = packs.remove(number);
+				pack.close();
+				Files.delete(pack.getFile());
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return reclaimedSize;
+	}
+
+	/**
+	 * Whether the store contains the chunk with the given hash.
+	 *
+	 * @param hash The hash of the chunk, must have the length of the store, not null
+	 *
+	 * @return {@code true} if the store contains the chunk, {@code false} otherwise
+	 */
+	public synchronized boolean contains(final byte[] hash) {
+		return indexValue(hash) != ChunkIndex.ABSENT;
+	}
+
+	/**
+	 * Gets the location of the chunk with the given hash.
+	 *
+	 * @param hash The hash of the chunk, must have the length of the store, not null
+	 *
+	 * @return The location of the chunk, or {@code null} if the store does not contain the chunk
+	 */
+	@Override
+	public synchronized ChunkLocation getLocation(final byte[] hash) {
+		final long value = indexValue(hash);
+		if (value == ChunkIndex.ABSENT) {
+			return null;
+		}
+		final int number = ChunkStore.packOf(value);
+		final PackFile pack = packs.get(number);
+		final long offset = ChunkStore.offsetOf(value);
+		final int length = pack.readRecordHeader(offset, new byte[hashLength]);
+		return new ChunkLocation(number, offset + pack.getRecordHeaderSize(), length);
+	}
+
+	/**
+	 * Gets the file of the pack of the given number. Chunks of the pack that are not synced yet are written to the file
+	 * first, without forcing them to the storage device.
+	 *
+	 * @param pack The number of the pack, as given by a location
+	 *
+	 * @return The file of the pack
+	 */
+	@Override
+	public synchronized Path getPackFile(final int pack) {
+		requireOpen();
+		final PackFile packFile = packs.get(pack);
+		Validations.require(packFile != null, "The store does not contain the pack " + pack);
+		packFile.flush();
+		return packFile.getFile();
+	}
+
+	/**
+	 * Stores the given chunk, unless the store already contains it.
+	 *
+	 * @param chunk The chunk to store, not null
+	 *
+	 * @return {@code true} if the chunk was stored, {@code false} if the store already contains it
+	 */
+	public boolean put(final Chunk chunk) {
+		return put(chunk.getHash(), chunk.getDataBuffer());
+	}
+
+	/**
+	 * Stores the chunk with the given hash and data, unless the store already contains it.
+	 *
+	 * @param hash The hash of the chunk, must have the length of the store, not null
+	 * @param data The data of the chunk, its remaining content is stored without changing its position, not null
+	 *
+	 * @return {@code true} if the chunk was stored, {@code false} if the store already contains it
+	 */
+	public synchronized boolean put(final byte[] hash, final ByteBuffer data) {
+		Objects.requireNonNull(data);
+		if (indexValue(hash) != ChunkIndex.ABSENT) {
+			return false;
+		}
+		pendingChunks.put(ByteBuffer.wrap(hash.clone()), append(hash, data));
+		unsyncedSize += data.remaining();
+		if (unsyncedSize >= syncSize) {
+			sync();
+		}
+		return true;
+	}
+
+	/**
+	 * Stores all given chunks the store does not contain yet, for example the output of a {@link Chunker}, and syncs
+	 * them.
+	 *
+	 * @param chunks The chunks to store, not null
+	 *
+	 * @return The amount of chunks that were stored
+	 */
+	public long putAll(final Iterable<? extends Chunk> chunks) {
+		long storedChunks = 0;
+		for (final Chunk chunk : chunks) {
+			if (put(chunk)) {
+				storedChunks++;
+			}
+		}
+		sync();
+		return storedChunks;
+	}
+
+	/**
+	 * Reads the data of the chunk with the given hash.
+	 *
+	 * @param hash The hash of the chunk, must have the length of the store, not null
+	 *
+	 * @return The data of the chunk, or {@code null} if the store does not contain the chunk
+	 */
+	public synchronized byte[] read(final byte[] hash) {
+		final ChunkLocation location = getLocation(hash);
+		if (location == null) {
+			return null;
+		}
+		return packs.get(location.getPack())
+				.read(location.getOffset(), location.getLength());
+	}
+
+	/**
+	 * Gets the amount of chunks contained in the store.
+	 *
+	 * @return The amount of chunks
+	 */
+	public synchronized long size() {
+		requireOpen();
+		return index.size() + pendingChunks.size();
+	}
+
+	/**
+	 * Forces all stored chunks to the storage device. The data of all chunks is forced with a single sync of the pack,
+	 * followed by a sync of the index.
+	 */
+	public synchronized void sync() {
+		requireOpen();
+		if (pendingChunks.isEmpty()) {
+			return;
+		}
+		// The data is forced before the index refers to it
+		if (activePack != -1) {
+			packs.get(activePack)
+					.commit();
+		}
+		for (final Map.Entry<ByteBuffer, Long> entry : pendingChunks.entrySet()) {
+			index.putIfAbsent(entry.getKey()
+					.array(), entry.getValue());
+		}
+		index.force();
+		pendingChunks.clear();
+		unsyncedSize = 0;
+	}
+
+	/**
+	 * Appends the given chunk to the active pack, starting a new pack if the active pack is full.
+	 *
+	 * @param hash The hash of the chunk, not null
+	 * @param data The data of the chunk, not null
+	 *
+	 * @return The index value of the location of the chunk
+	 */
+	private long append(final byte[] hash, final ByteBuffer data) {
+		PackFile pack = activePack == -1 ? null : packs.get(activePack);
+		if (pack != null && pack.getSize() > PackFile.HEADER_SIZE
+				&& pack.getSize() + pack.getRecordHeaderSize() + data.remaining() > maximalPackSize) {
+			// Chunks of the full pack have to be synced before new chunks can be synced with the new pack only
+			sync();
+			pack = null;
+		}
+		if (pack == null) {
+			final int number = nextPackNumber();
+			Validations.require(number < ChunkStore.MAXIMAL_PACKS, "The store exceeded the maximal amount of packs");
+			pack = PackFile.create(ChunkStore.packFile(directory, number), hashLength);
+			packs.put(number, pack);
+			activePack = number;
+		}
+		return ChunkStore.locationValue(activePack, pack.append(hash, data));
+	}
+
+	/**
+	 * Gets the index value of the chunk with the given hash, including chunks that are not synced yet.
+	 *
+	 * @param hash The hash of the chunk, must have the length of the store, not null
+	 *
+	 * @return The index value of the chunk, or {@link ChunkIndex#ABSENT} if the store does not contain the chunk
+	 */
+	private long indexValue(final byte[] hash) {
+		Objects.requireNonNull(hash);
+		requireOpen();
+		Validations.require(hash.length == hashLength, "Hash length must equal the length used by the store, " + hashLength);
+		final Long pendingValue = pendingChunks.get(ByteBuffer.wrap(hash));
+		return pendingValue != null ? pendingValue : index.get(hash);
+	}
+
+	/**
+	 * Whether the record at the given location is the referenced copy of its chunk. Records whose chunk is not
+	 * referenced anymore and duplicates of chunks whose index entry was lost are not.
+	 *
+	 * @param pack         The number of the pack of the record
+	 * @param offset       The offset of the record in the pack
+	 * @param hash         The hash of the chunk of the record, not null
+	 * @param isReferenced Predicate that decides whether a chunk is still referenced, not null
+	 *
+	 * @return {@code true} if the record is referenced, {@code false} otherwise
+	 */
+	private boolean isReferenced(final int pack, final long offset, final byte[] hash,
+			final Predicate<? super byte[]> isReferenced) {
+		return index.get(hash) == ChunkStore.locationValue(pack, offset) && isReferenced.test(hash);
+	}
+
+	/**
+	 * Gets the number of the next pack to start.
+	 *
+	 * @return The number of the next pack
+	 */
+	private int nextPackNumber() {
+		return packs.isEmpty() ? 0 : packs.lastKey() + 1;
+	}
+
+	/**
+	 * Requires the store to be open.
+	 */
+	private void requireOpen() {
+		if (index == null) {
+			throw new IllegalStateException("The store has been closed");
+		}
+	}
+}
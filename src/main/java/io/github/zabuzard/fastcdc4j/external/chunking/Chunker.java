@@ -1,13 +1,33 @@
 package io.github.zabuzard.fastcdc4j.external.chunking;
 
+import io.github.zabuzard.fastcdc4j.internal.chunking.ByteBufferInputStream;
+import io.github.zabuzard.fastcdc4j.internal.chunking.ChunkPublisher;
+import io.github.zabuzard.fastcdc4j.internal.chunking.FileSpliterator;
+import io.github.zabuzard.fastcdc4j.internal.chunking.IteratorChunkCursor;
+import io.github.zabuzard.fastcdc4j.internal.util.ClosingIterator;
 import io.github.zabuzard.fastcdc4j.internal.util.FlatIterator;
+import io.github.zabuzard.fastcdc4j.internal.util.MappingIterator;
 import io.github.zabuzard.fastcdc4j.internal.util.Validations;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Interface for algorithms that are able to chunk data streams for data deduplication.
@@ -64,11 +84,46 @@ public interface Chunker {
 		return chunk(new ByteArrayInputStream(data), data.length);
 	}
 
+	/**
+	 * Chunks the remaining data of the given buffer into chunks, for example a direct buffer or the buffer of a memory
+	 * segment. The data is consumed and populates the resulting iterable lazily as it is consumed. The buffer is not
+	 * modified.
+	 * <p>
+	 * Chunkers that scan buffered data scan the buffer in place, the chunks are read-only views on it, see {@link
+	 * Chunk#getDataBuffer()}. Otherwise, the buffer is read as stream, without copying it as a whole.
+	 *
+	 * @param data The data to chunk, from its position to its limit, not null and not empty
+	 *
+	 * @return The chunks of the data, lazily populated
+	 */
+	default Iterable<Chunk> chunk(final ByteBuffer data) {
+		Objects.requireNonNull(data);
+		Validations.require(data.hasRemaining(), "Data must not be empty");
+		return chunk(new ByteBufferInputStream(data), data.remaining());
+	}
+
+	/**
+	 * Chunks the data read from the given channel into chunks. The channel is consumed and populates the resulting
+	 * iterable lazily as it is consumed.
+	 * <p>
+	 * Chunkers that scan buffered data read the channel in large blocks directly into their buffer.
+	 *
+	 * @param channel The channel to chunk, not null
+	 * @param size    The amount of bytes available in the channel that are subject to be chunked, the channel must
+	 *                offer at least that many bytes. Must be positive and not zero.
+	 *
+	 * @return The chunks of the channel, lazily populated
+	 */
+	default Iterable<Chunk> chunk(final ReadableByteChannel channel, final long size) {
+		return chunk(Channels.newInputStream(channel), size);
+	}
+
 	/**
 	 * Chunks the data available at the given path. The path must either be a regular file or a directory. In case of a
 	 * directory, the method recursively traverses the directory and lazily collects all regular files.
 	 * <p>
-	 * The stream is consumed and populates the resulting iterable lazily as it is consumed.
+	 * The stream is consumed and populates the resulting iterable lazily as it is consumed. A file is closed once all of
+	 * its chunks have been consumed.
 	 * <p>
 	 * Chunks own their bytes, so it is preferable to process them directly and avoid first collecting all of them.
 	 * <p>
@@ -85,11 +140,402 @@ public interface Chunker {
 				return chunk(Files.walk(path));
 			}
 			if (Files.isRegularFile(path)) {
-				return chunk(new BufferedInputStream(Files.newInputStream(path)), Files.size(path));
+				final long size = Files.size(path);
+				final InputStream stream = new BufferedInputStream(Files.newInputStream(path));
+				final Iterable<Chunk> chunks = chunk(stream, size);
+				return () -> new ClosingIterator<>(chunks.iterator(), stream);
 			}
 		} catch (final IOException e) {
 			throw new UncheckedIOException(e);
 		}
 		throw new IllegalArgumentException("Only existing regular files or directories are supported");
 	}
+
+	/**
+	 * Chunks the given stream into chunk metadata, without retaining the data of the chunks. The stream is consumed and
+	 * populates the resulting iterable lazily as it is consumed.
+	 * <p>
+	 * Chunkers that scan buffered data hash the data as it streams past and use a buffer of fixed size, independent of
+	 * the maximal chunk size.
+	 *
+	 * @param stream The data stream to chunk, not null
+	 * @param size   The amount of bytes available in the stream that are subject to be chunked, the stream must offer
+	 *               at least that many bytes. Must be positive and not zero.
+	 *
+	 * @return The metadata of the chunks of the stream, lazily populated
+	 */
+	default Iterable<ChunkMetadata> chunkMetadata(final InputStream stream, final long size) {
+		Objects.requireNonNull(stream);
+		Validations.requirePositiveNonZero(size, "Size");
+		final Iterable<Chunk> chunks = chunk(stream, size);
+		return () -> new MappingIterator<>(chunks.iterator(), Chunk::toChunkMetadata);
+	}
+
+	/**
+	 * Chunks all given regular files into chunk metadata, without retaining the data of the chunks. The stream is
+	 * consumed and populates the resulting iterable lazily as it is consumed.
+	 * <p>
+	 * The stream is consumed sequential, files are not processed parallel.
+	 *
+	 * @param paths Stream of files to process, only regular files are chunked, not null
+	 *
+	 * @return The metadata of the chunks of the stream, lazily populated
+	 */
+	default Iterable<ChunkMetadata> chunkMetadata(final Stream<? extends Path> paths) {
+		Objects.requireNonNull(paths);
+		return () -> new FlatIterator<>(paths.filter(Files::isRegularFile)
+				.iterator(), path -> chunkMetadata(path).iterator());
+	}
+
+	/**
+	 * Chunks the given data into chunk metadata, without retaining the data of the chunks. The data is consumed and
+	 * populates the resulting iterable lazily as it is consumed.
+	 *
+	 * @param data The data to chunk, not null and not empty
+	 *
+	 * @return The metadata of the chunks of the stream, lazily populated
+	 */
+	default Iterable<ChunkMetadata> chunkMetadata(final byte[] data) {
+		Objects.requireNonNull(data);
+		Validations.require(data.length > 0, "Data must not be empty");
+		return chunkMetadata(new ByteArrayInputStream(data), data.length);
+	}
+
+	/**
+	 * Chunks the remaining data of the given buffer into chunk metadata, see {@link #chunk(ByteBuffer)}. The data is
+	 * consumed and populates the resulting iterable lazily as it is consumed. The buffer is not modified.
+	 *
+	 * @param data The data to chunk, from its position to its limit, not null and not empty
+	 *
+	 * @return The metadata of the chunks of the data, lazily populated
+	 */
+	default Iterable<ChunkMetadata> chunkMetadata(final ByteBuffer data) {
+		Objects.requireNonNull(data);
+		Validations.require(data.hasRemaining(), "Data must not be empty");
+		return chunkMetadata(new ByteBufferInputStream(data), data.remaining());
+	}
+
+	/**
+	 * Chunks the data read from the given channel into chunk metadata, without retaining the data of the chunks, see
+	 * {@link #chunkMetadata(InputStream, long)}. The channel is consumed and populates the resulting iterable lazily as
+	 * it is consumed.
+	 *
+	 * @param channel The channel to chunk, not null
+	 * @param size    The amount of bytes available in the channel that are subject to be chunked, the channel must
+	 *                offer at least that many bytes. Must be positive and not zero.
+	 *
+	 * @return The metadata of the chunks of the channel, lazily populated
+	 */
+	default Iterable<ChunkMetadata> chunkMetadata(final ReadableByteChannel channel, final long size) {
+		return chunkMetadata(Channels.newInputStream(channel), size);
+	}
+
+	/**
+	 * Chunks the data available at the given path into chunk metadata, without retaining the data of the chunks. The
+	 * path must either be a regular file or a directory. In case of a directory, the method recursively traverses the
+	 * directory and lazily collects all regular files.
+	 * <p>
+	 * The stream is consumed and populates the resulting iterable lazily as it is consumed. A file is closed once the
+	 * metadata of all of its chunks has been consumed.
+	 * <p>
+	 * The stream is consumed sequential, files are not processed parallel.
+	 *
+	 * @param path Either a regular file or a directory to traverse, only regular files are processed, not null
+	 *
+	 * @return The metadata of the chunks of the stream, lazily populated
+	 */
+	default Iterable<ChunkMetadata> chunkMetadata(final Path path) {
+		Objects.requireNonNull(path);
+		try {
+			if (Files.isDirectory(path)) {
+				return chunkMetadata(Files.walk(path));
+			}
+			if (Files.isRegularFile(path)) {
+				final long size = Files.size(path);
+				final InputStream stream = new BufferedInputStream(Files.newInputStream(path));
+				final Iterable<ChunkMetadata> chunks = chunkMetadata(stream, size);
+				return () -> new ClosingIterator<>(chunks.iterator(), stream);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		throw new IllegalArgumentException("Only existing regular files or directories are supported");
+	}
+
+	/**
+	 * Chunks the given regular file asynchronously and passes the chunks, in order, to the given action.
+	 * <p>
+	 * Chunkers that scan buffered data read the file with an {@link java.nio.channels.AsynchronousFileChannel}, no
+	 * thread waits for a read to complete. Hence, many files can be chunked at the same time on a small pool of threads.
+	 * Otherwise, the file is chunked by a thread of the executor, see {@link #chunk(Path)}.
+	 *
+	 * @param file     The regular file to chunk, not null
+	 * @param action   The action to pass each chunk to, called by a thread of the executor, not null
+	 * @param executor The executor to read and chunk the file on, not null
+	 *
+	 * @return A future that completes once all chunks have been passed to the action, or exceptionally if reading,
+	 * 		chunking or the action failed
+	 */
+	default CompletableFuture<Void> chunkAsync(final Path file, final Consumer<? super Chunk> action,
+			final ExecutorService executor) {
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(action);
+		Validations.require(Files.isRegularFile(file), "Only existing regular files are supported");
+		final CompletableFuture<Void> result = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				if (Files.size(file) > 0) {
+					chunk(file).forEach(action);
+				}
+				result.complete(null);
+			} catch (final IOException e) {
+				result.completeExceptionally(new UncheckedIOException(e));
+			} catch (final RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Chunks the given regular file asynchronously and collects the metadata of the chunks.
+	 * <p>
+	 * Chunkers that scan buffered data read the file with an {@link java.nio.channels.AsynchronousFileChannel}, no
+	 * thread waits for a read to complete. Hence, many files can be chunked at the same time on a small pool of threads.
+	 * Otherwise, the file is chunked by a thread of the executor, see {@link #chunkMetadata(Path)}.
+	 *
+	 * @param file     The regular file to chunk, not null
+	 * @param executor The executor to read and chunk the file on, not null
+	 *
+	 * @return A future of the metadata of the chunks, in order, completing exceptionally if reading or chunking failed
+	 */
+	default CompletableFuture<List<ChunkMetadata>> chunkMetadataAsync(final Path file, final ExecutorService executor) {
+		Objects.requireNonNull(file);
+		Validations.require(Files.isRegularFile(file), "Only existing regular files are supported");
+		final CompletableFuture<List<ChunkMetadata>> result = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				final List<ChunkMetadata> chunks = new ArrayList<>();
+				if (Files.size(file) > 0) {
+					chunkMetadata(file).forEach(chunks::add);
+				}
+				result.complete(chunks);
+			} catch (final IOException e) {
+				result.completeExceptionally(new UncheckedIOException(e));
+			} catch (final RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Chunks the given regular file and collects the metadata of the chunks into a compact list, see {@link
+	 * ChunkList}.
+	 * <p>
+	 * The list needs considerably less memory than a list of metadata objects, which suits collecting the chunks of
+	 * many files, one list per file. Directories are not supported, since the offsets of the chunks of different files
+	 * would collide in a single list.
+	 *
+	 * @param file The regular file to chunk, not null
+	 *
+	 * @return The metadata of the chunks, in order
+	 */
+	default ChunkList chunkList(final Path file) {
+		Objects.requireNonNull(file);
+		Validations.require(Files.isRegularFile(file), "Only existing regular files are supported");
+		final ChunkList chunks = new ChunkList();
+		for (final ChunkMetadata chunk : chunkMetadata(file)) {
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+
+	/**
+	 * Creates a cursor over the chunks of the given stream. The stream is consumed as the cursor advances and closed
+	 * together with the cursor.
+	 * <p>
+	 * Chunkers that scan buffered data do not allocate per chunk, the data of the current chunk is a view on the buffer
+	 * of the cursor. Otherwise, the cursor is based on {@link #chunk(InputStream, long)}.
+	 *
+	 * @param stream The data stream to chunk, not null
+	 * @param size   The amount of bytes available in the stream that are subject to be chunked, the stream must offer
+	 *               at least that many bytes. Must be positive and not zero.
+	 *
+	 * @return A cursor over the chunks of the stream, positioned before the first chunk
+	 */
+	default ChunkCursor cursor(final InputStream stream, final long size) {
+		return new IteratorChunkCursor(chunk(stream, size).iterator(), stream);
+	}
+
+	/**
+	 * Creates a cursor over the chunks of the given regular file, see {@link #cursor(InputStream, long)}. The file is
+	 * closed together with the cursor.
+	 *
+	 * @param file The regular file to chunk, not null and not empty
+	 *
+	 * @return A cursor over the chunks of the file, positioned before the first chunk
+	 */
+	default ChunkCursor cursor(final Path file) {
+		Objects.requireNonNull(file);
+		Validations.require(Files.isRegularFile(file), "Only existing regular files are supported");
+		try {
+			final long size = Validations.requirePositiveNonZero(Files.size(file), "Size");
+			return cursor(new BufferedInputStream(Files.newInputStream(file)), size);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Creates a publisher of the chunks of the given stream. Chunks are generated on the given executor, on demand of
+	 * the subscriber. Hence, the stream is only read as fast as the subscriber requests chunks.
+	 * <p>
+	 * The publisher supports a single subscriber. The stream is closed as soon as the subscription is cancelled or
+	 * terminated.
+	 *
+	 * @param stream   The data stream to chunk, not null
+	 * @param size     The amount of bytes available in the stream that are subject to be chunked, the stream must offer
+	 *                 at least that many bytes. Must be positive and not zero.
+	 * @param executor The executor to generate the chunks and signal the subscriber on, not null
+	 *
+	 * @return A publisher of the chunks of the stream, in order
+	 */
+	default Flow.Publisher<Chunk> publish(final InputStream stream, final long size, final Executor executor) {
+		return new ChunkPublisher(this, stream, size, executor);
+	}
+
+	/**
+	 * Creates a publisher of the chunks of the data available at the given path. The path must either be a regular file
+	 * or a directory. In case of a directory, the method recursively traverses the directory and chunks all regular
+	 * files one after another, the chunks are {@link FileChunk}s then.
+	 * <p>
+	 * Chunks are generated on the given executor, on demand of the subscriber. Every subscriber reads the data on its
+	 * own, each file is chunked by {@link #chunk(Path)}. The chunks of the currently read file are dropped as soon as
+	 * the subscription is cancelled or terminated.
+	 *
+	 * @param path     Either a regular file or a directory to traverse, only regular files are processed, not null
+	 * @param executor The executor to generate the chunks and signal the subscribers on, not null
+	 *
+	 * @return A publisher of the chunks of the data, in order
+	 */
+	default Flow.Publisher<Chunk> publish(final Path path, final Executor executor) {
+		return new ChunkPublisher(this, path, executor);
+	}
+
+	/**
+	 * Chunks the current version of the given regular file into chunk metadata, reusing the chunks of a previous
+	 * version wherever the file did not change. The previous chunks must have been generated by a chunker with the same
+	 * configuration.
+	 * <p>
+	 * Chunkers that scan buffered data only read and scan the file from the last cut-point before each changed range
+	 * until the cut-points line up with the previous ones again. The chunks in between are reused, without reading or
+	 * hashing their data. Otherwise, the whole file is chunked again, see {@link #chunkMetadata(Path)}.
+	 * <p>
+	 * The data is consumed and populates the resulting iterable lazily as it is consumed.
+	 *
+	 * @param file           The current version of the regular file to chunk, not null
+	 * @param previousChunks The metadata of all chunks of the previous version, in order, not null
+	 * @param changedRanges  The ranges that changed since the previous version, ordered by their offset and not
+	 *                       overlapping, not null
+	 *
+	 * @return The metadata of the chunks of the current version, lazily populated
+	 */
+	default Iterable<ChunkMetadata> rechunkMetadata(final Path file, final List<? extends ChunkMetadata> previousChunks,
+			final List<ChangedRange> changedRanges) {
+		Objects.requireNonNull(previousChunks);
+		Objects.requireNonNull(changedRanges);
+		return chunkMetadata(file);
+	}
+
+	/**
+	 * Creates a spliterator over the chunks of the given regular file.
+	 * <p>
+	 * Chunkers that scan buffered data split large files by byte range, generating the same chunks as a sequential run.
+	 * Otherwise, the spliterator is based on {@link #chunk(Path)} and only splits off batches of already generated
+	 * chunks.
+	 *
+	 * @param file The regular file to chunk, not null
+	 *
+	 * @return A spliterator over the chunks of the file
+	 */
+	default Spliterator<Chunk> spliterator(final Path file) {
+		Objects.requireNonNull(file);
+		return Spliterators.spliteratorUnknownSize(chunk(file).iterator(),
+				Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+	}
+
+	/**
+	 * Chunks the given stream into a stream of chunks. The stream is consumed lazily as the resulting stream is
+	 * consumed.
+	 *
+	 * @param stream The data stream to chunk, not null
+	 * @param size   The amount of bytes available in the stream that are subject to be chunked, the stream must offer
+	 *               at least that many bytes. Must be positive and not zero.
+	 *
+	 * @return The chunks of the stream, in order
+	 */
+	default Stream<Chunk> stream(final InputStream stream, final long size) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunk(stream, size).iterator(),
+				Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+	}
+
+	/**
+	 * Chunks all given regular files into a stream of chunks. The chunks are {@link FileChunk}s, tagged with the file
+	 * they originate from.
+	 * <p>
+	 * The paths are collected before the resulting stream is created. The stream is splittable by file and, for chunkers
+	 * that scan buffered data, large files are split by byte range. Hence, a {@link Stream#parallel() parallel} stream
+	 * processes the files in parallel while preserving the order of the chunks.
+	 *
+	 * @param paths Stream of files to process, only regular files are chunked, not null
+	 *
+	 * @return The chunks of the files, in order
+	 */
+	default Stream<Chunk> stream(final Stream<? extends Path> paths) {
+		Objects.requireNonNull(paths);
+		final List<? extends Path> files = paths.filter(Files::isRegularFile)
+				.collect(Collectors.toList());
+		return StreamSupport.stream(new FileSpliterator(files, this::spliterator), false);
+	}
+
+	/**
+	 * Chunks the given data into a stream of chunks.
+	 *
+	 * @param data The data to chunk, not null and not empty
+	 *
+	 * @return The chunks of the data, in order
+	 */
+	default Stream<Chunk> stream(final byte[] data) {
+		Objects.requireNonNull(data);
+		Validations.require(data.length > 0, "Data must not be empty");
+		return stream(new ByteArrayInputStream(data), data.length);
+	}
+
+	/**
+	 * Chunks the data available at the given path into a stream of chunks. The path must either be a regular file or a
+	 * directory. In case of a directory, the method recursively traverses the directory and collects all regular files,
+	 * see {@link #stream(Stream)}.
+	 * <p>
+	 * The stream of a regular file is splittable by byte range for chunkers that scan buffered data, see {@link
+	 * #spliterator(Path)}.
+	 *
+	 * @param path Either a regular file or a directory to traverse, only regular files are processed, not null
+	 *
+	 * @return The chunks of the data, in order
+	 */
+	default Stream<Chunk> stream(final Path path) {
+		Objects.requireNonNull(path);
+		if (Files.isDirectory(path)) {
+			try (final Stream<Path> paths = Files.walk(path)) {
+				return stream(paths);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		if (Files.isRegularFile(path)) {
+			return StreamSupport.stream(spliterator(path), false);
+		}
+		throw new IllegalArgumentException("Only existing regular files or directories are supported");
+	}
 }
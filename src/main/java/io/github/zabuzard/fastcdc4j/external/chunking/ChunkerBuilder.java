@@ -2,10 +2,18 @@ package io.github.zabuzard.fastcdc4j.external.chunking;
 
 import io.github.zabuzard.fastcdc4j.internal.util.Validations;
 import io.github.zabuzard.fastcdc4j.internal.chunking.*;
+import io.github.zabuzard.fastcdc4j.internal.hashing.Blake3ChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.hashing.MessageDigestChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.hashing.MeteredChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.hashing.Murmur3ChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.recording.RecordingChunkHasher;
+import io.github.zabuzard.fastcdc4j.internal.recording.RecordingChunker;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Builder for convenient construction of {@link Chunker} instances.
@@ -13,12 +21,22 @@ import java.util.Objects;
  * The builder offers highly customizable content-defined-chunking algorithms. Offered algorithms are:
  * <ul>
  *     <li>{@code FastCDC (original)} - Wen Xia et al. (<a href="https://www.usenix.org/system/files/conference/atc16/atc16-paper-xia.pdf">publication</a>)</li>
+ *     <li>{@code FastCDC 2020} - Wen Xia et al. (<a href="https://ieeexplore.ieee.org/document/9055082">publication</a>), rolling two bytes per iteration</li>
  *     <li>{@code FastCDC Rust} - Nathan Fiedler (<a href="https://github.com/nlfiedler/fastcdc-rs">source</a>),slightly modified version of the original algorithm</li>
+ *     <li>{@code Rabin} - Athicha Muthitacharoen et al. (<a href="https://pdos.csail.mit.edu/papers/lbfs:sosp01/lbfs.pdf">publication</a>), rolling Rabin fingerprints over a sliding window</li>
+ *     <li>{@code Adler} - rolling Adler-32 style checksum over a sliding window, as used by rsync and bup</li>
  *     <li>{@code Fixed-Size-Chunking (FSC)} - Baseline, chunks the data stream every x-th byte, without interpreting the content</li>
  * </ul>
  * It is also possible to add custom algorithms by simply implementing {@link Chunker}.
- * A custom algorithm can be set by using {@link #setChunker(Chunker)} for full control or {@link #setChunkerCore(IterativeStreamChunkerCore)}
- * for a simplified interface.
+ * A custom algorithm can be set by using {@link #setChunker(Chunker)} for full control, {@link #setBufferChunkerCore(BufferChunkerCore)}
+ * for a simplified interface operating on buffered blocks of data or {@link #setChunkerCore(IterativeStreamChunkerCore)}
+ * for a simplified interface operating on the stream directly.
+ * The predefined algorithms read the data in large blocks and scan them in a buffer. Regular files can instead be
+ * memory-mapped and chunked without copying any data, which is enabled by {@link #setMemoryMapping(boolean)}.
+ * Alternatively, reading, scanning and hashing can be pipelined across multiple threads by {@link #setPipelining(boolean)}.
+ * Large files can be split into segments that are chunked in parallel by {@link #setSegmentedChunking(boolean)}.
+ * Directories can be chunked in parallel by {@link #setFileParallelism(int)}, see also {@link #setChunkOrderOption(ChunkOrderOption)}
+ * and {@link #setMemoryBudget(long)}.
  * {@link #setChunkerOption(ChunkerOption)} can be used to choose from the predefined algorithms.
  * <p>
  * The algorithms will try to strive for an expected chunk size given by {@link #setExpectedChunkSize(int)},
@@ -37,8 +55,22 @@ import java.util.Objects;
  * Alternatively, masks can be set manually using {@link #setMaskSmall(long)} for the mask used when the chunk is still
  * smaller than the expected size and {@link #setMaskLarge(long)} for bigger chunks respectively.
  * <p>
+ * The rolling window algorithms {@code Rabin} and {@code Adler} cut with a single mask, derived such that the average
+ * chunk size is as close as possible to the expected size, or set manually by {@link #setMaskSmall(long)} or {@link
+ * #setMaskLarge(long)}. Their window size is set by {@link #setWindowSize(int)} and the polynomial of {@code Rabin} by
+ * {@link #setPolynomial(long)}. Together with the sizes and the mask, this allows to reproduce the cut-points of
+ * restic and bup.
+ * <p>
  * After a chunk has been read, a hash is generated based on its content. The algorithm used for this process can be
- * set by {@link #setHashMethod(String)}, it has to be supported and accepted by {@link java.security.MessageDigest}.
+ * chosen from the predefined hashers by {@link #setChunkHasherOption(ChunkHasherOption)}, which includes fast
+ * non-cryptographic and tree-hashing algorithms. By default, a {@link java.security.MessageDigest} is used, whose
+ * algorithm can be set by {@link #setHashMethod(String)}. Alternatively, a custom hasher can be provided by
+ * {@link #setChunkHasher(ChunkHasher)}.
+ * <p>
+ * The work of chunkers, such as throughput per stage and the distribution of chunk sizes, can be observed by setting
+ * {@link #setChunkerMetrics(ChunkerMetrics)}.
+ * Chunkers that are not set by {@link #setChunker(Chunker)} also emit Java Flight Recorder events for chunked files,
+ * batches of chunks and hashing. The events are disabled by default and only emitted while a recording enables them.
  * <p>
  * Finally, a chunker using the selected properties can be created using {@link #build()}.
  * <p>
@@ -52,10 +84,22 @@ import java.util.Objects;
  *     <li>Mask generation seed: {@code 941568351}</li>
  *     <li>Mask option: {@link MaskOption#FAST_CDC}</li>
  *     <li>Normalization level: {@code 2}</li>
+ *     <li>Polynomial: {@code 0x3DA3358B4DC173}</li>
+ *     <li>Window size: {@code 64}</li>
+ *     <li>Chunk hasher option: {@link ChunkHasherOption#MESSAGE_DIGEST}</li>
  *     <li>Hash method: {@code SHA-1}</li>
+ *     <li>Memory mapping: {@code false}</li>
+ *     <li>Pipelining: {@code false}</li>
+ *     <li>Segmented chunking: {@code false}</li>
+ *     <li>Executor: {@link ForkJoinPool#commonPool()}</li>
+ *     <li>File parallelism: {@code 1}</li>
+ *     <li>Chunk order option: {@link ChunkOrderOption#FILE_ORDERED}</li>
+ *     <li>Memory budget: {@code 256 * 1024 * 1024}</li>
+ *     <li>Chunker metrics: none</li>
  * </ul>
- * The methods {@link #fastCdc()}, {@link #nlFiedlerRust()} and {@link #fsc()} can be used to get a configuration
- * that uses the given algorithms as originally proposed.
+ * The methods {@link #fastCdc()}, {@link #fastCdc2020()}, {@link #nlFiedlerRust()}, {@link #rabin()}, {@link
+ * #adler()} and {@link #fsc()} can be used to get a configuration that uses the given algorithms as originally
+ * proposed.
  *
  * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
  */
@@ -66,6 +110,12 @@ public final class ChunkerBuilder {
 	 */
 	@SuppressWarnings("MultiplyOrDivideByPowerOfTwo")
 	private static final int DEFAULT_EXPECTED_CHUNK_SIZE = 8 * 1_024;
+	/**
+	 * The default maximal amount of bytes of chunk data that is generated but not consumed yet, used by chunkers that
+	 * process multiple files in parallel.
+	 */
+	@SuppressWarnings("MultiplyOrDivideByPowerOfTwo")
+	private static final long DEFAULT_MEMORY_BUDGET = 256L * 1_024 * 1_024;
 	/**
 	 * The default hash method to use by all chunkers.
 	 */
@@ -87,21 +137,51 @@ public final class ChunkerBuilder {
 	 */
 	private static final int DEFAULT_NORMALIZATION_LEVEL = 2;
 	/**
-	 * The chunker to use. Has priority over {@link #chunkerCore} and {@link #chunkerOption}.
+	 * The core to use for a chunker that scans buffered blocks of data. Has priority over {@link #chunkerCore} and
+	 * {@link #chunkerOption}.
+	 */
+	private BufferChunkerCore bufferChunkerCore;
+	/**
+	 * The hasher to use for representing the data of chunks. Has priority over {@link #chunkHasherOption}.
+	 */
+	private ChunkHasher chunkHasher;
+	/**
+	 * The option to use for the hasher used for representing the data of chunks.
+	 */
+	private ChunkHasherOption chunkHasherOption = ChunkHasherOption.MESSAGE_DIGEST;
+	/**
+	 * The order in which chunkers that process multiple files in parallel generate the chunks.
+	 */
+	private ChunkOrderOption chunkOrderOption = ChunkOrderOption.FILE_ORDERED;
+	/**
+	 * The chunker to use. Has priority over {@link #bufferChunkerCore}, {@link #chunkerCore} and {@link
+	 * #chunkerOption}.
 	 */
 	private Chunker chunker;
 	/**
 	 * The core to use for an iterative stream chunker. Has priority over {@link #chunkerOption}.
 	 */
 	private IterativeStreamChunkerCore chunkerCore;
+	/**
+	 * The metrics to report the work of chunkers to, {@code null} if not reported.
+	 */
+	private ChunkerMetrics chunkerMetrics;
 	/**
 	 * The chunker option to use.
 	 */
 	private ChunkerOption chunkerOption = ChunkerOption.FAST_CDC;
+	/**
+	 * The executor to use by chunkers that run work in parallel.
+	 */
+	private Executor executor = ForkJoinPool.commonPool();
 	/**
 	 * The expected size of chunks, in bytes.
 	 */
 	private int expectedChunkSize = ChunkerBuilder.DEFAULT_EXPECTED_CHUNK_SIZE;
+	/**
+	 * The amount of files that are chunked in parallel.
+	 */
+	private int fileParallelism = 1;
 	/**
 	 * The hash method to use for representing the data of chunks.
 	 */
@@ -134,6 +214,15 @@ public final class ChunkerBuilder {
 	 * The factor to apply to the expected chunk size to receive the maximal chunk size.
 	 */
 	private double maximalChunkSizeFactor = ChunkerBuilder.DEFAULT_MAX_SIZE_FACTOR;
+	/**
+	 * The maximal amount of bytes of chunk data that is generated but not consumed yet, used by chunkers that process
+	 * multiple files in parallel.
+	 */
+	private long memoryBudget = ChunkerBuilder.DEFAULT_MEMORY_BUDGET;
+	/**
+	 * Whether regular files are memory-mapped instead of being read as stream.
+	 */
+	private boolean memoryMapping;
 	/**
 	 * The factor to apply to the expected chunk size to receive the minimal chunk size.
 	 */
@@ -142,6 +231,23 @@ public final class ChunkerBuilder {
 	 * The normalization level to use for choosing the masks in certain chunkers.
 	 */
 	private int normalizationLevel = ChunkerBuilder.DEFAULT_NORMALIZATION_LEVEL;
+	/**
+	 * Whether reading, scanning and hashing are pipelined across multiple threads.
+	 */
+	private boolean pipelining;
+	/**
+	 * The irreducible polynomial used by the Rabin chunker.
+	 */
+	private long polynomial = RabinChunkerCore.DEFAULT_POLYNOMIAL;
+	/**
+	 * Whether large regular files are split into segments that are chunked in parallel.
+	 */
+	private boolean segmentedChunking;
+	/**
+	 * The size of the sliding window used by rolling window chunkers, in bytes. {@code null} if the default of the
+	 * chunker is used.
+	 */
+	private Integer windowSize;
 
 	/**
 	 * Builds a chunker using the set properties.
@@ -149,11 +255,57 @@ public final class ChunkerBuilder {
 	 * @return A chunker using the set properties
 	 */
 	public Chunker build() {
-		// TODO Maybe add Adler and Rabin CDC alternatives
+		final Chunker chunkerToUse = buildFileChunker();
+		if (fileParallelism == 1) {
+			return chunkerToUse;
+		}
+		return new ParallelChunker(chunkerToUse, fileParallelism, memoryBudget, chunkOrderOption);
+	}
+
+	/**
+	 * Builds the hasher using the set properties, as used by the chunkers built by this builder. For example to verify
+	 * the data of chunks against their hashes, see {@link ChunkAssembler}.
+	 *
+	 * @return The hasher using the set properties
+	 */
+	public ChunkHasher buildChunkHasher() {
+		if (chunkHasher != null) {
+			return chunkHasher;
+		}
+		return switch (chunkHasherOption) {
+			case MESSAGE_DIGEST -> new MessageDigestChunkHasher(hashMethod);
+			case MURMUR3_128 -> new Murmur3ChunkHasher();
+			case BLAKE3 -> new Blake3ChunkHasher();
+		};
+	}
+
+	/**
+	 * Builds a chunker using the set properties, which processes files one after another.
+	 *
+	 * @return A chunker using the set properties, processing files one after another
+	 */
+	private Chunker buildFileChunker() {
 		if (chunker != null) {
 			return chunker;
 		}
 
+		final ChunkHasher selectedHasher = buildChunkHasher();
+		final String hasherName = chunkHasher != null ? chunkHasher.getClass()
+				.getSimpleName() : chunkHasherOption == ChunkHasherOption.MESSAGE_DIGEST ? hashMethod
+				: chunkHasherOption.name();
+		final ChunkHasher recordingHasher = new RecordingChunkHasher(selectedHasher, hasherName);
+		final ChunkHasher hasherToUse =
+				chunkerMetrics != null ? new MeteredChunkHasher(recordingHasher, chunkerMetrics) : recordingHasher;
+
+		if (bufferChunkerCore != null) {
+			return createBufferChunker(bufferChunkerCore, hasherToUse);
+		}
+		if (chunkerCore != null) {
+			return new RecordingChunker(new IterativeStreamChunker(
+					chunkerMetrics != null ? new MeteredIterativeStreamChunkerCore(chunkerCore, chunkerMetrics)
+							: chunkerCore, hasherToUse), 0);
+		}
+
 		final long[] hashTableToUse = hashTable != null ? hashTable : switch (hashTableOption) {
 			case RTPAL -> HashTables.getRtpal();
 			case NLFIEDLER_RUST -> HashTables.getNlfiedlerRust();
@@ -169,14 +321,82 @@ public final class ChunkerBuilder {
 		//noinspection NumericCastThatLosesPrecision
 		final int maximalChunkSize = (int) (expectedChunkSize * maximalChunkSizeFactor);
 
-		final IterativeStreamChunkerCore coreToUse = chunkerCore != null ? chunkerCore : switch (chunkerOption) {
+		final BufferChunkerCore coreToUse = switch (chunkerOption) {
 			case FAST_CDC -> new FastCdcChunkerCore(expectedChunkSize, minimalChunkSize, maximalChunkSize,
 					hashTableToUse, maskSmallToUse, maskLargeToUse);
+			case FAST_CDC_2020 -> new FastCdc2020ChunkerCore(expectedChunkSize, minimalChunkSize, maximalChunkSize,
+					hashTableToUse, maskSmallToUse, maskLargeToUse);
 			case NLFIEDLER_RUST -> new NlfiedlerRustChunkerCore(expectedChunkSize, minimalChunkSize, maximalChunkSize,
 					hashTableToUse, maskSmallToUse, maskLargeToUse);
+			case RABIN -> new RabinChunkerCore(minimalChunkSize, maximalChunkSize, polynomial,
+					windowSize != null ? windowSize : RabinChunkerCore.DEFAULT_WINDOW_SIZE,
+					getRollingWindowMask(minimalChunkSize, maximalChunkSize));
+			case ADLER -> new AdlerChunkerCore(minimalChunkSize, maximalChunkSize,
+					windowSize != null ? windowSize : AdlerChunkerCore.DEFAULT_WINDOW_SIZE,
+					getRollingWindowMask(minimalChunkSize, maximalChunkSize));
 			case FIXED_SIZE_CHUNKING -> new FixedSizeChunkerCore(expectedChunkSize);
 		};
-		return new IterativeStreamChunker(coreToUse, hashMethod);
+		return createBufferChunker(coreToUse, hasherToUse);
+	}
+
+	/**
+	 * Creates a chunker that scans buffered blocks of data, respecting the set segmented chunking, pipelining and memory
+	 * mapping properties.
+	 *
+	 * @param core   The core to use for chunking
+	 * @param hasher The hasher to use for hashing the data of a chunk
+	 *
+	 * @return A chunker that scans buffered blocks of data
+	 */
+	private Chunker createBufferChunker(final BufferChunkerCore core, final ChunkHasher hasher) {
+		final BufferChunkerCore coreToUse =
+				chunkerMetrics != null ? new MeteredBufferChunkerCore(core, chunkerMetrics) : core;
+		final Chunker engine;
+		if (segmentedChunking) {
+			engine = new SegmentedChunker(coreToUse, hasher, executor, chunkerMetrics);
+		} else if (pipelining) {
+			engine = new PipelinedChunker(coreToUse, hasher, executor, chunkerMetrics);
+		} else {
+			engine = new BufferChunker(coreToUse, hasher, memoryMapping, chunkerMetrics);
+		}
+		return new RecordingChunker(engine, core.getMaximalChunkSize());
+	}
+
+	/**
+	 * Gets the mask used by rolling window chunkers, which cut with a single mask. Either the mask that was set
+	 * manually, or the mask generated by {@link MaskGenerator#generateRollingWindowMask(int, int, int)}.
+	 *
+	 * @param minimalChunkSize The minimal size of chunks, in bytes
+	 * @param maximalChunkSize The maximal size of chunks, in bytes
+	 *
+	 * @return The mask to use
+	 */
+	private long getRollingWindowMask(final int minimalChunkSize, final int maximalChunkSize) {
+		if (maskSmall == null && maskLarge == null) {
+			return MaskGenerator.generateRollingWindowMask(expectedChunkSize, minimalChunkSize, maximalChunkSize);
+		}
+		Validations.require(maskSmall == null || maskLarge == null || maskSmall.equals(maskLarge),
+				"Rolling window chunkers use a single mask, the small and large mask must be equal if both are set");
+		return maskSmall != null ? maskSmall : maskLarge;
+	}
+
+	/**
+	 * Sets the builder to a configuration for the rolling Adler-32 style checksum, with a window of {@code 64} bytes and
+	 * a mask derived from the chunk sizes, as used by bup.
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder adler() {
+		chunkerOption = ChunkerOption.ADLER;
+		chunkHasherOption = ChunkHasherOption.MESSAGE_DIGEST;
+		hashMethod = ChunkerBuilder.DEFAULT_HASH_METHOD;
+		expectedChunkSize = ChunkerBuilder.DEFAULT_EXPECTED_CHUNK_SIZE;
+		minimalChunkSizeFactor = ChunkerBuilder.DEFAULT_MIN_SIZE_FACTOR;
+		maximalChunkSizeFactor = ChunkerBuilder.DEFAULT_MAX_SIZE_FACTOR;
+		windowSize = AdlerChunkerCore.DEFAULT_WINDOW_SIZE;
+		maskSmall = null;
+		maskLarge = null;
+		return this;
 	}
 
 	/**
@@ -186,6 +406,27 @@ public final class ChunkerBuilder {
 	 */
 	public ChunkerBuilder fastCdc() {
 		chunkerOption = ChunkerOption.FAST_CDC;
+		chunkHasherOption = ChunkHasherOption.MESSAGE_DIGEST;
+		hashMethod = ChunkerBuilder.DEFAULT_HASH_METHOD;
+		expectedChunkSize = ChunkerBuilder.DEFAULT_EXPECTED_CHUNK_SIZE;
+		minimalChunkSizeFactor = ChunkerBuilder.DEFAULT_MIN_SIZE_FACTOR;
+		maximalChunkSizeFactor = ChunkerBuilder.DEFAULT_MAX_SIZE_FACTOR;
+		hashTableOption = HashTableOption.RTPAL;
+		normalizationLevel = 2;
+		maskOption = MaskOption.FAST_CDC;
+		maskGenerationSeed = ChunkerBuilder.DEFAULT_MASK_GENERATION_SEED;
+		return this;
+	}
+
+	/**
+	 * Sets the builder to a configuration for the FastCDC algorithm as revised in 2020, rolling two bytes per
+	 * iteration.
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder fastCdc2020() {
+		chunkerOption = ChunkerOption.FAST_CDC_2020;
+		chunkHasherOption = ChunkHasherOption.MESSAGE_DIGEST;
 		hashMethod = ChunkerBuilder.DEFAULT_HASH_METHOD;
 		expectedChunkSize = ChunkerBuilder.DEFAULT_EXPECTED_CHUNK_SIZE;
 		minimalChunkSizeFactor = ChunkerBuilder.DEFAULT_MIN_SIZE_FACTOR;
@@ -204,6 +445,7 @@ public final class ChunkerBuilder {
 	 */
 	public ChunkerBuilder fsc() {
 		chunkerOption = ChunkerOption.FIXED_SIZE_CHUNKING;
+		chunkHasherOption = ChunkHasherOption.MESSAGE_DIGEST;
 		hashMethod = ChunkerBuilder.DEFAULT_HASH_METHOD;
 		expectedChunkSize = ChunkerBuilder.DEFAULT_EXPECTED_CHUNK_SIZE;
 		minimalChunkSizeFactor = ChunkerBuilder.DEFAULT_MIN_SIZE_FACTOR;
@@ -218,6 +460,7 @@ public final class ChunkerBuilder {
 	 */
 	public ChunkerBuilder nlFiedlerRust() {
 		chunkerOption = ChunkerOption.NLFIEDLER_RUST;
+		chunkHasherOption = ChunkHasherOption.MESSAGE_DIGEST;
 		hashMethod = ChunkerBuilder.DEFAULT_HASH_METHOD;
 		expectedChunkSize = ChunkerBuilder.DEFAULT_EXPECTED_CHUNK_SIZE;
 		minimalChunkSizeFactor = ChunkerBuilder.DEFAULT_MIN_SIZE_FACTOR;
@@ -229,8 +472,80 @@ public final class ChunkerBuilder {
 	}
 
 	/**
-	 * Sets the chunker to use. Has priority over {@link #setChunkerCore(IterativeStreamChunkerCore)} and {@link
-	 * #setChunkerOption(ChunkerOption)}.
+	 * Sets the builder to a configuration for Rabin fingerprints, with a window of {@code 64} bytes, the default
+	 * polynomial and a mask derived from the chunk sizes, as used by LBFS and restic.
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder rabin() {
+		chunkerOption = ChunkerOption.RABIN;
+		chunkHasherOption = ChunkHasherOption.MESSAGE_DIGEST;
+		hashMethod = ChunkerBuilder.DEFAULT_HASH_METHOD;
+		expectedChunkSize = ChunkerBuilder.DEFAULT_EXPECTED_CHUNK_SIZE;
+		minimalChunkSizeFactor = ChunkerBuilder.DEFAULT_MIN_SIZE_FACTOR;
+		maximalChunkSizeFactor = ChunkerBuilder.DEFAULT_MAX_SIZE_FACTOR;
+		polynomial = RabinChunkerCore.DEFAULT_POLYNOMIAL;
+		windowSize = RabinChunkerCore.DEFAULT_WINDOW_SIZE;
+		maskSmall = null;
+		maskLarge = null;
+		return this;
+	}
+
+	/**
+	 * Sets the core to use for a chunker that scans buffered blocks of data. Has priority over {@link
+	 * #setChunkerCore(IterativeStreamChunkerCore)} and {@link #setChunkerOption(ChunkerOption)}.
+	 *
+	 * @param bufferChunkerCore The core to use
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setBufferChunkerCore(final BufferChunkerCore bufferChunkerCore) {
+		this.bufferChunkerCore = Objects.requireNonNull(bufferChunkerCore);
+		return this;
+	}
+
+	/**
+	 * Sets the hasher to use for representing the data of chunks. Has priority over {@link
+	 * #setChunkHasherOption(ChunkHasherOption)} and {@link #setHashMethod(String)}.
+	 *
+	 * @param chunkHasher The hasher to use
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setChunkHasher(final ChunkHasher chunkHasher) {
+		this.chunkHasher = Objects.requireNonNull(chunkHasher);
+		return this;
+	}
+
+	/**
+	 * Sets the option to use for the hasher used for representing the data of chunks. The hash method set by {@link
+	 * #setHashMethod(String)} is only used by {@link ChunkHasherOption#MESSAGE_DIGEST}.
+	 *
+	 * @param chunkHasherOption The option to use for the hasher
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setChunkHasherOption(final ChunkHasherOption chunkHasherOption) {
+		this.chunkHasherOption = Objects.requireNonNull(chunkHasherOption);
+		return this;
+	}
+
+	/**
+	 * Sets the order in which chunkers that process multiple files in parallel generate the chunks, see {@link
+	 * #setFileParallelism(int)}.
+	 *
+	 * @param chunkOrderOption The option to use
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setChunkOrderOption(final ChunkOrderOption chunkOrderOption) {
+		this.chunkOrderOption = Objects.requireNonNull(chunkOrderOption);
+		return this;
+	}
+
+	/**
+	 * Sets the chunker to use. Has priority over {@link #setBufferChunkerCore(BufferChunkerCore)}, {@link
+	 * #setChunkerCore(IterativeStreamChunkerCore)} and {@link #setChunkerOption(ChunkerOption)}.
 	 *
 	 * @param chunker The chunker to use
 	 *
@@ -254,6 +569,20 @@ public final class ChunkerBuilder {
 		return this;
 	}
 
+	/**
+	 * Sets the metrics to report the work of chunkers to, for example {@link ChunkerStatistics}. Reported are reads
+	 * from streams, scans for cut-points, hashing and the sizes of cut chunks. Not used by chunkers set with {@link
+	 * #setChunker(Chunker)}. If not set, chunkers are not instrumented at all.
+	 *
+	 * @param chunkerMetrics The metrics to report to
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setChunkerMetrics(final ChunkerMetrics chunkerMetrics) {
+		this.chunkerMetrics = Objects.requireNonNull(chunkerMetrics);
+		return this;
+	}
+
 	/**
 	 * Sets the chunker option to use.
 	 *
@@ -278,6 +607,38 @@ public final class ChunkerBuilder {
 		return this;
 	}
 
+	/**
+	 * Sets the executor to use by chunkers that run work in parallel, for example to hash chunks when pipelining is
+	 * enabled by {@link #setPipelining(boolean)} or to chunk segments when enabled by {@link
+	 * #setSegmentedChunking(boolean)}.
+	 *
+	 * @param executor The executor to use
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setExecutor(final Executor executor) {
+		this.executor = Objects.requireNonNull(executor);
+		return this;
+	}
+
+	/**
+	 * Sets the amount of files that are chunked in parallel when chunking directories or streams of paths. A value of
+	 * {@code 1} processes files one after another.
+	 * <p>
+	 * Directories are then traversed concurrently and files are chunked on a work-stealing pool. The generated chunks
+	 * are {@link FileChunk}s, tagged with the file they originate from. Their order is set by {@link
+	 * #setChunkOrderOption(ChunkOrderOption)} and the data of chunks that have not been consumed yet is bounded by
+	 * {@link #setMemoryBudget(long)}.
+	 *
+	 * @param fileParallelism The amount of files that are chunked in parallel, must be positive and not zero
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setFileParallelism(final int fileParallelism) {
+		this.fileParallelism = Validations.requirePositiveNonZero(fileParallelism, "File parallelism");
+		return this;
+	}
+
 	/**
 	 * Sets the hash method to use for representing the data of chunks.
 	 *
@@ -339,7 +700,9 @@ public final class ChunkerBuilder {
 	}
 
 	/**
-	 * Sets the mask for the fingerprint that is used for bigger windows, to increase the likelihood of a split.
+	 * Sets the mask for the fingerprint that is used for bigger windows, to increase the likelihood of a split. Rolling
+	 * window chunkers use this mask for all windows, it must then be equal to the mask set by {@link
+	 * #setMaskSmall(long)} if both are set.
 	 *
 	 * @param maskLarge The mask to set
 	 *
@@ -363,7 +726,9 @@ public final class ChunkerBuilder {
 	}
 
 	/**
-	 * Sets the mask for the fingerprint that is used for smaller windows, to decrease the likelihood of a split.
+	 * Sets the mask for the fingerprint that is used for smaller windows, to decrease the likelihood of a split. Rolling
+	 * window chunkers use this mask for all windows, it must then be equal to the mask set by {@link
+	 * #setMaskLarge(long)} if both are set.
 	 *
 	 * @param maskSmall The mask to set
 	 *
@@ -387,6 +752,35 @@ public final class ChunkerBuilder {
 		return this;
 	}
 
+	/**
+	 * Sets the maximal amount of bytes of chunk data that is generated but not consumed yet, used by chunkers that
+	 * process multiple files in parallel, see {@link #setFileParallelism(int)}.
+	 *
+	 * @param memoryBudget The memory budget in bytes, must be positive and not zero
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setMemoryBudget(final long memoryBudget) {
+		this.memoryBudget = Validations.requirePositiveNonZero(memoryBudget, "Memory budget");
+		return this;
+	}
+
+	/**
+	 * Sets whether regular files are memory-mapped instead of being read as stream. Only supported by chunkers that
+	 * scan buffered blocks of data, i.e. the predefined algorithms and {@link #setBufferChunkerCore(BufferChunkerCore)}.
+	 * <p>
+	 * The cores then scan the mapped memory directly and chunks are read-only views on it, accessible without copying
+	 * by {@link Chunk#getDataBuffer()}. The mapped file must not be modified while its chunks are in use.
+	 *
+	 * @param memoryMapping Whether regular files are memory-mapped
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setMemoryMapping(final boolean memoryMapping) {
+		this.memoryMapping = memoryMapping;
+		return this;
+	}
+
 	/**
 	 * Sets the factor to apply to the expected chunk size to receive the minimal chunk size.
 	 *
@@ -412,4 +806,71 @@ public final class ChunkerBuilder {
 		this.normalizationLevel = Validations.requirePositive(normalizationLevel, "Normalization level");
 		return this;
 	}
+
+	/**
+	 * Sets whether reading, scanning and hashing are pipelined across multiple threads. Only supported by chunkers that
+	 * scan buffered blocks of data, i.e. the predefined algorithms and {@link #setBufferChunkerCore(BufferChunkerCore)}.
+	 * <p>
+	 * One thread then reads the data ahead, another one scans it for cut-points and the chunks are hashed by the
+	 * executor set by {@link #setExecutor(Executor)}. Chunks are still generated in order. Pipelining has priority over
+	 * {@link #setMemoryMapping(boolean)} and is only used for data of at least a few megabytes.
+	 *
+	 * @param pipelining Whether reading, scanning and hashing are pipelined
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setPipelining(final boolean pipelining) {
+		this.pipelining = pipelining;
+		return this;
+	}
+
+	/**
+	 * Sets the irreducible polynomial used by {@link ChunkerOption#RABIN}, for example the polynomial of a restic
+	 * repository.
+	 *
+	 * @param polynomial The polynomial to use, must be irreducible and of a degree between {@code 8} and {@code 55}
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setPolynomial(final long polynomial) {
+		this.polynomial = polynomial;
+		return this;
+	}
+
+	/**
+	 * Sets whether large regular files are split into segments that are chunked in parallel. Only supported by chunkers
+	 * that scan buffered blocks of data, i.e. the predefined algorithms and {@link #setBufferChunkerCore(BufferChunkerCore)}.
+	 * <p>
+	 * The segments are memory-mapped and chunked speculatively by the executor set by {@link #setExecutor(Executor)}.
+	 * The seams between segments are then stitched together, such that the generated chunks are identical to the chunks
+	 * of a sequential run. Files smaller than two segments of at least 64 MiB each, as well as data streams, are chunked
+	 * sequentially using memory mapping. Segmented chunking has priority over {@link #setPipelining(boolean)} and
+	 * {@link #setMemoryMapping(boolean)}.
+	 *
+	 * @param segmentedChunking Whether large regular files are split into segments that are chunked in parallel
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setSegmentedChunking(final boolean segmentedChunking) {
+		this.segmentedChunking = segmentedChunking;
+		return this;
+	}
+
+	/**
+	 * Sets the size of the sliding window used by the rolling window chunkers {@link ChunkerOption#RABIN} and {@link
+	 * ChunkerOption#ADLER}.
+	 * <p>
+	 * The second sum of {@code Adler} spans about {@code 2 * log2(windowSize) + 7} bits, masks of more bits rarely or
+	 * never cut. Big expected chunk sizes hence require a bigger window.
+	 *
+	 * @param windowSize The size of the window, in bytes, must be a power of two
+	 *
+	 * @return This builder instance
+	 */
+	public ChunkerBuilder setWindowSize(final int windowSize) {
+		Validations.requirePositiveNonZero(windowSize, "Window size");
+		Validations.require(Integer.bitCount(windowSize) == 1, "Window size must be a power of two");
+		this.windowSize = windowSize;
+		return this;
+	}
 }
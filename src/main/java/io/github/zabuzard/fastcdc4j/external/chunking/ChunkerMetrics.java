@@ -0,0 +1,49 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+/**
+ * Listener that is informed about the work of a chunker, for example to measure its throughput and the distribution
+ * of chunk sizes. Can be set by {@link ChunkerBuilder#setChunkerMetrics(ChunkerMetrics)}, see {@link
+ * ChunkerStatistics} for an implementation that aggregates the reported values.
+ * <p>
+ * Methods are called from the threads that do the corresponding work, possibly concurrently, hence implementations
+ * must be thread-safe. They are called frequently and should return quickly.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public interface ChunkerMetrics {
+	/**
+	 * Called after a chunk has been cut.
+	 *
+	 * @param length            The length of the chunk, in bytes
+	 * @param cutAtMaximalSize  Whether the chunk was cut because it reached the maximal chunk size, instead of being
+	 *                          cut by its content or by the end of the data. Always {@code false} if the maximal size is
+	 *                          not known, as for cores implementing {@link IterativeStreamChunkerCore}.
+	 */
+	void onChunk(int length, boolean cutAtMaximalSize);
+
+	/**
+	 * Called after data has been hashed.
+	 *
+	 * @param bytes The amount of hashed bytes
+	 * @param nanos The time it took to hash the data, in nanoseconds
+	 */
+	void onHash(long bytes, long nanos);
+
+	/**
+	 * Called after data has been read from a stream. Not called for memory-mapped data, whose reading is part of
+	 * scanning.
+	 *
+	 * @param bytes The amount of read bytes
+	 * @param nanos The time it took to read the data, in nanoseconds
+	 */
+	void onRead(long bytes, long nanos);
+
+	/**
+	 * Called after data has been scanned for cut-points. For cores implementing {@link IterativeStreamChunkerCore}, the
+	 * scan includes reading the data from the stream.
+	 *
+	 * @param bytes The amount of scanned bytes
+	 * @param nanos The time it took to scan the data, in nanoseconds
+	 */
+	void onScan(long bytes, long nanos);
+}
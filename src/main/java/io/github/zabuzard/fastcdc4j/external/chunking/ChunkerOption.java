@@ -10,10 +10,32 @@ public enum ChunkerOption {
 	 * The original FastCDC algorithm.
 	 */
 	FAST_CDC,
+	/**
+	 * The FastCDC algorithm as revised in 2020, rolling two bytes per iteration.
+	 */
+	FAST_CDC_2020,
 	/**
 	 * The modified FastCDC algorithm by Nathan Fiedlers Rust implementation.
 	 */
 	NLFIEDLER_RUST,
+	/**
+	 * Rabin fingerprints over a sliding window, as used by LBFS and restic. Cuts once all bits of a single mask are
+	 * {@code 0} in the fingerprint, at the earliest after the minimal and at the latest at the maximal chunk size. The
+	 * mask is set by {@link ChunkerBuilder#setMaskSmall(long)} or {@link ChunkerBuilder#setMaskLarge(long)}, otherwise
+	 * its lowest bits are derived from the expected, the minimal and the maximal chunk size. The polynomial is set by
+	 * {@link ChunkerBuilder#setPolynomial(long)} and the window by {@link ChunkerBuilder#setWindowSize(int)}. Hash table,
+	 * mask option, mask generation seed and normalization level are not used.
+	 */
+	RABIN,
+	/**
+	 * A rolling Adler-32 style checksum over a sliding window, as used by rsync and bup. Cuts once all bits of a single
+	 * mask are {@code 1} in the second sum, at the earliest after the minimal and at the latest at the maximal chunk
+	 * size. The mask is set by {@link ChunkerBuilder#setMaskSmall(long)} or {@link ChunkerBuilder#setMaskLarge(long)},
+	 * otherwise its lowest bits are derived from the expected, the minimal and the maximal chunk size. The window is set
+	 * by {@link ChunkerBuilder#setWindowSize(int)}. The polynomial, hash table, mask option, mask generation seed and
+	 * normalization level are not used.
+	 */
+	ADLER,
 	/**
 	 * The baseline algorithm chunking each x-th byte.
 	 */
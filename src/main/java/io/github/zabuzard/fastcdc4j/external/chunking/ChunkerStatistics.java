@@ -0,0 +1,254 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.LogLinearHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of chunker metrics that aggregates the reported values into counters and histograms.
+ * <p>
+ * The statistics are thread-safe and can be shared by multiple chunkers. Values can be queried at any time, also while
+ * chunkers are still reporting. Histograms record chunk sizes and the latency of single reads with a relative error
+ * below {@code 1 / 32}.
+ * <p>
+ * For example, the chunk sizes can be compared to the expected chunk size with {@link #getChunkSizeAtPercentile(double)}
+ * and {@link #getMaximalSizeCutCount()} tells how often the maximal chunk size forced a cut. The time spent per stage
+ * reveals whether chunking is bound by reading, scanning or hashing.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkerStatistics implements ChunkerMetrics {
+	/**
+	 * The amount of nanoseconds per second.
+	 */
+	private static final double NANOS_PER_SECOND = 1.0e9;
+
+	/**
+	 * Computes the throughput of the given amount of bytes in the given time.
+	 *
+	 * @param bytes The amount of bytes
+	 * @param nanos The time, in nanoseconds
+	 *
+	 * @return The throughput, in bytes per second, {@code 0} if no time was measured
+	 */
+	private static double throughput(final LongAdder bytes, final LongAdder nanos) {
+		final long totalNanos = nanos.sum();
+		return totalNanos == 0 ? 0 : bytes.sum() * ChunkerStatistics.NANOS_PER_SECOND / totalNanos;
+	}
+
+	/**
+	 * The sizes of cut chunks, in bytes.
+	 */
+	private final LogLinearHistogram chunkSizes = new LogLinearHistogram();
+	/**
+	 * The amount of hashed bytes.
+	 */
+	private final LongAdder hashedBytes = new LongAdder();
+	/**
+	 * The time spent hashing, in nanoseconds.
+	 */
+	private final LongAdder hashNanos = new LongAdder();
+	/**
+	 * The amount of chunks that were cut because they reached the maximal chunk size.
+	 */
+	private final LongAdder maximalSizeCuts = new LongAdder();
+	/**
+	 * The amount of bytes read from streams.
+	 */
+	private final LongAdder readBytes = new LongAdder();
+	/**
+	 * The latency of single reads from streams, in nanoseconds.
+	 */
+	private final LogLinearHistogram readLatencies = new LogLinearHistogram();
+	/**
+	 * The time spent reading from streams, in nanoseconds.
+	 */
+	private final LongAdder readNanos = new LongAdder();
+	/**
+	 * The time spent scanning for cut-points, in nanoseconds.
+	 */
+	private final LongAdder scanNanos = new LongAdder();
+	/**
+	 * The amount of bytes scanned for cut-points.
+	 */
+	private final LongAdder scannedBytes = new LongAdder();
+
+	/**
+	 * Gets the amount of cut chunks.
+	 *
+	 * @return The amount of chunks
+	 */
+	public long getChunkCount() {
+		return chunkSizes.getCount();
+	}
+
+	/**
+	 * Gets the size of chunks at the given percentile, i.e. the size that is greater equals the given percentage of
+	 * chunk sizes.
+	 *
+	 * @param percentile The percentile, between {@code 0} and {@code 100}
+	 *
+	 * @return The chunk size at the given percentile, in bytes, {@code 0} if no chunk was cut
+	 */
+	public long getChunkSizeAtPercentile(final double percentile) {
+		return chunkSizes.getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * Gets the amount of hashed bytes.
+	 *
+	 * @return The amount of hashed bytes
+	 */
+	public long getHashedBytes() {
+		return hashedBytes.sum();
+	}
+
+	/**
+	 * Gets the time spent hashing, summed over all threads.
+	 *
+	 * @return The time spent hashing, in nanoseconds
+	 */
+	public long getHashNanos() {
+		return hashNanos.sum();
+	}
+
+	/**
+	 * Gets the throughput of hashing, measured only over the time spent hashing.
+	 *
+	 * @return The throughput, in bytes per second, {@code 0} if nothing was hashed
+	 */
+	public double getHashThroughput() {
+		return ChunkerStatistics.throughput(hashedBytes, hashNanos);
+	}
+
+	/**
+	 * Gets the size of the biggest chunk.
+	 *
+	 * @return The size of the biggest chunk, in bytes, {@code 0} if no chunk was cut
+	 */
+	public long getMaxChunkSize() {
+		return chunkSizes.getMax();
+	}
+
+	/**
+	 * Gets the amount of chunks that were cut because they reached the maximal chunk size, instead of being cut by
+	 * their content.
+	 *
+	 * @return The amount of chunks cut at the maximal chunk size
+	 */
+	public long getMaximalSizeCutCount() {
+		return maximalSizeCuts.sum();
+	}
+
+	/**
+	 * Gets the mean size of chunks.
+	 *
+	 * @return The mean size of chunks, in bytes, {@code 0} if no chunk was cut
+	 */
+	public double getMeanChunkSize() {
+		return chunkSizes.getMean();
+	}
+
+	/**
+	 * Gets the amount of bytes read from streams.
+	 *
+	 * @return The amount of read bytes
+	 */
+	public long getReadBytes() {
+		return readBytes.sum();
+	}
+
+	/**
+	 * Gets the latency of single reads at the given percentile, i.e. the latency that is greater equals the given
+	 * percentage of read latencies.
+	 *
+	 * @param percentile The percentile, between {@code 0} and {@code 100}
+	 *
+	 * @return The read latency at the given percentile, in nanoseconds, {@code 0} if nothing was read
+	 */
+	public long getReadLatencyAtPercentile(final double percentile) {
+		return readLatencies.getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * Gets the time spent reading from streams, summed over all threads.
+	 *
+	 * @return The time spent reading, in nanoseconds
+	 */
+	public long getReadNanos() {
+		return readNanos.sum();
+	}
+
+	/**
+	 * Gets the throughput of reading from streams, measured only over the time spent reading.
+	 *
+	 * @return The throughput, in bytes per second, {@code 0} if nothing was read
+	 */
+	public double getReadThroughput() {
+		return ChunkerStatistics.throughput(readBytes, readNanos);
+	}
+
+	/**
+	 * Gets the time spent scanning for cut-points, summed over all threads.
+	 *
+	 * @return The time spent scanning, in nanoseconds
+	 */
+	public long getScanNanos() {
+		return scanNanos.sum();
+	}
+
+	/**
+	 * Gets the throughput of scanning for cut-points, measured only over the time spent scanning.
+	 *
+	 * @return The throughput, in bytes per second, {@code 0} if nothing was scanned
+	 */
+	public double getScanThroughput() {
+		return ChunkerStatistics.throughput(scannedBytes, scanNanos);
+	}
+
+	/**
+	 * Gets the amount of bytes scanned for cut-points.
+	 *
+	 * @return The amount of scanned bytes
+	 */
+	public long getScannedBytes() {
+		return scannedBytes.sum();
+	}
+
+	@Override
+	public void onChunk(final int length, final boolean cutAtMaximalSize) {
+		chunkSizes.record(length);
+		if (cutAtMaximalSize) {
+			maximalSizeCuts.increment();
+		}
+	}
+
+	@Override
+	public void onHash(final long bytes, final long nanos) {
+		hashedBytes.add(bytes);
+		hashNanos.add(nanos);
+	}
+
+	@Override
+	public void onRead(final long bytes, final long nanos) {
+		readBytes.add(bytes);
+		readNanos.add(nanos);
+		readLatencies.record(nanos);
+	}
+
+	@Override
+	public void onScan(final long bytes, final long nanos) {
+		scannedBytes.add(bytes);
+		scanNanos.add(nanos);
+	}
+
+	@Override
+	public String toString() {
+		//noinspection MagicNumber
+		return String.format(
+				"ChunkerStatistics{chunks=%d, meanChunkSize=%.1f, p50ChunkSize=%d, p99ChunkSize=%d, maximalSizeCuts=%d,"
+						+ " readThroughput=%.0f, scanThroughput=%.0f, hashThroughput=%.0f}", getChunkCount(),
+				getMeanChunkSize(), getChunkSizeAtPercentile(50), getChunkSizeAtPercentile(99), getMaximalSizeCutCount(),
+				getReadThroughput(), getScanThroughput(), getHashThroughput());
+	}
+}
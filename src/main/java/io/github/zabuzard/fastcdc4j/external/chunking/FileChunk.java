@@ -0,0 +1,20 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import java.nio.file.Path;
+
+/**
+ * Interface representing a chunk that is tagged with the file it originates from.
+ * <p>
+ * Generated by chunkers that process multiple files in parallel, since the chunks of different files may then be
+ * interleaved.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public interface FileChunk extends Chunk {
+	/**
+	 * Gets the file this chunk originates from. The offset of the chunk is with respect to this file.
+	 *
+	 * @return The file this chunk originates from
+	 */
+	Path getFile();
+}
@@ -0,0 +1,99 @@
+package io.github.zabuzard.fastcdc4j.external.chunking;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+/**
+ * Mutable state of a {@link BufferChunkerCore} while it scans for the cut-point of a single chunk.
+ * <p>
+ * The state allows the scan of a chunk to be split across multiple calls, for example when the data of the chunk is
+ * spread over multiple blocks. It has to be {@link #reset(long) reset} before scanning for the cut-point of the next
+ * chunk.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ScanState {
+	/**
+	 * The amount of bytes available in the data stream, starting at the beginning of the current chunk.
+	 */
+	private long available;
+	/**
+	 * The fingerprint computed by the core so far, the meaning is specific to the core.
+	 */
+	private long fingerprint;
+	/**
+	 * The amount of bytes of the current chunk that have already been scanned.
+	 */
+	private long position;
+	/**
+	 * Window of recently scanned bytes, used by cores whose fingerprint requires the bytes that leave it. Lazily
+	 * created, {@code null} if not used.
+	 */
+	private byte[] window;
+
+	/**
+	 * Gets the amount of bytes available in the data stream, starting at the beginning of the current chunk.
+	 *
+	 * @return The amount of available bytes
+	 */
+	public long getAvailable() {
+		return available;
+	}
+
+	/**
+	 * Gets the fingerprint computed by the core so far, the meaning is specific to the core.
+	 *
+	 * @return The fingerprint
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Gets the amount of bytes of the current chunk that have already been scanned.
+	 *
+	 * @return The amount of scanned bytes
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Gets a window that cores can use to remember recently scanned bytes of the current chunk across scans, for
+	 * example to remove bytes from a rolling fingerprint. The content is maintained by the core only, it is not cleared
+	 * by {@link #reset(long)}.
+	 *
+	 * @param size The size of the window, must be positive and not zero
+	 *
+	 * @return The window of the given size
+	 */
+	public byte[] getWindow(final int size) {
+		Validations.requirePositiveNonZero(size, "Size");
+		if (window == null || window.length != size) {
+			window = new byte[size];
+		}
+		return window;
+	}
+
+	/**
+	 * Resets the state to prepare the scan of a new chunk.
+	 *
+	 * @param available The amount of bytes available in the data stream, starting at the beginning of the new chunk,
+	 *                  must be positive and not zero
+	 */
+	public void reset(final long available) {
+		this.available = Validations.requirePositiveNonZero(available, "Available");
+		fingerprint = 0;
+		position = 0;
+	}
+
+	/**
+	 * Updates the state after a scan that did not find the cut-point yet.
+	 *
+	 * @param position    The amount of bytes of the current chunk that have been scanned so far, must be positive
+	 * @param fingerprint The fingerprint computed by the core so far
+	 */
+	public void update(final long position, final long fingerprint) {
+		this.position = Validations.requirePositive(position, "Position");
+		this.fingerprint = fingerprint;
+	}
+}
@@ -0,0 +1,248 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.IterativeStreamChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Implementation of an iterative stream chunker core that chunks according to a rolling Adler-32 style checksum over a
+ * sliding window (as used by rsync (<a href="https://www.andrew.cmu.edu/course/15-749/READINGS/required/cas/tridgell96.pdf">publication</a>)).
+ * <p>
+ * The checksum consists of two sums, the sum of all bytes in the window and the sum of all prefix sums. Both are
+ * rolled using two precomputed tables, one gives the value a byte adds to the sums and the other one the value that is
+ * removed from the second sum once the byte leaves the window. A cut-point is found if the second sum has all bits of
+ * the mask set to {@code 1}.
+ * <p>
+ * The details follow the implementation of <a href="https://github.com/bup/bup">bup</a>, hence the cut-points are the
+ * same as the ones of bup with the same window size and mask if the minimal size is {@code 0}. Bytes below the
+ * minimal size are not rolled, except for the window preceding it.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class AdlerChunkerCore implements IterativeStreamChunkerCore, BufferChunkerCore {
+	/**
+	 * The default size of the sliding window, in bytes.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 64;
+	/**
+	 * Offset added to each byte before it is summed up, improves the distribution of the sums for sparse data.
+	 */
+	private static final int CHAR_OFFSET = 31;
+
+	/**
+	 * Reads the next byte from the given stream.
+	 *
+	 * @param stream The stream to read from
+	 *
+	 * @return The byte read, as value between {@code 0} and {@code 255}
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static int readByte(final InputStream stream) throws IOException {
+		final int data = stream.read();
+		if (data == -1) {
+			throw new IllegalStateException("Attempting to read a byte from the stream but the stream has ended");
+		}
+		return data;
+	}
+
+	/**
+	 * Mask for the second sum, a cut-point is found if all bits of the mask are {@code 1} in the sum.
+	 */
+	private final int mask;
+	/**
+	 * The maximal size for a single chunk, in bytes.
+	 */
+	private final int maxSize;
+	/**
+	 * The minimal size for a single chunk, in bytes.
+	 */
+	private final int minSize;
+	/**
+	 * Table with the value that is removed from the second sum once a byte leaves the window, indexed by the byte.
+	 */
+	private final int[] popTable;
+	/**
+	 * Table with the value that a byte adds to the sums, indexed by the byte.
+	 */
+	private final int[] pushTable;
+	/**
+	 * The size of the sliding window, in bytes.
+	 */
+	private final int windowSize;
+
+	/**
+	 * Creates a new core.
+	 *
+	 * @param minSize    The minimal size for a single chunk, in bytes, must be positive
+	 * @param maxSize    The maximal size for a single chunk, in bytes, must be positive and greater equals min size
+	 * @param windowSize The size of the sliding window, in bytes, must be a power of two, for example {@link
+	 *                   #DEFAULT_WINDOW_SIZE}
+	 * @param mask       Mask for the second sum, a cut-point is found if all bits of the mask are {@code 1} in the sum,
+	 *                   only the lower 32 bits may be used
+	 */
+	public AdlerChunkerCore(final int minSize, final int maxSize, final int windowSize, final long mask) {
+		Validations.require(maxSize >= minSize, "Max size must be greater equals min size");
+		Validations.requirePositiveNonZero(windowSize, "Window size");
+		Validations.require(Integer.bitCount(windowSize) == 1,
+				"Window size must be a power of two, was: " + windowSize);
+		//noinspection MagicNumber
+		Validations.require((mask & 0xFFFF_FFFFL) == mask, "Mask must only use the lower 32 bits");
+
+		this.minSize = Validations.requirePositive(minSize, "Min size");
+		this.maxSize = Validations.requirePositive(maxSize, "Max size");
+		this.windowSize = windowSize;
+		//noinspection NumericCastThatLosesPrecision
+		this.mask = (int) mask;
+
+		//noinspection MagicNumber
+		pushTable = new int[256];
+		//noinspection MagicNumber
+		popTable = new int[256];
+		for (int b = 0; b < pushTable.length; b++) {
+			pushTable[b] = b + AdlerChunkerCore.CHAR_OFFSET;
+			popTable[b] = windowSize * pushTable[b];
+		}
+	}
+
+	@Override
+	public int getMaximalChunkSize() {
+		return maxSize;
+	}
+
+	@Override
+	public int scan(final ByteBuffer data, final int start, final int end, final ScanState state) {
+		Objects.requireNonNull(data);
+		Objects.requireNonNull(state);
+		Validations.requirePositive(start, "Start");
+		Validations.require(end >= start, "End must be greater equals start");
+
+		//noinspection StandardVariableNames,NumericCastThatLosesPrecision
+		final int n = (int) Math.min(state.getAvailable(), maxSize);
+		//noinspection NumericCastThatLosesPrecision
+		final int position = (int) state.getPosition();
+		// Translates a position in the chunk to an index in the buffer
+		final int indexOffset = start - position;
+		//noinspection NumericCastThatLosesPrecision
+		final int scanEnd = (int) Math.min(n, (long) position + end - start);
+
+		final byte[] window = state.getWindow(windowSize);
+		final int windowMask = windowSize - 1;
+		// Both sums are kept in the fingerprint, the first one in the upper and the second one in the lower half
+		long fingerprint = state.getFingerprint();
+		// Only the window preceding the minimal size is rolled
+		final int rollStart = Math.max(minSize - windowSize, 0);
+		if (position <= rollStart && rollStart < scanEnd) {
+			fingerprint = initializeWindow(window);
+		}
+		//noinspection NumericCastThatLosesPrecision
+		int sum = (int) (fingerprint >>> 32);
+		//noinspection NumericCastThatLosesPrecision
+		int sumOfSums = (int) fingerprint;
+
+		int i = Math.max(position, rollStart);
+		// Cut-points are checked once the chunk has reached the minimal size
+		final int checkStart = Math.min(Math.max(minSize - 1, i), scanEnd);
+		//noinspection ForLoopWithMissingComponent
+		for (; i < checkStart; i++) {
+			final int slot = i & windowMask;
+			final int in = data.get(i + indexOffset) & 0xFF;
+			final int out = window[slot] & 0xFF;
+			window[slot] = (byte) in;
+			sum += pushTable[in] - pushTable[out];
+			sumOfSums += sum - popTable[out];
+		}
+		//noinspection ForLoopWithMissingComponent
+		for (; i < scanEnd; i++) {
+			final int slot = i & windowMask;
+			final int in = data.get(i + indexOffset) & 0xFF;
+			final int out = window[slot] & 0xFF;
+			window[slot] = (byte) in;
+			sum += pushTable[in] - pushTable[out];
+			sumOfSums += sum - popTable[out];
+			if ((sumOfSums & mask) == mask) {
+				return i + 1 + indexOffset;
+			}
+		}
+
+		if (scanEnd == n) {
+			return n + indexOffset;
+		}
+		state.update(scanEnd, (long) sum << 32 | sumOfSums & 0xFFFF_FFFFL);
+		return -1;
+	}
+
+	@Override
+	public byte[] readNextChunk(final InputStream stream, final long size, final long currentOffset) {
+		Objects.requireNonNull(stream);
+		Validations.requirePositiveNonZero(size, "Size");
+		Validations.requirePositive(currentOffset, "Current offset");
+		Validations.require(currentOffset < size, "Current offset must be less than size");
+
+		try (final ByteArrayOutputStream dataBuffer = new ByteArrayOutputStream()) {
+			//noinspection StandardVariableNames
+			long n = size - currentOffset;
+			if (n <= 0) {
+				throw new IllegalArgumentException(
+						"Attempting to read the next chunk but out of available bytes, as indicated by size");
+			}
+			if (n <= minSize) {
+				return stream.readNBytes((int) n);
+			}
+			if (n >= maxSize) {
+				n = maxSize;
+			}
+
+			final int rollStart = Math.max(minSize - windowSize, 0);
+			dataBuffer.write(stream.readNBytes(rollStart));
+
+			final byte[] window = new byte[windowSize];
+			final int windowMask = windowSize - 1;
+			final long fingerprint = initializeWindow(window);
+			//noinspection NumericCastThatLosesPrecision
+			int sum = (int) (fingerprint >>> 32);
+			//noinspection NumericCastThatLosesPrecision
+			int sumOfSums = (int) fingerprint;
+			for (int i = rollStart; i < n; i++) {
+				final int slot = i & windowMask;
+				final int in = AdlerChunkerCore.readByte(stream);
+				dataBuffer.write(in);
+				final int out = window[slot] & 0xFF;
+				window[slot] = (byte) in;
+				sum += pushTable[in] - pushTable[out];
+				sumOfSums += sum - popTable[out];
+				if (i + 1 >= minSize && (sumOfSums & mask) == mask) {
+					return dataBuffer.toByteArray();
+				}
+			}
+
+			return dataBuffer.toByteArray();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Initializes the window and the sums before the first byte is rolled. As in bup, the sums start as if the window
+	 * was filled with zeros.
+	 *
+	 * @param window The window to initialize, indexed by the position in the chunk modulo the window size
+	 *
+	 * @return The initial fingerprint, the first sum in the upper and the second sum in the lower half
+	 */
+	private long initializeWindow(final byte[] window) {
+		Arrays.fill(window, (byte) 0);
+		final int sum = windowSize * AdlerChunkerCore.CHAR_OFFSET;
+		final int sumOfSums = windowSize * (windowSize - 1) * AdlerChunkerCore.CHAR_OFFSET;
+		return (long) sum << 32 | sumOfSums & 0xFFFF_FFFFL;
+	}
+}
@@ -0,0 +1,497 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkMetadata;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Chunks regular files asynchronously, reading them block by block with an {@link AsynchronousFileChannel} and using a
+ * given {@link BufferChunkerCore} to find the cut-points in the blocks.
+ * <p>
+ * No thread waits for a read to complete. Each completed read is scanned on a thread of the given executor, which then
+ * issues the next read. Hence, many files can be chunked at the same time on a small pool of threads.
+ * <p>
+ * The generated chunks are the same as of a {@link BufferChunker} with the same core and hasher.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class AsyncFileChunker {
+	/**
+	 * The size of the blocks read from the file, in bytes.
+	 */
+	@SuppressWarnings("MultiplyOrDivideByPowerOfTwo")
+	private static final int BLOCK_SIZE = 1_024 * 1_024;
+	/**
+	 * The core to use for chunking.
+	 */
+	private final BufferChunkerCore core;
+	/**
+	 * The hasher to use for hashing the data of a chunk.
+	 */
+	private final ChunkHasher hasher;
+
+	/**
+	 * Creates a new asynchronous chunker.
+	 *
+	 * @param core   The core to use for chunking, not null
+	 * @param hasher The hasher to use for hashing the data of a chunk, not null
+	 */
+	public AsyncFileChunker(final BufferChunkerCore core, final ChunkHasher hasher) {
+		this.core = Objects.requireNonNull(core);
+		this.hasher = Objects.requireNonNull(hasher);
+	}
+
+	/**
+	 * Chunks the given regular file asynchronously and passes the chunks, in order, to the given action.
+	 *
+	 * @param file     The regular file to chunk, not null
+	 * @param action   The action to pass each chunk to, called by a thread of the executor, not null
+	 * @param executor The executor to read and chunk the file on, not null
+	 *
+	 * @return A future that completes once all chunks have been passed to the action, or exceptionally if reading,
+	 * 		chunking or the action failed
+	 */
+	public CompletableFuture<Void> chunk(final Path file, final Consumer<? super Chunk> action,
+			final ExecutorService executor) {
+		Objects.requireNonNull(action);
+		final long size = AsyncFileChunker.requireFileSize(file);
+		Objects.requireNonNull(executor);
+
+		final CompletableFuture<Void> result = new CompletableFuture<>();
+		if (size == 0) {
+			result.complete(null);
+			return result;
+		}
+		new ChunkReading(file, size, executor, core, hasher, action, result).start();
+		return result;
+	}
+
+	/**
+	 * Chunks the given regular file asynchronously and collects the metadata of the chunks.
+	 * <p>
+	 * The data is hashed while it is scanned and never copied into chunks.
+	 *
+	 * @param file     The regular file to chunk, not null
+	 * @param executor The executor to read and chunk the file on, not null
+	 *
+	 * @return A future of the metadata of the chunks, in order, completing exceptionally if reading or chunking failed
+	 */
+	public CompletableFuture<List<ChunkMetadata>> chunkMetadata(final Path file, final ExecutorService executor) {
+		final long size = AsyncFileChunker.requireFileSize(file);
+		Objects.requireNonNull(executor);
+
+		final CompletableFuture<List<ChunkMetadata>> result = new CompletableFuture<>();
+		if (size == 0) {
+			result.complete(Collections.emptyList());
+			return result;
+		}
+		new MetadataReading(file, size, executor, core, hasher, result).start();
+		return result;
+	}
+
+	/**
+	 * Gets the size of the given file, which must be a regular file.
+	 *
+	 * @param file The regular file, not null
+	 *
+	 * @return The size of the file, in bytes
+	 */
+	private static long requireFileSize(final Path file) {
+		Objects.requireNonNull(file);
+		Validations.require(Files.isRegularFile(file), "Only existing regular files are supported");
+		try {
+			return Files.size(file);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Asynchronous reading of a file that fills a buffer and processes it once filled, until the process completes.
+	 *
+	 * @param <T> The type of the result of the reading
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private abstract static class Reading<T> implements CompletionHandler<Integer, Void> {
+		/**
+		 * The core to use for chunking.
+		 */
+		final BufferChunkerCore core;
+		/**
+		 * The digest used for hashing the data of a chunk.
+		 */
+		final ChunkDigest digest;
+		/**
+		 * The size of the file, in bytes.
+		 */
+		final long size;
+		/**
+		 * The state used by the core while scanning.
+		 */
+		final ScanState state = new ScanState();
+		/**
+		 * The executor to read and chunk the file on.
+		 */
+		private final ExecutorService executor;
+		/**
+		 * The file to read.
+		 */
+		private final Path file;
+		/**
+		 * The future to complete with the result of the reading.
+		 */
+		private final CompletableFuture<T> result;
+		/**
+		 * The channel to read the file with, {@code null} if not opened yet.
+		 */
+		private AsynchronousFileChannel channel;
+		/**
+		 * The amount of bytes read from the file so far.
+		 */
+		private long readBytes;
+		/**
+		 * The part of the buffer that is currently filled, {@code null} if no read is in progress.
+		 */
+		private ByteBuffer target;
+
+		/**
+		 * Creates a new reading.
+		 *
+		 * @param file     The file to read, not null
+		 * @param size     The size of the file, in bytes, positive and not zero
+		 * @param executor The executor to read and chunk the file on, not null
+		 * @param core     The core to use for chunking, not null
+		 * @param hasher   The hasher to use for hashing the data of a chunk, not null
+		 * @param result   The future to complete with the result of the reading, not null
+		 */
+		Reading(final Path file, final long size, final ExecutorService executor, final BufferChunkerCore core,
+				final ChunkHasher hasher, final CompletableFuture<T> result) {
+			this.file = file;
+			this.size = size;
+			this.executor = executor;
+			this.core = core;
+			this.result = result;
+			digest = hasher.newDigest();
+		}
+
+		@Override
+		public final void completed(final Integer read, final Void attachment) {
+			try {
+				if (read == -1) {
+					throw new IllegalStateException("Attempting to read a block from the file but the file has ended");
+				}
+				readBytes += read;
+				if (target.hasRemaining()) {
+					channel.read(target, readBytes, null, this);
+					return;
+				}
+				target = null;
+				process();
+			} catch (final RuntimeException e) {
+				finish(null, e);
+			}
+		}
+
+		@Override
+		public final void failed(final Throwable exc, final Void attachment) {
+			finish(null, exc);
+		}
+
+		/**
+		 * Finishes the reading, closes the file and completes the future.
+		 *
+		 * @param value   The result of the reading, {@code null} if it failed
+		 * @param failure The reason of the failure, {@code null} if it succeeded
+		 */
+		final void finish(final T value, final Throwable failure) {
+			Throwable reason = failure;
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (final IOException e) {
+					if (reason == null) {
+						reason = new UncheckedIOException(e);
+					}
+				}
+			}
+			if (reason == null) {
+				result.complete(value);
+			} else {
+				result.completeExceptionally(reason);
+			}
+		}
+
+		/**
+		 * Processes the data in the buffer after it has been filled. Must either call {@link #read(ByteBuffer)} or
+		 * {@link #finish(Object, Throwable)}.
+		 */
+		abstract void process();
+
+		/**
+		 * Reads data from the file into the given part of the buffer, until it is filled. {@link #process()} is called
+		 * afterwards.
+		 *
+		 * @param part The part of the buffer to fill, must not exceed the remaining data of the file
+		 */
+		final void read(final ByteBuffer part) {
+			target = part;
+			channel.read(part, readBytes, null, this);
+		}
+
+		/**
+		 * Gets the amount of bytes read from the file so far.
+		 *
+		 * @return The amount of bytes read from the file so far
+		 */
+		final long getReadBytes() {
+			return readBytes;
+		}
+
+		/**
+		 * Opens the file and starts the reading.
+		 */
+		final void start() {
+			try {
+				channel = AsynchronousFileChannel.open(file, Set.of(StandardOpenOption.READ), executor);
+				begin();
+			} catch (final IOException e) {
+				finish(null, new UncheckedIOException(e));
+			} catch (final RuntimeException e) {
+				finish(null, e);
+			}
+		}
+
+		/**
+		 * Begins the reading after the file has been opened. Must call {@link #read(ByteBuffer)}.
+		 */
+		abstract void begin();
+	}
+
+	/**
+	 * Reading that generates chunks and passes them to an action.
+	 * <p>
+	 * The buffer must be able to hold a chunk of maximal size, data that was not chunked yet is moved to its beginning
+	 * before the next read.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class ChunkReading extends Reading<Void> {
+		/**
+		 * The action to pass each chunk to.
+		 */
+		private final Consumer<? super Chunk> action;
+		/**
+		 * The buffer holding the data read from the file.
+		 */
+		private final byte[] buffer;
+		/**
+		 * View on the buffer, as used by the core.
+		 */
+		private final ByteBuffer bufferView;
+		/**
+		 * The index in the buffer after the last byte that was read from the file, exclusive.
+		 */
+		private int bufferEnd;
+		/**
+		 * The index in the buffer of the first byte that was not chunked yet, corresponds to the current offset.
+		 */
+		private int bufferStart;
+		/**
+		 * The current offset in the file, marking the beginning of the next chunk.
+		 */
+		private long currentOffset;
+
+		/**
+		 * Creates a new reading that generates chunks.
+		 *
+		 * @param file     The file to read, not null
+		 * @param size     The size of the file, in bytes, positive and not zero
+		 * @param executor The executor to read and chunk the file on, not null
+		 * @param core     The core to use for chunking, not null
+		 * @param hasher   The hasher to use for hashing the data of a chunk, not null
+		 * @param action   The action to pass each chunk to, not null
+		 * @param result   The future to complete once all chunks have been passed to the action, not null
+		 */
+		private ChunkReading(final Path file, final long size, final ExecutorService executor,
+				final BufferChunkerCore core, final ChunkHasher hasher, final Consumer<? super Chunk> action,
+				final CompletableFuture<Void> result) {
+			super(file, size, executor, core, hasher, result);
+			this.action = action;
+
+			//noinspection NumericCastThatLosesPrecision
+			buffer = new byte[(int) Math.min(size, Math.max(AsyncFileChunker.BLOCK_SIZE, core.getMaximalChunkSize()))];
+			bufferView = ByteBuffer.wrap(buffer);
+		}
+
+		@Override
+		void process() {
+			// The buffer begins at the current offset after it has been filled
+			//noinspection NumericCastThatLosesPrecision
+			bufferEnd = (int) (getReadBytes() - currentOffset);
+			while (currentOffset < size && bufferEnd - bufferStart >= Math.min(size - currentOffset,
+					core.getMaximalChunkSize())) {
+				state.reset(size - currentOffset);
+				final int cut = core.scan(bufferView, bufferStart, bufferEnd, state);
+				if (cut <= bufferStart || cut > bufferEnd) {
+					throw new IllegalStateException(
+							"The core must find a cut-point when a chunk of maximal size is available, was: " + cut);
+				}
+
+				final byte[] data = Arrays.copyOfRange(buffer, bufferStart, cut);
+				digest.update(data, 0, data.length);
+				action.accept(new SimpleChunk(data, currentOffset, digest.digest()));
+
+				currentOffset += data.length;
+				bufferStart = cut;
+			}
+
+			if (currentOffset == size) {
+				finish(null, null);
+				return;
+			}
+			fillBuffer();
+		}
+
+		@Override
+		void begin() {
+			fillBuffer();
+		}
+
+		/**
+		 * Moves the data that was not chunked yet to the beginning of the buffer and reads data from the file into the
+		 * rest of the buffer.
+		 */
+		private void fillBuffer() {
+			final int buffered = bufferEnd - bufferStart;
+			System.arraycopy(buffer, bufferStart, buffer, 0, buffered);
+			bufferStart = 0;
+			bufferEnd = buffered;
+
+			//noinspection NumericCastThatLosesPrecision
+			final int length = (int) Math.min(buffer.length - buffered, size - getReadBytes());
+			read(ByteBuffer.wrap(buffer, bufferEnd, length));
+		}
+	}
+
+	/**
+	 * Reading that collects the metadata of the chunks.
+	 * <p>
+	 * The data is hashed while it is scanned, a chunk can span multiple blocks of the buffer. Hence, the buffer has a
+	 * fixed size, independent of the maximal chunk size.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class MetadataReading extends Reading<List<ChunkMetadata>> {
+		/**
+		 * The buffer holding the data read from the file.
+		 */
+		private final byte[] buffer;
+		/**
+		 * View on the buffer, as used by the core.
+		 */
+		private final ByteBuffer bufferView;
+		/**
+		 * The metadata of the chunks generated so far.
+		 */
+		private final List<ChunkMetadata> chunks = new ArrayList<>();
+		/**
+		 * The length of the current chunk scanned so far.
+		 */
+		private long currentLength;
+		/**
+		 * The current offset in the file, marking the beginning of the current chunk.
+		 */
+		private long currentOffset;
+
+		/**
+		 * Creates a new reading that collects the metadata of the chunks.
+		 *
+		 * @param file     The file to read, not null
+		 * @param size     The size of the file, in bytes, positive and not zero
+		 * @param executor The executor to read and chunk the file on, not null
+		 * @param core     The core to use for chunking, not null
+		 * @param hasher   The hasher to use for hashing the data of a chunk, not null
+		 * @param result   The future to complete with the metadata of the chunks, not null
+		 */
+		private MetadataReading(final Path file, final long size, final ExecutorService executor,
+				final BufferChunkerCore core, final ChunkHasher hasher,
+				final CompletableFuture<List<ChunkMetadata>> result) {
+			super(file, size, executor, core, hasher, result);
+
+			//noinspection NumericCastThatLosesPrecision
+			buffer = new byte[(int) Math.min(size, AsyncFileChunker.BLOCK_SIZE)];
+			bufferView = ByteBuffer.wrap(buffer);
+		}
+
+		@Override
+		void process() {
+			//noinspection NumericCastThatLosesPrecision
+			final int bufferEnd = (int) (getReadBytes() - currentOffset - currentLength);
+			int bufferStart = 0;
+			while (bufferStart < bufferEnd) {
+				final int cut = core.scan(bufferView, bufferStart, bufferEnd, state);
+				final int scanEnd = cut == -1 ? bufferEnd : cut;
+				digest.update(buffer, bufferStart, scanEnd - bufferStart);
+				currentLength += scanEnd - bufferStart;
+				bufferStart = scanEnd;
+
+				if (cut != -1) {
+					final byte[] hash = digest.digest();
+					//noinspection NumericCastThatLosesPrecision
+					chunks.add(new SimpleChunkMetadata(currentOffset, (int) currentLength, hash,
+							Util.bytesToHex(hash)));
+					currentOffset += currentLength;
+					currentLength = 0;
+					if (currentOffset < size) {
+						state.reset(size - currentOffset);
+					}
+				}
+			}
+
+			if (currentOffset == size) {
+				finish(chunks, null);
+				return;
+			}
+			readBlock();
+		}
+
+		@Override
+		void begin() {
+			state.reset(size);
+			readBlock();
+		}
+
+		/**
+		 * Reads the next block of the file into the buffer, which must be fully scanned.
+		 */
+		private void readBlock() {
+			//noinspection NumericCastThatLosesPrecision
+			final int length = (int) Math.min(buffer.length, size - getReadBytes());
+			read(ByteBuffer.wrap(buffer, 0, length));
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Implementation of a chunk whose data is a read-only view on a buffer, for example on a memory-mapped file.
+ * <p>
+ * The data is not copied unless requested by {@link #getData()}. The {@link #getHexHash()} is cached and will be
+ * generated upon construction.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class BufferChunk implements Chunk {
+	/**
+	 * Read-only view on the data contained in this chunk.
+	 */
+	private final ByteBuffer data;
+	/**
+	 * A binary hash representation of the contained data. Using the algorithm specified during construction by the
+	 * {@link Chunker}.
+	 */
+	private final byte[] hash;
+	/**
+	 * A hexadecimal hash representation of the contained data. Using the algorithm specified during construction by the
+	 * {@link Chunker}.
+	 */
+	private final String hexHash;
+	/**
+	 * The offset of this chunk, with respect to its source data stream.
+	 */
+	private final long offset;
+
+	/**
+	 * Creates a new buffer chunk.
+	 * <p>
+	 * The {@link #getHexHash()} is cached and will be generated upon construction based on the given hash.
+	 *
+	 * @param data   The data contained in this chunk, from its position to its limit, not null and not empty. The
+	 *               buffer is not copied, a read-only view on it is used instead.
+	 * @param offset The offset of this chunk, with respect to its source data stream, must be positive
+	 * @param hash   A binary hash representation of the contained data. Using the algorithm specified during
+	 *               construction by the {@link Chunker}. Not null and not empty.
+	 */
+	public BufferChunk(final ByteBuffer data, final long offset, final byte[] hash) {
+		Objects.requireNonNull(data);
+		Validations.require(data.hasRemaining(), "Data must not be empty");
+		Objects.requireNonNull(hash);
+		Validations.require(hash.length > 0, "Hash must not be empty");
+		this.data = data.slice()
+				.asReadOnlyBuffer();
+		this.offset = Validations.requirePositive(offset, "Offset");
+		//noinspection AssignmentOrReturnOfFieldWithMutableType
+		this.hash = hash;
+		hexHash = Util.bytesToHex(hash);
+	}
+
+	@Override
+	public byte[] getData() {
+		final byte[] copy = new byte[data.capacity()];
+		data.get(0, copy);
+		return copy;
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer() {
+		return data.duplicate();
+	}
+
+	@Override
+	public byte[] getHash() {
+		//noinspection AssignmentOrReturnOfFieldWithMutableType
+		return hash;
+	}
+
+	@Override
+	public String getHexHash() {
+		return hexHash;
+	}
+
+	@Override
+	public int getLength() {
+		return data.capacity();
+	}
+
+	@Override
+	public long getOffset() {
+		return offset;
+	}
+}
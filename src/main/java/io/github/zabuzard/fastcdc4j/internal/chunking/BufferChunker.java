@@ -0,0 +1,811 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChangedRange;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkCursor;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkMetadata;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerMetrics;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.MappingIterator;
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of a chunker that reads the stream in large blocks into a reusable buffer and uses a given {@link
+ * BufferChunkerCore} to find the cut-points in it.
+ * <p>
+ * Compared to an {@link IterativeStreamChunker}, the data is not read byte by byte and chunks are cut out of the buffer
+ * with a single copy.
+ * <p>
+ * Optionally, regular files can be memory-mapped instead of being read as stream. The core then scans the mapped
+ * memory directly and chunks are read-only views on it, without copying any data. Files exceeding the maximal size of
+ * a single mapping are mapped in multiple windows. Likewise, buffers given as data, for example direct buffers, are
+ * scanned in place.
+ * <p>
+ * When only the metadata of chunks is requested, the data is hashed while it is scanned and never copied into chunks.
+ * The buffer then has a fixed size, independent of the maximal chunk size.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class BufferChunker implements Chunker {
+	/**
+	 * The default size of the blocks read from the stream, in bytes.
+	 */
+	@SuppressWarnings("MultiplyOrDivideByPowerOfTwo")
+	private static final int DEFAULT_BLOCK_SIZE = 1_024 * 1_024;
+	/**
+	 * The maximal size of a single window when memory-mapping files, in bytes.
+	 */
+	private static final int MAPPING_WINDOW_SIZE = Integer.MAX_VALUE;
+	/**
+	 * The core to use for chunking.
+	 */
+	private final BufferChunkerCore core;
+	/**
+	 * The hasher to use for hashing the data of a chunk.
+	 */
+	private final ChunkHasher hasher;
+	/**
+	 * Whether regular files are memory-mapped instead of being read as stream.
+	 */
+	private final boolean memoryMapping;
+	/**
+	 * The metrics to report reads from streams to, {@code null} if reads are not reported.
+	 */
+	private final ChunkerMetrics metrics;
+
+	/**
+	 * Creates a new chunker.
+	 *
+	 * @param core          The core to use for chunking, not null
+	 * @param hasher        The hasher to use for hashing the data of a chunk, not null
+	 * @param memoryMapping Whether regular files are memory-mapped instead of being read as stream
+	 */
+	public BufferChunker(final BufferChunkerCore core, final ChunkHasher hasher, final boolean memoryMapping) {
+		this(core, hasher, memoryMapping, null);
+	}
+
+	/**
+	 * Creates a new chunker that reports reads from streams to the given metrics.
+	 *
+	 * @param core          The core to use for chunking, not null
+	 * @param hasher        The hasher to use for hashing the data of a chunk, not null
+	 * @param memoryMapping Whether regular files are memory-mapped instead of being read as stream
+	 * @param metrics       The metrics to report reads from streams to, {@code null} if reads are not reported
+	 */
+	public BufferChunker(final BufferChunkerCore core, final ChunkHasher hasher, final boolean memoryMapping,
+			final ChunkerMetrics metrics) {
+		this.core = Objects.requireNonNull(core);
+		this.hasher = Objects.requireNonNull(hasher);
+		this.memoryMapping = memoryMapping;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final InputStream stream, final long size) {
+		Objects.requireNonNull(stream);
+		Validations.requirePositiveNonZero(size, "Size");
+		return () -> new ChunkerIterator(meter(stream), size, core, hasher);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final ByteBuffer data) {
+		Objects.requireNonNull(data);
+		Validations.require(data.hasRemaining(), "Data must not be empty");
+		// Not read-only, such that hashers can access the array of heap buffers, chunks are read-only views
+		final ByteBuffer view = data.slice();
+		return () -> new ViewChunkerIterator(view, core, hasher);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final Path path) {
+		Objects.requireNonNull(path);
+		if (!memoryMapping || !Files.isRegularFile(path)) {
+			return Chunker.super.chunk(path);
+		}
+
+		final long size;
+		try {
+			size = Files.size(path);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Validations.requirePositiveNonZero(size, "Size");
+		return () -> new MappedChunkerIterator(path, size, core, hasher);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final InputStream stream, final long size) {
+		Objects.requireNonNull(stream);
+		Validations.requirePositiveNonZero(size, "Size");
+		return () -> new MetadataIterator(meter(stream), size, core, hasher);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final ByteBuffer data) {
+		// Chunks of buffers are views, they do not copy any data
+		final Iterable<Chunk> chunks = chunk(data);
+		return () -> new MappingIterator<>(chunks.iterator(), Chunk::toChunkMetadata);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final Path path) {
+		Objects.requireNonNull(path);
+		if (!memoryMapping || !Files.isRegularFile(path)) {
+			return Chunker.super.chunkMetadata(path);
+		}
+
+		// Chunks of mapped files are views, they do not copy any data
+		final Iterable<Chunk> chunks = chunk(path);
+		return () -> new MappingIterator<>(chunks.iterator(), Chunk::toChunkMetadata);
+	}
+
+	@Override
+	public CompletableFuture<Void> chunkAsync(final Path file, final Consumer<? super Chunk> action,
+			final ExecutorService executor) {
+		return new AsyncFileChunker(core, hasher).chunk(file, action, executor);
+	}
+
+	@Override
+	public CompletableFuture<List<ChunkMetadata>> chunkMetadataAsync(final Path file, final ExecutorService executor) {
+		return new AsyncFileChunker(core, hasher).chunkMetadata(file, executor);
+	}
+
+	@Override
+	public ChunkCursor cursor(final InputStream stream, final long size) {
+		Objects.requireNonNull(stream);
+		Validations.requirePositiveNonZero(size, "Size");
+		return new BufferedChunkCursor(meter(stream), size, core, hasher);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> rechunkMetadata(final Path file, final List<? extends ChunkMetadata> previousChunks,
+			final List<ChangedRange> changedRanges) {
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(previousChunks);
+		Objects.requireNonNull(changedRanges);
+		return () -> new IncrementalChunkIterator(file, previousChunks, changedRanges, core, hasher);
+	}
+
+	@Override
+	public Spliterator<Chunk> spliterator(final Path file) {
+		Objects.requireNonNull(file);
+		if (SegmentSpliterator.isSplittable(file, core)) {
+			return new SegmentSpliterator(file, core, hasher);
+		}
+		return Chunker.super.spliterator(file);
+	}
+
+	/**
+	 * Wraps the given stream to report its reads, if metrics are set.
+	 *
+	 * @param stream The stream to wrap, not null
+	 *
+	 * @return The wrapped stream, or the given stream if reads are not reported
+	 */
+	private InputStream meter(final InputStream stream) {
+		return metrics == null ? stream : new MeteredInputStream(stream, metrics);
+	}
+
+	/**
+	 * Cursor that generates chunks on the fly, as the cursor advances. Using the given core for finding the cut-points
+	 * in the buffered data.
+	 * <p>
+	 * The data of the current chunk is a view on the buffer and its hash is computed into a reused array. Hence, the
+	 * cursor does not allocate per chunk.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class BufferedChunkCursor implements ChunkCursor {
+		/**
+		 * Read-only view on the buffer of the scanner, limited to the data of the current chunk.
+		 */
+		private final ByteBuffer dataView;
+		/**
+		 * The digest used for hashing the data of a chunk.
+		 */
+		private final ChunkDigest digest;
+		/**
+		 * The hash of the current chunk.
+		 */
+		private final byte[] hash;
+		/**
+		 * The scanner reading the stream and finding the chunks.
+		 */
+		private final StreamScanner scanner;
+		/**
+		 * The offset in the data stream of the first byte of the current chunk, {@code -1} if the cursor is not
+		 * positioned at a chunk.
+		 */
+		private long chunkOffset = -1;
+
+		/**
+		 * Creates a new cursor, which is positioned before the first chunk.
+		 *
+		 * @param stream The data stream to chunk, not null
+		 * @param size   The amount of bytes available in the stream that are subject to be chunked, the stream must
+		 *               offer at least that many bytes, positive and not zero
+		 * @param core   The core to use for chunking, not null
+		 * @param hasher The hasher to use for hashing the data of a chunk, not null
+		 */
+		private BufferedChunkCursor(final InputStream stream, final long size, final BufferChunkerCore core,
+				final ChunkHasher hasher) {
+			digest = hasher.newDigest();
+			hash = new byte[hasher.getHashLength()];
+			scanner = new StreamScanner(stream, size, core, true);
+			dataView = ByteBuffer.wrap(scanner.getBuffer())
+					.asReadOnlyBuffer();
+		}
+
+		@Override
+		public void close() {
+			chunkOffset = -1;
+			scanner.close();
+		}
+
+		@Override
+		public ByteBuffer getData() {
+			requireCurrent();
+			dataView.clear()
+					.position(scanner.getChunkStart())
+					.limit(scanner.getChunkEnd());
+			return dataView;
+		}
+
+		@Override
+		public void getHash(final byte[] target) {
+			requireCurrent();
+			System.arraycopy(hash, 0, target, 0, hash.length);
+		}
+
+		@Override
+		public int getHashLength() {
+			return hash.length;
+		}
+
+		@Override
+		public int getLength() {
+			requireCurrent();
+			return scanner.getChunkEnd() - scanner.getChunkStart();
+		}
+
+		@Override
+		public long getOffset() {
+			requireCurrent();
+			return chunkOffset;
+		}
+
+		@Override
+		public boolean next() {
+			if (!scanner.hasNext()) {
+				chunkOffset = -1;
+				return false;
+			}
+
+			chunkOffset = scanner.getOffset();
+			scanner.nextChunk(digest);
+			digest.digest(hash, 0);
+			return true;
+		}
+
+		/**
+		 * Requires the cursor to be positioned at a chunk.
+		 */
+		private void requireCurrent() {
+			if (chunkOffset == -1) {
+				throw new IllegalStateException("The cursor is not positioned at a chunk, call next() first");
+			}
+		}
+	}
+
+	/**
+	 * Iterator that generates chunks on the fly, as requested. Using the given core for finding the cut-points in the
+	 * buffered data.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class ChunkerIterator implements Iterator<Chunk> {
+		/**
+		 * The digest used for hashing the data of a chunk.
+		 */
+		private final ChunkDigest digest;
+		/**
+		 * The scanner reading the stream and finding the chunks.
+		 */
+		private final StreamScanner scanner;
+
+		/**
+		 * Creates a new iterator.
+		 *
+		 * @param stream The data stream to chunk, not null
+		 * @param size   The amount of bytes available in the stream that are subject to be chunked, the stream must
+		 *               offer at least that many bytes, positive and not zero
+		 * @param core   The core to use for chunking, not null
+		 * @param hasher The hasher to use for hashing the data of a chunk, not null
+		 */
+		private ChunkerIterator(final InputStream stream, final long size, final BufferChunkerCore core,
+				final ChunkHasher hasher) {
+			digest = hasher.newDigest();
+			scanner = new StreamScanner(stream, size, core, true);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return scanner.hasNext();
+		}
+
+		@Override
+		public Chunk next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("The data stream has ended, can not generate another chunk");
+			}
+
+			final long offset = scanner.getOffset();
+			scanner.nextChunk(digest);
+			final byte[] data = Arrays.copyOfRange(scanner.getBuffer(), scanner.getChunkStart(), scanner.getChunkEnd());
+			return new SimpleChunk(data, offset, digest.digest());
+		}
+	}
+
+	/**
+	 * Iterator that generates chunks on the fly, as requested. Using the given core for finding the cut-points in the
+	 * memory-mapped file. The chunks are read-only views on the mapped memory.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class MappedChunkerIterator implements Iterator<Chunk> {
+		/**
+		 * The core to use for chunking.
+		 */
+		private final BufferChunkerCore core;
+		/**
+		 * The digest used for hashing the data of a chunk.
+		 */
+		private final ChunkDigest digest;
+		/**
+		 * The file to chunk.
+		 */
+		private final Path path;
+		/**
+		 * The size of the file, in bytes.
+		 */
+		private final long size;
+		/**
+		 * The state used by the core while scanning.
+		 */
+		private final ScanState state = new ScanState();
+		/**
+		 * The current offset in the file, marking the beginning of the next chunk.
+		 */
+		private long currentOffset;
+		/**
+		 * The currently mapped window of the file, {@code null} if not mapped yet.
+		 */
+		private MappedByteBuffer window;
+		/**
+		 * The offset in the file at which the current window begins.
+		 */
+		private long windowOffset;
+
+		/**
+		 * Creates a new iterator.
+		 *
+		 * @param path   The file to chunk, not null
+		 * @param size   The size of the file, in bytes, positive and not zero
+		 * @param core   The core to use for chunking, not null
+		 * @param hasher The hasher to use for hashing the data of a chunk, not null
+		 */
+		private MappedChunkerIterator(final Path path, final long size, final BufferChunkerCore core,
+				final ChunkHasher hasher) {
+			digest = hasher.newDigest();
+			this.path = Objects.requireNonNull(path);
+			this.size = Validations.requirePositiveNonZero(size, "Size");
+			this.core = Objects.requireNonNull(core);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return currentOffset < size;
+		}
+
+		@Override
+		public Chunk next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("The data stream has ended, can not generate another chunk");
+			}
+
+			final long remaining = size - currentOffset;
+			if (window == null
+					|| currentOffset + Math.min(remaining, core.getMaximalChunkSize()) > windowOffset + window.capacity()) {
+				mapWindow();
+			}
+
+			//noinspection NumericCastThatLosesPrecision
+			final int start = (int) (currentOffset - windowOffset);
+			state.reset(remaining);
+			final int cut = core.scan(window, start, window.capacity(), state);
+			if (cut <= start || cut > window.capacity()) {
+				throw new IllegalStateException(
+						"The core must find a cut-point when a chunk of maximal size is available, was: " + cut);
+			}
+
+			final ByteBuffer data = window.slice(start, cut - start);
+			digest.update(data.duplicate());
+			final Chunk chunk = new BufferChunk(data, currentOffset, digest.digest());
+
+			currentOffset += cut - start;
+			return chunk;
+		}
+
+		/**
+		 * Maps the window of the file that begins at the current offset.
+		 */
+		private void mapWindow() {
+			final long length = Math.min(size - currentOffset, BufferChunker.MAPPING_WINDOW_SIZE);
+			// The mapping stays valid after the channel has been closed
+			try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				window = channel.map(FileChannel.MapMode.READ_ONLY, currentOffset, length);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			windowOffset = currentOffset;
+		}
+	}
+
+	/**
+	 * Iterator that generates chunk metadata on the fly, as requested. Using the given core for finding the cut-points
+	 * in the buffered data.
+	 * <p>
+	 * The data is hashed while it is scanned, a chunk can span multiple blocks of the buffer. Hence, the buffer has a
+	 * fixed size, independent of the maximal chunk size.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class MetadataIterator implements Iterator<ChunkMetadata> {
+		/**
+		 * The digest used for hashing the data of a chunk.
+		 */
+		private final ChunkDigest digest;
+		/**
+		 * The scanner reading the stream and finding the chunks.
+		 */
+		private final StreamScanner scanner;
+
+		/**
+		 * Creates a new iterator.
+		 *
+		 * @param stream The data stream to chunk, not null
+		 * @param size   The amount of bytes available in the stream that are subject to be chunked, the stream must
+		 *               offer at least that many bytes, positive and not zero
+		 * @param core   The core to use for chunking, not null
+		 * @param hasher The hasher to use for hashing the data of a chunk, not null
+		 */
+		private MetadataIterator(final InputStream stream, final long size, final BufferChunkerCore core,
+				final ChunkHasher hasher) {
+			digest = hasher.newDigest();
+			scanner = new StreamScanner(stream, size, core, false);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return scanner.hasNext();
+		}
+
+		@Override
+		public ChunkMetadata next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("The data stream has ended, can not generate another chunk");
+			}
+
+			final long offset = scanner.getOffset();
+			final int length = scanner.nextChunk(digest);
+			final byte[] hash = digest.digest();
+			return new SimpleChunkMetadata(offset, length, hash, Util.bytesToHex(hash));
+		}
+	}
+
+	/**
+	 * Scanner that reads a data stream in large blocks into a reusable buffer and uses a given core to find the
+	 * cut-points in it. Shared by the iterators and the cursor chunking data streams.
+	 * <p>
+	 * If the chunks are contiguous, the buffer is able to hold a chunk of maximal size and each chunk is held by the
+	 * buffer completely once found, see {@link #getChunkStart()} and {@link #getChunkEnd()}. Otherwise, the buffer has
+	 * a fixed size, independent of the maximal chunk size, and a chunk can span multiple blocks of the buffer. Its data
+	 * is then only available to the digest, while it is scanned.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class StreamScanner {
+		/**
+		 * The buffer holding the data read from the stream.
+		 */
+		private final byte[] buffer;
+		/**
+		 * View on the buffer, as used by the core.
+		 */
+		private final ByteBuffer bufferView;
+		/**
+		 * Whether each chunk is held by the buffer completely once found.
+		 */
+		private final boolean contiguous;
+		/**
+		 * The core to use for chunking.
+		 */
+		private final BufferChunkerCore core;
+		/**
+		 * The amount of bytes available in the stream that are subject to be chunked.
+		 */
+		private final long size;
+		/**
+		 * The state used by the core while scanning.
+		 */
+		private final ScanState state = new ScanState();
+		/**
+		 * The data stream to chunk.
+		 */
+		private final InputStream stream;
+		/**
+		 * The index in the buffer after the last byte that was read from the stream, exclusive.
+		 */
+		private int bufferEnd;
+		/**
+		 * The index in the buffer of the first byte that was not scanned yet, the end of the last found chunk.
+		 */
+		private int bufferStart;
+		/**
+		 * The index in the buffer of the first byte of the last found chunk, only valid if the chunks are contiguous.
+		 */
+		private int chunkStart;
+		/**
+		 * The offset in the data stream of the first byte that was not chunked yet, marking the beginning of the next
+		 * chunk.
+		 */
+		private long currentOffset;
+		/**
+		 * The amount of bytes read from the stream so far.
+		 */
+		private long readBytes;
+
+		/**
+		 * Creates a new scanner.
+		 *
+		 * @param stream     The data stream to chunk, not null
+		 * @param size       The amount of bytes available in the stream that are subject to be chunked, the stream must
+		 *                   offer at least that many bytes, positive and not zero
+		 * @param core       The core to use for chunking, not null
+		 * @param contiguous Whether each chunk is held by the buffer completely once found, otherwise the buffer has a
+		 *                   fixed size
+		 */
+		private StreamScanner(final InputStream stream, final long size, final BufferChunkerCore core,
+				final boolean contiguous) {
+			this.stream = Objects.requireNonNull(stream);
+			this.size = Validations.requirePositiveNonZero(size, "Size");
+			this.core = Objects.requireNonNull(core);
+			this.contiguous = contiguous;
+
+			// The buffer of contiguous chunks must be able to hold a chunk of maximal size
+			final int blockSize = contiguous ? Math.max(BufferChunker.DEFAULT_BLOCK_SIZE, core.getMaximalChunkSize())
+					: BufferChunker.DEFAULT_BLOCK_SIZE;
+			// The buffer does not need to exceed the data size
+			//noinspection NumericCastThatLosesPrecision
+			buffer = new byte[(int) Math.min(size, blockSize)];
+			bufferView = ByteBuffer.wrap(buffer);
+		}
+
+		/**
+		 * Closes the data stream.
+		 */
+		void close() {
+			try {
+				stream.close();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Gets the buffer holding the data read from the stream.
+		 *
+		 * @return The buffer
+		 */
+		byte[] getBuffer() {
+			return buffer;
+		}
+
+		/**
+		 * Gets the index in the buffer after the last byte of the last found chunk, exclusive. Only valid if the chunks
+		 * are contiguous.
+		 *
+		 * @return The index after the last byte of the chunk
+		 */
+		int getChunkEnd() {
+			return bufferStart;
+		}
+
+		/**
+		 * Gets the index in the buffer of the first byte of the last found chunk. Only valid if the chunks are
+		 * contiguous.
+		 *
+		 * @return The index of the first byte of the chunk
+		 */
+		int getChunkStart() {
+			return chunkStart;
+		}
+
+		/**
+		 * Gets the offset in the data stream of the first byte that was not chunked yet, the beginning of the next
+		 * chunk.
+		 *
+		 * @return The offset of the next chunk
+		 */
+		long getOffset() {
+			return currentOffset;
+		}
+
+		/**
+		 * Whether the data stream contains another chunk.
+		 *
+		 * @return {@code true} if the stream contains another chunk, {@code false} otherwise
+		 */
+		boolean hasNext() {
+			return currentOffset < size;
+		}
+
+		/**
+		 * Finds the next chunk and updates the given digest with its data. The hash of the chunk is not computed.
+		 *
+		 * @param digest The digest to update with the data of the chunk, not null
+		 *
+		 * @return The length of the chunk
+		 */
+		int nextChunk(final ChunkDigest digest) {
+			final long remaining = size - currentOffset;
+			if (contiguous && bufferEnd - bufferStart < Math.min(remaining, core.getMaximalChunkSize())) {
+				fillBuffer();
+			}
+
+			chunkStart = bufferStart;
+			state.reset(remaining);
+			long length = 0;
+			while (true) {
+				if (bufferStart == bufferEnd) {
+					fillBuffer();
+				}
+
+				final int cut = core.scan(bufferView, bufferStart, bufferEnd, state);
+				if (contiguous ? cut <= bufferStart || cut > bufferEnd : cut != -1 && cut <= bufferStart) {
+					throw new IllegalStateException(
+							"The core must find a cut-point when a chunk of maximal size is available, was: " + cut);
+				}
+				final int scanEnd = cut == -1 ? bufferEnd : cut;
+				digest.update(buffer, bufferStart, scanEnd - bufferStart);
+				length += scanEnd - bufferStart;
+				bufferStart = scanEnd;
+
+				if (cut != -1) {
+					break;
+				}
+			}
+
+			currentOffset += length;
+			//noinspection NumericCastThatLosesPrecision
+			return (int) length;
+		}
+
+		/**
+		 * Moves the data that was not scanned yet to the beginning of the buffer and fills the rest of the buffer with
+		 * data from the stream.
+		 */
+		private void fillBuffer() {
+			final int buffered = bufferEnd - bufferStart;
+			System.arraycopy(buffer, bufferStart, buffer, 0, buffered);
+			bufferStart = 0;
+			bufferEnd = buffered;
+
+			//noinspection NumericCastThatLosesPrecision
+			final int length = (int) Math.min(buffer.length - buffered, size - readBytes);
+			try {
+				final int read = stream.readNBytes(buffer, bufferEnd, length);
+				if (read < length) {
+					throw new IllegalStateException(
+							"Attempting to read a block from the stream but the stream has ended");
+				}
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			bufferEnd += length;
+			readBytes += length;
+		}
+	}
+
+	/**
+	 * Iterator that generates chunks on the fly, as requested. Using the given core for finding the cut-points directly
+	 * in the given buffer, for example a direct buffer. The chunks are read-only views on the buffer.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class ViewChunkerIterator implements Iterator<Chunk> {
+		/**
+		 * The core to use for chunking.
+		 */
+		private final BufferChunkerCore core;
+		/**
+		 * The data to chunk, from index {@code 0} to its capacity.
+		 */
+		private final ByteBuffer data;
+		/**
+		 * The digest used for hashing the data of a chunk.
+		 */
+		private final ChunkDigest digest;
+		/**
+		 * The state used by the core while scanning.
+		 */
+		private final ScanState state = new ScanState();
+		/**
+		 * The current offset in the data, marking the beginning of the next chunk.
+		 */
+		private int currentOffset;
+
+		/**
+		 * Creates a new iterator.
+		 *
+		 * @param data   The data to chunk, from index {@code 0} to its capacity, not null and not empty
+		 * @param core   The core to use for chunking, not null
+		 * @param hasher The hasher to use for hashing the data of a chunk, not null
+		 */
+		private ViewChunkerIterator(final ByteBuffer data, final BufferChunkerCore core, final ChunkHasher hasher) {
+			digest = hasher.newDigest();
+			this.data = Objects.requireNonNull(data);
+			this.core = Objects.requireNonNull(core);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return currentOffset < data.capacity();
+		}
+
+		@Override
+		public Chunk next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("The data has ended, can not generate another chunk");
+			}
+
+			state.reset(data.capacity() - currentOffset);
+			final int cut = core.scan(data, currentOffset, data.capacity(), state);
+			if (cut <= currentOffset || cut > data.capacity()) {
+				throw new IllegalStateException(
+						"The core must find a cut-point when a chunk of maximal size is available, was: " + cut);
+			}
+
+			final ByteBuffer chunkData = data.slice(currentOffset, cut - currentOffset);
+			digest.update(chunkData.duplicate());
+			final Chunk chunk = new BufferChunk(chunkData, currentOffset, digest.digest());
+
+			currentOffset = cut;
+			return chunk;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Input stream that reads the remaining data of a given buffer, for example a direct buffer, without copying it onto
+ * the heap first.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ByteBufferInputStream extends InputStream {
+	/**
+	 * View on the buffer to read, its position marks the next byte to read.
+	 */
+	private final ByteBuffer data;
+
+	/**
+	 * Creates a new stream.
+	 *
+	 * @param data The buffer to read, from its position to its limit. The buffer is not modified. Not null.
+	 */
+	public ByteBufferInputStream(final ByteBuffer data) {
+		this.data = Objects.requireNonNull(data)
+				.duplicate();
+	}
+
+	@Override
+	public int available() {
+		return data.remaining();
+	}
+
+	@SuppressWarnings("MagicNumber")
+	@Override
+	public int read() {
+		return data.hasRemaining() ? data.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) {
+		Objects.checkFromIndexSize(off, len, b.length);
+		if (len == 0) {
+			return 0;
+		}
+		if (!data.hasRemaining()) {
+			return -1;
+		}
+		final int length = Math.min(len, data.remaining());
+		data.get(b, off, length);
+		return length;
+	}
+
+	@Override
+	public long skip(final long n) {
+		//noinspection NumericCastThatLosesPrecision
+		final int skipped = (int) Math.max(0, Math.min(n, data.remaining()));
+		data.position(data.position() + skipped);
+		return skipped;
+	}
+}
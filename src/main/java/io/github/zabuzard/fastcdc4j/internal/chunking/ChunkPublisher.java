@@ -0,0 +1,450 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.external.chunking.FileChunk;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Publisher of the chunks of a data stream or of files, generated by a given chunker.
+ * <p>
+ * Chunks are generated on a given executor and only as many as requested by the subscriber, data is hence read and
+ * hashed on demand. Each subscription to a publisher of files reads the files on its own, a publisher of a data stream
+ * only supports a single subscription. The underlying data stream is closed as soon as the subscription is cancelled or
+ * terminated. The source of the chunks is only accessed by the drain on the executor, also when it is closed.
+ * <p>
+ * Files are chunked by {@link Chunker#chunk(Path)} of the given chunker, such that its settings, for example memory
+ * mapping, apply. The chunks of a directory are {@link FileChunk}s, tagged with the file they originate from.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ChunkPublisher implements Flow.Publisher<Chunk> {
+	/**
+	 * The chunker to use for generating the chunks.
+	 */
+	private final Chunker chunker;
+	/**
+	 * The executor to generate the chunks and signal the subscribers on.
+	 */
+	private final Executor executor;
+	/**
+	 * The path to chunk, {@code null} if a data stream is chunked.
+	 */
+	private final Path path;
+	/**
+	 * The amount of bytes available in {@link #stream} that are subject to be chunked.
+	 */
+	private final long size;
+	/**
+	 * The data stream to chunk, {@code null} if a path is chunked.
+	 */
+	private final InputStream stream;
+	/**
+	 * Whether {@link #stream} has already been subscribed to.
+	 */
+	private final AtomicBoolean streamSubscribed = new AtomicBoolean();
+
+	/**
+	 * Creates a new publisher of the chunks of the given data stream. The stream is closed once the subscription is
+	 * cancelled or terminated.
+	 *
+	 * @param chunker  The chunker to use for generating the chunks, not null
+	 * @param stream   The data stream to chunk, not null
+	 * @param size     The amount of bytes available in the stream that are subject to be chunked, the stream must offer
+	 *                 at least that many bytes. Must be positive and not zero.
+	 * @param executor The executor to generate the chunks and signal the subscriber on, not null
+	 */
+	public ChunkPublisher(final Chunker chunker, final InputStream stream, final long size, final Executor executor) {
+		this.chunker = Objects.requireNonNull(chunker);
+		this.stream = Objects.requireNonNull(stream);
+		this.size = Validations.requirePositiveNonZero(size, "Size");
+		this.executor = Objects.requireNonNull(executor);
+		path = null;
+	}
+
+	/**
+	 * Creates a new publisher of the chunks of the data available at the given path. The path must either be a regular
+	 * file or a directory. In case of a directory, it is traversed recursively and all regular files are chunked one
+	 * after another.
+	 *
+	 * @param chunker  The chunker to use for generating the chunks, not null
+	 * @param path     Either a regular file or a directory to traverse, only regular files are processed, not null
+	 * @param executor The executor to generate the chunks and signal the subscribers on, not null
+	 */
+	public ChunkPublisher(final Chunker chunker, final Path path, final Executor executor) {
+		this.chunker = Objects.requireNonNull(chunker);
+		this.path = Objects.requireNonNull(path);
+		this.executor = Objects.requireNonNull(executor);
+		Validations.require(Files.isRegularFile(path) || Files.isDirectory(path),
+				"Only existing regular files or directories are supported");
+		stream = null;
+		size = 0;
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super Chunk> subscriber) {
+		Objects.requireNonNull(subscriber);
+		final ChunkSubscription subscription = new ChunkSubscription(subscriber);
+		final boolean isRejected = stream != null && !streamSubscribed.compareAndSet(false, true);
+		if (isRejected) {
+			subscription.failure =
+					new IllegalStateException("A publisher of a data stream only supports one subscriber");
+		}
+		subscriber.onSubscribe(subscription);
+		if (isRejected) {
+			subscription.scheduleDrain();
+		}
+	}
+
+	/**
+	 * Opens the source of the chunks for a new subscription.
+	 *
+	 * @return The source of the chunks
+	 *
+	 * @throws IOException If an I/O error occurred while traversing the path
+	 */
+	private ChunkSource openSource() throws IOException {
+		if (stream != null) {
+			return new ChunkSource(chunker, stream, size);
+		}
+		if (Files.isRegularFile(path)) {
+			return new ChunkSource(chunker, List.of(path), false);
+		}
+		try (final Stream<Path> paths = Files.walk(path)) {
+			return new ChunkSource(chunker, paths.filter(Files::isRegularFile)
+					.collect(Collectors.toList()), true);
+		}
+	}
+
+	/**
+	 * Source of the chunks of a single subscription, either of a data stream or of files that are chunked one after
+	 * another. Closing the source closes the data stream and drops the chunks of the currently read file.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class ChunkSource implements Iterator<Chunk> {
+		/**
+		 * The chunker to use for generating the chunks.
+		 */
+		private final Chunker chunker;
+		/**
+		 * The files that have not been chunked yet, {@code null} if a data stream is chunked.
+		 */
+		private final Iterator<Path> files;
+		/**
+		 * Whether chunks are tagged as {@link FileChunk}s with the file they originate from.
+		 */
+		private final boolean tagged;
+		/**
+		 * The chunks of the currently read data stream or file, {@code null} if none.
+		 */
+		private Iterator<Chunk> currentChunks;
+		/**
+		 * The currently read file, {@code null} if none or if a data stream is chunked.
+		 */
+		private Path currentFile;
+		/**
+		 * The data stream to chunk, {@code null} if files are chunked or the stream has been closed.
+		 */
+		private InputStream currentStream;
+
+		/**
+		 * Creates a new source of the chunks of the given data stream.
+		 *
+		 * @param chunker The chunker to use for generating the chunks, not null
+		 * @param stream  The data stream to chunk, not null
+		 * @param size    The amount of bytes available in the stream that are subject to be chunked
+		 */
+		private ChunkSource(final Chunker chunker, final InputStream stream, final long size) {
+			this.chunker = chunker;
+			files = null;
+			tagged = false;
+			currentStream = stream;
+			currentChunks = chunker.chunk(stream, size)
+					.iterator();
+		}
+
+		/**
+		 * Creates a new source of the chunks of the given regular files, empty files are skipped.
+		 *
+		 * @param chunker The chunker to use for generating the chunks, not null
+		 * @param files   The regular files to chunk, not null
+		 * @param tagged  Whether chunks are tagged as {@link FileChunk}s with the file they originate from
+		 */
+		private ChunkSource(final Chunker chunker, final List<Path> files, final boolean tagged) {
+			this.chunker = chunker;
+			this.files = files.iterator();
+			this.tagged = tagged;
+		}
+
+		/**
+		 * Closes the data stream, if any, and drops the chunks of the currently read file.
+		 */
+		private void close() {
+			currentChunks = null;
+			currentFile = null;
+			if (currentStream == null) {
+				return;
+			}
+			try {
+				currentStream.close();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				currentStream = null;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (currentChunks == null || !currentChunks.hasNext()) {
+				close();
+				if (files == null || !files.hasNext()) {
+					return false;
+				}
+
+				final Path file = files.next();
+				try {
+					if (Files.size(file) > 0) {
+						currentFile = file;
+						currentChunks = chunker.chunk(file)
+								.iterator();
+					}
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Chunk next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final Chunk chunk = currentChunks.next();
+			return tagged ? new SimpleFileChunk(chunk, currentFile) : chunk;
+		}
+	}
+
+	/**
+	 * Subscription that generates chunks on demand, draining them to the subscriber on the executor.
+	 * <p>
+	 * At most one drain runs at a time, hence the subscriber is signaled serially.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private final class ChunkSubscription implements Flow.Subscription {
+		/**
+		 * The amount of requested chunks that have not been signaled yet.
+		 */
+		private final AtomicLong demand = new AtomicLong();
+		/**
+		 * The subscriber to signal.
+		 */
+		private final Flow.Subscriber<? super Chunk> subscriber;
+		/**
+		 * The amount of drain requests that have not been processed yet, a drain is running if not zero.
+		 */
+		private final AtomicInteger pendingDrains = new AtomicInteger();
+		/**
+		 * Whether the subscription has been cancelled or terminated.
+		 */
+		private volatile boolean cancelled;
+		/**
+		 * The failure to signal to the subscriber, {@code null} if none.
+		 */
+		private volatile Throwable failure;
+		/**
+		 * Whether the source has been opened, only accessed by the drain.
+		 */
+		private boolean opened;
+		/**
+		 * The source of the chunks, {@code null} if not opened yet or already closed. Only accessed by the drain.
+		 */
+		private ChunkSource source;
+
+		/**
+		 * Creates a new subscription.
+		 *
+		 * @param subscriber The subscriber to signal, not null
+		 */
+		private ChunkSubscription(final Flow.Subscriber<? super Chunk> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			// The source is closed by the drain, which might be generating chunks from it right now
+			scheduleDrain();
+		}
+
+		@Override
+		public void request(final long n) {
+			if (n <= 0) {
+				fail(new IllegalArgumentException("The amount of requested chunks must be positive, was: " + n));
+				return;
+			}
+			demand.getAndAccumulate(n, (current, added) -> {
+				final long sum = current + added;
+				return sum < 0 ? Long.MAX_VALUE : sum;
+			});
+			scheduleDrain();
+		}
+
+		/**
+		 * Closes the source, if opened and not closed yet. Must only be called by the drain.
+		 */
+		private void closeSource() {
+			if (source == null) {
+				return;
+			}
+			try {
+				source.close();
+			} catch (final UncheckedIOException ignored) {
+				// The subscription has already ended, the failure can not be signaled anymore
+			} finally {
+				source = null;
+			}
+		}
+
+		/**
+		 * Generates and signals chunks as long as there is demand.
+		 */
+		private void drain() {
+			int missedDrains = 1;
+			do {
+				if (cancelled) {
+					closeSource();
+				} else {
+					drainOnce();
+				}
+				missedDrains = pendingDrains.addAndGet(-missedDrains);
+			} while (missedDrains != 0);
+		}
+
+		/**
+		 * Generates and signals the requested chunks, completes the subscription once all chunks have been signaled.
+		 */
+		@SuppressWarnings("OverlyBroadCatchBlock")
+		private void drainOnce() {
+			if (failure != null) {
+				terminate();
+				subscriber.onError(failure);
+				return;
+			}
+
+			try {
+				if (!opened) {
+					opened = true;
+					source = openSource();
+					if (cancelled) {
+						closeSource();
+						return;
+					}
+				}
+				final ChunkSource chunks = source;
+				if (chunks == null) {
+					return;
+				}
+
+				long requested = demand.get();
+				while (requested != 0) {
+					long emitted = 0;
+					while (emitted != requested && chunks.hasNext()) {
+						final Chunk chunk = chunks.next();
+						if (cancelled) {
+							return;
+						}
+						subscriber.onNext(chunk);
+						emitted++;
+						if (cancelled) {
+							return;
+						}
+					}
+					requested = requested == Long.MAX_VALUE ? Long.MAX_VALUE : demand.addAndGet(-emitted);
+					if (emitted == 0) {
+						break;
+					}
+				}
+
+				if (!cancelled && !chunks.hasNext()) {
+					terminate();
+					subscriber.onComplete();
+				}
+			} catch (final IOException e) {
+				onFailure(new UncheckedIOException(e));
+			} catch (final RuntimeException e) {
+				onFailure(e);
+			}
+		}
+
+		/**
+		 * Fails the subscription, the failure is signaled to the subscriber by the drain.
+		 *
+		 * @param reason The reason of the failure, not null
+		 */
+		private void fail(final Throwable reason) {
+			failure = reason;
+			scheduleDrain();
+		}
+
+		/**
+		 * Signals the given failure to the subscriber, unless the subscription has been cancelled.
+		 *
+		 * @param reason The reason of the failure, not null
+		 */
+		private void onFailure(final Throwable reason) {
+			if (!cancelled) {
+				terminate();
+				subscriber.onError(reason);
+			}
+		}
+
+		/**
+		 * Schedules a drain on the executor, unless one is already running.
+		 */
+		private void scheduleDrain() {
+			if (pendingDrains.getAndIncrement() != 0) {
+				return;
+			}
+			try {
+				executor.execute(this::drain);
+			} catch (final RejectedExecutionException e) {
+				// No drain is running and none will run anymore, hence the source is closed here
+				if (cancelled) {
+					closeSource();
+				} else {
+					onFailure(e);
+				}
+			}
+		}
+
+		/**
+		 * Terminates the subscription, no further signals are sent. Must only be called by the drain.
+		 */
+		private void terminate() {
+			cancelled = true;
+			closeSource();
+		}
+	}
+}
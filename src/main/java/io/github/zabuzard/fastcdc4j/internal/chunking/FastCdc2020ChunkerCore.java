@@ -0,0 +1,271 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.IterativeStreamChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Implementation of an iterative stream chunker core that chunks according to the FastCDC algorithm as revised in 2020
+ * (by Wen Xia et al. (<a href="https://ieeexplore.ieee.org/document/9055082">publication</a>)).
+ * <p>
+ * Compared to {@link FastCdcChunkerCore}, the fingerprint is rolled by two bytes per iteration. The hash of the first
+ * byte is looked up in a table that is pre-shifted by one bit and checked against a pre-shifted mask, which halves the
+ * amount of loop iterations.
+ * <p>
+ * The highest bit of the masks is ignored, it would be shifted out of the pre-shifted masks. Apart from that, the
+ * cut-points are the same as the ones of a {@link FastCdcChunkerCore} with the same configuration.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class FastCdc2020ChunkerCore implements IterativeStreamChunkerCore, BufferChunkerCore {
+	/**
+	 * The expected average size for a single chunk, in bytes.
+	 */
+	private final int expectedSize;
+	/**
+	 * The hash table, also known as {@code gear} used as noise to improve the splitting behavior for relatively similar
+	 * content.
+	 */
+	private final long[] gear;
+	/**
+	 * The hash table {@link #gear}, with all hashes shifted to the left by one bit.
+	 */
+	private final long[] gearShifted;
+	/**
+	 * Mask for the fingerprint that is used for bigger windows, to increase the likelihood of a split.
+	 */
+	private final long maskLarge;
+	/**
+	 * The mask {@link #maskLarge}, shifted to the left by one bit.
+	 */
+	private final long maskLargeShifted;
+	/**
+	 * Mask for the fingerprint that is used for smaller windows, to decrease the likelihood of a split.
+	 */
+	private final long maskSmall;
+	/**
+	 * The mask {@link #maskSmall}, shifted to the left by one bit.
+	 */
+	private final long maskSmallShifted;
+	/**
+	 * The maximal size for a single chunk, in bytes.
+	 */
+	private final int maxSize;
+	/**
+	 * The minimal size for a single chunk, in bytes.
+	 */
+	private final int minSize;
+
+	/**
+	 * Creates a new core.
+	 *
+	 * @param expectedSize The expected size for a single chunk, in bytes, must be positive
+	 * @param minSize      The minimal size for a single chunk, in bytes, must be positive and less equals expected
+	 *                     size
+	 * @param maxSize      The maximal size for a single chunk, in bytes, must be positive and greater equals expected
+	 *                     size
+	 * @param gear         The hash table, also known as {@code gear} used as noise to improve the splitting behavior
+	 *                     for relatively similar content, must have a length of exactly 256, one hash per byte value
+	 * @param maskSmall    Mask for the fingerprint that is used for smaller windows, to decrease the likelihood of a
+	 *                     split. The highest bit is ignored.
+	 * @param maskLarge    Mask for the fingerprint that is used for bigger windows, to increase the likelihood of a
+	 *                     split. The highest bit is ignored.
+	 */
+	@SuppressWarnings("ConstructorWithTooManyParameters")
+	public FastCdc2020ChunkerCore(final int expectedSize, final int minSize, final int maxSize, final long[] gear,
+			final long maskSmall, final long maskLarge) {
+		Validations.require(minSize <= expectedSize, "Min size must be less equals expected size");
+		Validations.require(maxSize >= expectedSize, "Max size must be greater equals expected size");
+		Objects.requireNonNull(gear);
+		//noinspection MagicNumber
+		Validations.require(gear.length == 256,
+				"Gear must have a length of 256, one hash per byte value, was: " + gear.length);
+
+		this.expectedSize = Validations.requirePositive(expectedSize, "Expected size");
+		this.minSize = Validations.requirePositive(minSize, "Min size");
+		this.maxSize = Validations.requirePositive(maxSize, "Max size");
+		this.gear = gear.clone();
+		gearShifted = HashTables.getShiftedLeft(gear);
+		this.maskSmall = maskSmall & Long.MAX_VALUE;
+		this.maskLarge = maskLarge & Long.MAX_VALUE;
+		maskSmallShifted = this.maskSmall << 1;
+		maskLargeShifted = this.maskLarge << 1;
+	}
+
+	@Override
+	public int getMaximalChunkSize() {
+		return maxSize;
+	}
+
+	@Override
+	public int scan(final ByteBuffer data, final int start, final int end, final ScanState state) {
+		Objects.requireNonNull(data);
+		Objects.requireNonNull(state);
+		Validations.requirePositive(start, "Start");
+		Validations.require(end >= start, "End must be greater equals start");
+
+		int normalSize = expectedSize;
+		//noinspection StandardVariableNames,NumericCastThatLosesPrecision
+		final int n = (int) Math.min(state.getAvailable(), maxSize);
+		if (n <= normalSize) {
+			normalSize = n;
+		}
+
+		//noinspection NumericCastThatLosesPrecision
+		final int position = (int) state.getPosition();
+		// Translates a position in the chunk to an index in the buffer
+		final int indexOffset = start - position;
+		//noinspection NumericCastThatLosesPrecision
+		final int scanEnd = (int) Math.min(n, (long) position + end - start);
+
+		long fingerprint = state.getFingerprint();
+		// Bytes below the minimal size can not contain a cut-point
+		final int i = Math.max(position, minSize);
+
+		final int normalScanEnd = Math.min(normalSize, scanEnd);
+		// Bytes are rolled in pairs, the last byte of an odd range is rolled on its own
+		final int normalPairsEnd = normalScanEnd - 1 + indexOffset;
+		int index = i + indexOffset;
+		//noinspection ForLoopWithMissingComponent
+		for (; index < normalPairsEnd; index += 2) {
+			// Pre-shifted, the fingerprint after the first byte is shifted by one bit. Both bytes are checked with a
+			// single branch, which is rarely taken
+			final long firstFingerprint = (fingerprint << 2) + gearShifted[data.get(index) & 0xFF];
+			fingerprint = firstFingerprint + gear[data.get(index + 1) & 0xFF];
+			if (((firstFingerprint & maskSmallShifted) == 0) | ((fingerprint & maskSmall) == 0)) {
+				return (firstFingerprint & maskSmallShifted) == 0 ? index + 1 : index + 2;
+			}
+		}
+		if (index < normalScanEnd + indexOffset) {
+			fingerprint = (fingerprint << 1) + gear[data.get(index) & 0xFF];
+			if ((fingerprint & maskSmall) == 0) {
+				return index + 1;
+			}
+			index++;
+		}
+		final int pairsEnd = scanEnd - 1 + indexOffset;
+		//noinspection ForLoopWithMissingComponent
+		for (; index < pairsEnd; index += 2) {
+			final long firstFingerprint = (fingerprint << 2) + gearShifted[data.get(index) & 0xFF];
+			fingerprint = firstFingerprint + gear[data.get(index + 1) & 0xFF];
+			if (((firstFingerprint & maskLargeShifted) == 0) | ((fingerprint & maskLarge) == 0)) {
+				return (firstFingerprint & maskLargeShifted) == 0 ? index + 1 : index + 2;
+			}
+		}
+		if (index < scanEnd + indexOffset) {
+			fingerprint = (fingerprint << 1) + gear[data.get(index) & 0xFF];
+			if ((fingerprint & maskLarge) == 0) {
+				return index + 1;
+			}
+		}
+
+		if (scanEnd == n) {
+			return n + indexOffset;
+		}
+		state.update(scanEnd, fingerprint);
+		return -1;
+	}
+
+	@Override
+	public byte[] readNextChunk(final InputStream stream, final long size, final long currentOffset) {
+		Objects.requireNonNull(stream);
+		Validations.requirePositiveNonZero(size, "Size");
+		Validations.requirePositive(currentOffset, "Current offset");
+		Validations.require(currentOffset < size, "Current offset must be less than size");
+
+		try (final ByteArrayOutputStream dataBuffer = new ByteArrayOutputStream()) {
+			int normalSize = expectedSize;
+			//noinspection StandardVariableNames
+			long n = size - currentOffset;
+			if (n <= 0) {
+				throw new IllegalArgumentException(
+						"Attempting to read the next chunk but out of available bytes, as indicated by size");
+			}
+			if (n <= minSize) {
+				return stream.readNBytes((int) n);
+			}
+			if (n >= maxSize) {
+				n = maxSize;
+			} else if (n <= normalSize) {
+				normalSize = (int) n;
+			}
+
+			long fingerprint = 0;
+			int i = minSize;
+			dataBuffer.write(stream.readNBytes(i));
+
+			//noinspection ForLoopWithMissingComponent
+			for (; i + 1 < normalSize; i += 2) {
+				final int first = FastCdc2020ChunkerCore.readByte(stream);
+				dataBuffer.write(first);
+				fingerprint = (fingerprint << 2) + gearShifted[first];
+				if ((fingerprint & maskSmallShifted) == 0) {
+					return dataBuffer.toByteArray();
+				}
+				final int second = FastCdc2020ChunkerCore.readByte(stream);
+				dataBuffer.write(second);
+				fingerprint += gear[second];
+				if ((fingerprint & maskSmall) == 0) {
+					return dataBuffer.toByteArray();
+				}
+			}
+			if (i < normalSize) {
+				final int data = FastCdc2020ChunkerCore.readByte(stream);
+				dataBuffer.write(data);
+				fingerprint = (fingerprint << 1) + gear[data];
+				if ((fingerprint & maskSmall) == 0) {
+					return dataBuffer.toByteArray();
+				}
+				i++;
+			}
+			//noinspection ForLoopWithMissingComponent
+			for (; i + 1 < n; i += 2) {
+				final int first = FastCdc2020ChunkerCore.readByte(stream);
+				dataBuffer.write(first);
+				fingerprint = (fingerprint << 2) + gearShifted[first];
+				if ((fingerprint & maskLargeShifted) == 0) {
+					return dataBuffer.toByteArray();
+				}
+				final int second = FastCdc2020ChunkerCore.readByte(stream);
+				dataBuffer.write(second);
+				fingerprint += gear[second];
+				if ((fingerprint & maskLarge) == 0) {
+					return dataBuffer.toByteArray();
+				}
+			}
+			if (i < n) {
+				dataBuffer.write(FastCdc2020ChunkerCore.readByte(stream));
+			}
+
+			return dataBuffer.toByteArray();
+
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the next byte from the given stream.
+	 *
+	 * @param stream The stream to read from
+	 *
+	 * @return The byte read, as value between {@code 0} and {@code 255}
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static int readByte(final InputStream stream) throws IOException {
+		final int data = stream.read();
+		if (data == -1) {
+			throw new IllegalStateException("Attempting to read a byte from the stream but the stream has ended");
+		}
+		return data;
+	}
+}
@@ -1,12 +1,15 @@
 package io.github.zabuzard.fastcdc4j.internal.chunking;
 
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
 import io.github.zabuzard.fastcdc4j.external.chunking.IterativeStreamChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
 import io.github.zabuzard.fastcdc4j.internal.util.Validations;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -15,7 +18,7 @@ import java.util.Objects;
  *
  * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
  */
-public final class FastCdcChunkerCore implements IterativeStreamChunkerCore {
+public final class FastCdcChunkerCore implements IterativeStreamChunkerCore, BufferChunkerCore {
 	/**
 	 * The expected average size for a single chunk, in bytes.
 	 */
@@ -75,6 +78,63 @@ public final class FastCdcChunkerCore implements IterativeStreamChunkerCore {
 		this.maskLarge = maskLarge;
 	}
 
+	@Override
+	public int getMaximalChunkSize() {
+		return maxSize;
+	}
+
+	@Override
+	public int scan(final ByteBuffer data, final int start, final int end, final ScanState state) {
+		Objects.requireNonNull(data);
+		Objects.requireNonNull(state);
+		Validations.requirePositive(start, "Start");
+		Validations.require(end >= start, "End must be greater equals start");
+
+		int normalSize = expectedSize;
+		//noinspection StandardVariableNames,NumericCastThatLosesPrecision
+		final int n = (int) Math.min(state.getAvailable(), maxSize);
+		if (n <= normalSize) {
+			normalSize = n;
+		}
+
+		//noinspection NumericCastThatLosesPrecision
+		final int position = (int) state.getPosition();
+		// Translates a position in the chunk to an index in the buffer
+		final int indexOffset = start - position;
+		//noinspection NumericCastThatLosesPrecision
+		final int scanEnd = (int) Math.min(n, (long) position + end - start);
+
+		long fingerprint = state.getFingerprint();
+		// Bytes below the minimal size can not contain a cut-point
+		int i = Math.max(position, minSize);
+
+		final int normalScanEnd = Math.min(normalSize, scanEnd);
+		// The loops are deliberately scalar. Since the fingerprint only depends on the last 64 bytes, several positions
+		// could be hashed at once in independent lanes, each warmed up on the 64 bytes in front of it. However, the gear
+		// lookup is data-dependent and most lanes hash past the cut-point, so four lanes in lockstep reached about 0.2
+		// GB/s against 1.2 GB/s of these loops, see GearScanBenchmark.
+		//noinspection ForLoopWithMissingComponent
+		for (; i < normalScanEnd; i++) {
+			fingerprint = (fingerprint << 1) + gear[data.get(i + indexOffset) & 0xFF];
+			if ((fingerprint & maskSmall) == 0) {
+				return i + indexOffset + 1;
+			}
+		}
+		//noinspection ForLoopWithMissingComponent
+		for (; i < scanEnd; i++) {
+			fingerprint = (fingerprint << 1) + gear[data.get(i + indexOffset) & 0xFF];
+			if ((fingerprint & maskLarge) == 0) {
+				return i + indexOffset + 1;
+			}
+		}
+
+		if (scanEnd == n) {
+			return n + indexOffset;
+		}
+		state.update(scanEnd, fingerprint);
+		return -1;
+	}
+
 	@Override
 	public byte[] readNextChunk(final InputStream stream, final long size, final long currentOffset) {
 		Objects.requireNonNull(stream);
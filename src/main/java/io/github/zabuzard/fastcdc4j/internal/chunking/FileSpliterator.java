@@ -0,0 +1,177 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.FileChunk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spliterator over the chunks of a list of regular files, tagged as {@link FileChunk}s.
+ * <p>
+ * The spliterator splits by file. Once only a single file remains, it splits the spliterator of the file, if supported,
+ * for example by byte range. Empty files are skipped.
+ * <p>
+ * The amount of chunks is not known before the files have been chunked, the estimated size is the amount of remaining
+ * bytes, an upper bound.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class FileSpliterator implements Spliterator<Chunk> {
+	/**
+	 * The characteristics of this spliterator.
+	 */
+	private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+	/**
+	 * Function providing the spliterator over the chunks of a single regular file.
+	 */
+	private final Function<? super Path, ? extends Spliterator<Chunk>> fileSpliterators;
+	/**
+	 * The files to chunk.
+	 */
+	private final Path[] files;
+	/**
+	 * The sum of the sizes of all files preceding the file at the given index. Contains an additional entry for the sum
+	 * of all sizes.
+	 */
+	private final long[] sizeSums;
+	/**
+	 * The index of the file after the last file covered by this spliterator.
+	 */
+	private final int toFile;
+	/**
+	 * The file currently traversed, {@code null} if none.
+	 */
+	private Path currentFile;
+	/**
+	 * The spliterator over the chunks of the file currently traversed, {@code null} if none.
+	 */
+	private Spliterator<Chunk> currentSpliterator;
+	/**
+	 * The index of the next file to traverse.
+	 */
+	private int fromFile;
+
+	/**
+	 * Creates a new spliterator over the chunks of the given files.
+	 *
+	 * @param files            The regular files to chunk, not null
+	 * @param fileSpliterators Function providing the spliterator over the chunks of a single regular file, not null
+	 */
+	public FileSpliterator(final List<? extends Path> files,
+			final Function<? super Path, ? extends Spliterator<Chunk>> fileSpliterators) {
+		this.files = files.toArray(new Path[0]);
+		this.fileSpliterators = Objects.requireNonNull(fileSpliterators);
+		sizeSums = new long[this.files.length + 1];
+		for (int i = 0; i < this.files.length; i++) {
+			try {
+				sizeSums[i + 1] = sizeSums[i] + Files.size(this.files[i]);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		toFile = this.files.length;
+	}
+
+	/**
+	 * Creates a new spliterator over the chunks of the given range of files, starting with the remaining chunks of the
+	 * given spliterator.
+	 *
+	 * @param parent             The spliterator whose files are covered, not null
+	 * @param fromFile           The index of the first file covered by this spliterator, after the current file
+	 * @param toFile             The index of the file after the last file covered by this spliterator
+	 * @param currentFile        The file currently traversed, {@code null} if none
+	 * @param currentSpliterator The spliterator over the chunks of the file currently traversed, {@code null} if none
+	 */
+	private FileSpliterator(final FileSpliterator parent, final int fromFile, final int toFile,
+			final Path currentFile, final Spliterator<Chunk> currentSpliterator) {
+		files = parent.files;
+		sizeSums = parent.sizeSums;
+		fileSpliterators = parent.fileSpliterators;
+		this.fromFile = fromFile;
+		this.toFile = toFile;
+		this.currentFile = currentFile;
+		this.currentSpliterator = currentSpliterator;
+	}
+
+	@Override
+	public int characteristics() {
+		return FileSpliterator.CHARACTERISTICS;
+	}
+
+	@Override
+	public long estimateSize() {
+		final long remainingFiles = sizeSums[toFile] - sizeSums[fromFile];
+		return currentSpliterator == null ? remainingFiles : remainingFiles + currentSpliterator.estimateSize();
+	}
+
+	@Override
+	public boolean tryAdvance(final Consumer<? super Chunk> action) {
+		Objects.requireNonNull(action);
+		while (true) {
+			if (currentSpliterator != null) {
+				final Path file = currentFile;
+				if (currentSpliterator.tryAdvance(chunk -> action.accept(new SimpleFileChunk(chunk, file)))) {
+					return true;
+				}
+				currentSpliterator = null;
+				currentFile = null;
+			}
+			if (!openNextFile()) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public Spliterator<Chunk> trySplit() {
+		if (currentSpliterator == null && toFile - fromFile == 1) {
+			openNextFile();
+		}
+
+		if (fromFile == toFile) {
+			// Only the current file remains, split it
+			if (currentSpliterator == null) {
+				return null;
+			}
+			final Spliterator<Chunk> prefix = currentSpliterator.trySplit();
+			return prefix == null ? null : new FileSpliterator(this, toFile, toFile, currentFile, prefix);
+		}
+
+		// The prefix takes over the current file, if any, hence at least two files remain otherwise
+		final int middleFile = (fromFile + toFile) >>> 1;
+		final Spliterator<Chunk> prefix =
+				new FileSpliterator(this, fromFile, middleFile, currentFile, currentSpliterator);
+		fromFile = middleFile;
+		currentFile = null;
+		currentSpliterator = null;
+		return prefix;
+	}
+
+	/**
+	 * Opens the next non-empty file as the current file, if any.
+	 *
+	 * @return Whether a file has been opened, {@code false} if no files remain
+	 */
+	private boolean openNextFile() {
+		while (fromFile < toFile) {
+			final Path file = files[fromFile];
+			final boolean isEmpty = sizeSums[fromFile + 1] == sizeSums[fromFile];
+			fromFile++;
+			if (!isEmpty) {
+				currentFile = file;
+				currentSpliterator = fileSpliterators.apply(file);
+				return true;
+			}
+		}
+		return false;
+	}
+}
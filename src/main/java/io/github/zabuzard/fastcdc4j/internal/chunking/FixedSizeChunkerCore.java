@@ -1,11 +1,14 @@
 package io.github.zabuzard.fastcdc4j.internal.chunking;
 
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
 import io.github.zabuzard.fastcdc4j.external.chunking.IterativeStreamChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
 import io.github.zabuzard.fastcdc4j.internal.util.Validations;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -14,7 +17,7 @@ import java.util.Objects;
  *
  * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
  */
-public final class FixedSizeChunkerCore implements IterativeStreamChunkerCore {
+public final class FixedSizeChunkerCore implements IterativeStreamChunkerCore, BufferChunkerCore {
 	/**
 	 * The fixed chunk size to use for splitting.
 	 */
@@ -29,6 +32,30 @@ public final class FixedSizeChunkerCore implements IterativeStreamChunkerCore {
 		this.chunkSize = Validations.requirePositiveNonZero(chunkSize, "Chunk size");
 	}
 
+	@Override
+	public int getMaximalChunkSize() {
+		return chunkSize;
+	}
+
+	@Override
+	public int scan(final ByteBuffer data, final int start, final int end, final ScanState state) {
+		Objects.requireNonNull(data);
+		Objects.requireNonNull(state);
+		Validations.requirePositive(start, "Start");
+		Validations.require(end >= start, "End must be greater equals start");
+
+		//noinspection NumericCastThatLosesPrecision
+		final int length = (int) Math.min(state.getAvailable(), chunkSize);
+		final long scanEnd = state.getPosition() + end - start;
+		if (scanEnd >= length) {
+			//noinspection NumericCastThatLosesPrecision
+			return start + length - (int) state.getPosition();
+		}
+
+		state.update(scanEnd, 0);
+		return -1;
+	}
+
 	@Override
 	public byte[] readNextChunk(final InputStream stream, final long size, final long currentOffset) {
 		Objects.requireNonNull(stream);
@@ -139,4 +139,20 @@ public enum HashTables {
 	public static long[] getRtpal() {
 		return HashTables.RTPAL.clone();
 	}
+
+	/**
+	 * Gets a copy of the given table with all hashes shifted to the left by one bit. Used by chunkers that roll two
+	 * bytes per iteration, the hash of the first byte is then pre-shifted by the table.
+	 *
+	 * @param table The table to shift, not null
+	 *
+	 * @return The shifted table
+	 */
+	public static long[] getShiftedLeft(final long[] table) {
+		final long[] shiftedTable = new long[table.length];
+		for (int i = 0; i < table.length; i++) {
+			shiftedTable[i] = table[i] << 1;
+		}
+		return shiftedTable;
+	}
 }
@@ -0,0 +1,246 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChangedRange;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkMetadata;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Iterator over the chunk metadata of the current version of a file that reuses the chunks of a previous version
+ * wherever the file did not change.
+ * <p>
+ * The cut-point of a chunk only depends on its own data and on the amount of data available after its start, capped at
+ * the maximal chunk size. Hence, a previous chunk is reused if its data did not change and the available data is either
+ * unchanged or at least the maximal chunk size in both versions. Otherwise, a chunk is scanned and hashed from the
+ * current version. Scanning starts at the last reused cut-point before a changed range and stops reusing chunks again
+ * once a cut-point lines up with the start of a previous chunk.
+ * <p>
+ * Scanned data is read from the file in blocks of twice the maximal chunk size, the file is only opened for reading a
+ * block.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class IncrementalChunkIterator implements Iterator<ChunkMetadata> {
+	/**
+	 * The data read from the file, starting at {@link #bufferOffset}.
+	 */
+	private final ByteBuffer buffer;
+	/**
+	 * The ranges that changed since the previous version, ordered by their offset.
+	 */
+	private final ChangedRange[] changedRanges;
+	/**
+	 * The core to use for chunking.
+	 */
+	private final BufferChunkerCore core;
+	/**
+	 * The file to chunk.
+	 */
+	private final Path file;
+	/**
+	 * The hasher to use for hashing the data of a chunk.
+	 */
+	private final ChunkHasher hasher;
+	/**
+	 * The metadata of the chunks of the previous version, in order.
+	 */
+	private final ChunkMetadata[] previousChunks;
+	/**
+	 * The offsets of the chunks of the previous version, in order.
+	 */
+	private final long[] previousOffsets;
+	/**
+	 * The size of the previous version of the file.
+	 */
+	private final long previousSize;
+	/**
+	 * The size of the current version of the file.
+	 */
+	private final long size;
+	/**
+	 * The state used while scanning.
+	 */
+	private final ScanState state = new ScanState();
+	/**
+	 * The amount of valid bytes in {@link #buffer}.
+	 */
+	private int bufferLength;
+	/**
+	 * The offset in the file at which the data in {@link #buffer} begins.
+	 */
+	private long bufferOffset;
+	/**
+	 * The index of the first changed range that does not end before {@link #offset}.
+	 */
+	private int changedRangeIndex;
+	/**
+	 * The offset of the next chunk in the current version.
+	 */
+	private long offset;
+	/**
+	 * The difference between offsets in the current and the previous version at {@link #offset}, given by all changed
+	 * ranges before.
+	 */
+	private long shift;
+
+	/**
+	 * Creates a new iterator.
+	 *
+	 * @param file           The current version of the regular file to chunk, not null
+	 * @param previousChunks The metadata of all chunks of the previous version, in order, not null
+	 * @param changedRanges  The ranges that changed since the previous version, ordered by their offset and not
+	 *                       overlapping, not null
+	 * @param core           The core to use for chunking, the same as used for the previous version, not null
+	 * @param hasher         The hasher to use for hashing the data of a chunk, the same as used for the previous
+	 *                       version, not null
+	 */
+	public IncrementalChunkIterator(final Path file, final List<? extends ChunkMetadata> previousChunks,
+			final List<ChangedRange> changedRanges, final BufferChunkerCore core, final ChunkHasher hasher) {
+		this.file = Objects.requireNonNull(file);
+		this.core = Objects.requireNonNull(core);
+		this.hasher = Objects.requireNonNull(hasher);
+		this.previousChunks = previousChunks.toArray(new ChunkMetadata[0]);
+		this.changedRanges = changedRanges.toArray(new ChangedRange[0]);
+		try {
+			size = Files.size(file);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		previousOffsets = new long[this.previousChunks.length];
+		long previousEnd = 0;
+		for (int i = 0; i < this.previousChunks.length; i++) {
+			Validations.require(this.previousChunks[i].getOffset() == previousEnd,
+					"Previous chunks must be in order and cover the previous version without gaps");
+			previousOffsets[i] = previousEnd;
+			previousEnd += this.previousChunks[i].getLength();
+		}
+		previousSize = previousEnd;
+
+		long changedEnd = 0;
+		long totalShift = 0;
+		for (final ChangedRange changedRange : this.changedRanges) {
+			Validations.require(changedRange.getOffset() >= changedEnd,
+					"Changed ranges must be ordered by their offset and not overlap");
+			changedEnd = changedRange.getOffset() + changedRange.getLength();
+			totalShift += changedRange.getLength() - changedRange.getPreviousLength();
+		}
+		Validations.require(changedEnd <= size, "Changed ranges must be within the file");
+		Validations.require(previousSize + totalShift == size,
+				"Changed ranges must explain the difference between the previous and the current size");
+
+		buffer = ByteBuffer.allocate(2 * core.getMaximalChunkSize());
+	}
+
+	@Override
+	public boolean hasNext() {
+		return offset < size;
+	}
+
+	@Override
+	public ChunkMetadata next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		while (changedRangeIndex < changedRanges.length && changedRanges[changedRangeIndex].getOffset()
+				+ changedRanges[changedRangeIndex].getLength() <= offset) {
+			final ChangedRange changedRange = changedRanges[changedRangeIndex];
+			shift += changedRange.getLength() - changedRange.getPreviousLength();
+			changedRangeIndex++;
+		}
+
+		final ChunkMetadata previousChunk = findReusableChunk();
+		final ChunkMetadata chunk = previousChunk != null ? new SimpleChunkMetadata(offset, previousChunk.getLength(),
+				previousChunk.getHash(), previousChunk.getHexHash()) : scanChunk();
+		offset += chunk.getLength();
+		return chunk;
+	}
+
+	/**
+	 * Finds the chunk of the previous version that can be reused at the current offset.
+	 *
+	 * @return The reusable chunk of the previous version, or {@code null} if the chunk has to be scanned
+	 */
+	private ChunkMetadata findReusableChunk() {
+		final long previousOffset = offset - shift;
+		final int index = Arrays.binarySearch(previousOffsets, previousOffset);
+		if (index < 0) {
+			return null;
+		}
+
+		final ChunkMetadata previousChunk = previousChunks[index];
+		final long end = offset + previousChunk.getLength();
+		if (changedRangeIndex < changedRanges.length && end > changedRanges[changedRangeIndex].getOffset()) {
+			return null;
+		}
+
+		final long maximalSize = core.getMaximalChunkSize();
+		final long available = size - offset;
+		final long previousAvailable = previousSize - previousOffset;
+		if (available != previousAvailable && (available < maximalSize || previousAvailable < maximalSize)) {
+			return null;
+		}
+		return previousChunk;
+	}
+
+	/**
+	 * Reads the data at the given offset into the buffer, unless it is already contained.
+	 *
+	 * @param length The amount of bytes to read, starting at the current offset, at most the size of the buffer
+	 */
+	private void read(final int length) {
+		if (offset >= bufferOffset && offset + length <= bufferOffset + bufferLength) {
+			return;
+		}
+
+		buffer.clear();
+		//noinspection NumericCastThatLosesPrecision
+		buffer.limit((int) Math.min(buffer.capacity(), size - offset));
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, offset + buffer.position()) == -1) {
+					throw new IOException("File ended before its size was reached, it was modified concurrently");
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		bufferOffset = offset;
+		bufferLength = buffer.position();
+	}
+
+	/**
+	 * Scans and hashes the chunk at the current offset.
+	 *
+	 * @return The scanned chunk
+	 */
+	private ChunkMetadata scanChunk() {
+		//noinspection NumericCastThatLosesPrecision
+		final int length = (int) Math.min(core.getMaximalChunkSize(), size - offset);
+		read(length);
+
+		//noinspection NumericCastThatLosesPrecision
+		final int start = (int) (offset - bufferOffset);
+		state.reset(size - offset);
+		final int cut = core.scan(buffer, start, start + length, state);
+		final byte[] hash = hasher.hash(buffer.slice(start, cut - start));
+		return new SimpleChunkMetadata(offset, cut - start, hash, Util.bytesToHex(hash));
+	}
+}
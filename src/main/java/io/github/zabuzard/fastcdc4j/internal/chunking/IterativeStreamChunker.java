@@ -1,14 +1,12 @@
 package io.github.zabuzard.fastcdc4j.internal.chunking;
 
 import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
 import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
 import io.github.zabuzard.fastcdc4j.external.chunking.IterativeStreamChunkerCore;
-import io.github.zabuzard.fastcdc4j.internal.util.Util;
 import io.github.zabuzard.fastcdc4j.internal.util.Validations;
 
 import java.io.InputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -25,34 +23,26 @@ public final class IterativeStreamChunker implements Chunker {
 	 */
 	private final IterativeStreamChunkerCore core;
 	/**
-	 * The method to use for hashing the data of a chunk.
+	 * The hasher to use for hashing the data of a chunk.
 	 */
-	private final String hashMethod;
+	private final ChunkHasher hasher;
 
 	/**
 	 * Creates a new chunker.
 	 *
-	 * @param core       The core to use for chunking, not null
-	 * @param hashMethod The hash method to use for hashing the data of a chunk, has to be supported and accepted by
-	 *                   {@link java.security.MessageDigest}
+	 * @param core   The core to use for chunking, not null
+	 * @param hasher The hasher to use for hashing the data of a chunk, not null
 	 */
-	public IterativeStreamChunker(final IterativeStreamChunkerCore core, final String hashMethod) {
-		Objects.requireNonNull(hashMethod);
-		try {
-			MessageDigest.getInstance(hashMethod);
-		} catch (final NoSuchAlgorithmException e) {
-			throw new IllegalArgumentException("The given hash method is not supported, was: " + hashMethod, e);
-		}
-
+	public IterativeStreamChunker(final IterativeStreamChunkerCore core, final ChunkHasher hasher) {
 		this.core = Objects.requireNonNull(core);
-		this.hashMethod = hashMethod;
+		this.hasher = Objects.requireNonNull(hasher);
 	}
 
 	@Override
 	public Iterable<Chunk> chunk(final InputStream stream, final long size) {
 		Objects.requireNonNull(stream);
 		Validations.requirePositiveNonZero(size, "Size");
-		return () -> new ChunkerIterator(stream, size, core, hashMethod);
+		return () -> new ChunkerIterator(stream, size, core, hasher);
 	}
 
 	/**
@@ -66,9 +56,9 @@ public final class IterativeStreamChunker implements Chunker {
 		 */
 		private final IterativeStreamChunkerCore core;
 		/**
-		 * The method to use for hashing the data of a chunk.
+		 * The hasher to use for hashing the data of a chunk.
 		 */
-		private final String hashMethod;
+		private final ChunkHasher hasher;
 		/**
 		 * The amount of bytes available in the stream that are subject to be chunked.
 		 */
@@ -87,22 +77,14 @@ public final class IterativeStreamChunker implements Chunker {
 		 * @param size       The amount of bytes available in the stream that are subject to be chunked, the stream must
 		 *                   offer at least that many bytes, positive and not zero
 		 * @param core       The core to use for chunking, not null
-		 * @param hashMethod The hash method to use for hashing the data of a chunk, has to be supported and accepted by
-		 *                   {@link java.security.MessageDigest}
+		 * @param hasher     The hasher to use for hashing the data of a chunk, not null
 		 */
 		private ChunkerIterator(final InputStream stream, final long size, final IterativeStreamChunkerCore core,
-				final String hashMethod) {
-			Objects.requireNonNull(hashMethod);
-			try {
-				MessageDigest.getInstance(hashMethod);
-			} catch (final NoSuchAlgorithmException e) {
-				throw new IllegalArgumentException("The given hash method is not supported, was: " + hashMethod, e);
-			}
-
+				final ChunkHasher hasher) {
 			this.stream = Objects.requireNonNull(stream);
 			this.size = Validations.requirePositiveNonZero(size, "Size");
 			this.core = Objects.requireNonNull(core);
-			this.hashMethod = hashMethod;
+			this.hasher = Objects.requireNonNull(hasher);
 		}
 
 		@Override
@@ -118,7 +100,7 @@ public final class IterativeStreamChunker implements Chunker {
 
 			final byte[] data = core.readNextChunk(stream, size, currentOffset);
 
-			final Chunk chunk = new SimpleChunk(data, currentOffset, Util.hash(hashMethod, data));
+			final Chunk chunk = new SimpleChunk(data, currentOffset, hasher.hash(data));
 
 			currentOffset += data.length;
 			return chunk;
@@ -0,0 +1,121 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkCursor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Implementation of a cursor over the chunks of a given iterator, for chunkers that have no cursor of their own.
+ * <p>
+ * The chunks are still created by the iterator, hence the cursor does not save their allocation. The length of the
+ * hashes is taken from the first chunk, which is read ahead if the length is requested before advancing.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class IteratorChunkCursor implements ChunkCursor {
+	/**
+	 * The iterator over the chunks.
+	 */
+	private final Iterator<? extends Chunk> chunks;
+	/**
+	 * The resource to close together with the cursor, for example the data stream.
+	 */
+	private final Closeable resource;
+	/**
+	 * The current chunk, {@code null} if the cursor is not positioned at a chunk.
+	 */
+	private Chunk current;
+	/**
+	 * The length of the hashes of the chunks, {@code -1} if no chunk was read yet and {@code 0} if there are none.
+	 */
+	private int hashLength = -1;
+	/**
+	 * The chunk that was read ahead to determine the length of the hashes, {@code null} if there is none.
+	 */
+	private Chunk pending;
+
+	/**
+	 * Creates a new cursor.
+	 *
+	 * @param chunks   The iterator over the chunks, not null
+	 * @param resource The resource to close together with the cursor, for example the data stream, not null
+	 */
+	public IteratorChunkCursor(final Iterator<? extends Chunk> chunks, final Closeable resource) {
+		this.chunks = Objects.requireNonNull(chunks);
+		this.resource = Objects.requireNonNull(resource);
+	}
+
+	@Override
+	public void close() {
+		current = null;
+		pending = null;
+		try {
+			resource.close();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public ByteBuffer getData() {
+		return requireCurrent().getDataBuffer();
+	}
+
+	@Override
+	public void getHash(final byte[] target) {
+		final byte[] hash = requireCurrent().getHash();
+		System.arraycopy(hash, 0, target, 0, hash.length);
+	}
+
+	@Override
+	public int getHashLength() {
+		if (hashLength == -1) {
+			// Read ahead, the first chunk is returned by the next advance
+			pending = chunks.hasNext() ? chunks.next() : null;
+			hashLength = pending == null ? 0 : pending.getHash().length;
+		}
+		return hashLength;
+	}
+
+	@Override
+	public int getLength() {
+		return requireCurrent().getLength();
+	}
+
+	@Override
+	public long getOffset() {
+		return requireCurrent().getOffset();
+	}
+
+	@Override
+	public boolean next() {
+		if (pending != null) {
+			current = pending;
+			pending = null;
+		} else {
+			current = chunks.hasNext() ? chunks.next() : null;
+		}
+		if (current != null && hashLength == -1) {
+			hashLength = current.getHash().length;
+		}
+		return current != null;
+	}
+
+	/**
+	 * Requires the cursor to be positioned at a chunk.
+	 *
+	 * @return The current chunk
+	 */
+	private Chunk requireCurrent() {
+		if (current == null) {
+			throw new IllegalStateException("The cursor is not positioned at a chunk, call next() first");
+		}
+		return current;
+	}
+}
@@ -64,6 +64,45 @@ public final class MaskGenerator {
 		return Long.parseLong("1".repeat(effectiveBits), 2);
 	}
 
+	/**
+	 * Generates the mask of the lowest bits used by rolling window chunkers, which cut with a single mask. The mask is
+	 * chosen such that the resulting average chunk size is as close as possible to the expected size.
+	 * <p>
+	 * A mask of {@code k} bits cuts with a probability of {@code 2^-k} once the minimal size is reached, hence chunks
+	 * exceed the minimal size by {@code 2^k} bytes on average, unless they are cut at the maximal size before.
+	 *
+	 * @param expectedChunkSize The expected chunk size in bytes, positive and not zero
+	 * @param minimalChunkSize  The minimal chunk size in bytes, positive and less equals the expected size
+	 * @param maximalChunkSize  The maximal chunk size in bytes, greater equals the expected size
+	 *
+	 * @return The generated mask, using at most the lower 30 bits
+	 */
+	public static long generateRollingWindowMask(final int expectedChunkSize, final int minimalChunkSize,
+			final int maximalChunkSize) {
+		Validations.requirePositiveNonZero(expectedChunkSize, "Expected chunk size");
+		Validations.requirePositive(minimalChunkSize, "Minimal chunk size");
+		Validations.require(minimalChunkSize <= expectedChunkSize,
+				"Minimal chunk size must be less equals expected size");
+		Validations.require(maximalChunkSize >= expectedChunkSize,
+				"Maximal chunk size must be greater equals expected size");
+
+		long bestMask = 0;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		// Bigger masks are not supported by all rolling window chunkers
+		//noinspection MagicNumber
+		for (int bits = 0; bits <= 30; bits++) {
+			final double probability = 1.0 / (1L << bits);
+			final double averageSize = minimalChunkSize
+					+ (1 - Math.pow(1 - probability, maximalChunkSize - minimalChunkSize)) / probability;
+			final double distance = Math.abs(averageSize - expectedChunkSize);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				bestMask = (1L << bits) - 1;
+			}
+		}
+		return bestMask;
+	}
+
 	/**
 	 * Gets the amount of effective bits to use (1s) for the given expected chunk size.
 	 *
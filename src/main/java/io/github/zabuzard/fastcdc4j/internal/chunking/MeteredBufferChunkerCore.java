@@ -0,0 +1,81 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerMetrics;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Implementation of a buffer chunker core that reports the scans and cut chunks of a given core to {@link
+ * ChunkerMetrics}.
+ * <p>
+ * The cut-points are the ones of the given core. Chunks that reach the maximal size of the core while more data is
+ * available are reported as cut at the maximal size.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class MeteredBufferChunkerCore implements BufferChunkerCore {
+	/**
+	 * The core whose scans are reported.
+	 */
+	private final BufferChunkerCore core;
+	/**
+	 * The metrics to report to.
+	 */
+	private final ChunkerMetrics metrics;
+
+	/**
+	 * Creates a new core.
+	 *
+	 * @param core    The core whose scans are reported, not null
+	 * @param metrics The metrics to report to, not null
+	 */
+	public MeteredBufferChunkerCore(final BufferChunkerCore core, final ChunkerMetrics metrics) {
+		this.core = Objects.requireNonNull(core);
+		this.metrics = Objects.requireNonNull(metrics);
+	}
+
+	@Override
+	public int getMaximalChunkSize() {
+		return core.getMaximalChunkSize();
+	}
+
+	/**
+	 * Gets the core whose scans are reported.
+	 *
+	 * @return The core whose scans are reported
+	 */
+	BufferChunkerCore getCore() {
+		return core;
+	}
+
+	/**
+	 * Gets the metrics that are reported to.
+	 *
+	 * @return The metrics that are reported to
+	 */
+	ChunkerMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public int scan(final ByteBuffer data, final int start, final int end, final ScanState state) {
+		final long position = state.getPosition();
+		final long begin = System.nanoTime();
+		final int cut = core.scan(data, start, end, state);
+		final long nanos = System.nanoTime() - begin;
+
+		if (cut == -1) {
+			metrics.onScan(end - start, nanos);
+			return cut;
+		}
+		metrics.onScan(cut - start, nanos);
+		//noinspection NumericCastThatLosesPrecision
+		final int length = (int) (position + cut - start);
+		final int maximalSize = core.getMaximalChunkSize();
+		metrics.onChunk(length, length == maximalSize && state.getAvailable() > maximalSize);
+		return cut;
+	}
+}
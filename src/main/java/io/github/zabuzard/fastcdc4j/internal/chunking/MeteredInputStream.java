@@ -0,0 +1,49 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerMetrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Input stream that reports the reads from a given stream to {@link ChunkerMetrics}.
+ * <p>
+ * Intended for streams that are read in large blocks, every read is measured separately.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class MeteredInputStream extends FilterInputStream {
+	/**
+	 * The metrics to report to.
+	 */
+	private final ChunkerMetrics metrics;
+
+	/**
+	 * Creates a new stream.
+	 *
+	 * @param stream  The stream whose reads are reported, not null
+	 * @param metrics The metrics to report to, not null
+	 */
+	public MeteredInputStream(final InputStream stream, final ChunkerMetrics metrics) {
+		super(Objects.requireNonNull(stream));
+		this.metrics = Objects.requireNonNull(metrics);
+	}
+
+	@Override
+	public int read() throws IOException {
+		final long begin = System.nanoTime();
+		final int data = in.read();
+		metrics.onRead(data == -1 ? 0 : 1, System.nanoTime() - begin);
+		return data;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final long begin = System.nanoTime();
+		final int read = in.read(b, off, len);
+		metrics.onRead(Math.max(read, 0), System.nanoTime() - begin);
+		return read;
+	}
+}
@@ -0,0 +1,47 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerMetrics;
+import io.github.zabuzard.fastcdc4j.external.chunking.IterativeStreamChunkerCore;
+
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Implementation of an iterative stream chunker core that reports the chunks read by a given core to {@link
+ * ChunkerMetrics}.
+ * <p>
+ * The core reads from the stream by itself, hence the reported scans include reading the data. Since the maximal size
+ * of the core is unknown, chunks are never reported as cut at the maximal size.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class MeteredIterativeStreamChunkerCore implements IterativeStreamChunkerCore {
+	/**
+	 * The core whose chunks are reported.
+	 */
+	private final IterativeStreamChunkerCore core;
+	/**
+	 * The metrics to report to.
+	 */
+	private final ChunkerMetrics metrics;
+
+	/**
+	 * Creates a new core.
+	 *
+	 * @param core    The core whose chunks are reported, not null
+	 * @param metrics The metrics to report to, not null
+	 */
+	public MeteredIterativeStreamChunkerCore(final IterativeStreamChunkerCore core, final ChunkerMetrics metrics) {
+		this.core = Objects.requireNonNull(core);
+		this.metrics = Objects.requireNonNull(metrics);
+	}
+
+	@Override
+	public byte[] readNextChunk(final InputStream stream, final long size, final long currentOffset) {
+		final long begin = System.nanoTime();
+		final byte[] chunk = core.readNextChunk(stream, size, currentOffset);
+		metrics.onScan(chunk.length, System.nanoTime() - begin);
+		metrics.onChunk(chunk.length, false);
+		return chunk;
+	}
+}
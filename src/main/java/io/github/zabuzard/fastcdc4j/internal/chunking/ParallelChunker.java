@@ -0,0 +1,664 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChangedRange;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkCursor;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkMetadata;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkOrderOption;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.external.chunking.FileChunk;
+import io.github.zabuzard.fastcdc4j.internal.util.MappingIterator;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of a chunker that chunks multiple files in parallel, using a given chunker for the individual files.
+ * <p>
+ * Directories are traversed concurrently and the files are chunked on a work-stealing pool. All generated chunks are
+ * {@link FileChunk}s, tagged with the file they originate from. The order in which chunks are generated is given by a
+ * {@link ChunkOrderOption}. The data of chunks that have been generated but not consumed yet is bounded by a memory
+ * budget, a slow consumer hence throttles the workers.
+ * <p>
+ * Each file is chunked by {@link Chunker#chunk(Path)} of the given chunker, such that its settings, for example memory
+ * mapping or segmented chunking, still apply. Empty files are skipped. Chunk metadata of multiple files is generated in
+ * parallel as well, by {@link Chunker#chunkMetadata(Path)}, such that the data of the chunks is never materialized. The
+ * memory budget then bounds the data covered by metadata that has not been consumed yet. Data streams, buffers, channels, single files and cursors are chunked by the given chunker
+ * directly. If the consumer stops iterating before all files have been chunked, the workers are stopped once the
+ * iterator has been garbage collected.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ParallelChunker implements Chunker {
+	/**
+	 * Cleaner used to stop executions whose iterator is no longer used.
+	 */
+	private static final Cleaner CLEANER = Cleaner.create();
+	/**
+	 * The interval in which blocked threads check whether the execution has been stopped, in milliseconds.
+	 */
+	private static final long STOP_CHECK_INTERVAL_MS = 100;
+
+	/**
+	 * The chunker to use for the individual files.
+	 */
+	private final Chunker chunker;
+	/**
+	 * The maximal amount of bytes of chunk data that is generated but not consumed yet.
+	 */
+	private final long memoryBudget;
+	/**
+	 * The order in which chunks are generated.
+	 */
+	private final ChunkOrderOption order;
+	/**
+	 * The amount of files that are chunked in parallel.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Creates a new chunker.
+	 *
+	 * @param chunker      The chunker to use for the individual files, not null
+	 * @param parallelism  The amount of files that are chunked in parallel, positive and not zero
+	 * @param memoryBudget The maximal amount of bytes of chunk data that is generated but not consumed yet, positive and
+	 *                     not zero. Chunks bigger than the budget share of a file are still generated.
+	 * @param order        The order in which chunks are generated, not null
+	 */
+	public ParallelChunker(final Chunker chunker, final int parallelism, final long memoryBudget,
+			final ChunkOrderOption order) {
+		this.chunker = Objects.requireNonNull(chunker);
+		this.parallelism = Validations.requirePositiveNonZero(parallelism, "Parallelism");
+		this.memoryBudget = Validations.requirePositiveNonZero(memoryBudget, "Memory budget");
+		this.order = Objects.requireNonNull(order);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final InputStream stream, final long size) {
+		return chunker.chunk(stream, size);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final ByteBuffer data) {
+		return chunker.chunk(data);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final ReadableByteChannel channel, final long size) {
+		return chunker.chunk(channel, size);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final Stream<? extends Path> paths) {
+		Objects.requireNonNull(paths);
+		return () -> new ParallelIterator<>(new Execution(paths.filter(Files::isRegularFile)
+				.iterator(), null, false, this), Chunk::getLength);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final Path path) {
+		Objects.requireNonNull(path);
+		if (Files.isDirectory(path)) {
+			return () -> new ParallelIterator<>(new Execution(null, path, false, this), Chunk::getLength);
+		}
+		final Iterable<Chunk> chunks = chunker.chunk(path);
+		return () -> new MappingIterator<>(chunks.iterator(), chunk -> new SimpleFileChunk(chunk, path));
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final InputStream stream, final long size) {
+		return chunker.chunkMetadata(stream, size);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final ByteBuffer data) {
+		return chunker.chunkMetadata(data);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final ReadableByteChannel channel, final long size) {
+		return chunker.chunkMetadata(channel, size);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final Stream<? extends Path> paths) {
+		Objects.requireNonNull(paths);
+		return () -> new ParallelIterator<>(new Execution(paths.filter(Files::isRegularFile)
+				.iterator(), null, true, this), ChunkMetadata::getLength);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final Path path) {
+		Objects.requireNonNull(path);
+		if (!Files.isDirectory(path)) {
+			return chunker.chunkMetadata(path);
+		}
+		return () -> new ParallelIterator<>(new Execution(null, path, true, this), ChunkMetadata::getLength);
+	}
+
+	@Override
+	public CompletableFuture<Void> chunkAsync(final Path file, final Consumer<? super Chunk> action,
+			final ExecutorService executor) {
+		return chunker.chunkAsync(file, action, executor);
+	}
+
+	@Override
+	public CompletableFuture<List<ChunkMetadata>> chunkMetadataAsync(final Path file, final ExecutorService executor) {
+		return chunker.chunkMetadataAsync(file, executor);
+	}
+
+	@Override
+	public ChunkCursor cursor(final InputStream stream, final long size) {
+		return chunker.cursor(stream, size);
+	}
+
+	@Override
+	public ChunkCursor cursor(final Path file) {
+		return chunker.cursor(file);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> rechunkMetadata(final Path file, final List<? extends ChunkMetadata> previousChunks,
+			final List<ChangedRange> changedRanges) {
+		return chunker.rechunkMetadata(file, previousChunks, changedRanges);
+	}
+
+	@Override
+	public Spliterator<Chunk> spliterator(final Path file) {
+		return chunker.spliterator(file);
+	}
+
+	/**
+	 * Iterator that takes the chunks generated by an execution.
+	 *
+	 * @param <T> The type of the chunks, either {@link Chunk} or {@link ChunkMetadata}
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class ParallelIterator<T> implements Iterator<T> {
+		/**
+		 * The execution generating the chunks.
+		 */
+		private final Execution execution;
+		/**
+		 * Function that gets the length of a chunk.
+		 */
+		private final ToIntFunction<? super T> length;
+		/**
+		 * The output currently consumed, {@code null} if the next output has to be taken.
+		 */
+		private Output currentOutput;
+		/**
+		 * Whether all chunks have been consumed.
+		 */
+		private boolean finished;
+		/**
+		 * The next item to return, either a chunk or the reason the execution failed. {@code null} if not taken yet.
+		 */
+		private Object nextItem;
+
+		/**
+		 * Creates a new iterator and starts the given execution. The execution is stopped once the iterator is garbage
+		 * collected.
+		 *
+		 * @param execution The execution generating the chunks, not null
+		 * @param length    Function that gets the length of a chunk, not null
+		 */
+		private ParallelIterator(final Execution execution, final ToIntFunction<? super T> length) {
+			this.execution = Objects.requireNonNull(execution);
+			this.length = Objects.requireNonNull(length);
+			ParallelChunker.CLEANER.register(this, execution::stop);
+			execution.start();
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (nextItem == null && !finished) {
+				try {
+					if (currentOutput == null) {
+						currentOutput = execution.outputs.take();
+						if (currentOutput == Output.END_OF_OUTPUTS) {
+							finished = true;
+							execution.stop();
+							break;
+						}
+					}
+
+					final Object item = currentOutput.items.take();
+					if (item == Output.END) {
+						currentOutput = null;
+						execution.outputFinished();
+					} else {
+						nextItem = item;
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread()
+							.interrupt();
+					throw new IllegalStateException("Interrupted while waiting for the next chunk", e);
+				}
+			}
+			return nextItem != null;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("All files have been chunked, can not generate another chunk");
+			}
+
+			final Object item = nextItem;
+			nextItem = null;
+			if (item instanceof RuntimeException) {
+				execution.stop();
+				throw (RuntimeException) item;
+			}
+			if (item instanceof Error) {
+				execution.stop();
+				throw (Error) item;
+			}
+
+			// The execution only puts chunks of the type of this iterator
+			@SuppressWarnings("unchecked")
+			final T chunk = (T) item;
+			currentOutput.release(length.applyAsInt(chunk));
+			return chunk;
+		}
+	}
+
+	/**
+	 * The parallel chunking of a set of files.
+	 * <p>
+	 * A dispatcher thread admits files for chunking, either taken from a given iterator or discovered by a concurrent
+	 * traversal of a directory, and submits them to a work-stealing pool. At most {@code parallelism} files are admitted
+	 * at the same time. Admitted files put their chunks into outputs, which are taken by the consumer.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class Execution {
+		/**
+		 * Limits the amount of admitted files.
+		 */
+		private final Semaphore admissions;
+		/**
+		 * The chunker to use for the individual files.
+		 */
+		private final Chunker chunker;
+		/**
+		 * Files discovered by the traversal of {@link #directory}.
+		 */
+		private final BlockingQueue<Path> discoveredFiles = new LinkedBlockingQueue<>();
+		/**
+		 * The directory to traverse, {@code null} if {@link #files} is used.
+		 */
+		private final Path directory;
+		/**
+		 * The files to chunk, {@code null} if {@link #directory} is used.
+		 */
+		private final Iterator<? extends Path> files;
+		/**
+		 * Whether the metadata of the chunks is generated, otherwise the chunks themselves.
+		 */
+		private final boolean metadata;
+		/**
+		 * The amount of bytes of chunk data an output may hold.
+		 */
+		private final int outputCapacity;
+		/**
+		 * The outputs in the order they are consumed, terminated by {@link Output#END_OF_OUTPUTS}.
+		 */
+		private final BlockingQueue<Output> outputs = new LinkedBlockingQueue<>();
+		/**
+		 * Whether the chunks of each file are generated contiguously, otherwise all files share a single output.
+		 */
+		private final boolean ordered;
+		/**
+		 * The amount of files that are chunked in parallel.
+		 */
+		private final int parallelism;
+		/**
+		 * The amount of directories whose traversal has not finished yet.
+		 */
+		private final AtomicInteger pendingDirectories = new AtomicInteger();
+		/**
+		 * The work-stealing pool used for traversal and chunking.
+		 */
+		private final ForkJoinPool pool;
+		/**
+		 * Whether the execution has been stopped.
+		 */
+		private volatile boolean stopped;
+		/**
+		 * The reason the traversal of {@link #directory} failed, {@code null} if it did not fail.
+		 */
+		private volatile RuntimeException traversalFailure;
+
+		/**
+		 * Creates a new execution, which is not started yet. Exactly one of the given files and directory must be
+		 * given.
+		 *
+		 * @param files     The regular files to chunk, or {@code null} if a directory is given
+		 * @param directory The directory to traverse, or {@code null} if files are given
+		 * @param metadata  Whether the metadata of the chunks is generated, otherwise the chunks themselves
+		 * @param settings  The chunker providing the settings of the execution, not null
+		 */
+		private Execution(final Iterator<? extends Path> files, final Path directory, final boolean metadata,
+				final ParallelChunker settings) {
+			Validations.require(files == null ^ directory == null, "Either files or a directory must be given");
+			this.files = files;
+			this.directory = directory;
+			this.metadata = metadata;
+			chunker = settings.chunker;
+			parallelism = settings.parallelism;
+			ordered = settings.order == ChunkOrderOption.FILE_ORDERED;
+			final long budgetPerOutput = ordered ? settings.memoryBudget / parallelism : settings.memoryBudget;
+			//noinspection NumericCastThatLosesPrecision
+			outputCapacity = (int) Math.max(1, Math.min(budgetPerOutput, Integer.MAX_VALUE));
+			admissions = new Semaphore(parallelism);
+			pool = new ForkJoinPool(parallelism);
+		}
+
+		/**
+		 * Acquires the given amount of permits from the given semaphore, waiting for them to become available unless
+		 * the execution is stopped.
+		 *
+		 * @param semaphore The semaphore to acquire the permits from, not null
+		 * @param permits   The amount of permits to acquire, positive
+		 *
+		 * @return Whether the permits were acquired, {@code false} if the execution was stopped
+		 *
+		 * @throws InterruptedException If interrupted while waiting
+		 */
+		private boolean acquire(final Semaphore semaphore, final int permits) throws InterruptedException {
+			while (!stopped) {
+				if (semaphore.tryAcquire(permits, ParallelChunker.STOP_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Chunks the given file into the given output, either as chunks tagged with the file or as their metadata.
+		 * Releases the admission of the file if the output is shared.
+		 *
+		 * @param file   The file to chunk, not null
+		 * @param output The output to put the chunks into, not null
+		 */
+		private void chunkFile(final Path file, final Output output) {
+			try {
+				if (Files.size(file) == 0) {
+					return;
+				}
+				if (metadata) {
+					for (final ChunkMetadata chunk : chunker.chunkMetadata(file)) {
+						if (!output.put(chunk, chunk.getLength(), this)) {
+							return;
+						}
+					}
+					return;
+				}
+				for (final Chunk chunk : chunker.chunk(file)) {
+					if (!output.put(new SimpleFileChunk(chunk, file), chunk.getLength(), this)) {
+						return;
+					}
+				}
+			} catch (final IOException e) {
+				output.fail(new UncheckedIOException(e));
+			} catch (final InterruptedException e) {
+				output.fail(new IllegalStateException("Interrupted while chunking a file", e));
+			} catch (final RuntimeException | Error e) {
+				output.fail(e);
+			} finally {
+				if (ordered) {
+					output.items.add(Output.END);
+				} else {
+					admissions.release();
+				}
+			}
+		}
+
+		/**
+		 * Admits the files for chunking and submits them to the pool. Terminates the outputs once all files have been
+		 * chunked.
+		 */
+		private void dispatch() {
+			final Output sharedOutput = ordered ? null : new Output(outputCapacity);
+			if (sharedOutput != null) {
+				outputs.add(sharedOutput);
+			}
+			try {
+				while (true) {
+					final Path file = nextFile();
+					if (file == null || !acquire(admissions, 1)) {
+						break;
+					}
+					final Output output = ordered ? new Output(outputCapacity) : sharedOutput;
+					if (ordered) {
+						outputs.add(output);
+					}
+					pool.execute(() -> chunkFile(file, output));
+				}
+				if (sharedOutput != null && acquire(admissions, parallelism)) {
+					sharedOutput.items.add(Output.END);
+				}
+			} catch (final InterruptedException e) {
+				failDispatch(new IllegalStateException("Interrupted while dispatching files", e), sharedOutput);
+			} catch (final RuntimeException | Error e) {
+				failDispatch(e, sharedOutput);
+			} finally {
+				outputs.add(Output.END_OF_OUTPUTS);
+			}
+		}
+
+		/**
+		 * Signals the consumer that dispatching files failed.
+		 *
+		 * @param failure      The reason dispatching failed, not null
+		 * @param sharedOutput The output shared by all files, {@code null} if files have their own outputs
+		 */
+		private void failDispatch(final Throwable failure, final Output sharedOutput) {
+			final Output output = sharedOutput != null ? sharedOutput : new Output(outputCapacity);
+			output.fail(failure);
+			output.items.add(Output.END);
+			if (sharedOutput == null) {
+				outputs.add(output);
+			}
+		}
+
+		/**
+		 * Gets the next file to chunk, waiting for the traversal to discover it if necessary.
+		 *
+		 * @return The next file to chunk, or {@code null} if all files have been dispatched or the execution was
+		 * 		stopped
+		 *
+		 * @throws InterruptedException If interrupted while waiting
+		 */
+		private Path nextFile() throws InterruptedException {
+			if (files != null) {
+				return !stopped && files.hasNext() ? files.next() : null;
+			}
+
+			while (!stopped) {
+				final Path file = discoveredFiles.poll(ParallelChunker.STOP_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				if (file != null) {
+					return file;
+				}
+				if (pendingDirectories.get() == 0) {
+					final Path remainingFile = discoveredFiles.poll();
+					if (remainingFile != null) {
+						return remainingFile;
+					}
+					if (traversalFailure != null) {
+						throw traversalFailure;
+					}
+					return null;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Called by the consumer once it has consumed all chunks of an output.
+		 */
+		private void outputFinished() {
+			if (ordered) {
+				admissions.release();
+			}
+		}
+
+		/**
+		 * Starts the traversal, if a directory is given, and the dispatcher thread.
+		 */
+		private void start() {
+			if (directory != null) {
+				pendingDirectories.incrementAndGet();
+				pool.execute(() -> traverse(directory));
+			}
+
+			final Thread dispatcher = new Thread(this::dispatch, "fastcdc4j-parallel-dispatcher");
+			dispatcher.setDaemon(true);
+			dispatcher.start();
+		}
+
+		/**
+		 * Stops the execution, its threads terminate soon after.
+		 */
+		private void stop() {
+			stopped = true;
+			pool.shutdown();
+		}
+
+		/**
+		 * Traverses the given directory, forking the traversal of sub-directories and collecting regular files into
+		 * {@link #discoveredFiles}. Symbolic links to directories are not followed.
+		 *
+		 * @param currentDirectory The directory to traverse, not null
+		 */
+		private void traverse(final Path currentDirectory) {
+			try (final DirectoryStream<Path> entries = Files.newDirectoryStream(currentDirectory)) {
+				for (final Path entry : entries) {
+					if (stopped) {
+						return;
+					}
+					if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+						pendingDirectories.incrementAndGet();
+						ForkJoinTask.adapt(() -> traverse(entry))
+								.fork();
+					} else if (Files.isRegularFile(entry)) {
+						discoveredFiles.add(entry);
+					}
+				}
+			} catch (final IOException e) {
+				traversalFailure = new UncheckedIOException(e);
+			} catch (final RuntimeException e) {
+				traversalFailure = e;
+			} finally {
+				pendingDirectories.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Output of chunks whose data is bounded by a memory budget, terminated by {@link #END}.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class Output {
+		/**
+		 * Item signaling that no more chunks are put into an output.
+		 */
+		private static final Object END = new Object();
+		/**
+		 * Output signaling that no more outputs follow.
+		 */
+		private static final Output END_OF_OUTPUTS = new Output(1);
+
+		/**
+		 * The amount of bytes of chunk data the output may hold.
+		 */
+		private final int capacity;
+		/**
+		 * The items of the output, either chunks, their metadata, reasons for failures or {@link #END}.
+		 */
+		private final BlockingQueue<Object> items = new LinkedBlockingQueue<>();
+		/**
+		 * Limits the amount of bytes of chunk data held by the output.
+		 */
+		private final Semaphore memory;
+
+		/**
+		 * Creates a new output.
+		 *
+		 * @param capacity The amount of bytes of chunk data the output may hold, positive and not zero
+		 */
+		private Output(final int capacity) {
+			this.capacity = capacity;
+			memory = new Semaphore(capacity);
+		}
+
+		/**
+		 * Puts the given failure into the output.
+		 *
+		 * @param failure The reason a failure occurred, not null
+		 */
+		private void fail(final Throwable failure) {
+			items.add(failure);
+		}
+
+		/**
+		 * Puts the given chunk into the output, waiting for memory to become available unless the execution is
+		 * stopped.
+		 *
+		 * @param chunk     The chunk or its metadata to put, not null
+		 * @param length    The length of the chunk
+		 * @param execution The execution the output belongs to, not null
+		 *
+		 * @return Whether the chunk was put, {@code false} if the execution was stopped
+		 *
+		 * @throws InterruptedException If interrupted while waiting
+		 */
+		private boolean put(final Object chunk, final int length, final Execution execution)
+				throws InterruptedException {
+			if (!execution.acquire(memory, Math.min(length, capacity))) {
+				return false;
+			}
+			items.add(chunk);
+			return true;
+		}
+
+		/**
+		 * Releases the memory of a consumed chunk.
+		 *
+		 * @param length The length of the consumed chunk
+		 */
+		private void release(final int length) {
+			memory.release(Math.min(length, capacity));
+		}
+	}
+}
@@ -0,0 +1,529 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChangedRange;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkCursor;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkMetadata;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerMetrics;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of a chunker that pipelines reading, scanning for cut-points and hashing across multiple threads.
+ * <p>
+ * One thread reads blocks of the stream ahead, another thread scans them for cut-points using a given {@link
+ * BufferChunkerCore} and the chunks are hashed by a given executor. Chunks are still emitted in order of their offset.
+ * All stages are connected by bounded queues, hence a slow consumer throttles the pipeline and memory usage is bounded.
+ * <p>
+ * Small streams are chunked sequentially by a {@link BufferChunker}, since starting the pipeline would outweigh its
+ * benefits. If the consumer stops iterating before the stream ended, the pipeline is stopped once the iterator has been
+ * garbage collected.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class PipelinedChunker implements Chunker {
+	/**
+	 * The size of the blocks read from the stream, in bytes.
+	 */
+	@SuppressWarnings("MultiplyOrDivideByPowerOfTwo")
+	private static final int BLOCK_SIZE = 1_024 * 1_024;
+	/**
+	 * The amount of blocks that can be read ahead.
+	 */
+	private static final int BLOCKS_AHEAD = 4;
+	/**
+	 * The amount of chunks that can be hashed concurrently, per available processor.
+	 */
+	private static final int CHUNKS_IN_FLIGHT_PER_PROCESSOR = 4;
+	/**
+	 * Cleaner used to stop pipelines whose iterator is no longer used.
+	 */
+	private static final Cleaner CLEANER = Cleaner.create();
+	/**
+	 * The minimal size of a stream, in bytes, to chunk it using a pipeline.
+	 */
+	@SuppressWarnings("MultiplyOrDivideByPowerOfTwo")
+	private static final long MIN_PIPELINE_SIZE = 2L * PipelinedChunker.BLOCK_SIZE;
+	/**
+	 * The interval in which blocked pipeline threads check whether the pipeline has been stopped, in milliseconds.
+	 */
+	private static final long STOP_CHECK_INTERVAL_MS = 100;
+
+	/**
+	 * The core to use for chunking.
+	 */
+	private final BufferChunkerCore core;
+	/**
+	 * The executor to use for hashing the data of chunks.
+	 */
+	private final Executor executor;
+	/**
+	 * The hasher to use for hashing the data of a chunk.
+	 */
+	private final ChunkHasher hasher;
+	/**
+	 * The metrics to report reads from streams to, {@code null} if reads are not reported.
+	 */
+	private final ChunkerMetrics metrics;
+	/**
+	 * The chunker used for streams that are too small for a pipeline.
+	 */
+	private final Chunker sequentialChunker;
+
+	/**
+	 * Creates a new chunker.
+	 *
+	 * @param core     The core to use for chunking, not null
+	 * @param hasher   The hasher to use for hashing the data of a chunk, not null
+	 * @param executor The executor to use for hashing the data of chunks, not null
+	 */
+	public PipelinedChunker(final BufferChunkerCore core, final ChunkHasher hasher, final Executor executor) {
+		this(core, hasher, executor, null);
+	}
+
+	/**
+	 * Creates a new chunker that reports reads from streams to the given metrics.
+	 *
+	 * @param core     The core to use for chunking, not null
+	 * @param hasher   The hasher to use for hashing the data of a chunk, not null
+	 * @param executor The executor to use for hashing the data of chunks, not null
+	 * @param metrics  The metrics to report reads from streams to, {@code null} if reads are not reported
+	 */
+	public PipelinedChunker(final BufferChunkerCore core, final ChunkHasher hasher, final Executor executor,
+			final ChunkerMetrics metrics) {
+		this.core = Objects.requireNonNull(core);
+		this.hasher = Objects.requireNonNull(hasher);
+		this.executor = Objects.requireNonNull(executor);
+		this.metrics = metrics;
+		sequentialChunker = new BufferChunker(core, hasher, false, metrics);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final ByteBuffer data) {
+		// The data is already in memory, there is no reading to overlap
+		return sequentialChunker.chunk(data);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final InputStream stream, final long size) {
+		Objects.requireNonNull(stream);
+		Validations.requirePositiveNonZero(size, "Size");
+		if (size < PipelinedChunker.MIN_PIPELINE_SIZE) {
+			return sequentialChunker.chunk(stream, size);
+		}
+		final InputStream streamToUse = metrics == null ? stream : new MeteredInputStream(stream, metrics);
+		return () -> new PipelineIterator(new Pipeline(streamToUse, size, core, hasher, executor));
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final ByteBuffer data) {
+		return sequentialChunker.chunkMetadata(data);
+	}
+
+	@Override
+	public CompletableFuture<Void> chunkAsync(final Path file, final Consumer<? super Chunk> action,
+			final ExecutorService executor) {
+		return new AsyncFileChunker(core, hasher).chunk(file, action, executor);
+	}
+
+	@Override
+	public CompletableFuture<List<ChunkMetadata>> chunkMetadataAsync(final Path file, final ExecutorService executor) {
+		return new AsyncFileChunker(core, hasher).chunkMetadata(file, executor);
+	}
+
+	@Override
+	public ChunkCursor cursor(final InputStream stream, final long size) {
+		// A cursor reuses a single buffer, which leaves nothing to overlap
+		return sequentialChunker.cursor(stream, size);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> rechunkMetadata(final Path file, final List<? extends ChunkMetadata> previousChunks,
+			final List<ChangedRange> changedRanges) {
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(previousChunks);
+		Objects.requireNonNull(changedRanges);
+		return () -> new IncrementalChunkIterator(file, previousChunks, changedRanges, core, hasher);
+	}
+
+	@Override
+	public Spliterator<Chunk> spliterator(final Path file) {
+		Objects.requireNonNull(file);
+		if (SegmentSpliterator.isSplittable(file, core)) {
+			return new SegmentSpliterator(file, core, hasher);
+		}
+		return Chunker.super.spliterator(file);
+	}
+
+	/**
+	 * Iterator that takes the chunks produced by a pipeline, in order of their offset.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class PipelineIterator implements Iterator<Chunk> {
+		/**
+		 * The pipeline producing the chunks.
+		 */
+		private final Pipeline pipeline;
+		/**
+		 * The current offset in the data stream, marking the beginning of the next chunk.
+		 */
+		private long currentOffset;
+
+		/**
+		 * Creates a new iterator and starts the given pipeline. The pipeline is stopped once the iterator is garbage
+		 * collected.
+		 *
+		 * @param pipeline The pipeline producing the chunks, not null
+		 */
+		private PipelineIterator(final Pipeline pipeline) {
+			this.pipeline = Objects.requireNonNull(pipeline);
+			PipelinedChunker.CLEANER.register(this, pipeline::stop);
+			pipeline.start();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return currentOffset < pipeline.size;
+		}
+
+		@Override
+		public Chunk next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("The data stream has ended, can not generate another chunk");
+			}
+
+			final Chunk chunk;
+			try {
+				chunk = pipeline.chunks.take()
+						.join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread()
+						.interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the next chunk", e);
+			} catch (final CompletionException e) {
+				pipeline.stop();
+				final Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IllegalStateException("Chunking the data stream failed", cause);
+			}
+
+			currentOffset += chunk.getLength();
+			return chunk;
+		}
+	}
+
+	/**
+	 * The stages of chunking a single stream, connected by bounded queues.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class Pipeline {
+		/**
+		 * Block signaling that reading the stream failed.
+		 */
+		private static final byte[] FAILED_BLOCK = new byte[0];
+
+		/**
+		 * The chunks in order of their offset, hashed asynchronously.
+		 */
+		private final BlockingQueue<CompletableFuture<Chunk>> chunks;
+		/**
+		 * The core to use for chunking.
+		 */
+		private final BufferChunkerCore core;
+		/**
+		 * The executor to use for hashing the data of chunks.
+		 */
+		private final Executor executor;
+		/**
+		 * Blocks that can be filled by the reader.
+		 */
+		private final BlockingQueue<byte[]> freeBlocks =
+				new ArrayBlockingQueue<>(PipelinedChunker.BLOCKS_AHEAD + 1);
+		/**
+		 * Blocks filled by the reader, in order of the stream.
+		 */
+		private final BlockingQueue<byte[]> fullBlocks = new ArrayBlockingQueue<>(PipelinedChunker.BLOCKS_AHEAD + 1);
+		/**
+		 * The hasher to use for hashing the data of a chunk.
+		 */
+		private final ChunkHasher hasher;
+		/**
+		 * The amount of bytes available in the stream that are subject to be chunked.
+		 */
+		private final long size;
+		/**
+		 * The data stream to chunk.
+		 */
+		private final InputStream stream;
+		/**
+		 * The reason reading the stream failed, only set before {@link #FAILED_BLOCK} is passed on.
+		 */
+		private volatile RuntimeException readFailure;
+		/**
+		 * Whether the pipeline has been stopped.
+		 */
+		private volatile boolean stopped;
+
+		/**
+		 * Creates a new pipeline, which is not started yet.
+		 *
+		 * @param stream   The data stream to chunk, not null
+		 * @param size     The amount of bytes available in the stream that are subject to be chunked, the stream must
+		 *                 offer at least that many bytes, positive and not zero
+		 * @param core     The core to use for chunking, not null
+		 * @param hasher   The hasher to use for hashing the data of a chunk, not null
+		 * @param executor The executor to use for hashing the data of chunks, not null
+		 */
+		private Pipeline(final InputStream stream, final long size, final BufferChunkerCore core,
+				final ChunkHasher hasher, final Executor executor) {
+			this.stream = Objects.requireNonNull(stream);
+			this.size = Validations.requirePositiveNonZero(size, "Size");
+			this.core = Objects.requireNonNull(core);
+			this.hasher = Objects.requireNonNull(hasher);
+			this.executor = Objects.requireNonNull(executor);
+			chunks = new ArrayBlockingQueue<>(PipelinedChunker.CHUNKS_IN_FLIGHT_PER_PROCESSOR * Runtime.getRuntime()
+					.availableProcessors());
+		}
+
+		/**
+		 * Hashes the given chunk data asynchronously using the executor.
+		 * <p>
+		 * The task is submitted to the executor directly, since {@link CompletableFuture#supplyAsync(java.util.function.Supplier,
+		 * Executor)} would spawn a new thread per task for a common pool without parallelism.
+		 *
+		 * @param data   The data of the chunk, not null
+		 * @param offset The offset of the chunk in the data stream, positive
+		 *
+		 * @return The chunk, completed once it has been hashed
+		 */
+		private CompletableFuture<Chunk> hash(final byte[] data, final long offset) {
+			final CompletableFuture<Chunk> chunk = new CompletableFuture<>();
+			executor.execute(() -> {
+				try {
+					chunk.complete(new SimpleChunk(data, offset, hasher.hash(data)));
+				} catch (final RuntimeException | Error e) {
+					chunk.completeExceptionally(e);
+				}
+			});
+			return chunk;
+		}
+
+		/**
+		 * Puts the given element into the given queue, waiting for space to become available unless the pipeline is
+		 * stopped.
+		 *
+		 * @param queue   The queue to put the element into, not null
+		 * @param element The element to put, not null
+		 * @param <E>     The type of the element
+		 *
+		 * @return Whether the element was put, {@code false} if the pipeline was stopped
+		 *
+		 * @throws InterruptedException If interrupted while waiting
+		 */
+		private <E> boolean put(final BlockingQueue<? super E> queue, final E element) throws InterruptedException {
+			while (!stopped) {
+				if (queue.offer(element, PipelinedChunker.STOP_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Reads the stream block by block and passes the blocks on to the scanner.
+		 */
+		private void read() {
+			try {
+				long readBytes = 0;
+				while (readBytes < size) {
+					final byte[] block = take(freeBlocks);
+					if (block == null) {
+						return;
+					}
+
+					//noinspection NumericCastThatLosesPrecision
+					final int length = (int) Math.min(block.length, size - readBytes);
+					if (stream.readNBytes(block, 0, length) < length) {
+						throw new IllegalStateException(
+								"Attempting to read a block from the stream but the stream has ended");
+					}
+					readBytes += length;
+
+					if (!put(fullBlocks, block)) {
+						return;
+					}
+				}
+			} catch (final IOException e) {
+				readFailed(new UncheckedIOException(e));
+			} catch (final RuntimeException e) {
+				readFailed(e);
+			} catch (final InterruptedException e) {
+				readFailed(new IllegalStateException("Interrupted while reading the data stream", e));
+			}
+		}
+
+		/**
+		 * Signals the scanner that reading the stream failed.
+		 *
+		 * @param failure The reason reading failed, not null
+		 */
+		private void readFailed(final RuntimeException failure) {
+			readFailure = failure;
+			try {
+				put(fullBlocks, Pipeline.FAILED_BLOCK);
+			} catch (final InterruptedException e) {
+				Thread.currentThread()
+						.interrupt();
+			}
+		}
+
+		/**
+		 * Scans the blocks passed on by the reader for cut-points and passes the chunks on to be hashed.
+		 */
+		@SuppressWarnings("OverlyLongMethod")
+		private void scan() {
+			try {
+				final ScanState state = new ScanState();
+				state.reset(size);
+				// Data of the current chunk that was scanned in previous blocks
+				final byte[] carry = new byte[core.getMaximalChunkSize()];
+				int carryLength = 0;
+				long chunkOffset = 0;
+				long scannedBytes = 0;
+
+				while (scannedBytes < size) {
+					final byte[] block = take(fullBlocks);
+					if (block == null) {
+						return;
+					}
+					if (block == Pipeline.FAILED_BLOCK) {
+						put(chunks, CompletableFuture.failedFuture(readFailure));
+						return;
+					}
+
+					//noinspection NumericCastThatLosesPrecision
+					final int length = (int) Math.min(block.length, size - scannedBytes);
+					scannedBytes += length;
+					final ByteBuffer blockView = ByteBuffer.wrap(block);
+
+					int start = 0;
+					while (start < length) {
+						final int cut = core.scan(blockView, start, length, state);
+						if (cut == -1) {
+							System.arraycopy(block, start, carry, carryLength, length - start);
+							carryLength += length - start;
+							break;
+						}
+
+						final byte[] data = new byte[carryLength + cut - start];
+						System.arraycopy(carry, 0, data, 0, carryLength);
+						System.arraycopy(block, start, data, carryLength, cut - start);
+						carryLength = 0;
+
+						if (!put(chunks, hash(data, chunkOffset))) {
+							return;
+						}
+
+						chunkOffset += data.length;
+						start = cut;
+						if (chunkOffset < size) {
+							state.reset(size - chunkOffset);
+						}
+					}
+
+					if (!put(freeBlocks, block)) {
+						return;
+					}
+				}
+			} catch (final InterruptedException e) {
+				scanFailed(new IllegalStateException("Interrupted while scanning the data stream", e));
+			} catch (final RuntimeException | Error e) {
+				scanFailed(e);
+			}
+		}
+
+		/**
+		 * Signals the consumer that scanning failed.
+		 *
+		 * @param failure The reason scanning failed, not null
+		 */
+		private void scanFailed(final Throwable failure) {
+			try {
+				put(chunks, CompletableFuture.failedFuture(failure));
+			} catch (final InterruptedException e) {
+				Thread.currentThread()
+						.interrupt();
+			}
+		}
+
+		/**
+		 * Starts the reader and scanner threads of the pipeline.
+		 */
+		private void start() {
+			for (int i = 0; i < PipelinedChunker.BLOCKS_AHEAD + 1; i++) {
+				freeBlocks.add(new byte[PipelinedChunker.BLOCK_SIZE]);
+			}
+
+			final Thread reader = new Thread(this::read, "fastcdc4j-pipeline-reader");
+			reader.setDaemon(true);
+			final Thread scanner = new Thread(this::scan, "fastcdc4j-pipeline-scanner");
+			scanner.setDaemon(true);
+			reader.start();
+			scanner.start();
+		}
+
+		/**
+		 * Stops the pipeline, its threads terminate soon after.
+		 */
+		private void stop() {
+			stopped = true;
+		}
+
+		/**
+		 * Takes an element from the given queue, waiting for one to become available unless the pipeline is stopped.
+		 *
+		 * @param queue The queue to take the element from, not null
+		 * @param <E>   The type of the element
+		 *
+		 * @return The element, or {@code null} if the pipeline was stopped
+		 *
+		 * @throws InterruptedException If interrupted while waiting
+		 */
+		private <E> E take(final BlockingQueue<? extends E> queue) throws InterruptedException {
+			while (!stopped) {
+				final E element = queue.poll(PipelinedChunker.STOP_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				if (element != null) {
+					return element;
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.IterativeStreamChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Implementation of an iterative stream chunker core that chunks according to Rabin fingerprints over a sliding window
+ * (as introduced by Athicha Muthitacharoen et al. in LBFS (<a href="https://pdos.csail.mit.edu/papers/lbfs:sosp01/lbfs.pdf">publication</a>)).
+ * <p>
+ * The fingerprint is the remainder of the window content, interpreted as polynomial over {@code GF(2)}, modulo an
+ * irreducible polynomial. It is rolled using two precomputed tables, one removes the contribution of the byte leaving
+ * the window and the other one reduces the fingerprint after a byte was appended. A cut-point is found if the
+ * fingerprint has all bits of the mask set to {@code 0}.
+ * <p>
+ * The details follow the implementation of <a href="https://github.com/restic/chunker">restic</a>, hence the cut-points
+ * are the same as the ones of restic with the same polynomial, sizes and mask. Bytes below the minimal size are not
+ * rolled, except for the window preceding it.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class RabinChunkerCore implements IterativeStreamChunkerCore, BufferChunkerCore {
+	/**
+	 * The default polynomial to use, irreducible and of degree {@code 53}.
+	 */
+	public static final long DEFAULT_POLYNOMIAL = 0x3D_A335_8B4D_C173L;
+	/**
+	 * The default size of the sliding window, in bytes.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 64;
+
+	/**
+	 * Computes the degree of the given polynomial over {@code GF(2)}.
+	 *
+	 * @param polynomial The polynomial to compute the degree of
+	 *
+	 * @return The degree of the polynomial, {@code -1} for the polynomial {@code 0}
+	 */
+	private static int degree(final long polynomial) {
+		//noinspection MagicNumber
+		return 63 - Long.numberOfLeadingZeros(polynomial);
+	}
+
+	/**
+	 * Computes the remainder of the given polynomials over {@code GF(2)}.
+	 *
+	 * @param dividend The dividend
+	 * @param divisor  The divisor, not {@code 0}
+	 *
+	 * @return The remainder of the division
+	 */
+	private static long mod(final long dividend, final long divisor) {
+		final int divisorDegree = RabinChunkerCore.degree(divisor);
+		long remainder = dividend;
+		while (RabinChunkerCore.degree(remainder) >= divisorDegree) {
+			remainder ^= divisor << (RabinChunkerCore.degree(remainder) - divisorDegree);
+		}
+		return remainder;
+	}
+
+	/**
+	 * Reads the next byte from the given stream.
+	 *
+	 * @param stream The stream to read from
+	 *
+	 * @return The byte read, as value between {@code 0} and {@code 255}
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static int readByte(final InputStream stream) throws IOException {
+		final int data = stream.read();
+		if (data == -1) {
+			throw new IllegalStateException("Attempting to read a byte from the stream but the stream has ended");
+		}
+		return data;
+	}
+
+	/**
+	 * Mask for the fingerprint, a cut-point is found if all bits of the mask are {@code 0} in the fingerprint.
+	 */
+	private final long mask;
+	/**
+	 * The maximal size for a single chunk, in bytes.
+	 */
+	private final int maxSize;
+	/**
+	 * The minimal size for a single chunk, in bytes.
+	 */
+	private final int minSize;
+	/**
+	 * Table used to reduce the fingerprint after a byte was appended, indexed by the bits that exceed the degree of the
+	 * polynomial.
+	 */
+	private final long[] modTable;
+	/**
+	 * Table used to remove the contribution of the byte leaving the window from the fingerprint, indexed by the byte.
+	 */
+	private final long[] outTable;
+	/**
+	 * The amount of bits to shift the fingerprint to the right to receive the index for {@link #modTable}.
+	 */
+	private final int polynomialShift;
+	/**
+	 * The size of the sliding window, in bytes.
+	 */
+	private final int windowSize;
+
+	/**
+	 * Creates a new core.
+	 *
+	 * @param minSize    The minimal size for a single chunk, in bytes, must be positive
+	 * @param maxSize    The maximal size for a single chunk, in bytes, must be positive and greater equals min size
+	 * @param polynomial The polynomial to use, must be irreducible and of a degree between {@code 8} and {@code 55},
+	 *                   for example {@link #DEFAULT_POLYNOMIAL}
+	 * @param windowSize The size of the sliding window, in bytes, must be a power of two, for example {@link
+	 *                   #DEFAULT_WINDOW_SIZE}
+	 * @param mask       Mask for the fingerprint, a cut-point is found if all bits of the mask are {@code 0} in the
+	 *                   fingerprint
+	 */
+	public RabinChunkerCore(final int minSize, final int maxSize, final long polynomial, final int windowSize,
+			final long mask) {
+		Validations.require(maxSize >= minSize, "Max size must be greater equals min size");
+		final int polynomialDegree = RabinChunkerCore.degree(polynomial);
+		//noinspection MagicNumber
+		Validations.require(polynomialDegree >= 8 && polynomialDegree <= 55,
+				"Polynomial must have a degree between 8 and 55, was: " + polynomialDegree);
+		Validations.requirePositiveNonZero(windowSize, "Window size");
+		Validations.require(Integer.bitCount(windowSize) == 1,
+				"Window size must be a power of two, was: " + windowSize);
+
+		this.minSize = Validations.requirePositive(minSize, "Min size");
+		this.maxSize = Validations.requirePositive(maxSize, "Max size");
+		this.windowSize = windowSize;
+		this.mask = mask;
+		//noinspection MagicNumber
+		polynomialShift = polynomialDegree - 8;
+
+		// The contribution of a byte after it has been followed by the rest of the window, which are zeros
+		//noinspection MagicNumber
+		outTable = new long[256];
+		for (int b = 0; b < outTable.length; b++) {
+			long hash = RabinChunkerCore.mod(b, polynomial);
+			for (int i = 1; i < windowSize; i++) {
+				hash = RabinChunkerCore.mod(hash << 8, polynomial);
+			}
+			outTable[b] = hash;
+		}
+		// Contains the remainder of the bits exceeding the degree, together with the bits themselves to cancel them out
+		//noinspection MagicNumber
+		modTable = new long[256];
+		for (int b = 0; b < modTable.length; b++) {
+			final long exceeding = (long) b << polynomialDegree;
+			modTable[b] = RabinChunkerCore.mod(exceeding, polynomial) | exceeding;
+		}
+	}
+
+	@Override
+	public int getMaximalChunkSize() {
+		return maxSize;
+	}
+
+	@Override
+	public int scan(final ByteBuffer data, final int start, final int end, final ScanState state) {
+		Objects.requireNonNull(data);
+		Objects.requireNonNull(state);
+		Validations.requirePositive(start, "Start");
+		Validations.require(end >= start, "End must be greater equals start");
+
+		//noinspection StandardVariableNames,NumericCastThatLosesPrecision
+		final int n = (int) Math.min(state.getAvailable(), maxSize);
+		//noinspection NumericCastThatLosesPrecision
+		final int position = (int) state.getPosition();
+		// Translates a position in the chunk to an index in the buffer
+		final int indexOffset = start - position;
+		//noinspection NumericCastThatLosesPrecision
+		final int scanEnd = (int) Math.min(n, (long) position + end - start);
+
+		final byte[] window = state.getWindow(windowSize);
+		final int windowMask = windowSize - 1;
+		long digest = state.getFingerprint();
+		// Only the window preceding the minimal size is rolled
+		final int rollStart = Math.max(minSize - windowSize, 0);
+		if (position <= rollStart && rollStart < scanEnd) {
+			digest = initializeWindow(window, rollStart);
+		}
+
+		int i = Math.max(position, rollStart);
+		// Cut-points are checked once the chunk has reached the minimal size
+		final int checkStart = Math.min(Math.max(minSize - 1, i), scanEnd);
+		//noinspection ForLoopWithMissingComponent
+		for (; i < checkStart; i++) {
+			final int slot = i & windowMask;
+			final int in = data.get(i + indexOffset) & 0xFF;
+			digest ^= outTable[window[slot] & 0xFF];
+			window[slot] = (byte) in;
+			//noinspection NumericCastThatLosesPrecision
+			digest = (digest << 8 | in) ^ modTable[(int) (digest >>> polynomialShift)];
+		}
+		//noinspection ForLoopWithMissingComponent
+		for (; i < scanEnd; i++) {
+			final int slot = i & windowMask;
+			final int in = data.get(i + indexOffset) & 0xFF;
+			digest ^= outTable[window[slot] & 0xFF];
+			window[slot] = (byte) in;
+			//noinspection NumericCastThatLosesPrecision
+			digest = (digest << 8 | in) ^ modTable[(int) (digest >>> polynomialShift)];
+			if ((digest & mask) == 0) {
+				return i + 1 + indexOffset;
+			}
+		}
+
+		if (scanEnd == n) {
+			return n + indexOffset;
+		}
+		state.update(scanEnd, digest);
+		return -1;
+	}
+
+	@Override
+	public byte[] readNextChunk(final InputStream stream, final long size, final long currentOffset) {
+		Objects.requireNonNull(stream);
+		Validations.requirePositiveNonZero(size, "Size");
+		Validations.requirePositive(currentOffset, "Current offset");
+		Validations.require(currentOffset < size, "Current offset must be less than size");
+
+		try (final ByteArrayOutputStream dataBuffer = new ByteArrayOutputStream()) {
+			//noinspection StandardVariableNames
+			long n = size - currentOffset;
+			if (n <= 0) {
+				throw new IllegalArgumentException(
+						"Attempting to read the next chunk but out of available bytes, as indicated by size");
+			}
+			if (n <= minSize) {
+				return stream.readNBytes((int) n);
+			}
+			if (n >= maxSize) {
+				n = maxSize;
+			}
+
+			final int rollStart = Math.max(minSize - windowSize, 0);
+			dataBuffer.write(stream.readNBytes(rollStart));
+
+			final byte[] window = new byte[windowSize];
+			final int windowMask = windowSize - 1;
+			long digest = initializeWindow(window, rollStart);
+			for (int i = rollStart; i < n; i++) {
+				final int slot = i & windowMask;
+				final int in = RabinChunkerCore.readByte(stream);
+				dataBuffer.write(in);
+				digest ^= outTable[window[slot] & 0xFF];
+				window[slot] = (byte) in;
+				//noinspection NumericCastThatLosesPrecision
+				digest = (digest << 8 | in) ^ modTable[(int) (digest >>> polynomialShift)];
+				if (i + 1 >= minSize && (digest & mask) == 0) {
+					return dataBuffer.toByteArray();
+				}
+			}
+
+			return dataBuffer.toByteArray();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Initializes the window and the fingerprint before the first byte is rolled. As in restic, a single byte
+	 * {@code 1} is rolled into an empty window, it leaves the window once it has been filled with the content.
+	 *
+	 * @param window    The window to initialize, indexed by the position in the chunk modulo the window size
+	 * @param rollStart The position in the chunk of the first byte to roll
+	 *
+	 * @return The initial fingerprint
+	 */
+	private long initializeWindow(final byte[] window, final int rollStart) {
+		Arrays.fill(window, (byte) 0);
+		window[(rollStart - 1) & (windowSize - 1)] = 1;
+		return 1;
+	}
+}
@@ -0,0 +1,546 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the chunks of a regular file that splits by byte range, generating exactly the same chunks as a
+ * sequential run.
+ * <p>
+ * The file is divided into segments, as done by {@link SegmentedChunker}, and a spliterator covers the chunks beginning
+ * in a range of segments. Once a spliterator is traversed, it first speculatively scans its segments for cut-points, as
+ * if a chunk would begin at the start of each segment. The actual chunks of a segment are then stitched together from
+ * the actual chunk crossing into the segment, which only requires the speculative cut-points of the previous segments
+ * and hence does not wait for previous spliterators to be traversed. The chunks are hashed while they are traversed.
+ * <p>
+ * The amount of chunks is not known before the file has been chunked, the estimated size is the amount of remaining
+ * bytes, an upper bound.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class SegmentSpliterator implements Spliterator<Chunk> {
+	/**
+	 * The characteristics of this spliterator.
+	 */
+	private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+	/**
+	 * The hasher to use for hashing the data of a chunk.
+	 */
+	private final ChunkHasher hasher;
+	/**
+	 * The segments of the file, shared by all spliterators of the file.
+	 */
+	private final SegmentTable table;
+	/**
+	 * The index of the segment after the last segment covered by this spliterator.
+	 */
+	private final int toSegment;
+	/**
+	 * The offset in the file at which the next chunk begins, only valid while a segment is traversed.
+	 */
+	private long chunkOffset;
+	/**
+	 * The offsets in the file at which the actual chunks of the current segment end, {@code null} if no segment is
+	 * traversed.
+	 */
+	private long[] chunkEnds;
+	/**
+	 * The index of the next chunk in {@link #chunkEnds}.
+	 */
+	private int chunkIndex;
+	/**
+	 * The digest used for hashing the data of a chunk, {@code null} if not traversed yet.
+	 */
+	private ChunkDigest digest;
+	/**
+	 * The index of the next segment to traverse.
+	 */
+	private int fromSegment;
+	/**
+	 * The mapped data of the current segment, {@code null} if no segment is traversed.
+	 */
+	private ByteBuffer mapping;
+	/**
+	 * The offset in the file at which {@link #mapping} begins.
+	 */
+	private long mappingOffset;
+
+	/**
+	 * Creates a new spliterator over all chunks of the given file.
+	 *
+	 * @param file   The regular file to chunk, not null
+	 * @param core   The core to use for chunking, not null
+	 * @param hasher The hasher to use for hashing the data of a chunk, not null
+	 */
+	public SegmentSpliterator(final Path file, final BufferChunkerCore core, final ChunkHasher hasher) {
+		this(new SegmentTable(file, SegmentSpliterator.size(file), core), 0, -1, hasher);
+	}
+
+	/**
+	 * Creates a new spliterator over the chunks beginning in the given range of segments.
+	 *
+	 * @param table       The segments of the file, shared by all spliterators of the file, not null
+	 * @param fromSegment The index of the first segment covered by this spliterator
+	 * @param toSegment   The index of the segment after the last segment covered by this spliterator, or {@code -1} to
+	 *                    cover all remaining segments
+	 * @param hasher      The hasher to use for hashing the data of a chunk, not null
+	 */
+	private SegmentSpliterator(final SegmentTable table, final int fromSegment, final int toSegment,
+			final ChunkHasher hasher) {
+		this.table = Objects.requireNonNull(table);
+		this.fromSegment = fromSegment;
+		this.toSegment = toSegment == -1 ? table.segmentCount : toSegment;
+		this.hasher = Objects.requireNonNull(hasher);
+	}
+
+	/**
+	 * Whether the given path is a regular file that is big enough to be split into segments.
+	 *
+	 * @param path The path to test, not null
+	 * @param core The core to use for chunking, not null
+	 *
+	 * @return {@code True} if the path is a regular file consisting of at least two segments, {@code false} otherwise
+	 */
+	public static boolean isSplittable(final Path path, final BufferChunkerCore core) {
+		return Files.isRegularFile(path) && SegmentSpliterator.size(path) >= 2L * SegmentedChunker.getSegmentSize(core);
+	}
+
+	/**
+	 * Gets the size of the given file.
+	 *
+	 * @param file The file, not null
+	 *
+	 * @return The size of the file, in bytes
+	 */
+	private static long size(final Path file) {
+		try {
+			return Files.size(file);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public int characteristics() {
+		return SegmentSpliterator.CHARACTERISTICS;
+	}
+
+	@Override
+	public long estimateSize() {
+		final long remainingSegments = table.segmentStart(toSegment) - table.segmentStart(fromSegment);
+		if (chunkEnds == null) {
+			return remainingSegments;
+		}
+		return Math.max(0, remainingSegments + table.segmentStart(fromSegment) - chunkOffset);
+	}
+
+	@Override
+	public boolean tryAdvance(final Consumer<? super Chunk> action) {
+		Objects.requireNonNull(action);
+		if (digest == null) {
+			startTraversal();
+		}
+
+		while (chunkEnds == null || chunkIndex == chunkEnds.length) {
+			if (fromSegment == toSegment) {
+				chunkEnds = null;
+				mapping = null;
+				return false;
+			}
+			loadSegment(fromSegment);
+			fromSegment++;
+		}
+
+		final long chunkEnd = chunkEnds[chunkIndex];
+		chunkIndex++;
+		//noinspection NumericCastThatLosesPrecision
+		final ByteBuffer data = mapping.slice((int) (chunkOffset - mappingOffset), (int) (chunkEnd - chunkOffset));
+		digest.update(data.duplicate());
+		final Chunk chunk = new BufferChunk(data, chunkOffset, digest.digest());
+		chunkOffset = chunkEnd;
+
+		action.accept(chunk);
+		return true;
+	}
+
+	@Override
+	public Spliterator<Chunk> trySplit() {
+		if (digest != null || toSegment - fromSegment < 2) {
+			return null;
+		}
+		final int middleSegment = (fromSegment + toSegment) >>> 1;
+		final Spliterator<Chunk> prefix = new SegmentSpliterator(table, fromSegment, middleSegment, hasher);
+		fromSegment = middleSegment;
+		return prefix;
+	}
+
+	/**
+	 * Loads the actual chunks beginning in the given segment.
+	 *
+	 * @param segment The index of the segment to load
+	 */
+	private void loadSegment(final int segment) {
+		final Stitching stitching = table.stitch(segment, table.resolveEntry(segment), true);
+		table.release(segment);
+		chunkOffset = stitching.entry;
+		chunkEnds = stitching.chunkEnds;
+		chunkIndex = 0;
+		mapping = stitching.mapping;
+		mappingOffset = table.segmentStart(segment);
+	}
+
+	/**
+	 * Starts the traversal by speculatively scanning all segments covered by this spliterator. Afterwards, the
+	 * spliterator can not be split anymore.
+	 */
+	private void startTraversal() {
+		digest = hasher.newDigest();
+		for (int segment = fromSegment; segment < toSegment; segment++) {
+			table.speculativeCuts(segment);
+		}
+	}
+
+	/**
+	 * The segments of a file, their speculative cut-points and the offsets at which the actual chunks enter them.
+	 * Shared by all spliterators of a file, thread-safe.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class SegmentTable {
+		/**
+		 * The core to use for chunking.
+		 */
+		private final BufferChunkerCore core;
+		/**
+		 * For each segment, the offset in the file at which the first actual chunk beginning in or after the segment
+		 * begins, {@code -1} if not resolved yet. Contains an additional entry for the end of the file.
+		 */
+		private final AtomicLongArray entries;
+		/**
+		 * The file to chunk.
+		 */
+		private final Path file;
+		/**
+		 * The amount of segments.
+		 */
+		private final int segmentCount;
+		/**
+		 * The size of a segment, in bytes.
+		 */
+		private final int segmentSize;
+		/**
+		 * The size of the file, in bytes.
+		 */
+		private final long size;
+		/**
+		 * For each segment, the offsets in the file at which the speculative chunks end, as if a chunk would begin at
+		 * the start of the segment. {@code null} if not computed yet or released.
+		 */
+		private final AtomicReferenceArray<CompletableFuture<long[]>> speculativeCuts;
+		/**
+		 * For each segment, the recorded metrics of the speculative chunks, set before its speculative cut-points are
+		 * completed. {@code null} if not computed yet, released or if the core is not metered.
+		 */
+		private final AtomicReferenceArray<SpeculativeScanMetrics> speculativeMetrics;
+		/**
+		 * The core to use for scans whose chunks are not returned, does not report to metrics.
+		 */
+		private final BufferChunkerCore unmeteredCore;
+
+		/**
+		 * Creates a new segment table.
+		 *
+		 * @param file The regular file to chunk, not null
+		 * @param size The size of the file, in bytes, positive and not zero
+		 * @param core The core to use for chunking, not null
+		 */
+		private SegmentTable(final Path file, final long size, final BufferChunkerCore core) {
+			this.file = Objects.requireNonNull(file);
+			this.size = Validations.requirePositiveNonZero(size, "Size");
+			this.core = Objects.requireNonNull(core);
+			unmeteredCore =
+					core instanceof MeteredBufferChunkerCore ? ((MeteredBufferChunkerCore) core).getCore() : core;
+			segmentSize = SegmentedChunker.getSegmentSize(core);
+			//noinspection NumericCastThatLosesPrecision
+			segmentCount = (int) ((size + segmentSize - 1) / segmentSize);
+			speculativeCuts = new AtomicReferenceArray<>(segmentCount);
+			speculativeMetrics = new AtomicReferenceArray<>(segmentCount);
+			entries = new AtomicLongArray(segmentCount + 1);
+			for (int segment = 1; segment <= segmentCount; segment++) {
+				entries.set(segment, -1);
+			}
+		}
+
+		/**
+		 * Maps the given segment, including an additional maximal chunk size if available.
+		 *
+		 * @param segment The index of the segment to map
+		 *
+		 * @return The mapped data
+		 */
+		private ByteBuffer map(final int segment) {
+			final long start = segmentStart(segment);
+			final long length = Math.min(size, segmentStart(segment + 1) + core.getMaximalChunkSize()) - start;
+			// The mapping stays valid after the channel has been closed
+			try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Releases the speculative cut-points of the given segment, once the actual chunks entering the next segment
+		 * are resolved.
+		 *
+		 * @param segment The index of the segment
+		 */
+		private void release(final int segment) {
+			speculativeCuts.set(segment, null);
+			speculativeMetrics.set(segment, null);
+		}
+
+		/**
+		 * Resolves the offset in the file at which the first actual chunk beginning in or after the given segment
+		 * begins. Stitches all previous segments whose entries are not resolved yet.
+		 *
+		 * @param segment The index of the segment
+		 *
+		 * @return The offset at which the first actual chunk beginning in or after the segment begins
+		 */
+		private long resolveEntry(final int segment) {
+			int resolvedSegment = segment;
+			while (entries.get(resolvedSegment) == -1) {
+				resolvedSegment--;
+			}
+			for (int current = resolvedSegment; current < segment; current++) {
+				if (entries.get(current + 1) == -1) {
+					stitch(current, entries.get(current), false);
+				}
+			}
+			return entries.get(segment);
+		}
+
+		/**
+		 * Scans for the cut-point of the chunk beginning at the given offset.
+		 *
+		 * @param scanCore   The core to scan with, not null
+		 * @param data       The mapped data containing the chunk, not null
+		 * @param dataOffset The offset in the file at which the data begins
+		 * @param offset     The offset in the file at which the chunk begins
+		 * @param end        The offset in the file after which the chunk may not end
+		 * @param state      The state to use while scanning, not null
+		 *
+		 * @return The offset in the file at which the chunk ends, or {@code -1} if it would end after the given end
+		 */
+		private long scan(final BufferChunkerCore scanCore, final ByteBuffer data, final long dataOffset,
+				final long offset, final long end, final ScanState state) {
+			state.reset(size - offset);
+			//noinspection NumericCastThatLosesPrecision
+			final int cut = scanCore.scan(data, (int) (offset - dataOffset), (int) (end - dataOffset), state);
+			return cut == -1 ? -1 : dataOffset + cut;
+		}
+
+		/**
+		 * Gets the offset in the file at which the given segment begins.
+		 *
+		 * @param segment The index of the segment, may be the amount of segments for the end of the file
+		 *
+		 * @return The offset at which the segment begins
+		 */
+		private long segmentStart(final int segment) {
+			return Math.min(size, (long) segment * segmentSize);
+		}
+
+		/**
+		 * Gets the speculative cut-points of the given segment, computing them if necessary.
+		 *
+		 * @param segment The index of the segment
+		 *
+		 * @return The offsets in the file at which the speculative chunks of the segment end
+		 */
+		private long[] speculativeCuts(final int segment) {
+			while (true) {
+				final CompletableFuture<long[]> existingCuts = speculativeCuts.get(segment);
+				if (existingCuts != null) {
+					try {
+						return existingCuts.join();
+					} catch (final CompletionException e) {
+						final Throwable cause = e.getCause();
+						if (cause instanceof RuntimeException) {
+							throw (RuntimeException) cause;
+						}
+						throw new IllegalStateException("Scanning a segment failed", cause);
+					}
+				}
+
+				final CompletableFuture<long[]> cuts = new CompletableFuture<>();
+				if (speculativeCuts.compareAndSet(segment, null, cuts)) {
+					try {
+						cuts.complete(computeSpeculativeCuts(segment));
+					} catch (final RuntimeException | Error e) {
+						cuts.completeExceptionally(e);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Computes the speculative cut-points of the given segment, as if a chunk would begin at the start of the
+		 * segment. Their metrics are recorded and only reported once stitched.
+		 *
+		 * @param segment The index of the segment
+		 *
+		 * @return The offsets in the file at which the speculative chunks of the segment end
+		 */
+		private long[] computeSpeculativeCuts(final int segment) {
+			final ByteBuffer data = map(segment);
+			final long start = segmentStart(segment);
+			final long end = segmentStart(segment + 1);
+			final ScanState state = new ScanState();
+			final SpeculativeScanMetrics metrics = SpeculativeScanMetrics.of(core);
+			final BufferChunkerCore scanCore = metrics == null ? core : metrics.getCore();
+
+			long[] cuts = new long[Math.max(1, segmentSize / core.getMaximalChunkSize())];
+			int cutCount = 0;
+			long offset = start;
+			while (offset < end) {
+				final long cut = scan(scanCore, data, start, offset, end, state);
+				if (cut == -1) {
+					break;
+				}
+				if (cutCount == cuts.length) {
+					cuts = Arrays.copyOf(cuts, 2 * cuts.length);
+				}
+				cuts[cutCount] = cut;
+				cutCount++;
+				offset = cut;
+			}
+			speculativeMetrics.set(segment, metrics);
+			return Arrays.copyOf(cuts, cutCount);
+		}
+
+		/**
+		 * Stitches the actual chunks entering the given segment to its speculative chunks and resolves the entry of the
+		 * next segment.
+		 *
+		 * @param segment The index of the segment
+		 * @param entry   The offset in the file at which the first actual chunk beginning in or after the segment
+		 *                begins
+		 * @param report  Whether the actual chunks are returned and hence reported to the metrics of the core, a
+		 *                segment is stitched with reporting exactly once
+		 *
+		 * @return The actual chunks beginning in the segment
+		 */
+		private Stitching stitch(final int segment, final long entry, final boolean report) {
+			final long start = segmentStart(segment);
+			final long end = segmentStart(segment + 1);
+			final ByteBuffer data = map(segment);
+			if (entry >= end) {
+				entries.set(segment + 1, entry);
+				return new Stitching(entry, new long[0], data);
+			}
+
+			final long[] speculative = speculativeCuts(segment);
+			final SpeculativeScanMetrics metrics = report ? speculativeMetrics.get(segment) : null;
+			final BufferChunkerCore scanCore = report ? core : unmeteredCore;
+			final ScanState state = new ScanState();
+			long[] chunkEnds = new long[speculative.length + 1];
+			int chunkCount = 0;
+			long offset = entry;
+			boolean synchronizedCuts = false;
+			while (offset < end) {
+				final int speculativeIndex = offset == start ? -1 : Arrays.binarySearch(speculative, offset);
+				if (!synchronizedCuts && (offset == start || speculativeIndex >= 0)) {
+					// Synchronized, all following speculative chunks are actual chunks
+					synchronizedCuts = true;
+					final int from = speculativeIndex + 1;
+					final int amount = speculative.length - from;
+					if (chunkCount + amount > chunkEnds.length) {
+						chunkEnds = Arrays.copyOf(chunkEnds, chunkCount + amount + 1);
+					}
+					System.arraycopy(speculative, from, chunkEnds, chunkCount, amount);
+					chunkCount += amount;
+					if (metrics != null) {
+						metrics.report(from);
+					}
+					if (amount > 0) {
+						offset = speculative[speculative.length - 1];
+					}
+					continue;
+				}
+
+				// Chunk sequentially until synchronized, may cross the end of the segment
+				final long cut =
+						scan(scanCore, data, start, offset, Math.min(size, offset + core.getMaximalChunkSize()), state);
+				if (cut == -1) {
+					throw new IllegalStateException(
+							"The core must find a cut-point when a chunk of maximal size is available");
+				}
+				if (chunkCount == chunkEnds.length) {
+					chunkEnds = Arrays.copyOf(chunkEnds, 2 * chunkEnds.length);
+				}
+				chunkEnds[chunkCount] = cut;
+				chunkCount++;
+				offset = cut;
+			}
+
+			entries.set(segment + 1, offset);
+			return new Stitching(entry, Arrays.copyOf(chunkEnds, chunkCount), data);
+		}
+	}
+
+	/**
+	 * The actual chunks beginning in a segment.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class Stitching {
+		/**
+		 * The offsets in the file at which the actual chunks end.
+		 */
+		private final long[] chunkEnds;
+		/**
+		 * The offset in the file at which the first actual chunk begins.
+		 */
+		private final long entry;
+		/**
+		 * The mapped data of the segment, including an additional maximal chunk size if available.
+		 */
+		private final ByteBuffer mapping;
+
+		/**
+		 * Creates a new stitching.
+		 *
+		 * @param entry     The offset in the file at which the first actual chunk begins
+		 * @param chunkEnds The offsets in the file at which the actual chunks end
+		 * @param mapping   The mapped data of the segment, including an additional maximal chunk size if available
+		 */
+		private Stitching(final long entry, final long[] chunkEnds, final ByteBuffer mapping) {
+			this.entry = entry;
+			this.chunkEnds = chunkEnds;
+			this.mapping = mapping;
+		}
+	}
+}
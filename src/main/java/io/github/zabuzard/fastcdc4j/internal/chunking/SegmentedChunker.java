@@ -0,0 +1,457 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChangedRange;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkCursor;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkMetadata;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerMetrics;
+import io.github.zabuzard.fastcdc4j.external.chunking.ScanState;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of a chunker that splits large regular files into segments which are chunked in parallel, generating
+ * exactly the same chunks as a sequential run.
+ * <p>
+ * Each segment is memory-mapped and chunked speculatively by a task of the executor, as if a chunk would begin at the
+ * start of the segment. Content-defined cut-points only depend on the data following the beginning of a chunk, hence
+ * the speculative chunks coincide with the actual chunks as soon as an actual chunk begins at the same offset as a
+ * speculative chunk. The consumer stitches the segments together by chunking sequentially from the last actual chunk
+ * until such an offset is reached, which usually takes only a few chunks. All following speculative chunks of the
+ * segment are then taken over.
+ * <p>
+ * Data streams and small files are chunked by a {@link BufferChunker} instead.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class SegmentedChunker implements Chunker {
+	/**
+	 * The minimal size of a segment, in bytes.
+	 */
+	@SuppressWarnings("MultiplyOrDivideByPowerOfTwo")
+	private static final int MIN_SEGMENT_SIZE = 64 * 1_024 * 1_024;
+	/**
+	 * The amount of segments that are chunked ahead, per available processor.
+	 */
+	private static final int SEGMENTS_AHEAD_PER_PROCESSOR = 2;
+
+	/**
+	 * The core to use for chunking.
+	 */
+	private final BufferChunkerCore core;
+	/**
+	 * The executor to use for chunking segments.
+	 */
+	private final Executor executor;
+	/**
+	 * The hasher to use for hashing the data of a chunk.
+	 */
+	private final ChunkHasher hasher;
+	/**
+	 * The size of a segment, in bytes. Segments are mapped with an additional maximal chunk size, to be able to finish
+	 * chunks that cross the end of the segment.
+	 */
+	private final int segmentSize;
+	/**
+	 * The chunker used for data streams and files that are too small to be split into segments.
+	 */
+	private final Chunker sequentialChunker;
+
+	/**
+	 * Creates a new chunker.
+	 *
+	 * @param core     The core to use for chunking, not null
+	 * @param hasher   The hasher to use for hashing the data of a chunk, not null
+	 * @param executor The executor to use for chunking segments, not null
+	 */
+	public SegmentedChunker(final BufferChunkerCore core, final ChunkHasher hasher, final Executor executor) {
+		this(core, hasher, executor, null);
+	}
+
+	/**
+	 * Creates a new chunker that reports reads from data streams to the given metrics.
+	 *
+	 * @param core     The core to use for chunking, not null
+	 * @param hasher   The hasher to use for hashing the data of a chunk, not null
+	 * @param executor The executor to use for chunking segments, not null
+	 * @param metrics  The metrics to report reads from data streams to, {@code null} if reads are not reported
+	 */
+	public SegmentedChunker(final BufferChunkerCore core, final ChunkHasher hasher, final Executor executor,
+			final ChunkerMetrics metrics) {
+		this.core = Objects.requireNonNull(core);
+		this.hasher = Objects.requireNonNull(hasher);
+		this.executor = Objects.requireNonNull(executor);
+		sequentialChunker = new BufferChunker(core, hasher, true, metrics);
+		segmentSize = SegmentedChunker.getSegmentSize(core);
+	}
+
+	/**
+	 * Gets the size of the segments that files are split into when chunked using the given core.
+	 * <p>
+	 * Segments are much bigger than chunks, to keep the portion of chunks that are computed twice small. A segment
+	 * together with an additional maximal chunk size fits into a single mapping.
+	 *
+	 * @param core The core used for chunking, not null
+	 *
+	 * @return The size of a segment, in bytes
+	 */
+	static int getSegmentSize(final BufferChunkerCore core) {
+		//noinspection NumericCastThatLosesPrecision
+		return (int) Math.min(Math.max(SegmentedChunker.MIN_SEGMENT_SIZE, 64L * core.getMaximalChunkSize()),
+				Integer.MAX_VALUE - (long) core.getMaximalChunkSize());
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final InputStream stream, final long size) {
+		return sequentialChunker.chunk(stream, size);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final ByteBuffer data) {
+		return sequentialChunker.chunk(data);
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final Path path) {
+		Objects.requireNonNull(path);
+		if (!Files.isRegularFile(path)) {
+			return sequentialChunker.chunk(path);
+		}
+
+		final long size;
+		try {
+			size = Files.size(path);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (size < 2L * segmentSize) {
+			return sequentialChunker.chunk(path);
+		}
+		return () -> new SegmentedIterator(path, size, this);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final ByteBuffer data) {
+		return sequentialChunker.chunkMetadata(data);
+	}
+
+	@Override
+	public CompletableFuture<Void> chunkAsync(final Path file, final Consumer<? super Chunk> action,
+			final ExecutorService executor) {
+		return new AsyncFileChunker(core, hasher).chunk(file, action, executor);
+	}
+
+	@Override
+	public CompletableFuture<List<ChunkMetadata>> chunkMetadataAsync(final Path file, final ExecutorService executor) {
+		return new AsyncFileChunker(core, hasher).chunkMetadata(file, executor);
+	}
+
+	@Override
+	public ChunkCursor cursor(final InputStream stream, final long size) {
+		return sequentialChunker.cursor(stream, size);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> rechunkMetadata(final Path file, final List<? extends ChunkMetadata> previousChunks,
+			final List<ChangedRange> changedRanges) {
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(previousChunks);
+		Objects.requireNonNull(changedRanges);
+		return () -> new IncrementalChunkIterator(file, previousChunks, changedRanges, core, hasher);
+	}
+
+	@Override
+	public Spliterator<Chunk> spliterator(final Path file) {
+		Objects.requireNonNull(file);
+		if (SegmentSpliterator.isSplittable(file, core)) {
+			return new SegmentSpliterator(file, core, hasher);
+		}
+		return Chunker.super.spliterator(file);
+	}
+
+	/**
+	 * Chunks the data of the given mapping, beginning at the given offset, until either the given end is reached or a
+	 * chunk would cross it.
+	 *
+	 * @param core           The core to use for chunking, not null
+	 * @param mapping        The mapped data, not null
+	 * @param mappingOffset  The offset in the file at which the mapping begins, positive
+	 * @param start          The offset in the file at which the first chunk begins, positive
+	 * @param end            The offset in the file after which no chunk may end
+	 * @param size           The size of the file, in bytes
+	 * @param stopAfterFirst Whether to stop after the first chunk
+	 * @param chunks         The collection to add the chunks to, not null
+	 *
+	 * @return The offset in the file at which the chunk following the added chunks begins
+	 */
+	private long chunkMapping(final BufferChunkerCore core, final ByteBuffer mapping, final long mappingOffset,
+			final long start, final long end, final long size, final boolean stopAfterFirst,
+			final Collection<? super Chunk> chunks) {
+		final ChunkDigest digest = hasher.newDigest();
+		final ScanState state = new ScanState();
+		//noinspection NumericCastThatLosesPrecision
+		final int scanEnd = (int) (end - mappingOffset);
+
+		long offset = start;
+		while (offset < end) {
+			state.reset(size - offset);
+			//noinspection NumericCastThatLosesPrecision
+			final int chunkStart = (int) (offset - mappingOffset);
+			final int cut = core.scan(mapping, chunkStart, scanEnd, state);
+			if (cut == -1) {
+				break;
+			}
+
+			final ByteBuffer data = mapping.slice(chunkStart, cut - chunkStart);
+			digest.update(data.duplicate());
+			chunks.add(new BufferChunk(data, offset, digest.digest()));
+			offset += cut - chunkStart;
+			if (stopAfterFirst) {
+				break;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Speculatively chunked segment of a file.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class Segment {
+		/**
+		 * The chunks of the segment, as if a chunk would begin at the start of the segment.
+		 */
+		private final List<Chunk> chunks;
+		/**
+		 * The offset in the file at which the segment ends, exclusive.
+		 */
+		private final long end;
+		/**
+		 * The mapped data of the segment, including an additional maximal chunk size if available.
+		 */
+		private final ByteBuffer mapping;
+		/**
+		 * The recorded metrics of the speculative chunks, {@code null} if the chunker is not metered.
+		 */
+		private final SpeculativeScanMetrics metrics;
+		/**
+		 * The offset in the file at which the segment begins.
+		 */
+		private final long start;
+
+		/**
+		 * Creates a new segment.
+		 *
+		 * @param start   The offset in the file at which the segment begins
+		 * @param end     The offset in the file at which the segment ends, exclusive
+		 * @param mapping The mapped data of the segment, including an additional maximal chunk size if available
+		 * @param chunks  The chunks of the segment, as if a chunk would begin at the start of the segment
+		 * @param metrics The recorded metrics of the speculative chunks, {@code null} if the chunker is not metered
+		 */
+		private Segment(final long start, final long end, final ByteBuffer mapping, final List<Chunk> chunks,
+				final SpeculativeScanMetrics metrics) {
+			this.start = start;
+			this.end = end;
+			this.mapping = mapping;
+			this.chunks = chunks;
+			this.metrics = metrics;
+		}
+	}
+
+	/**
+	 * Iterator that stitches the speculatively chunked segments of a file together, as requested.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class SegmentedIterator implements Iterator<Chunk> {
+		/**
+		 * The chunker providing the core, hasher and executor.
+		 */
+		private final SegmentedChunker chunker;
+		/**
+		 * The actual chunks that are ready to be returned, in order.
+		 */
+		private final Queue<Chunk> readyChunks = new ArrayDeque<>();
+		/**
+		 * The segments that are chunked ahead, in order.
+		 */
+		private final Queue<CompletableFuture<Segment>> segments = new ArrayDeque<>();
+		/**
+		 * The file to chunk.
+		 */
+		private final Path path;
+		/**
+		 * The size of the file, in bytes.
+		 */
+		private final long size;
+		/**
+		 * The offset in the file at which the next actual chunk begins.
+		 */
+		private long currentOffset;
+		/**
+		 * The offset in the file at which the next segment to submit begins.
+		 */
+		private long nextSegmentStart;
+
+		/**
+		 * Creates a new iterator and submits the first segments for chunking.
+		 *
+		 * @param path    The file to chunk, not null
+		 * @param size    The size of the file, in bytes, positive and not zero
+		 * @param chunker The chunker providing the core, hasher and executor, not null
+		 */
+		private SegmentedIterator(final Path path, final long size, final SegmentedChunker chunker) {
+			this.path = Objects.requireNonNull(path);
+			this.size = Validations.requirePositiveNonZero(size, "Size");
+			this.chunker = Objects.requireNonNull(chunker);
+			final int segmentsAhead = SegmentedChunker.SEGMENTS_AHEAD_PER_PROCESSOR * Runtime.getRuntime()
+					.availableProcessors();
+			for (int i = 0; i < segmentsAhead && nextSegmentStart < size; i++) {
+				submitNextSegment();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !readyChunks.isEmpty() || currentOffset < size;
+		}
+
+		@Override
+		public Chunk next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("The data stream has ended, can not generate another chunk");
+			}
+			while (readyChunks.isEmpty()) {
+				stitchNextSegment();
+			}
+			return readyChunks.remove();
+		}
+
+		/**
+		 * Maps the segment beginning at the given offset, including an additional maximal chunk size if available.
+		 *
+		 * @param start The offset in the file at which the segment begins
+		 * @param end   The offset in the file at which the segment ends, exclusive
+		 *
+		 * @return The mapped data
+		 */
+		private MappedByteBuffer mapSegment(final long start, final long end) {
+			final long length = Math.min(size, end + chunker.core.getMaximalChunkSize()) - start;
+			// The mapping stays valid after the channel has been closed
+			try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Stitches the next segment to the actual chunks and adds its chunks to the ready chunks. Submits the next
+		 * segment for chunking.
+		 */
+		private void stitchNextSegment() {
+			final Segment segment;
+			try {
+				segment = segments.remove()
+						.join();
+			} catch (final CompletionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IllegalStateException("Chunking a segment failed", cause);
+			}
+			if (nextSegmentStart < size) {
+				submitNextSegment();
+			}
+
+			// The chunk crossing into this segment has already been added by the previous segment
+			int speculativeIndex = 0;
+			while (currentOffset < segment.end) {
+				while (speculativeIndex < segment.chunks.size() && segment.chunks.get(speculativeIndex)
+						.getOffset() < currentOffset) {
+					speculativeIndex++;
+				}
+				if (speculativeIndex < segment.chunks.size() && segment.chunks.get(speculativeIndex)
+						.getOffset() == currentOffset) {
+					// Synchronized, all following speculative chunks are actual chunks
+					final List<Chunk> actualChunks = segment.chunks.subList(speculativeIndex, segment.chunks.size());
+					readyChunks.addAll(actualChunks);
+					if (segment.metrics != null) {
+						segment.metrics.report(speculativeIndex);
+					}
+					final Chunk lastChunk = actualChunks.get(actualChunks.size() - 1);
+					currentOffset = lastChunk.getOffset() + lastChunk.getLength();
+					speculativeIndex = segment.chunks.size();
+					if (currentOffset >= segment.end) {
+						break;
+					}
+				}
+
+				// Chunk sequentially until synchronized, may cross the end of the segment
+				final long chunkEnd = Math.min(size, currentOffset + chunker.core.getMaximalChunkSize());
+				final long nextOffset =
+						chunker.chunkMapping(chunker.core, segment.mapping, segment.start, currentOffset, chunkEnd,
+								size, true, readyChunks);
+				if (nextOffset == currentOffset) {
+					throw new IllegalStateException(
+							"The core must find a cut-point when a chunk of maximal size is available");
+				}
+				currentOffset = nextOffset;
+			}
+		}
+
+		/**
+		 * Submits the next segment for speculative chunking.
+		 */
+		private void submitNextSegment() {
+			final long start = nextSegmentStart;
+			final long end = Math.min(size, start + chunker.segmentSize);
+			nextSegmentStart = end;
+
+			final CompletableFuture<Segment> segment = new CompletableFuture<>();
+			chunker.executor.execute(() -> {
+				try {
+					final MappedByteBuffer mapping = mapSegment(start, end);
+					final List<Chunk> chunks = new ArrayList<>();
+					// Only the speculative chunks that turn out to be actual chunks are reported, once stitched
+					final SpeculativeScanMetrics metrics = SpeculativeScanMetrics.of(chunker.core);
+					chunker.chunkMapping(metrics == null ? chunker.core : metrics.getCore(), mapping, start, start, end,
+							size, false, chunks);
+					segment.complete(new Segment(start, end, mapping, chunks, metrics));
+				} catch (final RuntimeException | Error e) {
+					segment.completeExceptionally(e);
+				}
+			});
+			segments.add(segment);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.FileChunk;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Implementation of a simple file chunk, tagging a given chunk with the file it originates from.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class SimpleFileChunk implements FileChunk {
+	/**
+	 * The tagged chunk.
+	 */
+	private final Chunk chunk;
+	/**
+	 * The file the chunk originates from.
+	 */
+	private final Path file;
+
+	/**
+	 * Creates a new simple file chunk.
+	 *
+	 * @param chunk The chunk to tag, not null
+	 * @param file  The file the chunk originates from, not null
+	 */
+	public SimpleFileChunk(final Chunk chunk, final Path file) {
+		this.chunk = Objects.requireNonNull(chunk);
+		this.file = Objects.requireNonNull(file);
+	}
+
+	@Override
+	public byte[] getData() {
+		return chunk.getData();
+	}
+
+	@Override
+	public ByteBuffer getDataBuffer() {
+		return chunk.getDataBuffer();
+	}
+
+	@Override
+	public Path getFile() {
+		return file;
+	}
+
+	@Override
+	public byte[] getHash() {
+		return chunk.getHash();
+	}
+
+	@Override
+	public String getHexHash() {
+		return chunk.getHexHash();
+	}
+
+	@Override
+	public int getLength() {
+		return chunk.getLength();
+	}
+
+	@Override
+	public long getOffset() {
+		return chunk.getOffset();
+	}
+}
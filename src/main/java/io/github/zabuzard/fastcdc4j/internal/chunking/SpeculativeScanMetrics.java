@@ -0,0 +1,145 @@
+package io.github.zabuzard.fastcdc4j.internal.chunking;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.BufferChunkerCore;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerMetrics;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Metrics of a speculative scan, which record the scans and cut chunks of a metered core per chunk instead of reporting
+ * them right away. Only the chunks that turn out to be actual chunks are reported to the metrics of the core, see
+ * {@link #report(int)}. Reads and hashing are reported right away.
+ * <p>
+ * Used by segmented chunking, whose speculative chunks in front of the first synchronized cut-point of a segment are
+ * discarded. The metrics are not thread-safe, they are filled by a single scanning thread and reported afterwards.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+final class SpeculativeScanMetrics implements ChunkerMetrics {
+	/**
+	 * The initial amount of chunks that can be recorded.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Creates metrics for a speculative scan with the given core.
+	 *
+	 * @param core The core used for chunking, not null
+	 *
+	 * @return The metrics to record the scan with, {@code null} if the core is not metered
+	 */
+	static SpeculativeScanMetrics of(final BufferChunkerCore core) {
+		Objects.requireNonNull(core);
+		if (!(core instanceof MeteredBufferChunkerCore)) {
+			return null;
+		}
+		final MeteredBufferChunkerCore meteredCore = (MeteredBufferChunkerCore) core;
+		return new SpeculativeScanMetrics(meteredCore.getCore(), meteredCore.getMetrics());
+	}
+
+	/**
+	 * The core that scans like the metered core, but records to these metrics.
+	 */
+	private final BufferChunkerCore core;
+	/**
+	 * The metrics to report the actual chunks to.
+	 */
+	private final ChunkerMetrics metrics;
+	/**
+	 * The amount of recorded chunks.
+	 */
+	private int chunkCount;
+	/**
+	 * The length of each recorded chunk, in bytes.
+	 */
+	private int[] lengths = new int[SpeculativeScanMetrics.INITIAL_CAPACITY];
+	/**
+	 * Whether each recorded chunk was cut because it reached the maximal chunk size.
+	 */
+	private boolean[] maximalSizeCuts = new boolean[SpeculativeScanMetrics.INITIAL_CAPACITY];
+	/**
+	 * The amount of bytes scanned since the last recorded chunk.
+	 */
+	private long pendingScanBytes;
+	/**
+	 * The time spent scanning since the last recorded chunk, in nanoseconds.
+	 */
+	private long pendingScanNanos;
+	/**
+	 * The amount of bytes scanned for each recorded chunk.
+	 */
+	private long[] scanBytes = new long[SpeculativeScanMetrics.INITIAL_CAPACITY];
+	/**
+	 * The time spent scanning for each recorded chunk, in nanoseconds.
+	 */
+	private long[] scanNanos = new long[SpeculativeScanMetrics.INITIAL_CAPACITY];
+
+	/**
+	 * Creates new metrics.
+	 *
+	 * @param core    The core whose scans are recorded, not null
+	 * @param metrics The metrics to report the actual chunks to, not null
+	 */
+	private SpeculativeScanMetrics(final BufferChunkerCore core, final ChunkerMetrics metrics) {
+		this.core = new MeteredBufferChunkerCore(core, this);
+		this.metrics = Objects.requireNonNull(metrics);
+	}
+
+	/**
+	 * Gets a core that scans like the metered core, but records its scans and cut chunks to these metrics.
+	 *
+	 * @return The core to use for the speculative scan
+	 */
+	BufferChunkerCore getCore() {
+		return core;
+	}
+
+	@Override
+	public void onChunk(final int length, final boolean cutAtMaximalSize) {
+		if (chunkCount == lengths.length) {
+			final int capacity = 2 * chunkCount;
+			lengths = Arrays.copyOf(lengths, capacity);
+			maximalSizeCuts = Arrays.copyOf(maximalSizeCuts, capacity);
+			scanBytes = Arrays.copyOf(scanBytes, capacity);
+			scanNanos = Arrays.copyOf(scanNanos, capacity);
+		}
+		lengths[chunkCount] = length;
+		maximalSizeCuts[chunkCount] = cutAtMaximalSize;
+		scanBytes[chunkCount] = pendingScanBytes;
+		scanNanos[chunkCount] = pendingScanNanos;
+		chunkCount++;
+		pendingScanBytes = 0;
+		pendingScanNanos = 0;
+	}
+
+	@Override
+	public void onHash(final long bytes, final long nanos) {
+		metrics.onHash(bytes, nanos);
+	}
+
+	@Override
+	public void onRead(final long bytes, final long nanos) {
+		metrics.onRead(bytes, nanos);
+	}
+
+	@Override
+	public void onScan(final long bytes, final long nanos) {
+		pendingScanBytes += bytes;
+		pendingScanNanos += nanos;
+	}
+
+	/**
+	 * Reports the scans and cut chunks of the actual chunks to the metrics of the core. Scans that did not lead to a
+	 * recorded chunk are not reported.
+	 *
+	 * @param firstActualChunk The index of the first recorded chunk that is an actual chunk, all following chunks are
+	 *                         actual chunks as well
+	 */
+	void report(final int firstActualChunk) {
+		for (int i = firstActualChunk; i < chunkCount; i++) {
+			metrics.onScan(scanBytes[i], scanNanos[i]);
+			metrics.onChunk(lengths[i], maximalSizeCuts[i]);
+		}
+	}
+}
@@ -0,0 +1,792 @@
+package io.github.zabuzard.fastcdc4j.internal.hashing;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Implementation of a chunk hasher that computes the cryptographic tree hash BLAKE3 (by Jack O'Connor et al., <a
+ * href="https://github.com/BLAKE3-team/BLAKE3-specs">specification</a>), with the default output length of 256 bits.
+ * <p>
+ * The data is split into chunks of 1 KiB that form the leaves of a binary tree, whose chaining values are merged
+ * incrementally while the data is streaming past.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class Blake3ChunkHasher implements ChunkHasher {
+	/**
+	 * The length of the computed hashes, in bytes.
+	 */
+	private static final int HASH_LENGTH = 32;
+
+	@Override
+	public int getHashLength() {
+		return Blake3ChunkHasher.HASH_LENGTH;
+	}
+
+	@Override
+	public ChunkDigest newDigest() {
+		return new Blake3Digest();
+	}
+
+	/**
+	 * Digest that incrementally computes BLAKE3, following the structure of the reference implementation.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	@SuppressWarnings({ "MagicNumber", "ClassWithTooManyFields" })
+	private static final class Blake3Digest implements ChunkDigest {
+		/**
+		 * The size of a block compressed at once, in bytes.
+		 */
+		private static final int BLOCK_LEN = 64;
+		/**
+		 * The size of a leaf of the tree, in bytes.
+		 */
+		private static final int CHUNK_LEN = 1_024;
+		/**
+		 * Flag marking the last block of a leaf.
+		 */
+		private static final int CHUNK_END = 1 << 1;
+		/**
+		 * Flag marking the first block of a leaf.
+		 */
+		private static final int CHUNK_START = 1;
+		/**
+		 * The initialization vector, equal to the one of SHA-256.
+		 */
+		private static final int[] IV =
+				{ 0x6A09_E667, 0xBB67_AE85, 0x3C6E_F372, 0xA54F_F53A, 0x510E_527F, 0x9B05_688C, 0x1F83_D9AB,
+						0x5BE0_CD19 };
+		/**
+		 * The maximal depth of the tree, enough for inputs of {@code 2^64} bytes.
+		 */
+		private static final int MAX_DEPTH = 54;
+		/**
+		 * Flag marking a parent node of the tree.
+		 */
+		private static final int PARENT = 1 << 2;
+		/**
+		 * Flag marking the root node of the tree.
+		 */
+		private static final int ROOT = 1 << 3;
+		/**
+		 * Access to little-endian ints in byte arrays.
+		 */
+		private static final VarHandle INT_LITTLE_ENDIAN =
+				MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+		/**
+		 * The buffered block of the current leaf, as little-endian bytes.
+		 */
+		private final byte[] block = new byte[Blake3Digest.BLOCK_LEN];
+		/**
+		 * The message words of the block, as used by the compression function.
+		 */
+		private final int[] blockWords = new int[16];
+		/**
+		 * The chaining value of the current leaf.
+		 */
+		private final int[] chainingValue = new int[8];
+		/**
+		 * The stack of chaining values of completed subtrees, 8 words per entry.
+		 */
+		private final int[] chainingValueStack = new int[Blake3Digest.MAX_DEPTH * 8];
+		/**
+		 * The output of the compression function, the first half of its final state.
+		 */
+		private final int[] state = new int[8];
+		/**
+		 * The amount of bytes in the buffered block.
+		 */
+		private int blockLength;
+		/**
+		 * The amount of blocks of the current leaf that have already been compressed.
+		 */
+		private int blocksCompressed;
+		/**
+		 * The amount of entries on the stack of chaining values.
+		 */
+		private int chainingValueStackSize;
+		/**
+		 * The index of the current leaf.
+		 */
+		private long chunkCounter;
+
+		/**
+		 * Creates a new digest.
+		 */
+		private Blake3Digest() {
+			reset();
+		}
+
+		@Override
+		public byte[] digest() {
+			final byte[] hash = new byte[Blake3ChunkHasher.HASH_LENGTH];
+			digest(hash, 0);
+			return hash;
+		}
+
+		@Override
+		public void digest(final byte[] target, final int offset) {
+			// The current leaf is the right-most node, merge it up to the root
+			int[] output = Arrays.copyOf(chainingValue, 8);
+			loadBlockWords();
+			int outputCounterLow = (int) chunkCounter;
+			int outputCounterHigh = (int) (chunkCounter >>> 32);
+			int outputBlockLength = blockLength;
+			int outputFlags = blocksCompressed == 0 ? Blake3Digest.CHUNK_START | Blake3Digest.CHUNK_END
+					: Blake3Digest.CHUNK_END;
+
+			for (int i = chainingValueStackSize - 1; i >= 0; i--) {
+				compress(output, outputCounterLow, outputCounterHigh, outputBlockLength, outputFlags);
+				System.arraycopy(chainingValueStack, i * 8, blockWords, 0, 8);
+				System.arraycopy(state, 0, blockWords, 8, 8);
+				output = Arrays.copyOf(Blake3Digest.IV, 8);
+				outputCounterLow = 0;
+				outputCounterHigh = 0;
+				outputBlockLength = Blake3Digest.BLOCK_LEN;
+				outputFlags = Blake3Digest.PARENT;
+			}
+			compress(output, outputCounterLow, outputCounterHigh, outputBlockLength, outputFlags | Blake3Digest.ROOT);
+
+			for (int i = 0; i < 8; i++) {
+				Blake3Digest.INT_LITTLE_ENDIAN.set(target, offset + i * 4, state[i]);
+			}
+
+			reset();
+		}
+
+		@Override
+		public void update(final byte[] data, final int offset, final int length) {
+			Objects.requireNonNull(data);
+			Objects.checkFromIndexSize(offset, length, data.length);
+
+			int i = offset;
+			final int end = offset + length;
+			while (i < end) {
+				// A full block is only compressed once more data follows, the last block of a leaf is special
+				if (blockLength == Blake3Digest.BLOCK_LEN) {
+					if (blocksCompressed == Blake3Digest.CHUNK_LEN / Blake3Digest.BLOCK_LEN - 1) {
+						completeChunk();
+					} else {
+						compressBlock();
+					}
+				}
+
+				final int taken = Math.min(Blake3Digest.BLOCK_LEN - blockLength, end - i);
+				System.arraycopy(data, i, block, blockLength, taken);
+				blockLength += taken;
+				i += taken;
+			}
+		}
+
+		@Override
+		public void update(final ByteBuffer data) {
+			Objects.requireNonNull(data);
+			if (data.hasArray()) {
+				update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+				data.position(data.limit());
+				return;
+			}
+
+			while (data.hasRemaining()) {
+				if (blockLength == Blake3Digest.BLOCK_LEN) {
+					if (blocksCompressed == Blake3Digest.CHUNK_LEN / Blake3Digest.BLOCK_LEN - 1) {
+						completeChunk();
+					} else {
+						compressBlock();
+					}
+				}
+
+				final int taken = Math.min(Blake3Digest.BLOCK_LEN - blockLength, data.remaining());
+				data.get(block, blockLength, taken);
+				blockLength += taken;
+			}
+		}
+
+		/**
+		 * Completes the current leaf, whose last block is buffered, and pushes its chaining value onto the stack,
+		 * merging completed subtrees.
+		 */
+		private void completeChunk() {
+			loadBlockWords();
+			compress(chainingValue, (int) chunkCounter, (int) (chunkCounter >>> 32), Blake3Digest.BLOCK_LEN,
+					Blake3Digest.CHUNK_END);
+			System.arraycopy(state, 0, chainingValue, 0, 8);
+
+			// Each trailing 1-bit of the amount of leaves completes a subtree
+			long totalChunks = chunkCounter + 1;
+			while ((totalChunks & 1) == 0) {
+				chainingValueStackSize--;
+				System.arraycopy(chainingValueStack, chainingValueStackSize * 8, blockWords, 0, 8);
+				System.arraycopy(chainingValue, 0, blockWords, 8, 8);
+				compress(Blake3Digest.IV, 0, 0, Blake3Digest.BLOCK_LEN, Blake3Digest.PARENT);
+				System.arraycopy(state, 0, chainingValue, 0, 8);
+				totalChunks >>>= 1;
+			}
+			System.arraycopy(chainingValue, 0, chainingValueStack, chainingValueStackSize * 8, 8);
+			chainingValueStackSize++;
+
+			chunkCounter++;
+			System.arraycopy(Blake3Digest.IV, 0, chainingValue, 0, 8);
+			blocksCompressed = 0;
+			blockLength = 0;
+		}
+
+		/**
+		 * Runs the compression function on the current message words. The result is available in the state.
+		 * <p>
+		 * The state is kept in local variables and all 7 rounds are unrolled. Instead of permuting the message words
+		 * between rounds (by {@code 2, 6, 3, 10, 7, 0, 4, 13, 1, 11, 12, 5, 9, 14, 15, 8}), each round uses the words
+		 * at their permuted positions directly.
+		 *
+		 * @param inputChainingValue The input chaining value
+		 * @param counterLow         The lower half of the counter
+		 * @param counterHigh        The higher half of the counter
+		 * @param length             The amount of bytes in the block
+		 * @param flags              The domain separation flags
+		 */
+		@SuppressWarnings({ "OverlyLongMethod", "LocalVariableNamingConvention", "DuplicatedCode" })
+		private void compress(final int[] inputChainingValue, final int counterLow, final int counterHigh,
+				final int length, final int flags) {
+			int s0 = inputChainingValue[0];
+			int s1 = inputChainingValue[1];
+			int s2 = inputChainingValue[2];
+			int s3 = inputChainingValue[3];
+			int s4 = inputChainingValue[4];
+			int s5 = inputChainingValue[5];
+			int s6 = inputChainingValue[6];
+			int s7 = inputChainingValue[7];
+			int s8 = Blake3Digest.IV[0];
+			int s9 = Blake3Digest.IV[1];
+			int s10 = Blake3Digest.IV[2];
+			int s11 = Blake3Digest.IV[3];
+			int s12 = counterLow;
+			int s13 = counterHigh;
+			int s14 = length;
+			int s15 = flags;
+
+			final int m0 = blockWords[0];
+			final int m1 = blockWords[1];
+			final int m2 = blockWords[2];
+			final int m3 = blockWords[3];
+			final int m4 = blockWords[4];
+			final int m5 = blockWords[5];
+			final int m6 = blockWords[6];
+			final int m7 = blockWords[7];
+			final int m8 = blockWords[8];
+			final int m9 = blockWords[9];
+			final int m10 = blockWords[10];
+			final int m11 = blockWords[11];
+			final int m12 = blockWords[12];
+			final int m13 = blockWords[13];
+			final int m14 = blockWords[14];
+			final int m15 = blockWords[15];
+
+			// Round 1
+			s0 += s4 + m0;
+			s12 = Integer.rotateRight(s12 ^ s0, 16);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 12);
+			s0 += s4 + m1;
+			s12 = Integer.rotateRight(s12 ^ s0, 8);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 7);
+			s1 += s5 + m2;
+			s13 = Integer.rotateRight(s13 ^ s1, 16);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 12);
+			s1 += s5 + m3;
+			s13 = Integer.rotateRight(s13 ^ s1, 8);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 7);
+			s2 += s6 + m4;
+			s14 = Integer.rotateRight(s14 ^ s2, 16);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 12);
+			s2 += s6 + m5;
+			s14 = Integer.rotateRight(s14 ^ s2, 8);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 7);
+			s3 += s7 + m6;
+			s15 = Integer.rotateRight(s15 ^ s3, 16);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 12);
+			s3 += s7 + m7;
+			s15 = Integer.rotateRight(s15 ^ s3, 8);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 7);
+			s0 += s5 + m8;
+			s15 = Integer.rotateRight(s15 ^ s0, 16);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 12);
+			s0 += s5 + m9;
+			s15 = Integer.rotateRight(s15 ^ s0, 8);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 7);
+			s1 += s6 + m10;
+			s12 = Integer.rotateRight(s12 ^ s1, 16);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 12);
+			s1 += s6 + m11;
+			s12 = Integer.rotateRight(s12 ^ s1, 8);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 7);
+			s2 += s7 + m12;
+			s13 = Integer.rotateRight(s13 ^ s2, 16);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 12);
+			s2 += s7 + m13;
+			s13 = Integer.rotateRight(s13 ^ s2, 8);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 7);
+			s3 += s4 + m14;
+			s14 = Integer.rotateRight(s14 ^ s3, 16);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 12);
+			s3 += s4 + m15;
+			s14 = Integer.rotateRight(s14 ^ s3, 8);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 7);
+			// Round 2
+			s0 += s4 + m2;
+			s12 = Integer.rotateRight(s12 ^ s0, 16);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 12);
+			s0 += s4 + m6;
+			s12 = Integer.rotateRight(s12 ^ s0, 8);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 7);
+			s1 += s5 + m3;
+			s13 = Integer.rotateRight(s13 ^ s1, 16);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 12);
+			s1 += s5 + m10;
+			s13 = Integer.rotateRight(s13 ^ s1, 8);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 7);
+			s2 += s6 + m7;
+			s14 = Integer.rotateRight(s14 ^ s2, 16);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 12);
+			s2 += s6 + m0;
+			s14 = Integer.rotateRight(s14 ^ s2, 8);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 7);
+			s3 += s7 + m4;
+			s15 = Integer.rotateRight(s15 ^ s3, 16);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 12);
+			s3 += s7 + m13;
+			s15 = Integer.rotateRight(s15 ^ s3, 8);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 7);
+			s0 += s5 + m1;
+			s15 = Integer.rotateRight(s15 ^ s0, 16);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 12);
+			s0 += s5 + m11;
+			s15 = Integer.rotateRight(s15 ^ s0, 8);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 7);
+			s1 += s6 + m12;
+			s12 = Integer.rotateRight(s12 ^ s1, 16);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 12);
+			s1 += s6 + m5;
+			s12 = Integer.rotateRight(s12 ^ s1, 8);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 7);
+			s2 += s7 + m9;
+			s13 = Integer.rotateRight(s13 ^ s2, 16);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 12);
+			s2 += s7 + m14;
+			s13 = Integer.rotateRight(s13 ^ s2, 8);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 7);
+			s3 += s4 + m15;
+			s14 = Integer.rotateRight(s14 ^ s3, 16);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 12);
+			s3 += s4 + m8;
+			s14 = Integer.rotateRight(s14 ^ s3, 8);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 7);
+			// Round 3
+			s0 += s4 + m3;
+			s12 = Integer.rotateRight(s12 ^ s0, 16);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 12);
+			s0 += s4 + m4;
+			s12 = Integer.rotateRight(s12 ^ s0, 8);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 7);
+			s1 += s5 + m10;
+			s13 = Integer.rotateRight(s13 ^ s1, 16);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 12);
+			s1 += s5 + m12;
+			s13 = Integer.rotateRight(s13 ^ s1, 8);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 7);
+			s2 += s6 + m13;
+			s14 = Integer.rotateRight(s14 ^ s2, 16);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 12);
+			s2 += s6 + m2;
+			s14 = Integer.rotateRight(s14 ^ s2, 8);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 7);
+			s3 += s7 + m7;
+			s15 = Integer.rotateRight(s15 ^ s3, 16);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 12);
+			s3 += s7 + m14;
+			s15 = Integer.rotateRight(s15 ^ s3, 8);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 7);
+			s0 += s5 + m6;
+			s15 = Integer.rotateRight(s15 ^ s0, 16);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 12);
+			s0 += s5 + m5;
+			s15 = Integer.rotateRight(s15 ^ s0, 8);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 7);
+			s1 += s6 + m9;
+			s12 = Integer.rotateRight(s12 ^ s1, 16);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 12);
+			s1 += s6 + m0;
+			s12 = Integer.rotateRight(s12 ^ s1, 8);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 7);
+			s2 += s7 + m11;
+			s13 = Integer.rotateRight(s13 ^ s2, 16);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 12);
+			s2 += s7 + m15;
+			s13 = Integer.rotateRight(s13 ^ s2, 8);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 7);
+			s3 += s4 + m8;
+			s14 = Integer.rotateRight(s14 ^ s3, 16);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 12);
+			s3 += s4 + m1;
+			s14 = Integer.rotateRight(s14 ^ s3, 8);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 7);
+			// Round 4
+			s0 += s4 + m10;
+			s12 = Integer.rotateRight(s12 ^ s0, 16);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 12);
+			s0 += s4 + m7;
+			s12 = Integer.rotateRight(s12 ^ s0, 8);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 7);
+			s1 += s5 + m12;
+			s13 = Integer.rotateRight(s13 ^ s1, 16);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 12);
+			s1 += s5 + m9;
+			s13 = Integer.rotateRight(s13 ^ s1, 8);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 7);
+			s2 += s6 + m14;
+			s14 = Integer.rotateRight(s14 ^ s2, 16);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 12);
+			s2 += s6 + m3;
+			s14 = Integer.rotateRight(s14 ^ s2, 8);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 7);
+			s3 += s7 + m13;
+			s15 = Integer.rotateRight(s15 ^ s3, 16);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 12);
+			s3 += s7 + m15;
+			s15 = Integer.rotateRight(s15 ^ s3, 8);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 7);
+			s0 += s5 + m4;
+			s15 = Integer.rotateRight(s15 ^ s0, 16);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 12);
+			s0 += s5 + m0;
+			s15 = Integer.rotateRight(s15 ^ s0, 8);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 7);
+			s1 += s6 + m11;
+			s12 = Integer.rotateRight(s12 ^ s1, 16);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 12);
+			s1 += s6 + m2;
+			s12 = Integer.rotateRight(s12 ^ s1, 8);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 7);
+			s2 += s7 + m5;
+			s13 = Integer.rotateRight(s13 ^ s2, 16);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 12);
+			s2 += s7 + m8;
+			s13 = Integer.rotateRight(s13 ^ s2, 8);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 7);
+			s3 += s4 + m1;
+			s14 = Integer.rotateRight(s14 ^ s3, 16);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 12);
+			s3 += s4 + m6;
+			s14 = Integer.rotateRight(s14 ^ s3, 8);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 7);
+			// Round 5
+			s0 += s4 + m12;
+			s12 = Integer.rotateRight(s12 ^ s0, 16);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 12);
+			s0 += s4 + m13;
+			s12 = Integer.rotateRight(s12 ^ s0, 8);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 7);
+			s1 += s5 + m9;
+			s13 = Integer.rotateRight(s13 ^ s1, 16);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 12);
+			s1 += s5 + m11;
+			s13 = Integer.rotateRight(s13 ^ s1, 8);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 7);
+			s2 += s6 + m15;
+			s14 = Integer.rotateRight(s14 ^ s2, 16);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 12);
+			s2 += s6 + m10;
+			s14 = Integer.rotateRight(s14 ^ s2, 8);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 7);
+			s3 += s7 + m14;
+			s15 = Integer.rotateRight(s15 ^ s3, 16);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 12);
+			s3 += s7 + m8;
+			s15 = Integer.rotateRight(s15 ^ s3, 8);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 7);
+			s0 += s5 + m7;
+			s15 = Integer.rotateRight(s15 ^ s0, 16);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 12);
+			s0 += s5 + m2;
+			s15 = Integer.rotateRight(s15 ^ s0, 8);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 7);
+			s1 += s6 + m5;
+			s12 = Integer.rotateRight(s12 ^ s1, 16);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 12);
+			s1 += s6 + m3;
+			s12 = Integer.rotateRight(s12 ^ s1, 8);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 7);
+			s2 += s7 + m0;
+			s13 = Integer.rotateRight(s13 ^ s2, 16);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 12);
+			s2 += s7 + m1;
+			s13 = Integer.rotateRight(s13 ^ s2, 8);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 7);
+			s3 += s4 + m6;
+			s14 = Integer.rotateRight(s14 ^ s3, 16);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 12);
+			s3 += s4 + m4;
+			s14 = Integer.rotateRight(s14 ^ s3, 8);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 7);
+			// Round 6
+			s0 += s4 + m9;
+			s12 = Integer.rotateRight(s12 ^ s0, 16);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 12);
+			s0 += s4 + m14;
+			s12 = Integer.rotateRight(s12 ^ s0, 8);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 7);
+			s1 += s5 + m11;
+			s13 = Integer.rotateRight(s13 ^ s1, 16);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 12);
+			s1 += s5 + m5;
+			s13 = Integer.rotateRight(s13 ^ s1, 8);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 7);
+			s2 += s6 + m8;
+			s14 = Integer.rotateRight(s14 ^ s2, 16);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 12);
+			s2 += s6 + m12;
+			s14 = Integer.rotateRight(s14 ^ s2, 8);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 7);
+			s3 += s7 + m15;
+			s15 = Integer.rotateRight(s15 ^ s3, 16);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 12);
+			s3 += s7 + m1;
+			s15 = Integer.rotateRight(s15 ^ s3, 8);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 7);
+			s0 += s5 + m13;
+			s15 = Integer.rotateRight(s15 ^ s0, 16);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 12);
+			s0 += s5 + m3;
+			s15 = Integer.rotateRight(s15 ^ s0, 8);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 7);
+			s1 += s6 + m0;
+			s12 = Integer.rotateRight(s12 ^ s1, 16);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 12);
+			s1 += s6 + m10;
+			s12 = Integer.rotateRight(s12 ^ s1, 8);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 7);
+			s2 += s7 + m2;
+			s13 = Integer.rotateRight(s13 ^ s2, 16);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 12);
+			s2 += s7 + m6;
+			s13 = Integer.rotateRight(s13 ^ s2, 8);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 7);
+			s3 += s4 + m4;
+			s14 = Integer.rotateRight(s14 ^ s3, 16);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 12);
+			s3 += s4 + m7;
+			s14 = Integer.rotateRight(s14 ^ s3, 8);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 7);
+			// Round 7
+			s0 += s4 + m11;
+			s12 = Integer.rotateRight(s12 ^ s0, 16);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 12);
+			s0 += s4 + m15;
+			s12 = Integer.rotateRight(s12 ^ s0, 8);
+			s8 += s12;
+			s4 = Integer.rotateRight(s4 ^ s8, 7);
+			s1 += s5 + m5;
+			s13 = Integer.rotateRight(s13 ^ s1, 16);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 12);
+			s1 += s5 + m0;
+			s13 = Integer.rotateRight(s13 ^ s1, 8);
+			s9 += s13;
+			s5 = Integer.rotateRight(s5 ^ s9, 7);
+			s2 += s6 + m1;
+			s14 = Integer.rotateRight(s14 ^ s2, 16);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 12);
+			s2 += s6 + m9;
+			s14 = Integer.rotateRight(s14 ^ s2, 8);
+			s10 += s14;
+			s6 = Integer.rotateRight(s6 ^ s10, 7);
+			s3 += s7 + m8;
+			s15 = Integer.rotateRight(s15 ^ s3, 16);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 12);
+			s3 += s7 + m6;
+			s15 = Integer.rotateRight(s15 ^ s3, 8);
+			s11 += s15;
+			s7 = Integer.rotateRight(s7 ^ s11, 7);
+			s0 += s5 + m14;
+			s15 = Integer.rotateRight(s15 ^ s0, 16);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 12);
+			s0 += s5 + m10;
+			s15 = Integer.rotateRight(s15 ^ s0, 8);
+			s10 += s15;
+			s5 = Integer.rotateRight(s5 ^ s10, 7);
+			s1 += s6 + m2;
+			s12 = Integer.rotateRight(s12 ^ s1, 16);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 12);
+			s1 += s6 + m12;
+			s12 = Integer.rotateRight(s12 ^ s1, 8);
+			s11 += s12;
+			s6 = Integer.rotateRight(s6 ^ s11, 7);
+			s2 += s7 + m3;
+			s13 = Integer.rotateRight(s13 ^ s2, 16);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 12);
+			s2 += s7 + m4;
+			s13 = Integer.rotateRight(s13 ^ s2, 8);
+			s8 += s13;
+			s7 = Integer.rotateRight(s7 ^ s8, 7);
+			s3 += s4 + m7;
+			s14 = Integer.rotateRight(s14 ^ s3, 16);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 12);
+			s3 += s4 + m13;
+			s14 = Integer.rotateRight(s14 ^ s3, 8);
+			s9 += s14;
+			s4 = Integer.rotateRight(s4 ^ s9, 7);
+
+			state[0] = s0 ^ s8;
+			state[1] = s1 ^ s9;
+			state[2] = s2 ^ s10;
+			state[3] = s3 ^ s11;
+			state[4] = s4 ^ s12;
+			state[5] = s5 ^ s13;
+			state[6] = s6 ^ s14;
+			state[7] = s7 ^ s15;
+		}
+
+		/**
+		 * Compresses the buffered block, which is not the last block of the current leaf, into the chaining value.
+		 */
+		private void compressBlock() {
+			loadBlockWords();
+			compress(chainingValue, (int) chunkCounter, (int) (chunkCounter >>> 32), Blake3Digest.BLOCK_LEN,
+					blocksCompressed == 0 ? Blake3Digest.CHUNK_START : 0);
+			System.arraycopy(state, 0, chainingValue, 0, 8);
+			blocksCompressed++;
+			blockLength = 0;
+		}
+
+		/**
+		 * Converts the buffered block into message words, padding it with zeros.
+		 */
+		private void loadBlockWords() {
+			Arrays.fill(block, blockLength, Blake3Digest.BLOCK_LEN, (byte) 0);
+			for (int i = 0; i < 16; i++) {
+				blockWords[i] = (int) Blake3Digest.INT_LITTLE_ENDIAN.get(block, i * 4);
+			}
+		}
+
+		/**
+		 * Resets the digest to its initial state.
+		 */
+		private void reset() {
+			System.arraycopy(Blake3Digest.IV, 0, chainingValue, 0, 8);
+			chainingValueStackSize = 0;
+			chunkCounter = 0;
+			blocksCompressed = 0;
+			blockLength = 0;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package io.github.zabuzard.fastcdc4j.internal.hashing;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Implementation of a chunk hasher that adapts a {@link MessageDigest}.
+ * <p>
+ * Instances of the message digest are reused per thread for {@link #hash(byte[])}, instead of creating a new one for
+ * every chunk.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class MessageDigestChunkHasher implements ChunkHasher {
+	/**
+	 * Creates a new message digest for the given method.
+	 *
+	 * @param hashMethod The hash method to use, has to be supported by {@link MessageDigest}, not null
+	 *
+	 * @return The created message digest
+	 */
+	private static MessageDigest createMessageDigest(final String hashMethod) {
+		try {
+			return MessageDigest.getInstance(hashMethod);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("The given hash method is not supported, was: " + hashMethod, e);
+		}
+	}
+
+	/**
+	 * The length of the hashes computed by the message digest, in bytes.
+	 */
+	private final int hashLength;
+	/**
+	 * The hash method used by the message digest.
+	 */
+	private final String hashMethod;
+	/**
+	 * The message digest reused per thread.
+	 */
+	private final ThreadLocal<MessageDigest> threadDigest;
+
+	/**
+	 * Creates a new hasher.
+	 *
+	 * @param hashMethod The hash method to use, has to be supported and accepted by {@link MessageDigest}
+	 */
+	public MessageDigestChunkHasher(final String hashMethod) {
+		Objects.requireNonNull(hashMethod);
+		final MessageDigest prototype = MessageDigestChunkHasher.createMessageDigest(hashMethod);
+		// Providers are allowed to not know the length upfront
+		final int digestLength = prototype.getDigestLength();
+		hashLength = digestLength != 0 ? digestLength : prototype.digest().length;
+
+		this.hashMethod = hashMethod;
+		threadDigest = ThreadLocal.withInitial(() -> MessageDigestChunkHasher.createMessageDigest(hashMethod));
+	}
+
+	@Override
+	public int getHashLength() {
+		return hashLength;
+	}
+
+	@Override
+	public byte[] hash(final byte[] data) {
+		Objects.requireNonNull(data);
+		return threadDigest.get()
+				.digest(data);
+	}
+
+	@Override
+	public byte[] hash(final ByteBuffer data) {
+		Objects.requireNonNull(data);
+		final MessageDigest digest = threadDigest.get();
+		digest.update(data.duplicate());
+		return digest.digest();
+	}
+
+	@Override
+	public ChunkDigest newDigest() {
+		return new MessageDigestAdapter(MessageDigestChunkHasher.createMessageDigest(hashMethod));
+	}
+
+	/**
+	 * Chunk digest that delegates to a message digest.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class MessageDigestAdapter implements ChunkDigest {
+		/**
+		 * The message digest to delegate to.
+		 */
+		private final MessageDigest digest;
+
+		/**
+		 * Creates a new adapter.
+		 *
+		 * @param digest The message digest to delegate to, not null
+		 */
+		private MessageDigestAdapter(final MessageDigest digest) {
+			this.digest = Objects.requireNonNull(digest);
+		}
+
+		@Override
+		public byte[] digest() {
+			return digest.digest();
+		}
+
+		@Override
+		public void digest(final byte[] target, final int offset) {
+			try {
+				digest.digest(target, offset, digest.getDigestLength());
+			} catch (final DigestException e) {
+				throw new IllegalArgumentException("The array has no room for the hash at the given offset", e);
+			}
+		}
+
+		@Override
+		public void update(final byte[] data, final int offset, final int length) {
+			digest.update(data, offset, length);
+		}
+
+		@Override
+		public void update(final ByteBuffer data) {
+			digest.update(data);
+		}
+	}
+}
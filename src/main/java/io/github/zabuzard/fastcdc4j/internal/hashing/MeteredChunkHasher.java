@@ -0,0 +1,120 @@
+package io.github.zabuzard.fastcdc4j.internal.hashing;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkerMetrics;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Implementation of a chunk hasher that reports the data hashed by a given hasher to {@link ChunkerMetrics}.
+ * <p>
+ * The hashes are the ones of the given hasher.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class MeteredChunkHasher implements ChunkHasher {
+	/**
+	 * The hasher whose hashing is reported.
+	 */
+	private final ChunkHasher hasher;
+	/**
+	 * The metrics to report to.
+	 */
+	private final ChunkerMetrics metrics;
+
+	/**
+	 * Creates a new hasher.
+	 *
+	 * @param hasher  The hasher whose hashing is reported, not null
+	 * @param metrics The metrics to report to, not null
+	 */
+	public MeteredChunkHasher(final ChunkHasher hasher, final ChunkerMetrics metrics) {
+		this.hasher = Objects.requireNonNull(hasher);
+		this.metrics = Objects.requireNonNull(metrics);
+	}
+
+	@Override
+	public int getHashLength() {
+		return hasher.getHashLength();
+	}
+
+	@Override
+	public byte[] hash(final byte[] data) {
+		final long begin = System.nanoTime();
+		final byte[] hash = hasher.hash(data);
+		metrics.onHash(data.length, System.nanoTime() - begin);
+		return hash;
+	}
+
+	@Override
+	public byte[] hash(final ByteBuffer data) {
+		final long begin = System.nanoTime();
+		final byte[] hash = hasher.hash(data);
+		metrics.onHash(data.remaining(), System.nanoTime() - begin);
+		return hash;
+	}
+
+	@Override
+	public ChunkDigest newDigest() {
+		return new MeteredDigest(hasher.newDigest(), metrics);
+	}
+
+	/**
+	 * Digest that reports the data hashed by a given digest.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class MeteredDigest implements ChunkDigest {
+		/**
+		 * The digest whose hashing is reported.
+		 */
+		private final ChunkDigest digest;
+		/**
+		 * The metrics to report to.
+		 */
+		private final ChunkerMetrics metrics;
+
+		/**
+		 * Creates a new digest.
+		 *
+		 * @param digest  The digest whose hashing is reported, not null
+		 * @param metrics The metrics to report to, not null
+		 */
+		private MeteredDigest(final ChunkDigest digest, final ChunkerMetrics metrics) {
+			this.digest = Objects.requireNonNull(digest);
+			this.metrics = Objects.requireNonNull(metrics);
+		}
+
+		@Override
+		public byte[] digest() {
+			final long begin = System.nanoTime();
+			final byte[] hash = digest.digest();
+			metrics.onHash(0, System.nanoTime() - begin);
+			return hash;
+		}
+
+		@Override
+		public void digest(final byte[] target, final int offset) {
+			final long begin = System.nanoTime();
+			digest.digest(target, offset);
+			metrics.onHash(0, System.nanoTime() - begin);
+		}
+
+		@Override
+		public void update(final byte[] data, final int offset, final int length) {
+			final long begin = System.nanoTime();
+			digest.update(data, offset, length);
+			metrics.onHash(length, System.nanoTime() - begin);
+		}
+
+		@Override
+		public void update(final ByteBuffer data) {
+			final int length = data.remaining();
+			final long begin = System.nanoTime();
+			digest.update(data);
+			metrics.onHash(length, System.nanoTime() - begin);
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package io.github.zabuzard.fastcdc4j.internal.hashing;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Implementation of a chunk hasher that computes the non-cryptographic 128-bit variant of MurmurHash3, optimized for
+ * 64-bit platforms ({@code MurmurHash3_x64_128} by Austin Appleby, <a href="https://github.com/aappleby/smhasher">source</a>).
+ * <p>
+ * The hash is computed with a seed of {@code 0} and consists of the two 64-bit halves in little-endian byte order.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class Murmur3ChunkHasher implements ChunkHasher {
+	/**
+	 * The length of the computed hashes, in bytes.
+	 */
+	private static final int HASH_LENGTH = 16;
+
+	@Override
+	public int getHashLength() {
+		return Murmur3ChunkHasher.HASH_LENGTH;
+	}
+
+	@Override
+	public ChunkDigest newDigest() {
+		return new Murmur3Digest();
+	}
+
+	/**
+	 * Digest that incrementally computes MurmurHash3. Data is processed in blocks of 16 bytes, incomplete blocks are
+	 * buffered until the next update.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	@SuppressWarnings("MagicNumber")
+	private static final class Murmur3Digest implements ChunkDigest {
+		/**
+		 * The size of a block processed at once, in bytes.
+		 */
+		private static final int BLOCK_SIZE = 16;
+		/**
+		 * The first mixing constant.
+		 */
+		private static final long C1 = 0x87c3_7b91_1142_53d5L;
+		/**
+		 * The second mixing constant.
+		 */
+		private static final long C2 = 0x4cf5_ad43_2745_937fL;
+		/**
+		 * Access to little-endian longs in byte arrays.
+		 */
+		private static final VarHandle LONG_LITTLE_ENDIAN =
+				MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+		/**
+		 * Finalization mix, forcing all bits of the given value to avalanche.
+		 *
+		 * @param value The value to mix
+		 *
+		 * @return The mixed value
+		 */
+		private static long mix(final long value) {
+			long k = value;
+			k ^= k >>> 33;
+			k *= 0xff51_afd7_ed55_8ccdL;
+			k ^= k >>> 33;
+			k *= 0xc4ce_b9fe_1a85_ec53L;
+			k ^= k >>> 33;
+			return k;
+		}
+
+		/**
+		 * Buffer for an incomplete block.
+		 */
+		private final byte[] tail = new byte[Murmur3Digest.BLOCK_SIZE];
+		/**
+		 * The first half of the hash state.
+		 */
+		private long h1;
+		/**
+		 * The second half of the hash state.
+		 */
+		private long h2;
+		/**
+		 * The total amount of bytes the digest was updated with.
+		 */
+		private long length;
+		/**
+		 * The amount of bytes in the buffer for an incomplete block.
+		 */
+		private int tailLength;
+
+		@Override
+		public byte[] digest() {
+			final byte[] hash = new byte[Murmur3ChunkHasher.HASH_LENGTH];
+			digest(hash, 0);
+			return hash;
+		}
+
+		@Override
+		public void digest(final byte[] target, final int offset) {
+			long k1 = 0;
+			long k2 = 0;
+			for (int i = tailLength - 1; i >= 8; i--) {
+				k2 ^= (tail[i] & 0xFFL) << ((i - 8) << 3);
+			}
+			for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+				k1 ^= (tail[i] & 0xFFL) << (i << 3);
+			}
+			if (tailLength > 8) {
+				k2 *= Murmur3Digest.C2;
+				k2 = Long.rotateLeft(k2, 33);
+				k2 *= Murmur3Digest.C1;
+				h2 ^= k2;
+			}
+			if (tailLength > 0) {
+				k1 *= Murmur3Digest.C1;
+				k1 = Long.rotateLeft(k1, 31);
+				k1 *= Murmur3Digest.C2;
+				h1 ^= k1;
+			}
+
+			h1 ^= length;
+			h2 ^= length;
+			h1 += h2;
+			h2 += h1;
+			h1 = Murmur3Digest.mix(h1);
+			h2 = Murmur3Digest.mix(h2);
+			h1 += h2;
+			h2 += h1;
+
+			Murmur3Digest.LONG_LITTLE_ENDIAN.set(target, offset, h1);
+			Murmur3Digest.LONG_LITTLE_ENDIAN.set(target, offset + 8, h2);
+
+			h1 = 0;
+			h2 = 0;
+			length = 0;
+			tailLength = 0;
+		}
+
+		@Override
+		public void update(final byte[] data, final int offset, final int length) {
+			Objects.requireNonNull(data);
+			Objects.checkFromIndexSize(offset, length, data.length);
+			this.length += length;
+
+			int i = offset;
+			final int end = offset + length;
+			if (tailLength > 0) {
+				final int taken = Math.min(Murmur3Digest.BLOCK_SIZE - tailLength, length);
+				System.arraycopy(data, i, tail, tailLength, taken);
+				tailLength += taken;
+				i += taken;
+				if (tailLength < Murmur3Digest.BLOCK_SIZE) {
+					return;
+				}
+				processBlock(tail, 0);
+				tailLength = 0;
+			}
+
+			for (; end - i >= Murmur3Digest.BLOCK_SIZE; i += Murmur3Digest.BLOCK_SIZE) {
+				processBlock(data, i);
+			}
+
+			tailLength = end - i;
+			System.arraycopy(data, i, tail, 0, tailLength);
+		}
+
+		@Override
+		public void update(final ByteBuffer data) {
+			Objects.requireNonNull(data);
+			if (data.hasArray()) {
+				update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+				data.position(data.limit());
+				return;
+			}
+
+			length += data.remaining();
+			if (tailLength > 0) {
+				final int taken = Math.min(Murmur3Digest.BLOCK_SIZE - tailLength, data.remaining());
+				data.get(tail, tailLength, taken);
+				tailLength += taken;
+				if (tailLength < Murmur3Digest.BLOCK_SIZE) {
+					return;
+				}
+				processBlock(tail, 0);
+				tailLength = 0;
+			}
+
+			final ByteBuffer view = data.slice()
+					.order(ByteOrder.LITTLE_ENDIAN);
+			final int end = view.limit();
+			int i = 0;
+			for (; end - i >= Murmur3Digest.BLOCK_SIZE; i += Murmur3Digest.BLOCK_SIZE) {
+				processBlock(view.getLong(i), view.getLong(i + 8));
+			}
+
+			tailLength = end - i;
+			view.get(i, tail, 0, tailLength);
+			data.position(data.limit());
+		}
+
+		/**
+		 * Processes the block starting at the given index.
+		 *
+		 * @param data  The data containing the block
+		 * @param index The index of the first byte of the block
+		 */
+		private void processBlock(final byte[] data, final int index) {
+			processBlock((long) Murmur3Digest.LONG_LITTLE_ENDIAN.get(data, index),
+					(long) Murmur3Digest.LONG_LITTLE_ENDIAN.get(data, index + 8));
+		}
+
+		/**
+		 * Processes a block given by its two little-endian halves.
+		 *
+		 * @param first  The first half of the block
+		 * @param second The second half of the block
+		 */
+		private void processBlock(final long first, final long second) {
+			long k1 = first;
+			long k2 = second;
+
+			k1 *= Murmur3Digest.C1;
+			k1 = Long.rotateLeft(k1, 31);
+			k1 *= Murmur3Digest.C2;
+			h1 ^= k1;
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dc_e729;
+
+			k2 *= Murmur3Digest.C2;
+			k2 = Long.rotateLeft(k2, 33);
+			k2 *= Murmur3Digest.C1;
+			h2 ^= k2;
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x3849_5ab5;
+		}
+	}
+}
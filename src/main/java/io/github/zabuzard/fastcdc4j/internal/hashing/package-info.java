@@ -0,0 +1,4 @@
+/**
+ * Contains hash algorithms used by FastCDC4J to hash the data of chunks.
+ */
+package io.github.zabuzard.fastcdc4j.internal.hashing;
@@ -0,0 +1,361 @@
+package io.github.zabuzard.fastcdc4j.internal.index;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Util;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Hash table with open addressing and linear probing, stored in a memory-mapped file. Maps hashes of a fixed length to
+ * positive values, entries can not be removed.
+ * <p>
+ * The file begins with a header, followed by the slots. A slot holds the hash followed by the value plus one, a value
+ * of {@code 0} marks an empty slot. Since a single mapping is limited to {@code 2 GiB}, the slots are mapped in pages of
+ * {@code 1 GiB}, no slot crosses a page. Creating a table only extends the file, the operating system allocates the
+ * pages lazily as they are written.
+ * <p>
+ * The header holds the amount of entries of the index and the progress of migrating the previous table into this
+ * table, see {@link #getMigratedSlots()}. The table is not thread-safe.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class MappedTable {
+	/**
+	 * The offset of the capacity in the header.
+	 */
+	private static final int CAPACITY_OFFSET = 16;
+	/**
+	 * The offset of the length of hashes in the header.
+	 */
+	private static final int HASH_LENGTH_OFFSET = 12;
+	/**
+	 * The size of the header, in bytes.
+	 */
+	private static final int HEADER_SIZE = 64;
+	/**
+	 * The value identifying files of a table, {@code FCDC4IDX} in ASCII.
+	 */
+	private static final long MAGIC = 0x4643_4443_3449_4458L;
+	/**
+	 * The offset of the magic value in the header.
+	 */
+	private static final int MAGIC_OFFSET = 0;
+	/**
+	 * The offset of the amount of migrated slots of the previous table in the header.
+	 */
+	private static final int MIGRATED_SLOTS_OFFSET = 32;
+	/**
+	 * The size of a page of slots, in bytes.
+	 */
+	private static final int PAGE_SIZE = 1 << 30;
+	/**
+	 * The offset of the amount of entries in the header.
+	 */
+	private static final int SIZE_OFFSET = 24;
+	/**
+	 * The version of the file format.
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * The offset of the version in the header.
+	 */
+	private static final int VERSION_OFFSET = 8;
+
+	/**
+	 * Creates a new table in the given file.
+	 *
+	 * @param file       The file to create, must not exist yet, not null
+	 * @param hashLength The length of the hashes, must be positive and not zero
+	 * @param capacity   The amount of slots, must be a power of two
+	 *
+	 * @return The created table
+	 */
+	public static MappedTable create(final Path file, final int hashLength, final long capacity) {
+		Validations.requirePositiveNonZero(hashLength, "Hash length");
+		Validations.require(capacity > 0 && Long.bitCount(capacity) == 1, "Capacity must be a power of two");
+		final MappedTable table = new MappedTable(file, hashLength, capacity, true);
+		table.header.putLong(MappedTable.MAGIC_OFFSET, MappedTable.MAGIC);
+		table.header.putInt(MappedTable.VERSION_OFFSET, MappedTable.VERSION);
+		table.header.putInt(MappedTable.HASH_LENGTH_OFFSET, hashLength);
+		table.header.putLong(MappedTable.CAPACITY_OFFSET, capacity);
+		return table;
+	}
+
+	/**
+	 * Opens an existing table from the given file.
+	 *
+	 * @param file The file of the table, not null
+	 *
+	 * @return The opened table
+	 *
+	 * @throws IllegalArgumentException If the file does not contain a table of a supported version
+	 */
+	public static MappedTable open(final Path file) {
+		final ByteBuffer header = ByteBuffer.allocate(MappedTable.HEADER_SIZE);
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (header.hasRemaining()) {
+				if (channel.read(header) == -1) {
+					throw new IllegalArgumentException("The file does not contain a chunk index table: " + file);
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Validations.require(header.getLong(MappedTable.MAGIC_OFFSET) == MappedTable.MAGIC,
+				"The file does not contain a chunk index table: " + file);
+		Validations.require(header.getInt(MappedTable.VERSION_OFFSET) == MappedTable.VERSION,
+				"Unsupported version of the chunk index table: " + file);
+		return new MappedTable(file, header.getInt(MappedTable.HASH_LENGTH_OFFSET),
+				header.getLong(MappedTable.CAPACITY_OFFSET), false);
+	}
+
+	/**
+	 * The amount of slots, a power of two.
+	 */
+	private final long capacity;
+	/**
+	 * The file of the table.
+	 */
+	private final Path file;
+	/**
+	 * The length of the hashes.
+	 */
+	private final int hashLength;
+	/**
+	 * The mapped header.
+	 */
+	private final MappedByteBuffer header;
+	/**
+	 * The mapped pages of slots.
+	 */
+	private final MappedByteBuffer[] pages;
+	/**
+	 * The size of a slot, in bytes.
+	 */
+	private final int slotSize;
+	/**
+	 * The amount of slots per page.
+	 */
+	private final int slotsPerPage;
+
+	/**
+	 * Creates a new table by mapping the given file.
+	 *
+	 * @param file       The file of the table, not null
+	 * @param hashLength The length of the hashes, must be positive and not zero
+	 * @param capacity   The amount of slots, a power of two
+	 * @param create     Whether the file is created, it must not exist yet then
+	 */
+	private MappedTable(final Path file, final int hashLength, final long capacity, final boolean create) {
+		this.file = Objects.requireNonNull(file);
+		this.hashLength = hashLength;
+		this.capacity = capacity;
+		slotSize = hashLength + Long.BYTES;
+		slotsPerPage = MappedTable.PAGE_SIZE / slotSize;
+		//noinspection NumericCastThatLosesPrecision
+		pages = new MappedByteBuffer[(int) ((capacity + slotsPerPage - 1) / slotsPerPage)];
+
+		final StandardOpenOption[] options = create ? new StandardOpenOption[] { StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE }
+				: new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+		try (final FileChannel channel = FileChannel.open(file, options)) {
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, MappedTable.HEADER_SIZE);
+			for (int page = 0; page < pages.length; page++) {
+				final long firstSlot = (long) page * slotsPerPage;
+				final long pageSlots = Math.min(slotsPerPage, capacity - firstSlot);
+				pages[page] = channel.map(FileChannel.MapMode.READ_WRITE,
+						MappedTable.HEADER_SIZE + (long) page * MappedTable.PAGE_SIZE, pageSlots * slotSize);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Copies the entry in the given slot into the given table, if the slot is occupied.
+	 *
+	 * @param slot   The slot to copy
+	 * @param target The table to copy the entry into, must use the same hash length, not null
+	 */
+	public void copySlot(final long slot, final MappedTable target) {
+		final ByteBuffer page = page(slot);
+		final int position = position(slot);
+		final long storedValue = page.getLong(position + hashLength);
+		if (storedValue == 0) {
+			return;
+		}
+		final byte[] hash = new byte[hashLength];
+		page.get(position, hash);
+		target.insert(hash, storedValue - 1);
+	}
+
+	/**
+	 * Writes all changes of the table to the storage device.
+	 */
+	public void force() {
+		header.force();
+		for (final MappedByteBuffer page : pages) {
+			page.force();
+		}
+	}
+
+	/**
+	 * Gets the value of the given hash.
+	 *
+	 * @param hash The hash, must have the length of the table, not null
+	 *
+	 * @return The value of the hash, or {@code -1} if the table does not contain the hash
+	 */
+	public long get(final byte[] hash) {
+		final long mask = capacity - 1;
+		for (long slot = Util.mixHash(hash, 0) & mask; ; slot = slot + 1 & mask) {
+			final ByteBuffer page = page(slot);
+			final int position = position(slot);
+			final long storedValue = page.getLong(position + hashLength);
+			if (storedValue == 0) {
+				return -1;
+			}
+			if (matches(page, position, hash)) {
+				return storedValue - 1;
+			}
+		}
+	}
+
+	/**
+	 * Gets the amount of slots of the table.
+	 *
+	 * @return The capacity of the table
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the file of the table.
+	 *
+	 * @return The file of the table
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the length of the hashes.
+	 *
+	 * @return The length of the hashes
+	 */
+	public int getHashLength() {
+		return hashLength;
+	}
+
+	/**
+	 * Gets the amount of slots of the previous table that have been migrated into this table. Equals the capacity of
+	 * the previous table once the migration is complete.
+	 *
+	 * @return The amount of migrated slots
+	 */
+	public long getMigratedSlots() {
+		return header.getLong(MappedTable.MIGRATED_SLOTS_OFFSET);
+	}
+
+	/**
+	 * Gets the amount of entries of the index, including entries of the previous table that have not been migrated
+	 * yet.
+	 *
+	 * @return The amount of entries of the index
+	 */
+	public long getSize() {
+		return header.getLong(MappedTable.SIZE_OFFSET);
+	}
+
+	/**
+	 * Inserts the given hash with the given value, unless the table already contains the hash.
+	 *
+	 * @param hash  The hash, must have the length of the table, not null
+	 * @param value The value, must be positive and smaller than {@link Long#MAX_VALUE}
+	 *
+	 * @return {@code true} if the hash was inserted, {@code false} if the table already contains it
+	 */
+	public boolean insert(final byte[] hash, final long value) {
+		final long mask = capacity - 1;
+		for (long slot = Util.mixHash(hash, 0) & mask; ; slot = slot + 1 & mask) {
+			final ByteBuffer page = page(slot);
+			final int position = position(slot);
+			if (page.getLong(position + hashLength) == 0) {
+				page.put(position, hash);
+				page.putLong(position + hashLength, value + 1);
+				return true;
+			}
+			if (matches(page, position, hash)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Sets the amount of slots of the previous table that have been migrated into this table.
+	 *
+	 * @param migratedSlots The amount of migrated slots
+	 */
+	public void setMigratedSlots(final long migratedSlots) {
+		header.putLong(MappedTable.MIGRATED_SLOTS_OFFSET, migratedSlots);
+	}
+
+	/**
+	 * Sets the amount of entries of the index.
+	 *
+	 * @param size The amount of entries of the index
+	 */
+	public void setSize(final long size) {
+		header.putLong(MappedTable.SIZE_OFFSET, size);
+	}
+
+	/**
+	 * Whether the hash stored in the given slot equals the given hash.
+	 *
+	 * @param page     The page containing the slot, not null
+	 * @param position The position of the slot in the page
+	 * @param hash     The hash to compare, not null
+	 *
+	 * @return {@code true} if the hashes are equal, {@code false} otherwise
+	 */
+	private boolean matches(final ByteBuffer page, final int position, final byte[] hash) {
+		for (int i = 0; i < hashLength; i++) {
+			if (page.get(position + i) != hash[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the page containing the given slot.
+	 *
+	 * @param slot The slot
+	 *
+	 * @return The page containing the slot
+	 */
+	private ByteBuffer page(final long slot) {
+		//noinspection NumericCastThatLosesPrecision
+		return pages[(int) (slot / slotsPerPage)];
+	}
+
+	/**
+	 * Gets the position of the given slot in its page.
+	 *
+	 * @param slot The slot
+	 *
+	 * @return The position of the slot in its page
+	 */
+	private int position(final long slot) {
+		//noinspection NumericCastThatLosesPrecision
+		return (int) (slot % slotsPerPage) * slotSize;
+	}
+}
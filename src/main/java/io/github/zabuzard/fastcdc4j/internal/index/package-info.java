@@ -0,0 +1,4 @@
+/**
+ * Contains the memory-mapped hash tables backing the chunk index of FastCDC4J.
+ */
+package io.github.zabuzard.fastcdc4j.internal.index;
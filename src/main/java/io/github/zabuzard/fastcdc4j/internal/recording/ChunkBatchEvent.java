@@ -0,0 +1,52 @@
+package io.github.zabuzard.fastcdc4j.internal.recording;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for the generation of a batch of consecutive chunks of a file or stream that were cut for the same reason.
+ * <p>
+ * Disabled by default, a recording has to enable it explicitly.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+@Name("io.github.zabuzard.fastcdc4j.ChunkBatch")
+@Label("Chunk Batch")
+@Category("FastCDC4J")
+@Description("Generation of consecutive chunks that were cut for the same reason")
+@Enabled(false)
+@StackTrace(false)
+public final class ChunkBatchEvent extends Event {
+	/**
+	 * The amount of bytes of the chunks.
+	 */
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+	/**
+	 * The amount of chunks.
+	 */
+	@Label("Chunk Count")
+	int chunkCount;
+	/**
+	 * The reason for which the chunks were cut, the name of a {@link CutReason}.
+	 */
+	@Label("Cut Reason")
+	String cutReason;
+	/**
+	 * The offset of the first chunk in the file or stream.
+	 */
+	@Label("Offset")
+	long offset;
+	/**
+	 * The path of the chunked file, {@code null} for streams.
+	 */
+	@Label("Path")
+	String path;
+}
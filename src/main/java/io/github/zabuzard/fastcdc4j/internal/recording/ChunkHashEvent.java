@@ -0,0 +1,38 @@
+package io.github.zabuzard.fastcdc4j.internal.recording;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for hashing the data of a single chunk. If the data is hashed incrementally, the event lasts from the first
+ * update until the hash is computed.
+ * <p>
+ * Disabled by default, a recording has to enable it explicitly.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+@Name("io.github.zabuzard.fastcdc4j.ChunkHash")
+@Label("Chunk Hash")
+@Category("FastCDC4J")
+@Description("Hashing the data of a chunk")
+@Enabled(false)
+@StackTrace(false)
+public final class ChunkHashEvent extends Event {
+	/**
+	 * The amount of hashed bytes.
+	 */
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+	/**
+	 * The name of the hasher.
+	 */
+	@Label("Hasher")
+	String hasher;
+}
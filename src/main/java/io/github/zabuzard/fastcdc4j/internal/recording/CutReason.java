@@ -0,0 +1,21 @@
+package io.github.zabuzard.fastcdc4j.internal.recording;
+
+/**
+ * The reasons for which a chunk can be cut.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public enum CutReason {
+	/**
+	 * The chunk was cut at a cut-point found in its content.
+	 */
+	CONTENT,
+	/**
+	 * The chunk was cut because it reached the maximal chunk size.
+	 */
+	MAXIMAL_SIZE,
+	/**
+	 * The chunk was cut because the data ended.
+	 */
+	END_OF_DATA
+}
@@ -0,0 +1,43 @@
+package io.github.zabuzard.fastcdc4j.internal.recording;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event for the chunking of a whole file or stream, from the start of the iteration until the last chunk has been
+ * generated.
+ * <p>
+ * Disabled by default, a recording has to enable it explicitly.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+@Name("io.github.zabuzard.fastcdc4j.FileChunking")
+@Label("File Chunking")
+@Category("FastCDC4J")
+@Description("Chunking of a whole file or stream")
+@Enabled(false)
+@StackTrace(false)
+public final class FileChunkingEvent extends Event {
+	/**
+	 * The amount of chunked bytes.
+	 */
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+	/**
+	 * The amount of generated chunks.
+	 */
+	@Label("Chunk Count")
+	int chunkCount;
+	/**
+	 * The path of the chunked file, {@code null} for streams.
+	 */
+	@Label("Path")
+	String path;
+}
@@ -0,0 +1,194 @@
+package io.github.zabuzard.fastcdc4j.internal.recording;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkDigest;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkHasher;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Implementation of a chunk hasher that emits a {@link ChunkHashEvent} for every chunk hashed by a given hasher.
+ * <p>
+ * The hashes are the ones of the given hasher. Events are only committed while a recording enabled them.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class RecordingChunkHasher implements ChunkHasher {
+	/**
+	 * Ends the given event and commits it, if it is enabled.
+	 *
+	 * @param event  The event to commit, not null
+	 * @param bytes  The amount of hashed bytes
+	 * @param hasher The name of the hasher, not null
+	 */
+	private static void commit(final ChunkHashEvent event, final long bytes, final String hasher) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.bytes = bytes;
+			event.hasher = hasher;
+			event.commit();
+		}
+	}
+
+	/**
+	 * The hasher whose hashing is recorded.
+	 */
+	private final ChunkHasher hasher;
+	/**
+	 * The name of the hasher, as recorded in the events.
+	 */
+	private final String name;
+	/**
+	 * Event that is never committed, used to check whether events are enabled without creating an event per chunk.
+	 */
+	private final ChunkHashEvent probe = new ChunkHashEvent();
+
+	/**
+	 * Creates a new hasher.
+	 *
+	 * @param hasher The hasher whose hashing is recorded, not null
+	 * @param name   The name of the hasher, as recorded in the events, not null
+	 */
+	public RecordingChunkHasher(final ChunkHasher hasher, final String name) {
+		this.hasher = Objects.requireNonNull(hasher);
+		this.name = Objects.requireNonNull(name);
+	}
+
+	@Override
+	public int getHashLength() {
+		return hasher.getHashLength();
+	}
+
+	@Override
+	public byte[] hash(final byte[] data) {
+		if (!probe.isEnabled()) {
+			return hasher.hash(data);
+		}
+		final ChunkHashEvent event = new ChunkHashEvent();
+		event.begin();
+		final byte[] hash = hasher.hash(data);
+		RecordingChunkHasher.commit(event, data.length, name);
+		return hash;
+	}
+
+	@Override
+	public byte[] hash(final ByteBuffer data) {
+		if (!probe.isEnabled()) {
+			return hasher.hash(data);
+		}
+		final int length = data.remaining();
+		final ChunkHashEvent event = new ChunkHashEvent();
+		event.begin();
+		final byte[] hash = hasher.hash(data);
+		RecordingChunkHasher.commit(event, length, name);
+		return hash;
+	}
+
+	@Override
+	public ChunkDigest newDigest() {
+		return new RecordingDigest(hasher.newDigest(), name);
+	}
+
+	/**
+	 * Digest that records the chunks hashed by a given digest, from their first update until their hash is computed.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class RecordingDigest implements ChunkDigest {
+		/**
+		 * The digest whose hashing is recorded.
+		 */
+		private final ChunkDigest digest;
+		/**
+		 * The name of the hasher, as recorded in the events.
+		 */
+		private final String name;
+		/**
+		 * Event that is never committed, used to check whether events are enabled without creating an event per chunk.
+		 */
+		private final ChunkHashEvent probe = new ChunkHashEvent();
+		/**
+		 * Whether data has been hashed since the last hash was computed.
+		 */
+		private boolean begun;
+		/**
+		 * The amount of bytes of the current chunk hashed so far.
+		 */
+		private long bytes;
+		/**
+		 * The event of the current chunk, {@code null} if no chunk is being hashed or events are not enabled.
+		 */
+		private ChunkHashEvent event;
+
+		/**
+		 * Creates a new digest.
+		 *
+		 * @param digest The digest whose hashing is recorded, not null
+		 * @param name   The name of the hasher, as recorded in the events, not null
+		 */
+		private RecordingDigest(final ChunkDigest digest, final String name) {
+			this.digest = Objects.requireNonNull(digest);
+			this.name = Objects.requireNonNull(name);
+		}
+
+		@Override
+		public byte[] digest() {
+			if (!begun) {
+				begin();
+			}
+			final byte[] hash = digest.digest();
+			end();
+			return hash;
+		}
+
+		@Override
+		public void digest(final byte[] target, final int offset) {
+			if (!begun) {
+				begin();
+			}
+			digest.digest(target, offset);
+			end();
+		}
+
+		@Override
+		public void update(final byte[] data, final int offset, final int length) {
+			if (!begun) {
+				begin();
+			}
+			digest.update(data, offset, length);
+			bytes += length;
+		}
+
+		@Override
+		public void update(final ByteBuffer data) {
+			if (!begun) {
+				begin();
+			}
+			bytes += data.remaining();
+			digest.update(data);
+		}
+
+		/**
+		 * Begins the event of the current chunk, if events are enabled.
+		 */
+		private void begin() {
+			begun = true;
+			if (probe.isEnabled()) {
+				event = new ChunkHashEvent();
+				event.begin();
+			}
+		}
+
+		/**
+		 * Commits the event of the current chunk, if it was begun, and prepares for the next chunk.
+		 */
+		private void end() {
+			if (event != null) {
+				RecordingChunkHasher.commit(event, bytes, name);
+				event = null;
+			}
+			begun = false;
+			bytes = 0;
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package io.github.zabuzard.fastcdc4j.internal.recording;
+
+import io.github.zabuzard.fastcdc4j.external.chunking.ChangedRange;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunk;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkCursor;
+import io.github.zabuzard.fastcdc4j.external.chunking.ChunkMetadata;
+import io.github.zabuzard.fastcdc4j.external.chunking.Chunker;
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Implementation of a chunker that emits Java Flight Recorder events for the work of a given chunker.
+ * <p>
+ * Every chunked file or stream emits a {@link FileChunkingEvent}. Its chunks are reported in {@link ChunkBatchEvent}s,
+ * each covering consecutive chunks that were cut for the same {@link CutReason}. The chunks are the ones of the given
+ * chunker. Events are only committed while a recording enabled them, otherwise the overhead is a few field updates per
+ * chunk. While batch events are enabled, metadata chunked asynchronously is collected from {@link
+ * #chunkAsync(Path, Consumer, ExecutorService)}, such that batches are recorded as their chunks are generated.
+ * <p>
+ * Directories are traversed by this chunker, such that every file is recorded with its path. Events of files that are
+ * not chunked completely are not committed.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class RecordingChunker implements Chunker {
+	/**
+	 * The maximal amount of chunks reported by a single batch event.
+	 */
+	private static final int MAX_BATCH_CHUNKS = 256;
+
+	/**
+	 * The chunker whose work is recorded.
+	 */
+	private final Chunker chunker;
+	/**
+	 * The maximal size of chunks generated by the chunker, {@code 0} if unknown.
+	 */
+	private final int maximalChunkSize;
+	/**
+	 * Event that is never committed, used to check whether batch events are enabled.
+	 */
+	private final ChunkBatchEvent probe = new ChunkBatchEvent();
+
+	/**
+	 * Creates a new chunker.
+	 *
+	 * @param chunker          The chunker whose work is recorded, not null
+	 * @param maximalChunkSize The maximal size of chunks generated by the chunker, used to tell chunks cut at the
+	 *                         maximal size apart from chunks cut by their content. {@code 0} if unknown, chunks are
+	 *                         then never reported as cut at the maximal size. Must be positive.
+	 */
+	public RecordingChunker(final Chunker chunker, final int maximalChunkSize) {
+		this.chunker = Objects.requireNonNull(chunker);
+		this.maximalChunkSize = Validations.requirePositive(maximalChunkSize, "Maximal chunk size");
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final ByteBuffer data) {
+		final Iterable<Chunk> chunks = chunker.chunk(data);
+		final long size = data.remaining();
+		return () -> new RecordingIterator<>(chunks.iterator(), Chunk::getLength,
+				new FileRecording(null, size, maximalChunkSize));
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final InputStream stream, final long size) {
+		final Iterable<Chunk> chunks = chunker.chunk(stream, size);
+		return () -> new RecordingIterator<>(chunks.iterator(), Chunk::getLength,
+				new FileRecording(null, size, maximalChunkSize));
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final ReadableByteChannel channel, final long size) {
+		final Iterable<Chunk> chunks = chunker.chunk(channel, size);
+		return () -> new RecordingIterator<>(chunks.iterator(), Chunk::getLength,
+				new FileRecording(null, size, maximalChunkSize));
+	}
+
+	@Override
+	public Iterable<Chunk> chunk(final Path path) {
+		Objects.requireNonNull(path);
+		if (!Files.isRegularFile(path)) {
+			return Chunker.super.chunk(path);
+		}
+		final long size = RecordingChunker.size(path);
+		final Iterable<Chunk> chunks = chunker.chunk(path);
+		return () -> new RecordingIterator<>(chunks.iterator(), Chunk::getLength,
+				new FileRecording(path.toString(), size, maximalChunkSize));
+	}
+
+	@Override
+	public CompletableFuture<Void> chunkAsync(final Path file, final Consumer<? super Chunk> action,
+			final ExecutorService executor) {
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(action);
+		Validations.require(Files.isRegularFile(file), "Only existing regular files are supported");
+		final FileRecording recording = new FileRecording(file.toString(), RecordingChunker.size(file), maximalChunkSize);
+		return chunker.chunkAsync(file, chunk -> {
+			recording.record(chunk.getLength());
+			action.accept(chunk);
+		}, executor)
+				.whenComplete((result, failure) -> {
+					if (failure == null) {
+						recording.finish();
+					}
+				});
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final ByteBuffer data) {
+		final Iterable<ChunkMetadata> chunks = chunker.chunkMetadata(data);
+		final long size = data.remaining();
+		return () -> new RecordingIterator<>(chunks.iterator(), ChunkMetadata::getLength,
+				new FileRecording(null, size, maximalChunkSize));
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final InputStream stream, final long size) {
+		final Iterable<ChunkMetadata> chunks = chunker.chunkMetadata(stream, size);
+		return () -> new RecordingIterator<>(chunks.iterator(), ChunkMetadata::getLength,
+				new FileRecording(null, size, maximalChunkSize));
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final ReadableByteChannel channel, final long size) {
+		final Iterable<ChunkMetadata> chunks = chunker.chunkMetadata(channel, size);
+		return () -> new RecordingIterator<>(chunks.iterator(), ChunkMetadata::getLength,
+				new FileRecording(null, size, maximalChunkSize));
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> chunkMetadata(final Path path) {
+		Objects.requireNonNull(path);
+		if (!Files.isRegularFile(path)) {
+			return Chunker.super.chunkMetadata(path);
+		}
+		final long size = RecordingChunker.size(path);
+		final Iterable<ChunkMetadata> chunks = chunker.chunkMetadata(path);
+		return () -> new RecordingIterator<>(chunks.iterator(), ChunkMetadata::getLength,
+				new FileRecording(path.toString(), size, maximalChunkSize));
+	}
+
+	@Override
+	public CompletableFuture<List<ChunkMetadata>> chunkMetadataAsync(final Path file, final ExecutorService executor) {
+		Objects.requireNonNull(file);
+		Validations.require(Files.isRegularFile(file), "Only existing regular files are supported");
+		if (probe.isEnabled()) {
+			// Batches are recorded as their chunks are generated, the actions are called one after another
+			final List<ChunkMetadata> chunks = new ArrayList<>();
+			return chunkAsync(file, chunk -> chunks.add(chunk.toChunkMetadata()), executor).thenApply(
+					result -> chunks);
+		}
+		// Without batch events, only the event of the whole file is recorded
+		final FileRecording recording = new FileRecording(file.toString(), RecordingChunker.size(file), maximalChunkSize);
+		return chunker.chunkMetadataAsync(file, executor)
+				.whenComplete((chunks, failure) -> {
+					if (failure == null) {
+						chunks.forEach(chunk -> recording.record(chunk.getLength()));
+						recording.finish();
+					}
+				});
+	}
+
+	@Override
+	public ChunkCursor cursor(final InputStream stream, final long size) {
+		return new RecordingCursor(chunker.cursor(stream, size), new FileRecording(null, size, maximalChunkSize));
+	}
+
+	@Override
+	public ChunkCursor cursor(final Path file) {
+		Objects.requireNonNull(file);
+		Validations.require(Files.isRegularFile(file), "Only existing regular files are supported");
+		final FileRecording recording = new FileRecording(file.toString(), RecordingChunker.size(file), maximalChunkSize);
+		return new RecordingCursor(chunker.cursor(file), recording);
+	}
+
+	@Override
+	public Iterable<ChunkMetadata> rechunkMetadata(final Path file, final List<? extends ChunkMetadata> previousChunks,
+			final List<ChangedRange> changedRanges) {
+		Objects.requireNonNull(file);
+		final long size = RecordingChunker.size(file);
+		final Iterable<ChunkMetadata> chunks = chunker.rechunkMetadata(file, previousChunks, changedRanges);
+		return () -> new RecordingIterator<>(chunks.iterator(), ChunkMetadata::getLength,
+				new FileRecording(file.toString(), size, maximalChunkSize));
+	}
+
+	@Override
+	public Spliterator<Chunk> spliterator(final Path file) {
+		return chunker.spliterator(file);
+	}
+
+	/**
+	 * Gets the size of the given file.
+	 *
+	 * @param file The file to get the size of, not null
+	 *
+	 * @return The size of the file, in bytes
+	 */
+	private static long size(final Path file) {
+		try {
+			return Files.size(file);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * The recording of the chunking of a single file or stream. Chunks are recorded in order as they are generated.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class FileRecording {
+		/**
+		 * The event of the current batch of chunks.
+		 */
+		private ChunkBatchEvent batch;
+		/**
+		 * The cut reason of the chunks in the current batch, {@code null} if the batch is empty.
+		 */
+		private CutReason batchReason;
+		/**
+		 * The amount of chunks recorded so far.
+		 */
+		private int chunkCount;
+		/**
+		 * The event of the whole file or stream.
+		 */
+		private final FileChunkingEvent file;
+		/**
+		 * Whether the recording has been finished.
+		 */
+		private boolean finished;
+		/**
+		 * The maximal size of chunks, {@code 0} if unknown.
+		 */
+		private final int maximalChunkSize;
+		/**
+		 * The offset of the next chunk.
+		 */
+		private long offset;
+		/**
+		 * The path of the file, {@code null} for streams.
+		 */
+		private final String path;
+		/**
+		 * The amount of bytes in the file or stream.
+		 */
+		private final long size;
+
+		/**
+		 * Creates a new recording and begins its events.
+		 *
+		 * @param path             The path of the file, {@code null} for streams
+		 * @param size             The amount of bytes in the file or stream
+		 * @param maximalChunkSize The maximal size of chunks, {@code 0} if unknown
+		 */
+		private FileRecording(final String path, final long size, final int maximalChunkSize) {
+			this.path = path;
+			this.size = size;
+			this.maximalChunkSize = maximalChunkSize;
+			file = new FileChunkingEvent();
+			file.begin();
+			batch = new ChunkBatchEvent();
+			batch.begin();
+		}
+
+		/**
+		 * Finishes the recording by committing the pending events. Does nothing if already finished.
+		 */
+		void finish() {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			commitBatch();
+			file.end();
+			if (file.shouldCommit()) {
+				file.path = path;
+				file.bytes = offset;
+				file.chunkCount = chunkCount;
+				file.commit();
+			}
+		}
+
+		/**
+		 * Records the next chunk.
+		 *
+		 * @param length The length of the chunk
+		 */
+		void record(final int length) {
+			final long end = offset + length;
+			final CutReason reason;
+			if (end >= size) {
+				reason = CutReason.END_OF_DATA;
+			} else if (length == maximalChunkSize) {
+				reason = CutReason.MAXIMAL_SIZE;
+			} else {
+				reason = CutReason.CONTENT;
+			}
+
+			if (batchReason != null && (reason != batchReason
+					|| batch.chunkCount == RecordingChunker.MAX_BATCH_CHUNKS)) {
+				commitBatch();
+				batch = new ChunkBatchEvent();
+				batch.begin();
+			}
+			if (batchReason == null) {
+				batch.offset = offset;
+				batchReason = reason;
+			}
+			batch.bytes += length;
+			batch.chunkCount++;
+
+			offset = end;
+			chunkCount++;
+		}
+
+		/**
+		 * Commits the event of the current batch, if it is not empty.
+		 */
+		private void commitBatch() {
+			if (batchReason == null) {
+				return;
+			}
+			batch.end();
+			if (batch.shouldCommit()) {
+				batch.path = path;
+				batch.cutReason = batchReason.name();
+				batch.commit();
+			}
+			batchReason = null;
+		}
+	}
+
+	/**
+	 * Cursor that records the chunks of a given cursor as it advances.
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class RecordingCursor implements ChunkCursor {
+		/**
+		 * The cursor whose chunks are recorded.
+		 */
+		private final ChunkCursor cursor;
+		/**
+		 * The recording to record the chunks to.
+		 */
+		private final FileRecording recording;
+
+		/**
+		 * Creates a new cursor.
+		 *
+		 * @param cursor    The cursor whose chunks are recorded, not null
+		 * @param recording The recording to record the chunks to, not null
+		 */
+		private RecordingCursor(final ChunkCursor cursor, final FileRecording recording) {
+			this.cursor = Objects.requireNonNull(cursor);
+			this.recording = Objects.requireNonNull(recording);
+		}
+
+		@Override
+		public void close() {
+			cursor.close();
+		}
+
+		@Override
+		public void copyData(final ByteBuffer target) {
+			cursor.copyData(target);
+		}
+
+		@Override
+		public ByteBuffer getData() {
+			return cursor.getData();
+		}
+
+		@Override
+		public void getHash(final byte[] target) {
+			cursor.getHash(target);
+		}
+
+		@Override
+		public int getHashLength() {
+			return cursor.getHashLength();
+		}
+
+		@Override
+		public int getLength() {
+			return cursor.getLength();
+		}
+
+		@Override
+		public long getOffset() {
+			return cursor.getOffset();
+		}
+
+		@Override
+		public boolean next() {
+			final boolean hasNext = cursor.next();
+			if (hasNext) {
+				recording.record(cursor.getLength());
+			} else {
+				recording.finish();
+			}
+			return hasNext;
+		}
+	}
+
+	/**
+	 * Iterator that records the chunks of a given iterator as they are generated.
+	 *
+	 * @param <T> The type of the chunks
+	 *
+	 * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+	 */
+	private static final class RecordingIterator<T> implements Iterator<T> {
+		/**
+		 * Function that gets the length of a chunk.
+		 */
+		private final ToIntFunction<? super T> length;
+		/**
+		 * The recording to record the chunks to.
+		 */
+		private final FileRecording recording;
+		/**
+		 * The iterator whose chunks are recorded.
+		 */
+		private final Iterator<? extends T> source;
+
+		/**
+		 * Creates a new iterator.
+		 *
+		 * @param source    The iterator whose chunks are recorded, not null
+		 * @param length    Function that gets the length of a chunk, not null
+		 * @param recording The recording to record the chunks to, not null
+		 */
+		private RecordingIterator(final Iterator<? extends T> source, final ToIntFunction<? super T> length,
+				final FileRecording recording) {
+			this.source = Objects.requireNonNull(source);
+			this.length = Objects.requireNonNull(length);
+			this.recording = Objects.requireNonNull(recording);
+		}
+
+		@Override
+		public boolean hasNext() {
+			final boolean hasNext = source.hasNext();
+			if (!hasNext) {
+				recording.finish();
+			}
+			return hasNext;
+		}
+
+		@Override
+		public T next() {
+			final T chunk = source.next();
+			recording.record(length.applyAsInt(chunk));
+			return chunk;
+		}
+	}
+}
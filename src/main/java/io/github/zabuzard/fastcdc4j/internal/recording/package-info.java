@@ -0,0 +1,4 @@
+/**
+ * Contains the Java Flight Recorder events emitted by FastCDC4J and the decorators emitting them.
+ */
+package io.github.zabuzard.fastcdc4j.internal.recording;
@@ -0,0 +1,352 @@
+package io.github.zabuzard.fastcdc4j.internal.store;
+
+import io.github.zabuzard.fastcdc4j.internal.util.Validations;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Append-only file of chunk records. A record holds the hash of the chunk, the length of its data and the data itself.
+ * <p>
+ * The file begins with a header holding the committed size of the file. Records are appended through a buffer and
+ * written sequentially, {@link #commit()} forces them to the storage device and only then advances the committed size.
+ * Opening a file truncates it to its committed size, hence records that were not committed before a crash are
+ * discarded as a whole. The file is not thread-safe.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class PackFile implements Closeable {
+	/**
+	 * The offset of the committed size in the header.
+	 */
+	private static final int COMMITTED_SIZE_OFFSET = 16;
+	/**
+	 * The offset of the length of the hashes in the header.
+	 */
+	private static final int HASH_LENGTH_OFFSET = 12;
+	/**
+	 * The size of the header, in bytes. Also the offset of the first record.
+	 */
+	public static final int HEADER_SIZE = 32;
+	/**
+	 * The value identifying pack files, {@code FCDC4PCK} in ASCII.
+	 */
+	private static final long MAGIC = 0x4643_4443_3450_434BL;
+	/**
+	 * The offset of the magic value in the header.
+	 */
+	private static final int MAGIC_OFFSET = 0;
+	/**
+	 * The version of the file format.
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * The offset of the version in the header.
+	 */
+	private static final int VERSION_OFFSET = 8;
+	/**
+	 * The size of the buffer records are appended through, in bytes.
+	 */
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Creates a new empty pack file.
+	 *
+	 * @param file       The file to create, must not exist yet, not null
+	 * @param hashLength The length of the hashes, must be positive and not zero
+	 *
+	 * @return The created pack file
+	 */
+	public static PackFile create(final Path file, final int hashLength) {
+		Validations.requirePositiveNonZero(hashLength, "Hash length");
+		try {
+			final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			final ByteBuffer header = ByteBuffer.allocate(PackFile.HEADER_SIZE)
+					.putLong(PackFile.MAGIC_OFFSET, PackFile.MAGIC)
+					.putInt(PackFile.VERSION_OFFSET, PackFile.VERSION)
+					.putInt(PackFile.HASH_LENGTH_OFFSET, hashLength)
+					.putLong(PackFile.COMMITTED_SIZE_OFFSET, PackFile.HEADER_SIZE);
+			PackFile.writeFully(channel, header, 0);
+			channel.force(false);
+			return new PackFile(file, channel, hashLength, PackFile.HEADER_SIZE);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Opens an existing pack file and discards all records that were not committed.
+	 *
+	 * @param file The file of the pack, not null
+	 *
+	 * @return The opened pack file
+	 *
+	 * @throws IllegalArgumentException If the file does not contain a pack of a supported version
+	 */
+	public static PackFile open(final Path file) {
+		try {
+			final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				final ByteBuffer header = ByteBuffer.allocate(PackFile.HEADER_SIZE);
+				PackFile.readFully(channel, header, 0, file);
+				Validations.require(header.getLong(PackFile.MAGIC_OFFSET) == PackFile.MAGIC,
+						"The file does not contain a chunk pack: " + file);
+				Validations.require(header.getInt(PackFile.VERSION_OFFSET) == PackFile.VERSION,
+						"Unsupported version of the chunk pack: " + file);
+				final long committedSize = header.getLong(PackFile.COMMITTED_SIZE_OFFSET);
+				Validations.require(committedSize >= PackFile.HEADER_SIZE && committedSize <= channel.size(),
+						"The file does not contain a valid chunk pack: " + file);
+				if (channel.size() > committedSize) {
+					channel.truncate(committedSize);
+				}
+				return new PackFile(file, channel, header.getInt(PackFile.HASH_LENGTH_OFFSET), committedSize);
+			} catch (final IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads from the given channel at the given position until the given buffer is full.
+	 *
+	 * @param channel  The channel to read from, not null
+	 * @param buffer   The buffer to fill, not null
+	 * @param position The position to read at
+	 * @param file     The file of the channel, not null
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position,
+			final Path file) throws IOException {
+		final int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position() - start) == -1) {
+				throw new IllegalArgumentException("The chunk pack ended unexpectedly: " + file);
+			}
+		}
+	}
+
+	/**
+	 * Writes the remaining content of the given buffer to the given channel at the given position.
+	 *
+	 * @param channel  The channel to write to, not null
+	 * @param buffer   The buffer to write, not null
+	 * @param position The position to write at
+	 *
+	 * @throws IOException If an I/O error occurred
+	 */
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+			throws IOException {
+		final int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position() - start);
+		}
+	}
+
+	/**
+	 * The buffer records are appended through.
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocate(PackFile.WRITE_BUFFER_SIZE);
+	/**
+	 * The channel of the file.
+	 */
+	private final FileChannel channel;
+	/**
+	 * The file of the pack.
+	 */
+	private final Path file;
+	/**
+	 * The length of the hashes.
+	 */
+	private final int hashLength;
+	/**
+	 * The size of the file that is forced to the storage device and recorded in the header.
+	 */
+	private long committedSize;
+	/**
+	 * The size of the file that is written to the channel, excluding the buffer.
+	 */
+	private long writtenSize;
+
+	/**
+	 * Creates a new pack file.
+	 *
+	 * @param file          The file of the pack, not null
+	 * @param channel       The channel of the file, not null
+	 * @param hashLength    The length of the hashes
+	 * @param committedSize The committed size of the file
+	 */
+	private PackFile(final Path file, final FileChannel channel, final int hashLength, final long committedSize) {
+		this.file = Objects.requireNonNull(file);
+		this.channel = Objects.requireNonNull(channel);
+		this.hashLength = hashLength;
+		this.committedSize = committedSize;
+		writtenSize = committedSize;
+	}
+
+	/**
+	 * Appends a record of the given chunk.
+	 *
+	 * @param hash The hash of the chunk, must have the length of the pack, not null
+	 * @param data The data of the chunk, its remaining content is appended without changing its position, not null
+	 *
+	 * @return The offset of the record in the file
+	 */
+	public long append(final byte[] hash, final ByteBuffer data) {
+		Validations.require(hash.length == hashLength, "Hash length must equal the length used by the pack");
+		final long offset = getSize();
+		if (buffer.remaining() < getRecordHeaderSize() + data.remaining()) {
+			flush();
+		}
+		buffer.put(hash)
+				.putInt(data.remaining());
+		if (buffer.remaining() >= data.remaining()) {
+			buffer.put(data.duplicate());
+			return offset;
+		}
+		// Too big for the buffer, written directly
+		flush();
+		try {
+			PackFile.writeFully(channel, data.duplicate(), writtenSize);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		writtenSize += data.remaining();
+		return offset;
+	}
+
+	/**
+	 * Commits and closes the file.
+	 */
+	@Override
+	public void close() {
+		try (channel) {
+			commit();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Forces all appended records to the storage device and then records the new size as committed. Records are only
+	 * kept after a crash once they are committed.
+	 */
+	public void commit() {
+		flush();
+		if (committedSize == writtenSize) {
+			return;
+		}
+		try {
+			channel.force(false);
+			final ByteBuffer size = ByteBuffer.allocate(Long.BYTES)
+					.putLong(0, writtenSize);
+			PackFile.writeFully(channel, size, PackFile.COMMITTED_SIZE_OFFSET);
+			channel.force(false);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		committedSize = writtenSize;
+	}
+
+	/**
+	 * Writes the buffered records to the file, without forcing them to the storage device.
+	 */
+	public void flush() {
+		if (buffer.position() == 0) {
+			return;
+		}
+		buffer.flip();
+		try {
+			PackFile.writeFully(channel, buffer, writtenSize);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		writtenSize += buffer.limit();
+		buffer.clear();
+	}
+
+	/**
+	 * Gets the file of the pack.
+	 *
+	 * @return The file of the pack
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the size of the header of a record, i.e. the offset of the data within a record.
+	 *
+	 * @return The size of the header of a record, in bytes
+	 */
+	public int getRecordHeaderSize() {
+		return hashLength + Integer.BYTES;
+	}
+
+	/**
+	 * Gets the size of the file, including appended records that are not committed yet. Also the offset of the next
+	 * record.
+	 *
+	 * @return The size of the file, in bytes
+	 */
+	public long getSize() {
+		return writtenSize + buffer.position();
+	}
+
+	/**
+	 * Reads the data of the given length at the given offset.
+	 *
+	 * @param offset The offset of the data in the file
+	 * @param length The length of the data
+	 *
+	 * @return The data
+	 */
+	public byte[] read(final long offset, final int length) {
+		final byte[] data = new byte[length];
+		read(ByteBuffer.wrap(data), offset);
+		return data;
+	}
+
+	/**
+	 * Reads the header of the record at the given offset.
+	 *
+	 * @param offset The offset of the record in the file
+	 * @param hash   The array to read the hash of the record into, must have the length of the pack, not null
+	 *
+	 * @return The length of the data of the record
+	 */
+	public int readRecordHeader(final long offset, final byte[] hash) {
+		final ByteBuffer header = ByteBuffer.allocate(getRecordHeaderSize());
+		read(header, offset);
+		header.get(0, hash);
+		return header.getInt(hashLength);
+	}
+
+	/**
+	 * Fills the given buffer with the content of the file at the given offset. Buffered records are written to the file
+	 * first if they are needed.
+	 *
+	 * @param target The buffer to fill, not null
+	 * @param offset The offset in the file
+	 */
+	private void read(final ByteBuffer target, final long offset) {
+		if (offset + target.remaining() > writtenSize) {
+			flush();
+		}
+		try {
+			PackFile.readFully(channel, target, offset, file);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains the pack files backing the chunk store of FastCDC4J.
+ */
+package io.github.zabuzard.fastcdc4j.internal.store;
@@ -0,0 +1,59 @@
+package io.github.zabuzard.fastcdc4j.internal.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Iterator that closes a given resource, for example the data stream of the source iterator, as soon as the source
+ * iterator has no more elements.
+ *
+ * @param <E> The type contained in the iterator
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class ClosingIterator<E> implements Iterator<E> {
+	/**
+	 * The resource to close once the source iterator has no more elements, {@code null} if already closed.
+	 */
+	private Closeable resource;
+	/**
+	 * The source iterator whose elements are returned.
+	 */
+	private final Iterator<? extends E> source;
+
+	/**
+	 * Creates a new closing iterator.
+	 *
+	 * @param source   The source iterator whose elements are returned, not null
+	 * @param resource The resource to close once the source iterator has no more elements, not null
+	 */
+	public ClosingIterator(final Iterator<? extends E> source, final Closeable resource) {
+		this.source = Objects.requireNonNull(source);
+		this.resource = Objects.requireNonNull(resource);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (source.hasNext()) {
+			return true;
+		}
+		if (resource != null) {
+			try {
+				resource.close();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				resource = null;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public E next() {
+		return source.next();
+	}
+}
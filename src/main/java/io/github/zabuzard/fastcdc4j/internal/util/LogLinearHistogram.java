@@ -0,0 +1,158 @@
+package io.github.zabuzard.fastcdc4j.internal.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of positive values with a bounded relative error, similar to an HDR histogram.
+ * <p>
+ * Values are counted in buckets. Each range between two powers of two is divided into the same amount of linear
+ * sub-buckets, hence the size of a bucket grows with its values and the relative error stays below {@code 1 / 32}.
+ * Small values are counted exactly. Recording a value is a single atomic increment, independent of the amount of
+ * recorded values.
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class LogLinearHistogram {
+	/**
+	 * The amount of bits resolved linearly within each power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+	/**
+	 * The amount of sub-buckets within each power of two.
+	 */
+	private static final int SUB_BUCKET_COUNT = 1 << LogLinearHistogram.SUB_BUCKET_BITS;
+	/**
+	 * The total amount of buckets, enough for all positive {@code long} values.
+	 */
+	@SuppressWarnings("MagicNumber")
+	private static final int BUCKET_COUNT =
+			LogLinearHistogram.SUB_BUCKET_COUNT * (64 - LogLinearHistogram.SUB_BUCKET_BITS);
+
+	/**
+	 * Gets the index of the bucket the given value is counted in.
+	 *
+	 * @param value The value, must be positive
+	 *
+	 * @return The index of the bucket
+	 */
+	private static int bucketIndex(final long value) {
+		if (value < LogLinearHistogram.SUB_BUCKET_COUNT) {
+			//noinspection NumericCastThatLosesPrecision
+			return (int) value;
+		}
+		//noinspection MagicNumber
+		final int magnitude = 63 - Long.numberOfLeadingZeros(value) - LogLinearHistogram.SUB_BUCKET_BITS;
+		//noinspection NumericCastThatLosesPrecision
+		final int subBucket = (int) (value >>> magnitude) - LogLinearHistogram.SUB_BUCKET_COUNT;
+		return (magnitude + 1) * LogLinearHistogram.SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * Gets the highest value that is counted in the bucket with the given index.
+	 *
+	 * @param index The index of the bucket
+	 *
+	 * @return The highest value of the bucket
+	 */
+	private static long highestValue(final int index) {
+		if (index < LogLinearHistogram.SUB_BUCKET_COUNT) {
+			return index;
+		}
+		final int magnitude = index / LogLinearHistogram.SUB_BUCKET_COUNT - 1;
+		final long subBucket = index % LogLinearHistogram.SUB_BUCKET_COUNT + LogLinearHistogram.SUB_BUCKET_COUNT;
+		return ((subBucket + 1) << magnitude) - 1;
+	}
+
+	/**
+	 * The amount of recorded values per bucket.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(LogLinearHistogram.BUCKET_COUNT);
+	/**
+	 * The amount of recorded values.
+	 */
+	private final LongAdder count = new LongAdder();
+	/**
+	 * The highest recorded value.
+	 */
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+	/**
+	 * The sum of all recorded values.
+	 */
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * Gets the amount of recorded values.
+	 *
+	 * @return The amount of recorded values
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the highest recorded value.
+	 *
+	 * @return The highest recorded value, {@code 0} if no value was recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the mean of all recorded values, computed exactly.
+	 *
+	 * @return The mean of all recorded values, {@code 0} if no value was recorded
+	 */
+	public double getMean() {
+		final long currentCount = count.sum();
+		return currentCount == 0 ? 0 : (double) sum.sum() / currentCount;
+	}
+
+	/**
+	 * Gets the value at the given percentile, i.e. the value that is greater equals the given percentage of recorded
+	 * values. The value is the highest value that is counted in the same bucket, hence it may exceed the exact value
+	 * by the relative error of the histogram.
+	 *
+	 * @param percentile The percentile, between {@code 0} and {@code 100}
+	 *
+	 * @return The value at the given percentile, {@code 0} if no value was recorded
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		//noinspection MagicNumber
+		Validations.require(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100");
+
+		long total = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		//noinspection MagicNumber,NumericCastThatLosesPrecision
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(LogLinearHistogram.highestValue(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Records the given value.
+	 *
+	 * @param value The value to record, must be positive
+	 */
+	public void record(final long value) {
+		Validations.requirePositive(value, "Value");
+		counts.incrementAndGet(LogLinearHistogram.bucketIndex(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+}
@@ -0,0 +1,45 @@
+package io.github.zabuzard.fastcdc4j.internal.util;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Iterator that maps the elements of a given iterator on-the-fly, using a given function.
+ *
+ * @param <X> The type contained in the source iterator
+ * @param <Y> The type the elements are mapped to, also the final type contained in this iterator
+ *
+ * @author Daniel Tischner {@literal <zabuza.dev@gmail.com>}
+ */
+public final class MappingIterator<X, Y> implements Iterator<Y> {
+	/**
+	 * Function that maps the elements of the source iterator.
+	 */
+	private final Function<? super X, ? extends Y> mapper;
+	/**
+	 * The source iterator whose elements are mapped.
+	 */
+	private final Iterator<? extends X> source;
+
+	/**
+	 * Creates a new mapping iterator that maps the given iterator on-the-fly.
+	 *
+	 * @param source The source iterator whose elements are mapped, not null
+	 * @param mapper Function that maps the elements of the source iterator, not null
+	 */
+	public MappingIterator(final Iterator<? extends X> source, final Function<? super X, ? extends Y> mapper) {
+		this.source = Objects.requireNonNull(source);
+		this.mapper = Objects.requireNonNull(mapper);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return source.hasNext();
+	}
+
+	@Override
+	public Y next() {
+		return mapper.apply(source.next());
+	}
+}
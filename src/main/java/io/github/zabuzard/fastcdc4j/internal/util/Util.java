@@ -1,8 +1,6 @@
 package io.github.zabuzard.fastcdc4j.internal.util;
 
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
 
 /**
@@ -47,22 +45,27 @@ public enum Util {
 	}
 
 	/**
-	 * Hashes the given data using the given method.
+	 * Derives a uniformly distributed value from the given bytes of a hash, by reading up to {@code 8} bytes and applying
+	 * the first round of the finalizer of MurmurHash3. Hashes of chunks are usually uniformly distributed already, the
+	 * round also covers custom hashes.
 	 *
-	 * @param method The method to use for hashing, must be supported by {@link MessageDigest}, not null
-	 * @param data   The data to hash, not null
+	 * @param hash   The hash, not null
+	 * @param offset The index of the first byte to read. If less than {@code 8} bytes follow, only the remaining bytes
+	 *               are read, as the lowest bytes of the value, big-endian. An offset at or after the end of the hash
+	 *               reads no bytes and derives the value of {@code 0}.
 	 *
-	 * @return The computed hash
+	 * @return The derived value
 	 */
-	public static byte[] hash(final String method, final byte[] data) {
-		Objects.requireNonNull(method);
-		Objects.requireNonNull(data);
-		try {
-			return MessageDigest.getInstance(method)
-					.digest(data);
-		} catch (final NoSuchAlgorithmException e) {
-			throw new IllegalStateException("Hash method must be supported", e);
+	@SuppressWarnings("MagicNumber")
+	public static long mixHash(final byte[] hash, final int offset) {
+		long bits = 0;
+		for (int i = offset; i < Math.min(offset + Long.BYTES, hash.length); i++) {
+			bits = bits << Byte.SIZE | hash[i] & 0xFF;
 		}
+		bits ^= bits >>> 33;
+		bits *= 0xFF51_AFD7_ED55_8CCDL;
+		bits ^= bits >>> 33;
+		return bits;
 	}
 
 	/**
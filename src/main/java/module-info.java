@@ -2,5 +2,7 @@
  * Fast and efficient content-defined chunking for data deduplication. Java implementation of FastCDC as library.
  */
 module io.github.zabuzard.fastcdc4j {
+	requires jdk.jfr;
+
 	exports io.github.zabuzard.fastcdc4j.external.chunking;
 }
\ No newline at end of file